@@ -0,0 +1,103 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.AsyncGlovo;
+import bg.sofia.uni.fmi.mjt.glovo.Glovo;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.OverloadPolicy;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.AsyncGlovoStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Submits a burst of orders much faster than they are searched and prints, for every overload policy, how
+ * many orders were answered or shed, how deep the queue got and how long the orders waited in it
+ */
+public class AsyncGlovoBenchmark {
+
+    private static final long SEED = 42;
+    private static final int SIZE = 500;
+    private static final double WALL_DENSITY = 0.2;
+    private static final int DELIVERY_GUYS = 100;
+    private static final int RESTAURANTS = 30;
+    private static final int CLIENTS = 100;
+    private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int ORDERS = 5000;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    public static void main(String[] args) {
+        char[][] layout = new CityGenerator(SEED).generate(SIZE, SIZE, WALL_DENSITY, DELIVERY_GUYS, RESTAURANTS,
+                CLIENTS);
+        List<MapEntity> restaurants = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.RESTAURANT).stream()
+                .map(location -> new MapEntity(location, MapEntityType.RESTAURANT))
+                .toList();
+        List<MapEntity> clients = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.CLIENT).stream()
+                .map(location -> new MapEntity(location, MapEntityType.CLIENT))
+                .toList();
+        Glovo glovo = new Glovo(layout);
+
+        System.out.printf("%d workers, queue of %d, burst of %d orders, results dropped by a subscriber that"
+                + " takes one at a time%n", WORKERS, QUEUE_CAPACITY, ORDERS);
+        System.out.printf("%-12s %10s %10s %8s %8s %12s %12s %10s%n", "policy", "orders/s", "answered", "shed",
+                "max q", "mean wait ms", "p99 wait ms", "dropped");
+        for (OverloadPolicy policy : OverloadPolicy.values()) {
+            Random random = new Random(SEED);
+            long start = System.nanoTime();
+            int answered = 0;
+            AsyncGlovo asyncGlovo = new AsyncGlovo(glovo, WORKERS, QUEUE_CAPACITY, policy, Flow.defaultBufferSize());
+            try (asyncGlovo) {
+                asyncGlovo.getResults().subscribe(new OneAtATimeSubscriber());
+
+                List<CompletableFuture<Delivery>> futures = new ArrayList<>(ORDERS);
+                for (int i = 0; i < ORDERS; i++) {
+                    futures.add(asyncGlovo.getCheapestDelivery(clients.get(random.nextInt(clients.size())),
+                            restaurants.get(random.nextInt(restaurants.size())), "Pizza"));
+                }
+                for (CompletableFuture<Delivery> future : futures) {
+                    if (!future.handle((delivery, failure) -> failure == null).join()) continue;
+                    answered++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            AsyncGlovoStatistics statistics = asyncGlovo.getStatistics();
+
+            System.out.printf("%-12s %10.0f %10d %8d %8d %12.2f %12.2f %10d%n", policy, ORDERS / seconds,
+                    answered, statistics.shed(), statistics.maxQueueDepth(),
+                    statistics.meanQueueWaitNanos() / NANOS_PER_MILLI,
+                    statistics.p99QueueWaitNanos() / NANOS_PER_MILLI, statistics.droppedResults());
+        }
+    }
+
+    /**
+     * Takes the published results one at a time
+     */
+    private static final class OneAtATimeSubscriber implements Flow.Subscriber<Object> {
+
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Object item) {
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.BatchAssigner;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.OrderDispatcher;
+import bg.sofia.uni.fmi.mjt.glovo.exception.NoAvailableDeliveryGuyException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares a lunch wave of orders assigned one by one, each order reserving its cheapest free delivery
+ * guy, with the same wave assigned at once by BatchAssigner.
+ */
+public class BatchAssignmentBenchmark {
+
+    private static final long SEED = 42;
+    private static final int SIZE = 400;
+    private static final double WALL_DENSITY = 0.1;
+    private static final int DELIVERY_GUYS = 300;
+    private static final int RESTAURANTS = 15;
+    private static final int CLIENTS = 200;
+    private static final int[] WAVES = {25, 50, 100, 200};
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    public static void main(String[] args) {
+        char[][] layout = new CityGenerator(SEED)
+                .generate(SIZE, SIZE, WALL_DENSITY, DELIVERY_GUYS, RESTAURANTS, CLIENTS);
+        List<Location> restaurants = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.RESTAURANT);
+        List<Location> clients = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.CLIENT);
+
+        System.out.printf("%-8s %15s %15s %15s %15s %10s%n",
+                "orders", "sequential ms", "batch ms", "sequential cost", "batch cost", "served");
+
+        for (int wave : WAVES) {
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < wave; i++) {
+                orders.add(new Order(new MapEntity(clients.get(i % clients.size()), MapEntityType.CLIENT),
+                        new MapEntity(restaurants.get(i % restaurants.size()), MapEntityType.RESTAURANT),
+                        "Pizza", ShippingMethod.CHEAPEST));
+            }
+
+            long start = System.nanoTime();
+            List<Delivery> sequential = new ArrayList<>();
+            try (OrderDispatcher dispatcher = new OrderDispatcher(new ControlCenter(layout))) {
+                for (Order order : orders) {
+                    try {
+                        sequential.add(dispatcher.dispatch(order));
+                    } catch (NoAvailableDeliveryGuyException e) {
+                        sequential.add(null);
+                    }
+                }
+            }
+            double sequentialMillis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+
+            start = System.nanoTime();
+            List<Delivery> batch = new BatchAssigner(new ControlCenter(layout)).assign(orders);
+            double batchMillis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+
+            System.out.printf("%-8d %15.1f %15.1f %15.1f %15.1f %5d/%-5d%n", wave, sequentialMillis, batchMillis,
+                    totalPrice(sequential), totalPrice(batch), served(sequential), served(batch));
+        }
+    }
+
+    private static double totalPrice(List<Delivery> deliveries) {
+        return deliveries.stream().filter(delivery -> delivery != null).mapToDouble(Delivery::getPrice).sum();
+    }
+
+    private static long served(List<Delivery> deliveries) {
+        return deliveries.stream().filter(delivery -> delivery != null).count();
+    }
+}
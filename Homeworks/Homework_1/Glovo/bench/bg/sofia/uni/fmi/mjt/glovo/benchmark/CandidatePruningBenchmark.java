@@ -0,0 +1,63 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.SearchStatistics;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+
+import java.util.List;
+
+/**
+ * Shows how many searches of delivery guys the lower bounds skip. The orders search the delivery guys one
+ * by one with A*, once without constraints and once with a maximum price that only the delivery guys near
+ * the restaurant can meet.
+ */
+public class CandidatePruningBenchmark {
+
+    private static final long SEED = 42;
+    private static final int SIZE = 2000;
+    private static final double WALL_DENSITY = 0.2;
+    private static final int[] DELIVERY_GUYS = {10, 100, 1000};
+    private static final int ORDERS = 30;
+    private static final int WARMUP_ORDERS = 10;
+    private static final double MAX_PRICE = 3000;
+
+    public static void main(String[] args) {
+        System.out.printf("%-13s %-10s %12s %15s %15s%n",
+                "delivery guys", "max price", "ms/order", "searched/order", "skipped/order");
+
+        for (int deliveryGuys : DELIVERY_GUYS) {
+            char[][] layout = new CityGenerator(SEED).generate(SIZE, SIZE, WALL_DENSITY, deliveryGuys,
+                    ORDERS, ORDERS);
+            List<Location> restaurants = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.RESTAURANT);
+            List<Location> clients = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.CLIENT);
+
+            for (double maxPrice : new double[] {-1, MAX_PRICE}) {
+                ControlCenter controlCenter = new ControlCenter(layout);
+                runOrders(controlCenter, restaurants, clients, maxPrice, WARMUP_ORDERS);
+                SearchStatistics before = controlCenter.getSearchStatistics();
+
+                long start = System.nanoTime();
+                runOrders(controlCenter, restaurants, clients, maxPrice, ORDERS);
+                double millisPerOrder = (System.nanoTime() - start) / 1_000_000.0 / ORDERS;
+
+                SearchStatistics after = controlCenter.getSearchStatistics();
+                long orders = after.orders() - before.orders();
+                System.out.printf("%-13d %-10s %12.2f %15.1f %15.1f%n", deliveryGuys,
+                        maxPrice == -1 ? "none" : String.valueOf((int) maxPrice), millisPerOrder,
+                        (double) (after.searches() - before.searches()) / Math.max(1, orders),
+                        (double) (after.skippedSearches() - before.skippedSearches()) / Math.max(1, orders));
+            }
+        }
+    }
+
+    private static void runOrders(ControlCenter controlCenter, List<Location> restaurants, List<Location> clients,
+                                  double maxPrice, int orders) {
+        for (int i = 0; i < orders; i++) {
+            controlCenter.findOptimalDeliveryGuy(restaurants.get(i % restaurants.size()),
+                    clients.get(i % clients.size()), maxPrice, -1, ShippingMethod.CHEAPEST, RoutingStrategy.A_STAR);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+
+import java.util.Random;
+
+public class CityGenerator {
+
+    private final Random random;
+
+    /**
+     * Makes a generator that always produces the same cities for the same seed
+     *
+     * @param seed the seed of the random generator
+     */
+    public CityGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates a grid city layout. Walls are scattered with the given density and the delivery guys are
+     * split evenly between cars and bikes.
+     *
+     * @param rows         the number of rows of the layout
+     * @param cols         the number of columns of the layout
+     * @param wallDensity  the chance for every cell to be a wall, between 0 and 1
+     * @param deliveryGuys the number of delivery guys on the map
+     * @param restaurants  the number of restaurants on the map
+     * @param clients      the number of clients on the map
+     * @return             char[][] of the layout
+     */
+    public char[][] generate(int rows, int cols, double wallDensity, int deliveryGuys, int restaurants, int clients) {
+        if (rows <= 0 || cols <= 0 || wallDensity < 0 || wallDensity > 1) {
+            throw new IllegalArgumentException("Invalid size or wall density of the city");
+        }
+        if ((long) deliveryGuys + restaurants + clients > (long) rows * cols) {
+            throw new IllegalArgumentException("The city is too small for all of its entities");
+        }
+
+        char[][] layout = new char[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                layout[i][j] = random.nextDouble() < wallDensity ?
+                        MapEntityType.WALL.getSymbol() : MapEntityType.ROAD.getSymbol();
+            }
+        }
+
+        for (int i = 0; i < deliveryGuys; i++) {
+            MapEntityType type = i % 2 == 0 ? MapEntityType.DELIVERY_GUY_CAR : MapEntityType.DELIVERY_GUY_BIKE;
+            place(layout, type);
+        }
+        for (int i = 0; i < restaurants; i++) {
+            place(layout, MapEntityType.RESTAURANT);
+        }
+        for (int i = 0; i < clients; i++) {
+            place(layout, MapEntityType.CLIENT);
+        }
+
+        return layout;
+    }
+
+    /**
+     * Places an entity on a random cell that is a road or a wall. Walls are overwritten, so every entity
+     * stands on a cell it can leave from.
+     *
+     * @param layout the layout to place the entity on
+     * @param type   the type of the entity
+     */
+    private void place(char[][] layout, MapEntityType type) {
+        while (true) {
+            int x = random.nextInt(layout.length);
+            int y = random.nextInt(layout[0].length);
+            char symbol = layout[x][y];
+            if (symbol == MapEntityType.ROAD.getSymbol() || symbol == MapEntityType.WALL.getSymbol()) {
+                layout[x][y] = type.getSymbol();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Moves the delivery guys around a large city between the orders. Every round moves a part of the delivery
+ * guys to random roads and then finds the cheapest delivery guy for an order, so the searches always see an
+ * up to date map. The guided searches only look at the delivery guys near the restaurant.
+ */
+public class DeliveryGuyMovementBenchmark {
+
+    private static final long SEED = 42;
+    private static final int SIZE = 2000;
+    private static final double WALL_DENSITY = 0.2;
+    private static final int[] DELIVERY_GUYS = {10, 100, 1000};
+    private static final int ROUNDS = 30;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final double MOVING_PART = 0.1;
+
+    public static void main(String[] args) {
+        System.out.printf("%-13s %-18s %15s %15s%n", "delivery guys", "strategy", "ns/move", "ms/order");
+
+        for (int deliveryGuys : DELIVERY_GUYS) {
+            char[][] layout = new CityGenerator(SEED).generate(SIZE, SIZE, WALL_DENSITY, deliveryGuys, 0, 0);
+            List<Location> roads = roads(layout);
+
+            for (RoutingStrategy strategy : new RoutingStrategy[] {RoutingStrategy.BFS, RoutingStrategy.A_STAR}) {
+                ControlCenter controlCenter = new ControlCenter(layout);
+                Random random = new Random(SEED);
+
+                run(controlCenter, strategy, roads, random, WARMUP_ROUNDS, new long[2]);
+                long[] nanos = new long[2];
+                run(controlCenter, strategy, roads, random, ROUNDS, nanos);
+
+                int moves = ROUNDS * Math.max(1, (int) (deliveryGuys * MOVING_PART));
+                System.out.printf("%-13d %-18s %15.0f %15.2f%n", deliveryGuys, strategy,
+                        (double) nanos[0] / moves, nanos[1] / 1_000_000.0 / ROUNDS);
+            }
+        }
+    }
+
+    /**
+     * Runs the rounds and adds the time of the moves and of the orders to nanos
+     */
+    private static void run(ControlCenter controlCenter, RoutingStrategy strategy, List<Location> roads,
+                            Random random, int rounds, long[] nanos) {
+        int count = controlCenter.getDeliveryGuysCount();
+        int moving = Math.max(1, (int) (count * MOVING_PART));
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < moving; i++) {
+                moveToFreeRoad(controlCenter, random.nextInt(count), roads, random);
+            }
+            long moved = System.nanoTime();
+
+            Location restaurant = roads.get(random.nextInt(roads.size()));
+            Location client = roads.get(random.nextInt(roads.size()));
+            controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1, ShippingMethod.CHEAPEST, strategy);
+
+            nanos[0] += moved - start;
+            nanos[1] += System.nanoTime() - moved;
+        }
+    }
+
+    private static void moveToFreeRoad(ControlCenter controlCenter, int deliveryGuy, List<Location> roads,
+                                       Random random) {
+        MapEntity[][] map = controlCenter.getLayout();
+        Location to;
+        do {
+            to = roads.get(random.nextInt(roads.size()));
+        } while (map[to.x()][to.y()].type() != MapEntityType.ROAD);
+
+        controlCenter.moveDeliveryGuy(deliveryGuy, to);
+    }
+
+    private static List<Location> roads(char[][] layout) {
+        List<Location> roads = new ArrayList<>();
+        for (int i = 0; i < layout.length; i++) {
+            for (int j = 0; j < layout[i].length; j++) {
+                if (layout[i][j] == MapEntityType.ROAD.getSymbol()) {
+                    roads.add(new Location(i, j));
+                }
+            }
+        }
+        return roads;
+    }
+}
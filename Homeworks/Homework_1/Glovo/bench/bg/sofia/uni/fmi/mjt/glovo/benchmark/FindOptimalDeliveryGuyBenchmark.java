@@ -0,0 +1,61 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how the time for a single order grows with the number of delivery guys on the map.
+ */
+public class FindOptimalDeliveryGuyBenchmark {
+
+    private static final long SEED = 42;
+    private static final int SIZE = 500;
+    private static final double WALL_DENSITY = 0.1;
+    private static final int[] DELIVERY_GUYS = {1, 10, 100, 500, 1000};
+    private static final int ORDERS = 50;
+    private static final int WARMUP_ORDERS = 20;
+
+    public static void main(String[] args) {
+        System.out.printf("%-15s %15s%n", "delivery guys", "ms/order");
+
+        for (int deliveryGuys : DELIVERY_GUYS) {
+            char[][] layout = new CityGenerator(SEED).generate(SIZE, SIZE, WALL_DENSITY, deliveryGuys, ORDERS, ORDERS);
+            ControlCenter controlCenter = new ControlCenter(layout);
+            List<Location> restaurants = find(layout, MapEntityType.RESTAURANT);
+            List<Location> clients = find(layout, MapEntityType.CLIENT);
+
+            runOrders(controlCenter, restaurants, clients, WARMUP_ORDERS);
+
+            long start = System.nanoTime();
+            runOrders(controlCenter, restaurants, clients, ORDERS);
+            double millisPerOrder = (System.nanoTime() - start) / 1_000_000.0 / ORDERS;
+
+            System.out.printf("%-15d %15.3f%n", deliveryGuys, millisPerOrder);
+        }
+    }
+
+    private static void runOrders(ControlCenter controlCenter, List<Location> restaurants, List<Location> clients,
+                                  int orders) {
+        for (int i = 0; i < orders; i++) {
+            controlCenter.findOptimalDeliveryGuy(restaurants.get(i % restaurants.size()),
+                    clients.get(i % clients.size()), -1, -1, ShippingMethod.CHEAPEST);
+        }
+    }
+
+    static List<Location> find(char[][] layout, MapEntityType type) {
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < layout.length; i++) {
+            for (int j = 0; j < layout[i].length; j++) {
+                if (layout[i][j] == type.getSymbol()) {
+                    locations.add(new Location(i, j));
+                }
+            }
+        }
+        return locations;
+    }
+}
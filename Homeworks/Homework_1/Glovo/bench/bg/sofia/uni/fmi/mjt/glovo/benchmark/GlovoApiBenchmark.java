@@ -0,0 +1,167 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.Glovo;
+import bg.sofia.uni.fmi.mjt.glovo.GlovoApi;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.exception.NoAvailableDeliveryGuyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures every method of GlovoApi on the same seeded city and prints the throughput, the allocated
+ * memory and the latency percentiles of each of them, so two versions can be compared on equal terms.
+ * The city is given on the command line:
+ * java GlovoApiBenchmark [size wallDensity deliveryGuys restaurants clients seed]
+ * <p>
+ * The allocated memory is counted on the benchmark thread, so the memory allocated by the parallel
+ * searches of the batch deliveries on other threads is not part of it.
+ */
+public class GlovoApiBenchmark {
+
+    private static final int DEFAULT_SIZE = 1000;
+    private static final double DEFAULT_WALL_DENSITY = 0.2;
+    private static final int DEFAULT_DELIVERY_GUYS = 200;
+    private static final int DEFAULT_RESTAURANTS = 50;
+    private static final int DEFAULT_CLIENTS = 200;
+    private static final long DEFAULT_SEED = 42;
+    private static final int WARMUP = 200;
+    private static final int OPERATIONS = 1000;
+    private static final int BATCH_WARMUP = 10;
+    private static final int BATCHES = 50;
+    private static final int WAVE = 20;
+    private static final int ALTERNATIVES = 5;
+    private static final String FOOD = "Pizza";
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        double wallDensity = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_WALL_DENSITY;
+        int deliveryGuys = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DELIVERY_GUYS;
+        int restaurantCount = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_RESTAURANTS;
+        int clientCount = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_CLIENTS;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : DEFAULT_SEED;
+
+        char[][] layout = new CityGenerator(seed).generate(size, size, wallDensity, deliveryGuys, restaurantCount,
+                clientCount);
+        List<MapEntity> restaurants = entities(layout, MapEntityType.RESTAURANT);
+        List<MapEntity> clients = entities(layout, MapEntityType.CLIENT);
+        GlovoApi glovo = new Glovo(layout);
+        Random random = new Random(seed);
+
+        // the same orders for every method, chosen before anything is measured
+        int orderCount = WARMUP + OPERATIONS;
+        MapEntity[] orderClients = new MapEntity[orderCount];
+        MapEntity[] orderRestaurants = new MapEntity[orderCount];
+        for (int i = 0; i < orderCount; i++) {
+            orderClients[i] = clients.get(random.nextInt(clients.size()));
+            orderRestaurants[i] = restaurants.get(random.nextInt(restaurants.size()));
+        }
+
+        System.out.printf("city %dx%d, walls %.2f, delivery guys %d, restaurants %d, clients %d, seed %d%n",
+                size, size, wallDensity, deliveryGuys, restaurantCount, clientCount, seed);
+        Measurement.printHeader();
+
+        Measurement.print(Measurement.measure("getCheapestDelivery", WARMUP, OPERATIONS,
+                i -> deliverOrNull(() -> glovo.getCheapestDelivery(orderClients[i], orderRestaurants[i], FOOD))));
+        Measurement.print(Measurement.measure("getFastestDelivery", WARMUP, OPERATIONS,
+                i -> deliverOrNull(() -> glovo.getFastestDelivery(orderClients[i], orderRestaurants[i], FOOD))));
+        Measurement.print(Measurement.measure("getFastestDeliveryUnderPrice", WARMUP, OPERATIONS,
+                i -> deliverOrNull(() -> glovo.getFastestDeliveryUnderPrice(orderClients[i], orderRestaurants[i],
+                        FOOD, size * 2.0))));
+        Measurement.print(Measurement.measure("getCheapestDeliveryWithinTimeLimit", WARMUP, OPERATIONS,
+                i -> deliverOrNull(() -> glovo.getCheapestDeliveryWithinTimeLimit(orderClients[i],
+                        orderRestaurants[i], FOOD, size * 2))));
+        Measurement.print(Measurement.measure("getDeliveryAlternatives", WARMUP, OPERATIONS,
+                i -> glovo.getDeliveryAlternatives(orderClients[i], orderRestaurants[i], FOOD,
+                        ShippingMethod.CHEAPEST, ALTERNATIVES)));
+        Measurement.print(Measurement.measure("getParetoDeliveries", WARMUP, OPERATIONS,
+                i -> glovo.getParetoDeliveries(orderClients[i], orderRestaurants[i], FOOD)));
+
+        List<List<Order>> waves = new ArrayList<>();
+        for (int i = 0; i < BATCH_WARMUP + BATCHES; i++) {
+            List<Order> wave = new ArrayList<>(WAVE);
+            for (int j = 0; j < WAVE; j++) {
+                int order = random.nextInt(orderCount);
+                wave.add(new Order(orderClients[order], orderRestaurants[order], FOOD,
+                        j % 2 == 0 ? ShippingMethod.CHEAPEST : ShippingMethod.FASTEST));
+            }
+            waves.add(wave);
+        }
+        Measurement.print(Measurement.measure("getBatchDeliveries (" + WAVE + " orders)", BATCH_WARMUP, BATCHES,
+                i -> glovo.getBatchDeliveries(waves.get(i))));
+
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < orderCount; i++) {
+            MapEntity client = orderClients[i];
+            MapEntity restaurant = orderRestaurants[i];
+            Delivery delivery = deliverOrNull(() -> glovo.getCheapestDelivery(client, restaurant, FOOD));
+            if (delivery != null) {
+                deliveries.add(delivery);
+            }
+        }
+        if (!deliveries.isEmpty()) {
+            Measurement.print(Measurement.measure("getDeliveryPath", WARMUP, OPERATIONS,
+                    i -> glovo.getDeliveryPath(deliveries.get(i % deliveries.size()))));
+        }
+
+        // last, because the moves change the map for the other methods
+        Location[] move = movableDeliveryGuy(layout);
+        if (move != null) {
+            Measurement.print(Measurement.measure("moveDeliveryGuy", WARMUP, OPERATIONS,
+                    i -> glovo.moveDeliveryGuy(move[i % 2], move[1 - i % 2])));
+        }
+    }
+
+    /**
+     * A single order that may find no delivery guy
+     */
+    @FunctionalInterface
+    private interface SingleDelivery {
+        Delivery get() throws NoAvailableDeliveryGuyException;
+    }
+
+    /**
+     * Runs a single order. An order without a delivery guy is as valid a result as any other for the
+     * benchmark, so the exception is not let out.
+     */
+    private static Delivery deliverOrNull(SingleDelivery order) {
+        try {
+            return order.get();
+        } catch (NoAvailableDeliveryGuyException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds a delivery guy with a road next to him, so he can be moved there and back
+     *
+     * @return Location[] of the delivery guy and the road, null if there is none
+     */
+    private static Location[] movableDeliveryGuy(char[][] layout) {
+        for (MapEntityType type : List.of(MapEntityType.DELIVERY_GUY_CAR, MapEntityType.DELIVERY_GUY_BIKE)) {
+            for (Location location : FindOptimalDeliveryGuyBenchmark.find(layout, type)) {
+                int x = location.x();
+                int y = location.y();
+                if (y + 1 < layout[x].length && layout[x][y + 1] == MapEntityType.ROAD.getSymbol()) {
+                    return new Location[] {location, new Location(x, y + 1)};
+                }
+                if (y > 0 && layout[x][y - 1] == MapEntityType.ROAD.getSymbol()) {
+                    return new Location[] {location, new Location(x, y - 1)};
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<MapEntity> entities(char[][] layout, MapEntityType type) {
+        return FindOptimalDeliveryGuyBenchmark.find(layout, type).stream()
+                .map(location -> new MapEntity(location, type))
+                .toList();
+    }
+}
@@ -0,0 +1,94 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.ArrayCellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.BreadthFirstSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.CellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.HierarchicalSearch;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the hierarchical search with Breath First Search on routes across big maps, and the rebuild of
+ * the clusters around a changed cell with the build of the whole abstract graph. The biggest map needs
+ * about 3 GB of heap: java -Xmx4g HierarchicalRoutingBenchmark [size...]
+ */
+public class HierarchicalRoutingBenchmark {
+
+    private static final long SEED = 42;
+    private static final int[] SIZES = {1000, 4000, 10000};
+    private static final double WALL_DENSITY = 0.2;
+    private static final int ROUTES = 20;
+    private static final int UPDATES = 1000;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? SIZES : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-7s %9s %8s %11s %11s %9s %11s%n",
+                "size", "build ms", "nodes", "BFS us/op", "HPA us/op", "longer %", "update us");
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        CellGrid grid = new ArrayCellGrid(new CityGenerator(SEED).generate(size, size, WALL_DENSITY, 0, 0, 0));
+        Random random = new Random(SEED);
+
+        long start = System.nanoTime();
+        HierarchicalSearch hierarchical = new HierarchicalSearch(grid);
+        double buildMillis = (System.nanoTime() - start) / 1_000_000.0;
+        BreadthFirstSearch bfs = new BreadthFirstSearch(grid);
+
+        int[][] routes = farRoutes(grid, bfs, random);
+        // the first searches allocate the buffers
+        bfs.distance(routes[0][0], routes[0][1]);
+        hierarchical.distance(routes[0][0], routes[0][1]);
+
+        long shortest = 0;
+        start = System.nanoTime();
+        for (int[] route : routes) {
+            shortest += bfs.distance(route[0], route[1]);
+        }
+        double bfsMicros = (System.nanoTime() - start) / 1000.0 / ROUTES;
+
+        long found = 0;
+        start = System.nanoTime();
+        for (int[] route : routes) {
+            found += hierarchical.distance(route[0], route[1]);
+        }
+        double hierarchicalMicros = (System.nanoTime() - start) / 1000.0 / ROUTES;
+
+        start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            int cell = random.nextInt(grid.size());
+            if (grid.isWall(cell)) continue;
+            grid.setType(cell, MapEntityType.WALL);
+            hierarchical.update(cell);
+            grid.setType(cell, MapEntityType.ROAD);
+            hierarchical.update(cell);
+        }
+        double updateMicros = (System.nanoTime() - start) / 1000.0 / (2 * UPDATES);
+
+        System.out.printf("%-7s %9.0f %8d %11.0f %11.0f %9.2f %11.1f%n", size + "x" + size, buildMillis,
+                hierarchical.nodeCount(), bfsMicros, hierarchicalMicros, 100.0 * (found - shortest) / shortest,
+                updateMicros);
+    }
+
+    /**
+     * Picks connected pairs of cells at least half of the map apart
+     */
+    private static int[][] farRoutes(CellGrid grid, BreadthFirstSearch bfs, Random random) {
+        int[][] routes = new int[ROUTES][];
+        int count = 0;
+        while (count < ROUTES) {
+            int from = random.nextInt(grid.size());
+            int to = random.nextInt(grid.size());
+            if (grid.manhattanDistance(from, to) >= grid.rows() / 2 && bfs.distance(from, to) != -1) {
+                routes[count++] = new int[] {from, to};
+            }
+        }
+        return routes;
+    }
+}
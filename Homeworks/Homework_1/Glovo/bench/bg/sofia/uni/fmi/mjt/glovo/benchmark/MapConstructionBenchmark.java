@@ -0,0 +1,40 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+
+/**
+ * Measures how long a control center takes to start from a char[][] layout and how long the MapEntity[][]
+ * of getLayout() takes to build afterwards. The largest map needs about 4 GB of heap (-Xmx4g) for the
+ * MapEntity[][] and the layout.
+ */
+public class MapConstructionBenchmark {
+
+    private static final long SEED = 42;
+    private static final int[] SIZES = {1000, 3000, 6000};
+    private static final double WALL_DENSITY = 0.2;
+    private static final int DELIVERY_GUYS = 1000;
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) {
+        System.out.printf("%-11s %8s %14s %16s%n", "size", "threads", "startup ms", "getLayout ms");
+
+        for (int size : SIZES) {
+            char[][] layout = new CityGenerator(SEED).generate(size, size, WALL_DENSITY, DELIVERY_GUYS, 1, 1);
+
+            double startupMillis = Double.MAX_VALUE;
+            double layoutMillis = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                ControlCenter controlCenter = new ControlCenter(layout);
+                startupMillis = Math.min(startupMillis, (System.nanoTime() - start) / 1_000_000.0);
+
+                start = System.nanoTime();
+                controlCenter.getLayout();
+                layoutMillis = Math.min(layoutMillis, (System.nanoTime() - start) / 1_000_000.0);
+            }
+
+            System.out.printf("%-11s %8d %14.1f %16.1f%n", size + "x" + size,
+                    Runtime.getRuntime().availableProcessors(), startupMillis, layoutMillis);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.MapFile;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compares the startup of a control center from a char[][] layout with the startup from a memory-mapped
+ * map file, and the heap that each of them keeps. The largest map needs about 3 GB of heap (-Xmx3g) for
+ * the layout that the file is written from.
+ */
+public class MapFileBenchmark {
+
+    private static final long SEED = 42;
+    private static final int[] SIZES = {1000, 3000, 6000};
+    private static final double WALL_DENSITY = 0.2;
+    private static final int DELIVERY_GUYS = 100;
+    private static final int ORDERS = 10;
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%-11s %-7s %12s %12s %15s%n", "size", "source", "startup ms", "heap MB", "first order ms");
+
+        for (int size : SIZES) {
+            char[][] layout = new CityGenerator(SEED).generate(size, size, WALL_DENSITY, DELIVERY_GUYS,
+                    ORDERS, ORDERS);
+            List<Location> restaurants = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.RESTAURANT);
+            List<Location> clients = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.CLIENT);
+
+            Path mapFile = Files.createTempFile("city", ".map");
+            try {
+                MapFile.write(mapFile, layout);
+
+                long heap = usedHeap();
+                long start = System.nanoTime();
+                ControlCenter fromLayout = new ControlCenter(layout);
+                report(size, "layout", start, heap, fromLayout, restaurants, clients);
+                fromLayout = null;
+
+                heap = usedHeap();
+                start = System.nanoTime();
+                ControlCenter fromFile = new ControlCenter(MapFile.open(mapFile), 0);
+                report(size, "file", start, heap, fromFile, restaurants, clients);
+            } finally {
+                Files.delete(mapFile);
+            }
+        }
+    }
+
+    private static void report(int size, String source, long start, long heapBefore, ControlCenter controlCenter,
+                               List<Location> restaurants, List<Location> clients) {
+        double startupMillis = (System.nanoTime() - start) / 1_000_000.0;
+        double heapMegabytes = (usedHeap() - heapBefore) / 1024.0 / 1024.0;
+
+        long orderStart = System.nanoTime();
+        controlCenter.findOptimalDeliveryGuy(restaurants.get(0), clients.get(0), -1, -1,
+                ShippingMethod.CHEAPEST, RoutingStrategy.A_STAR);
+        double orderMillis = (System.nanoTime() - orderStart) / 1_000_000.0;
+
+        System.out.printf("%-11s %-7s %12.1f %12.1f %15.1f%n", size + "x" + size, source, startupMillis,
+                Math.max(0, heapMegabytes), orderMillis);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,130 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Runs an operation many times on the current thread and measures its throughput, the memory it allocates
+ * and the percentiles of its latency. The operation is first run without measuring, so the JIT compiler
+ * has compiled it before the measured runs.
+ */
+public final class Measurement {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    /**
+     * An operation of the benchmark
+     */
+    @FunctionalInterface
+    public interface Operation {
+
+        /**
+         * Runs the operation once
+         *
+         * @param iteration the number of the run, so the operation can vary its arguments
+         * @throws Exception if the operation fails, which stops the benchmark
+         */
+        void run(int iteration) throws Exception;
+    }
+
+    /**
+     * The measured numbers of an operation. The allocated bytes are -1 if the JVM cannot count the memory
+     * allocated by a thread.
+     *
+     * @param name                the name of the operation
+     * @param operations          the number of measured runs
+     * @param opsPerSecond        the runs per second
+     * @param bytesPerOp          the bytes allocated by a run on average
+     * @param megabytesPerSecond  the allocation rate
+     * @param latencies           the sorted latencies of the runs in nanoseconds
+     */
+    public record Result(String name, int operations, double opsPerSecond, long bytesPerOp,
+                         double megabytesPerSecond, long[] latencies) {
+
+        /**
+         * Returns the latency that the given part of the runs did not exceed
+         *
+         * @param percentile the part of the runs between 0 and 100
+         * @return           the latency in microseconds
+         */
+        public double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1000.0;
+        }
+    }
+
+    private Measurement() {
+    }
+
+    /**
+     * Measures an operation
+     *
+     * @param name       the name of the operation
+     * @param warmup     the number of runs before the measured ones
+     * @param operations the number of measured runs, at least 1
+     * @param operation  the operation
+     * @return           the Result of the measured runs
+     * @throws Exception if the operation fails
+     */
+    public static Result measure(String name, int warmup, int operations, Operation operation) throws Exception {
+        if (operations <= 0) {
+            throw new IllegalArgumentException("There should be at least one measured run");
+        }
+
+        for (int i = 0; i < warmup; i++) {
+            operation.run(i);
+        }
+
+        long[] latencies = new long[operations];
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            long operationStart = System.nanoTime();
+            operation.run(warmup + i);
+            latencies[i] = System.nanoTime() - operationStart;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+
+        Arrays.sort(latencies);
+        double seconds = elapsed / NANOS_PER_SECOND;
+        long allocated = allocatedBefore == -1 ? -1 : allocatedAfter - allocatedBefore;
+        return new Result(name, operations, operations / seconds, allocated == -1 ? -1 : allocated / operations,
+                allocated == -1 ? -1 : allocated / BYTES_PER_MEGABYTE / seconds, latencies);
+    }
+
+    /**
+     * Prints the header of the table printed by print()
+     */
+    public static void printHeader() {
+        System.out.printf("%-34s %10s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "ops/s", "B/op", "MB/s", "p50 us", "p90 us", "p99 us", "p99.9 us");
+    }
+
+    /**
+     * Prints the result as a row of a table
+     *
+     * @param result the result of an operation
+     */
+    public static void print(Result result) {
+        System.out.printf("%-34s %10.1f %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", result.name(),
+                result.opsPerSecond(), result.bytesPerOp(), result.megabytesPerSecond(), result.percentile(50),
+                result.percentile(90), result.percentile(99), result.percentile(99.9));
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far
+     *
+     * @return the bytes, -1 if the JVM does not count them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean counting
+                && counting.isThreadAllocatedMemorySupported()) {
+            return counting.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
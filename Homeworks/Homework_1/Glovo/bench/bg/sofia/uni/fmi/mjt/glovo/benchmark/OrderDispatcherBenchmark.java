@@ -0,0 +1,82 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.DispatchStatistics;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.OrderDispatcher;
+import bg.sofia.uni.fmi.mjt.glovo.exception.NoAvailableDeliveryGuyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many customers on virtual threads that place orders one after another against the same
+ * OrderDispatcher. Every delivery is completed right after it is dispatched, so the customers keep
+ * competing for the same closest delivery guys.
+ */
+public class OrderDispatcherBenchmark {
+
+    private static final long SEED = 42;
+    private static final int SIZE = 300;
+    private static final double WALL_DENSITY = 0.1;
+    private static final int DELIVERY_GUYS = 200;
+    private static final int RESTAURANTS = 20;
+    private static final int CLIENTS = 100;
+    private static final int CUSTOMERS = 64;
+    private static final int ORDERS_PER_CUSTOMER = 500;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        char[][] layout = new CityGenerator(SEED)
+                .generate(SIZE, SIZE, WALL_DENSITY, DELIVERY_GUYS, RESTAURANTS, CLIENTS);
+        List<Location> restaurants = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.RESTAURANT);
+        List<Location> clients = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.CLIENT);
+
+        try (OrderDispatcher dispatcher = new OrderDispatcher(new ControlCenter(layout, -1));
+             ExecutorService customers = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < CUSTOMERS; i++) {
+                int customer = i;
+                runs.add(customers.submit(() -> order(dispatcher, customer, restaurants, clients)));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+
+            DispatchStatistics statistics = dispatcher.getStatistics();
+            System.out.printf("dispatched: %d, rejected: %d, retries: %d%n",
+                    statistics.dispatched(), statistics.rejected(), statistics.retries());
+            System.out.printf("throughput: %.0f orders/s%n", statistics.throughput());
+            System.out.printf("latency: mean %.3f ms, p99 %.3f ms%n", statistics.meanLatencyNanos() / NANOS_PER_MILLI,
+                    statistics.p99LatencyNanos() / NANOS_PER_MILLI);
+        }
+    }
+
+    private static void order(OrderDispatcher dispatcher, int customer, List<Location> restaurants,
+                              List<Location> clients) {
+        MapEntity client = new MapEntity(clients.get(customer % clients.size()), MapEntityType.CLIENT);
+
+        for (int i = 0; i < ORDERS_PER_CUSTOMER; i++) {
+            MapEntity restaurant = new MapEntity(restaurants.get((customer + i) % restaurants.size()),
+                    MapEntityType.RESTAURANT);
+            Order order = new Order(client, restaurant, "Pizza",
+                    i % 2 == 0 ? ShippingMethod.CHEAPEST : ShippingMethod.FASTEST);
+            try {
+                Delivery delivery = dispatcher.dispatch(order);
+                dispatcher.complete(delivery);
+            } catch (NoAvailableDeliveryGuyException e) {
+                // every delivery guy that can reach the restaurant is busy, the customer gives up
+            }
+        }
+    }
+}
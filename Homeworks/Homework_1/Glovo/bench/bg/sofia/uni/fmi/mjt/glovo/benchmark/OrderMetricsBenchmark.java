@@ -0,0 +1,76 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.Glovo;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.exception.NoAvailableDeliveryGuyException;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.OrderMetricsSnapshot;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.PhaseStatistics;
+
+import java.util.List;
+
+/**
+ * Measures the cost of the order metrics: the same orders with the metrics disabled, enabled, and enabled
+ * with a listener, and prints where the time of the orders went.
+ */
+public class OrderMetricsBenchmark {
+
+    private static final long SEED = 42;
+    private static final int SIZE = 300;
+    private static final double WALL_DENSITY = 0.2;
+    private static final int DELIVERY_GUYS = 50;
+    private static final int RESTAURANTS = 20;
+    private static final int CLIENTS = 50;
+    private static final int WARMUP = 500;
+    private static final int ORDERS = 2000;
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    public static void main(String[] args) throws Exception {
+        char[][] layout = new CityGenerator(SEED).generate(SIZE, SIZE, WALL_DENSITY, DELIVERY_GUYS, RESTAURANTS,
+                CLIENTS);
+        List<MapEntity> restaurants = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.RESTAURANT).stream()
+                .map(location -> new MapEntity(location, MapEntityType.RESTAURANT))
+                .toList();
+        List<MapEntity> clients = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.CLIENT).stream()
+                .map(location -> new MapEntity(location, MapEntityType.CLIENT))
+                .toList();
+
+        Measurement.printHeader();
+        for (String mode : List.of("disabled", "enabled", "listener")) {
+            Glovo glovo = new Glovo(layout);
+            glovo.getOrderMetrics().setEnabled(!mode.equals("disabled"));
+            if (mode.equals("listener")) {
+                long[] sink = new long[1];
+                glovo.getOrderMetrics().setListener(event -> sink[0] += event.totalNanos());
+            }
+
+            Measurement.print(Measurement.measure("metrics " + mode, WARMUP, ORDERS, i -> {
+                try {
+                    glovo.getCheapestDelivery(clients.get(i % clients.size()),
+                            restaurants.get(i * 7 % restaurants.size()), "Pizza");
+                } catch (NoAvailableDeliveryGuyException e) {
+                    // an order without a delivery guy is measured like any other
+                }
+            }));
+
+            if (!mode.equals("disabled")) {
+                print(glovo.getOrderMetrics().snapshot());
+            }
+        }
+    }
+
+    private static void print(OrderMetricsSnapshot snapshot) {
+        System.out.printf("  orders %d, delivered %d, visited cells per order %.0f%n", snapshot.orders(),
+                snapshot.delivered(), (double) snapshot.visitedCells() / snapshot.orders());
+        print("validation", snapshot.validation());
+        print("candidate search", snapshot.candidateSearch());
+        print("selection", snapshot.selection());
+        print("total", snapshot.total());
+    }
+
+    private static void print(String phase, PhaseStatistics statistics) {
+        System.out.printf("  %-18s mean %9.1f us, p50 %9.1f us, p99 %9.1f us%n", phase,
+                statistics.meanNanos() / NANOS_PER_MICRO, statistics.p50Nanos() / NANOS_PER_MICRO,
+                statistics.p99Nanos() / NANOS_PER_MICRO);
+    }
+}
@@ -0,0 +1,70 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.EncodedPath;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Keeps the paths of many live deliveries and compares the heap they take as EncodedPath with the heap
+ * they take as lists of Location.
+ */
+public class PathEncodingBenchmark {
+
+    private static final long SEED = 42;
+    private static final int SIZE = 1000;
+    private static final double WALL_DENSITY = 0.2;
+    private static final int RESTAURANTS = 100;
+    private static final int CLIENTS = 100;
+    private static final int PATHS = 2000;
+
+    public static void main(String[] args) {
+        char[][] layout = new CityGenerator(SEED).generate(SIZE, SIZE, WALL_DENSITY, 0, RESTAURANTS, CLIENTS);
+        List<Location> restaurants = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.RESTAURANT);
+        List<Location> clients = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.CLIENT);
+        ControlCenter controlCenter = new ControlCenter(layout);
+        Random random = new Random(SEED);
+
+        // the first search allocates the buffers of the search, which are not part of the paths
+        controlCenter.findPath(restaurants.get(0), clients.get(0), DeliveryType.BIKE);
+        long heap = usedHeap();
+        long start = System.nanoTime();
+        List<EncodedPath> encoded = new ArrayList<>(PATHS);
+        long steps = 0;
+        while (encoded.size() < PATHS) {
+            EncodedPath path = controlCenter.findPath(restaurants.get(random.nextInt(restaurants.size())),
+                    clients.get(random.nextInt(clients.size())), DeliveryType.BIKE);
+            if (path != null) {
+                encoded.add(path);
+                steps += path.length();
+            }
+        }
+        double millis = (System.nanoTime() - start) / 1_000_000.0 / PATHS;
+        double encodedMegabytes = (usedHeap() - heap) / 1024.0 / 1024.0;
+
+        heap = usedHeap();
+        List<List<Location>> decoded = new ArrayList<>(PATHS);
+        for (EncodedPath path : encoded) {
+            decoded.add(path.locations());
+        }
+        double decodedMegabytes = (usedHeap() - heap) / 1024.0 / 1024.0;
+
+        System.out.printf("paths %d, average length %.0f, %.2f ms/path%n", PATHS, (double) steps / PATHS, millis);
+        System.out.printf("%-16s %8s %10s%n", "form", "paths", "heap MB");
+        System.out.printf("%-16s %8d %10.2f%n", "EncodedPath", encoded.size(), encodedMegabytes);
+        System.out.printf("%-16s %8d %10.2f%n", "List<Location>", decoded.size(), decodedMegabytes);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
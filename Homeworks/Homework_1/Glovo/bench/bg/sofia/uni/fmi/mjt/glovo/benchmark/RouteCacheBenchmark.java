@@ -0,0 +1,52 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.RouteCacheStatistics;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.ArrayCellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the orders of regular clients, who order again and again from the same restaurants, with and
+ * without the route cache. The delivery guys stay in place, like while they wait for orders.
+ */
+public class RouteCacheBenchmark {
+
+    private static final long SEED = 42;
+    private static final int SIZE = 2000;
+    private static final double WALL_DENSITY = 0.2;
+    private static final int DELIVERY_GUYS = 200;
+    private static final int RESTAURANTS = 20;
+    private static final int CLIENTS = 50;
+    private static final int ORDERS = 2000;
+
+    public static void main(String[] args) {
+        char[][] layout = new CityGenerator(SEED).generate(SIZE, SIZE, WALL_DENSITY, DELIVERY_GUYS,
+                RESTAURANTS, CLIENTS);
+        List<Location> restaurants = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.RESTAURANT);
+        List<Location> clients = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.CLIENT);
+
+        System.out.printf("%-10s %12s %10s %10s%n", "cache", "ms/order", "hits", "misses");
+        for (int cachedRoutes : new int[] {0, 1 << 16}) {
+            ControlCenter controlCenter = new ControlCenter(new ArrayCellGrid(layout), 0, cachedRoutes);
+            Random random = new Random(SEED);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ORDERS; i++) {
+                controlCenter.findOptimalDeliveryGuy(restaurants.get(random.nextInt(restaurants.size())),
+                        clients.get(random.nextInt(clients.size())), -1, -1, ShippingMethod.FASTEST,
+                        RoutingStrategy.A_STAR);
+            }
+            double millis = (System.nanoTime() - start) / 1_000_000.0 / ORDERS;
+
+            RouteCacheStatistics statistics = controlCenter.getRouteCacheStatistics();
+            System.out.printf("%-10s %12.2f %10d %10d%n", cachedRoutes == 0 ? "off" : "on", millis,
+                    statistics.hits(), statistics.misses());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.CourierRoute;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.RoutePlanner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how long the route planner takes to insert an order among 100 delivery guys that already carry
+ * orders, and how much of it are the two searches of the distance fields. The distances from the
+ * restaurants are precomputed, so only the field of the client is searched for an order.
+ */
+public class RoutePlanningBenchmark {
+
+    private static final long SEED = 42;
+    private static final int[] SIZES = {300, 1000};
+    private static final double WALL_DENSITY = 0.2;
+    private static final int DELIVERY_GUYS = 100;
+    private static final int RESTAURANTS = 50;
+    private static final int CLIENTS = 200;
+    private static final int CAPACITY = 3;
+    private static final int WARMUP = 200;
+    private static final int ORDERS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length == 0 ? SIZES : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        Measurement.printHeader();
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) throws Exception {
+        char[][] layout = new CityGenerator(SEED).generate(size, size, WALL_DENSITY, DELIVERY_GUYS, RESTAURANTS,
+                CLIENTS);
+        List<MapEntity> restaurants = entities(layout, MapEntityType.RESTAURANT);
+        List<MapEntity> clients = entities(layout, MapEntityType.CLIENT);
+        ControlCenter controlCenter = new ControlCenter(layout, -1);
+        RoutePlanner planner = new RoutePlanner(controlCenter, CAPACITY);
+        Random random = new Random(SEED);
+
+        Order[] orders = new Order[WARMUP + ORDERS];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = new Order(clients.get(random.nextInt(clients.size())),
+                    restaurants.get(random.nextInt(restaurants.size())), "Pizza",
+                    i % 2 == 0 ? ShippingMethod.CHEAPEST : ShippingMethod.FASTEST);
+        }
+
+        Measurement.print(Measurement.measure(size + "x" + size + " distance fields", WARMUP, ORDERS, i -> {
+            controlCenter.findDistanceFields(orders[i].restaurant().location());
+            controlCenter.findDistanceFields(orders[i].client().location());
+        }));
+
+        // every order adds two stops and is followed by two reached ones, so the routes keep a steady length
+        Measurement.print(Measurement.measure(size + "x" + size + " addOrder", WARMUP, ORDERS, i -> {
+            planner.addOrder(orders[i], -1);
+            for (int deliveryGuy : new int[] {i % DELIVERY_GUYS, (i + DELIVERY_GUYS / 2) % DELIVERY_GUYS}) {
+                if (!planner.getStops(deliveryGuy).isEmpty()) {
+                    planner.completeNextStop(deliveryGuy);
+                }
+            }
+        }));
+
+        int stops = 0;
+        for (CourierRoute route : planner.getRoutes()) {
+            stops += route.getStops().size();
+        }
+        System.out.printf("  %.1f stops per delivery guy at the end%n", (double) stops / DELIVERY_GUYS);
+    }
+
+    private static List<MapEntity> entities(char[][] layout, MapEntityType type) {
+        return FindOptimalDeliveryGuyBenchmark.find(layout, type).stream()
+                .map(location -> new MapEntity(location, type))
+                .toList();
+    }
+}
@@ -0,0 +1,82 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.AStarSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.ArrayCellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.BidirectionalSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.BreadthFirstSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.CellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.PathFinder;
+
+import java.util.Random;
+
+/**
+ * Compares the point to point searches on generated grids. Every size is measured with pairs of cells
+ * that are close to each other and with pairs anywhere on the map. The largest grids need about 2 GB of
+ * heap (-Xmx2g), because every search keeps its own buffers.
+ */
+public class RoutingStrategyBenchmark {
+
+    private static final long SEED = 42;
+    private static final double WALL_DENSITY = 0.2;
+    private static final int[] SIZES = {100, 500, 1000, 2500, 5000};
+    private static final int NEAR_RADIUS = 20;
+    private static final int QUERIES = 20;
+    private static final int WARMUP_QUERIES = 5;
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-6s %15s %15s %15s%n", "size", "pairs", "BFS us/op", "BIDI us/op", "A* us/op");
+
+        for (int size : SIZES) {
+            CellGrid grid = new ArrayCellGrid(new CityGenerator(SEED).generate(size, size, WALL_DENSITY, 0, 0, 0));
+            PathFinder[] pathFinders = {
+                new BreadthFirstSearch(grid), new BidirectionalSearch(grid), new AStarSearch(grid)
+            };
+
+            for (boolean near : new boolean[] {true, false}) {
+                int[][] pairs = pairs(grid, near);
+                double[] micros = new double[pathFinders.length];
+
+                for (int i = 0; i < pathFinders.length; i++) {
+                    run(pathFinders[i], pairs, WARMUP_QUERIES);
+                    long start = System.nanoTime();
+                    run(pathFinders[i], pairs, QUERIES);
+                    micros[i] = (System.nanoTime() - start) / 1_000.0 / QUERIES;
+                }
+
+                System.out.printf("%-10s %-6s %15.1f %15.1f %15.1f%n", size + "x" + size, near ? "near" : "far",
+                        micros[0], micros[1], micros[2]);
+            }
+        }
+    }
+
+    private static void run(PathFinder pathFinder, int[][] pairs, int queries) {
+        for (int i = 0; i < queries; i++) {
+            pathFinder.distance(pairs[i][0], pairs[i][1]);
+        }
+    }
+
+    /**
+     * Picks pairs of road cells that are connected with each other
+     */
+    private static int[][] pairs(CellGrid grid, boolean near) {
+        Random random = new Random(SEED);
+        PathFinder check = new AStarSearch(grid);
+        int[][] pairs = new int[QUERIES][];
+
+        int found = 0;
+        while (found < QUERIES) {
+            int start = random.nextInt(grid.size());
+            int end = near ? nearCell(grid, start, random) : random.nextInt(grid.size());
+            if (end != -1 && start != end && check.distance(start, end) != -1) {
+                pairs[found++] = new int[] {start, end};
+            }
+        }
+        return pairs;
+    }
+
+    private static int nearCell(CellGrid grid, int cell, Random random) {
+        int x = grid.x(cell) + random.nextInt(2 * NEAR_RADIUS + 1) - NEAR_RADIUS;
+        int y = grid.y(cell) + random.nextInt(2 * NEAR_RADIUS + 1) - NEAR_RADIUS;
+        return grid.contains(x, y) ? grid.index(x, y) : -1;
+    }
+}
@@ -0,0 +1,83 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.shard.ShardedControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryInfo;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Measures the throughput of orders submitted all at once to the map split into more and more regions. One
+ * region is the map handled on a single thread. The regions only run in parallel on a machine with as many
+ * cores, so the number of the available processors is printed with the results.
+ * java ShardedControlCenterBenchmark [size]
+ */
+public class ShardedControlCenterBenchmark {
+
+    private static final long SEED = 42;
+    private static final int DEFAULT_SIZE = 500;
+    private static final double WALL_DENSITY = 0.2;
+    private static final int DELIVERY_GUYS = 200;
+    private static final int RESTAURANTS = 50;
+    private static final int CLIENTS = 200;
+    private static final int[] SHARDS = {1, 2, 4, 8};
+    private static final int WARMUP = 500;
+    private static final int ORDERS = 2000;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        char[][] layout = new CityGenerator(SEED).generate(size, size, WALL_DENSITY, DELIVERY_GUYS, RESTAURANTS,
+                CLIENTS);
+        List<Location> restaurants = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.RESTAURANT);
+        List<Location> clients = FindOptimalDeliveryGuyBenchmark.find(layout, MapEntityType.CLIENT);
+        Random random = new Random(SEED);
+        Location[][] orders = new Location[WARMUP + ORDERS][];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = new Location[] {restaurants.get(random.nextInt(restaurants.size())),
+                clients.get(random.nextInt(clients.size()))};
+        }
+
+        System.out.printf("city %dx%d, %d processors%n", size, size, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-7s %10s %10s %12s %10s%n", "regions", "build ms", "crossings", "orders/s", "found");
+        for (int shards : SHARDS) {
+            long start = System.nanoTime();
+            try (ShardedControlCenter controlCenter = new ShardedControlCenter(layout, shards)) {
+                double buildMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+                submit(controlCenter, orders, 0, WARMUP);
+                start = System.nanoTime();
+                int found = submit(controlCenter, orders, WARMUP, ORDERS);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                System.out.printf("%-7d %10.0f %10d %12.0f %10d%n", shards, buildMillis,
+                        controlCenter.getCrossingCount(), ORDERS / seconds, found);
+            }
+        }
+    }
+
+    /**
+     * Submits the orders without waiting between them and waits for all of them
+     *
+     * @return the number of orders that found a delivery guy
+     */
+    private static int submit(ShardedControlCenter controlCenter, Location[][] orders, int from, int count) {
+        List<CompletableFuture<DeliveryInfo>> futures = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            futures.add(controlCenter.findOptimalDeliveryGuy(orders[i][0], orders[i][1], -1, -1,
+                    i % 2 == 0 ? ShippingMethod.CHEAPEST : ShippingMethod.FASTEST));
+        }
+
+        int found = 0;
+        for (CompletableFuture<DeliveryInfo> future : futures) {
+            if (future.join() != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,114 @@
+package bg.sofia.uni.fmi.mjt.glovo.benchmark;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.ArrayCellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.BreadthFirstSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.CellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.DijkstraSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.PathFinder;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryType;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares Dijkstra's search with the breadth-first search. On a grid without weighted cells both find the
+ * same distances, so the difference is the cost of the bucket queue. On a grid with traffic and pedestrian
+ * zones only Dijkstra's search gives the right costs, and it is measured with the weights of every vehicle.
+ */
+public class WeightedRoutingBenchmark {
+
+    private static final long SEED = 42;
+    private static final double WALL_DENSITY = 0.2;
+    private static final double WEIGHTED_DENSITY = 0.3;
+    private static final int[] SIZES = {500, 1000, 2500};
+    private static final int QUERIES = 20;
+    private static final int WARMUP_QUERIES = 5;
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-9s %15s %15s %15s%n", "size", "grid", "BFS us/op", "CAR us/op", "BIKE us/op");
+
+        for (int size : SIZES) {
+            char[][] layout = new CityGenerator(SEED).generate(size, size, WALL_DENSITY, 0, 0, 0);
+            int[][] pairs = pairs(new ArrayCellGrid(layout));
+
+            CellGrid unit = new ArrayCellGrid(layout);
+            measure(size, "unit", unit, pairs);
+
+            CellGrid weighted = new ArrayCellGrid(addWeightedCells(layout));
+            measure(size, "weighted", weighted, pairs);
+        }
+    }
+
+    private static void measure(int size, String name, CellGrid grid, int[][] pairs) {
+        PathFinder[] pathFinders = {
+            new BreadthFirstSearch(grid),
+            new DijkstraSearch(grid, weights(DeliveryType.CAR)),
+            new DijkstraSearch(grid, weights(DeliveryType.BIKE))
+        };
+
+        double[] micros = new double[pathFinders.length];
+        for (int i = 0; i < pathFinders.length; i++) {
+            run(pathFinders[i], pairs, WARMUP_QUERIES);
+            long start = System.nanoTime();
+            run(pathFinders[i], pairs, QUERIES);
+            micros[i] = (System.nanoTime() - start) / 1_000.0 / QUERIES;
+        }
+
+        System.out.printf("%-10s %-9s %15.1f %15.1f %15.1f%n", size + "x" + size, name,
+                micros[0], micros[1], micros[2]);
+    }
+
+    private static void run(PathFinder pathFinder, int[][] pairs, int queries) {
+        for (int i = 0; i < queries; i++) {
+            pathFinder.distance(pairs[i][0], pairs[i][1]);
+        }
+    }
+
+    private static int[] weights(DeliveryType deliveryType) {
+        MapEntityType[] types = MapEntityType.values();
+        int[] weights = new int[types.length];
+        for (MapEntityType type : types) {
+            weights[type.ordinal()] = deliveryType.getCellWeight(type);
+        }
+        return weights;
+    }
+
+    /**
+     * Turns a part of the roads into traffic and pedestrian zones
+     */
+    private static char[][] addWeightedCells(char[][] layout) {
+        Random random = new Random(SEED);
+        char[][] weighted = new char[layout.length][];
+
+        for (int x = 0; x < layout.length; x++) {
+            weighted[x] = Arrays.copyOf(layout[x], layout[x].length);
+            for (int y = 0; y < weighted[x].length; y++) {
+                if (weighted[x][y] == MapEntityType.ROAD.getSymbol() && random.nextDouble() < WEIGHTED_DENSITY) {
+                    weighted[x][y] = random.nextBoolean() ?
+                            MapEntityType.TRAFFIC.getSymbol() : MapEntityType.PEDESTRIAN.getSymbol();
+                }
+            }
+        }
+        return weighted;
+    }
+
+    /**
+     * Picks pairs of road cells anywhere on the map that are connected with each other
+     */
+    private static int[][] pairs(CellGrid grid) {
+        Random random = new Random(SEED);
+        PathFinder check = new BreadthFirstSearch(grid);
+        int[][] pairs = new int[QUERIES][];
+
+        int found = 0;
+        while (found < QUERIES) {
+            int start = random.nextInt(grid.size());
+            int end = random.nextInt(grid.size());
+            if (start != end && check.distance(start, end) != -1) {
+                pairs[found++] = new int[] {start, end};
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,294 @@
+package bg.sofia.uni.fmi.mjt.glovo;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.EncodedPath;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.OrderResult;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.OverloadPolicy;
+import bg.sofia.uni.fmi.mjt.glovo.exception.OrderRejectedException;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.AsyncGlovoStatistics;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.LatencyHistogram;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the requests of a GlovoApi on a fixed number of workers. The requests wait for a worker in a bounded
+ * queue, and what happens when the queue is full is decided by the OverloadPolicy: the new request is
+ * rejected, the oldest waiting one is rejected, or the caller waits for room. A rejected request completes
+ * its future with OrderRejectedException, so the callers always hear back.
+ * <p>
+ * The GlovoApi has to be thread-safe, like Glovo. The moves of the delivery guys are not queued, they are
+ * made on the GlovoApi directly.
+ */
+public class AsyncGlovo implements AsyncGlovoApi, AutoCloseable {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final double P99 = 99;
+    private static final long CLOSE_CHECK_MILLIS = 100;
+
+    private final GlovoApi glovo;
+    private final ThreadPoolExecutor executor;
+    private final BlockingQueue<Runnable> queue;
+    private final int queueCapacity;
+    private final SubmissionPublisher<OrderResult> results;
+    private final LatencyHistogram queueWaits = new LatencyHistogram();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder droppedResults = new LongAdder();
+
+    /**
+     * Runs the requests on a worker for every processor, with a queue of 1024 requests that rejects the new
+     * requests when it is full
+     *
+     * @param glovo the thread-safe GlovoApi that makes the searches
+     */
+    public AsyncGlovo(GlovoApi glovo) {
+        this(glovo, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, OverloadPolicy.REJECT,
+                Flow.defaultBufferSize());
+    }
+
+    /**
+     * Runs the requests on the given number of workers
+     *
+     * @param glovo                the thread-safe GlovoApi that makes the searches
+     * @param workers              the number of requests that run at once
+     * @param queueCapacity        the most requests that wait for a worker at once
+     * @param overloadPolicy       what happens to a request when the queue is full
+     * @param resultBufferCapacity the most results that a subscriber of getResults() can fall behind by
+     */
+    public AsyncGlovo(GlovoApi glovo, int workers, int queueCapacity, OverloadPolicy overloadPolicy,
+                      int resultBufferCapacity) {
+        if (glovo == null || overloadPolicy == null) {
+            throw new IllegalArgumentException("The GlovoApi and the overload policy cannot be null");
+        }
+        if (workers <= 0 || queueCapacity <= 0 || resultBufferCapacity <= 0) {
+            throw new IllegalArgumentException("The workers, the queue and the result buffer should be positive");
+        }
+
+        this.glovo = glovo;
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, queue,
+                Thread.ofPlatform().name("glovo-worker-", 0).factory(), overloadHandler(overloadPolicy));
+        // the subscribers run on the common pool, so a slow subscriber does not hold a worker
+        this.results = new SubmissionPublisher<>(ForkJoinPool.commonPool(), resultBufferCapacity);
+    }
+
+    @Override
+    public CompletableFuture<Delivery> getCheapestDelivery(MapEntity client, MapEntity restaurant,
+                                                           String foodItem) {
+        return submitOrder(client, restaurant, foodItem,
+                () -> glovo.getCheapestDelivery(client, restaurant, foodItem));
+    }
+
+    @Override
+    public CompletableFuture<Delivery> getFastestDelivery(MapEntity client, MapEntity restaurant,
+                                                          String foodItem) {
+        return submitOrder(client, restaurant, foodItem,
+                () -> glovo.getFastestDelivery(client, restaurant, foodItem));
+    }
+
+    @Override
+    public CompletableFuture<Delivery> getFastestDeliveryUnderPrice(MapEntity client, MapEntity restaurant,
+                                                                    String foodItem, double maxPrice) {
+        return submitOrder(client, restaurant, foodItem,
+                () -> glovo.getFastestDeliveryUnderPrice(client, restaurant, foodItem, maxPrice));
+    }
+
+    @Override
+    public CompletableFuture<Delivery> getCheapestDeliveryWithinTimeLimit(MapEntity client, MapEntity restaurant,
+                                                                          String foodItem, int maxTime) {
+        return submitOrder(client, restaurant, foodItem,
+                () -> glovo.getCheapestDeliveryWithinTimeLimit(client, restaurant, foodItem, maxTime));
+    }
+
+    @Override
+    public CompletableFuture<List<Delivery>> getBatchDeliveries(List<Order> orders) {
+        return submit(() -> glovo.getBatchDeliveries(orders));
+    }
+
+    @Override
+    public CompletableFuture<List<Delivery>> getDeliveryAlternatives(MapEntity client, MapEntity restaurant,
+                                                                     String foodItem, ShippingMethod shippingMethod,
+                                                                     int count) {
+        return submit(() -> glovo.getDeliveryAlternatives(client, restaurant, foodItem, shippingMethod, count));
+    }
+
+    @Override
+    public CompletableFuture<List<Delivery>> getParetoDeliveries(MapEntity client, MapEntity restaurant,
+                                                                 String foodItem) {
+        return submit(() -> glovo.getParetoDeliveries(client, restaurant, foodItem));
+    }
+
+    @Override
+    public CompletableFuture<EncodedPath> getDeliveryPath(Delivery delivery) {
+        return submit(() -> glovo.getDeliveryPath(delivery));
+    }
+
+    @Override
+    public Flow.Publisher<OrderResult> getResults() {
+        return results;
+    }
+
+    @Override
+    public AsyncGlovoStatistics getStatistics() {
+        return new AsyncGlovoStatistics(queue.size(), maxQueueDepth.get(), queueCapacity, executor.getActiveCount(),
+                submitted.sum(), completed.sum(), failed.sum(), shed.sum(), droppedResults.sum(),
+                results.estimateMaximumLag(), queueWaits.mean(), queueWaits.percentile(P99));
+    }
+
+    /**
+     * Stops taking requests, finishes the ones already queued and then completes the subscribers of
+     * getResults(). If the closing thread is interrupted, the queued requests are rejected instead.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                // a request queued while the pool was shutting down can find no worker left, or none started
+                if (executor.getPoolSize() == 0) {
+                    executor.prestartCoreThread();
+                    executor.purge();
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Runnable task : executor.shutdownNow()) {
+                shed((Request<?>) task, "The requests are not taken anymore");
+            }
+            Thread.currentThread().interrupt();
+        }
+        results.close();
+    }
+
+    private CompletableFuture<Delivery> submitOrder(MapEntity client, MapEntity restaurant, String foodItem,
+                                                    Callable<Delivery> order) {
+        CompletableFuture<Delivery> future = submit(order);
+        future.whenComplete((delivery, failure) -> publish(new OrderResult(client, restaurant, foodItem, delivery,
+                failure)));
+        return future;
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> request) {
+        Request<T> task = new Request<>(request);
+        submitted.increment();
+        executor.execute(task);
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+        return task.future;
+    }
+
+    /**
+     * Offers the result to the subscribers without waiting for a slow one, which misses the result instead
+     */
+    private void publish(OrderResult result) {
+        if (results.isClosed()) {
+            return;
+        }
+        results.offer(result, (subscriber, dropped) -> {
+            droppedResults.increment();
+            return false;
+        });
+    }
+
+    private RejectedExecutionHandler overloadHandler(OverloadPolicy overloadPolicy) {
+        return (task, pool) -> {
+            if (pool.isShutdown()) {
+                shed((Request<?>) task, "The requests are not taken anymore");
+                return;
+            }
+
+            switch (overloadPolicy) {
+                case REJECT -> shed((Request<?>) task, "Too many requests are waiting");
+                case DROP_OLDEST -> {
+                    while (!queue.offer(task)) {
+                        Runnable oldest = queue.poll();
+                        if (oldest != null) {
+                            shed((Request<?>) oldest, "A newer request took the place of this one");
+                        }
+                    }
+                    shedIfShutDown(task, pool);
+                }
+                case BLOCK -> {
+                    try {
+                        queue.put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        ((Request<?>) task).future.completeExceptionally(
+                                new OrderRejectedException("Interrupted while waiting for room in the queue", e));
+                        shed.increment();
+                        return;
+                    }
+                    shedIfShutDown(task, pool);
+                }
+            }
+        };
+    }
+
+    /**
+     * Sheds a request put in the queue by the handler if the pool was shut down meanwhile, since its workers
+     * may have emptied the queue and stopped before the request got there. A worker that took the request
+     * first still runs it.
+     */
+    private void shedIfShutDown(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown() && pool.remove(task)) {
+            shed((Request<?>) task, "The requests are not taken anymore");
+        }
+    }
+
+    private void shed(Request<?> request, String reason) {
+        shed.increment();
+        request.future.completeExceptionally(new OrderRejectedException(reason));
+    }
+
+    /**
+     * A request waiting in the queue, which knows when it was queued
+     */
+    private final class Request<T> implements Runnable {
+
+        private final Callable<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long queuedNanos = System.nanoTime();
+
+        Request(Callable<T> work) {
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            queueWaits.record(System.nanoTime() - queuedNanos);
+            if (future.isDone()) {
+                return;
+            }
+
+            try {
+                future.complete(work.call());
+                completed.increment();
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+                failed.increment();
+            } catch (Error e) {
+                // the caller still hears back, and the worker is still replaced
+                future.completeExceptionally(e);
+                failed.increment();
+                throw e;
+            }
+        }
+    }
+}
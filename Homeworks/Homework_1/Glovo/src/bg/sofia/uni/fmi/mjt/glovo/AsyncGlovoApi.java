@@ -0,0 +1,134 @@
+package bg.sofia.uni.fmi.mjt.glovo;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.EncodedPath;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.OrderResult;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.AsyncGlovoStatistics;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * The methods of GlovoApi that search the map, returning at once with a future of the result. The futures
+ * complete exceptionally with the exceptions that GlovoApi throws, such as NoAvailableDeliveryGuyException,
+ * and with OrderRejectedException if the request was shed because too many requests were waiting.
+ */
+public interface AsyncGlovoApi {
+
+    /**
+     * Returns the cheapest delivery option like GlovoApi.getCheapestDelivery().
+     *
+     * @param client     The delivery destination, represented by a MapEntity.
+     * @param restaurant The location of the restaurant from which the food item is sourced,
+     *                   represented by a MapEntity.
+     * @param foodItem   The name of the food item to be delivered.
+     * @return A future of the cheapest delivery, completed exceptionally with NoAvailableDeliveryGuyException
+     * if no delivery guys are available to complete the delivery.
+     */
+    CompletableFuture<Delivery> getCheapestDelivery(MapEntity client, MapEntity restaurant, String foodItem);
+
+    /**
+     * Returns the fastest delivery option like GlovoApi.getFastestDelivery().
+     *
+     * @param client     The delivery destination, represented by a MapEntity.
+     * @param restaurant The location of the restaurant from which the food item is sourced,
+     *                   represented by a MapEntity.
+     * @param foodItem   The name of the food item to be delivered.
+     * @return A future of the fastest delivery, completed exceptionally with NoAvailableDeliveryGuyException
+     * if no delivery guys are available to complete the delivery.
+     */
+    CompletableFuture<Delivery> getFastestDelivery(MapEntity client, MapEntity restaurant, String foodItem);
+
+    /**
+     * Returns the fastest delivery option under a price like GlovoApi.getFastestDeliveryUnderPrice().
+     *
+     * @param client     The delivery destination, represented by a MapEntity.
+     * @param restaurant The location of the restaurant from which the food item is sourced,
+     *                   represented by a MapEntity.
+     * @param foodItem   The name of the food item to be delivered.
+     * @param maxPrice   The maximum price the client is willing to pay for the delivery.
+     * @return A future of the fastest delivery under the price.
+     */
+    CompletableFuture<Delivery> getFastestDeliveryUnderPrice(MapEntity client, MapEntity restaurant,
+                                                             String foodItem, double maxPrice);
+
+    /**
+     * Returns the cheapest delivery option within a time limit like
+     * GlovoApi.getCheapestDeliveryWithinTimeLimit().
+     *
+     * @param client     The delivery destination, represented by a MapEntity.
+     * @param restaurant The location of the restaurant from which the food item is sourced,
+     *                   represented by a MapEntity.
+     * @param foodItem   The name of the food item to be delivered.
+     * @param maxTime    The maximum allowable delivery time in minutes.
+     * @return A future of the cheapest delivery within the time limit.
+     */
+    CompletableFuture<Delivery> getCheapestDeliveryWithinTimeLimit(MapEntity client, MapEntity restaurant,
+                                                                   String foodItem, int maxTime);
+
+    /**
+     * Returns the deliveries for a whole wave of orders like GlovoApi.getBatchDeliveries().
+     *
+     * @param orders The orders of the wave.
+     * @return A future of the deliveries at the positions of their orders, null for the orders without one.
+     */
+    CompletableFuture<List<Delivery>> getBatchDeliveries(List<Order> orders);
+
+    /**
+     * Returns the best delivery options like GlovoApi.getDeliveryAlternatives().
+     *
+     * @param client         The delivery destination, represented by a MapEntity.
+     * @param restaurant     The location of the restaurant from which the food item is sourced,
+     *                       represented by a MapEntity.
+     * @param foodItem       The name of the food item to be delivered.
+     * @param shippingMethod CHEAPEST orders the options by price and FASTEST by time.
+     * @param count          The largest number of options returned.
+     * @return A future of the delivery options from the best one to the worst one.
+     */
+    CompletableFuture<List<Delivery>> getDeliveryAlternatives(MapEntity client, MapEntity restaurant,
+                                                              String foodItem, ShippingMethod shippingMethod,
+                                                              int count);
+
+    /**
+     * Returns the delivery options that no other option beats in both price and time like
+     * GlovoApi.getParetoDeliveries().
+     *
+     * @param client     The delivery destination, represented by a MapEntity.
+     * @param restaurant The location of the restaurant from which the food item is sourced,
+     *                   represented by a MapEntity.
+     * @param foodItem   The name of the food item to be delivered.
+     * @return A future of the delivery options from the cheapest to the fastest.
+     */
+    CompletableFuture<List<Delivery>> getParetoDeliveries(MapEntity client, MapEntity restaurant,
+                                                          String foodItem);
+
+    /**
+     * Returns the road of a delivery like GlovoApi.getDeliveryPath().
+     *
+     * @param delivery A delivery whose delivery guy has not moved since.
+     * @return A future of the EncodedPath of the delivery, completed with null if there is no road anymore.
+     */
+    CompletableFuture<EncodedPath> getDeliveryPath(Delivery delivery);
+
+    /**
+     * Returns a publisher of the results of the single orders, the ones of the four methods that return
+     * one delivery, in the order in which they complete. A subscriber that falls behind by more than the
+     * buffer of the publisher misses the results that do not fit, so a slow subscriber never slows down
+     * the orders.
+     *
+     * @return The Flow.Publisher of the OrderResult of every single order, including the shed ones.
+     */
+    Flow.Publisher<OrderResult> getResults();
+
+    /**
+     * Returns the depth of the queue of the waiting requests and what happened to the requests so far
+     *
+     * @return AsyncGlovoStatistics snapshot
+     */
+    AsyncGlovoStatistics getStatistics();
+
+}
@@ -1,19 +1,36 @@
 package bg.sofia.uni.fmi.mjt.glovo;
 
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
-import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenterApi;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.EncodedPath;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.MapFile;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryInfo;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.BatchAssigner;
+import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidLocationEntityException;
 import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidOrderEntityException;
 import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidOrderException;
 import bg.sofia.uni.fmi.mjt.glovo.exception.NoAvailableDeliveryGuyException;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.OrderMetrics;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.OrderTimer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
 
 public class Glovo implements GlovoApi {
 
-    private final ControlCenterApi controlCenter;
+    private static final IntPredicate ALL_DELIVERY_GUYS = deliveryGuy -> true;
+
+    private final ControlCenter controlCenter;
+    private final BatchAssigner batchAssigner;
 
     /**
      * Makes the map from the layout that is char[][] to MapEntity using a function from
@@ -22,7 +39,35 @@ public class Glovo implements GlovoApi {
      * @param layout char[][] of the layout
      */
     public Glovo(char[][] layout) {
-        this.controlCenter = new ControlCenter(layout);
+        this(layout, 0);
+    }
+
+    /**
+     * Makes the map from the layout that is char[][] to MapEntity using a function from
+     * ControlCenter class and precomputes the distances from the restaurants on the map
+     *
+     * @param layout                 char[][] of the layout
+     * @param precomputedRestaurants The number of restaurants whose distances are kept. Use -1 for every
+     *                               restaurant on the map, 0 for no precomputation.
+     */
+    public Glovo(char[][] layout, int precomputedRestaurants) {
+        this(new ControlCenter(layout, precomputedRestaurants));
+    }
+
+    /**
+     * Opens a map file written with MapFile.write() by mapping it into memory, so even very large maps are
+     * ready without reading them and stay outside the heap
+     *
+     * @param mapFile the path of the map file
+     * @throws IOException if the file cannot be opened or is not a valid map file
+     */
+    public Glovo(Path mapFile) throws IOException {
+        this(new ControlCenter(MapFile.open(mapFile), 0));
+    }
+
+    private Glovo(ControlCenter controlCenter) {
+        this.controlCenter = controlCenter;
+        this.batchAssigner = new BatchAssigner(controlCenter);
     }
 
     /**
@@ -42,6 +87,7 @@ public class Glovo implements GlovoApi {
     public Delivery getCheapestDelivery(MapEntity client, MapEntity restaurant, String foodItem)
             throws NoAvailableDeliveryGuyException {
 
+        OrderTimer timer = controlCenter.getOrderMetrics().startOrder();
         validateOrder(client, restaurant, foodItem);
 
         DeliveryInfo deliveryInfo = controlCenter.findOptimalDeliveryGuy(
@@ -49,7 +95,10 @@ public class Glovo implements GlovoApi {
                 client.location(),
                 -1,
                 -1,
-                ShippingMethod.CHEAPEST
+                ShippingMethod.CHEAPEST,
+                RoutingStrategy.AUTO,
+                ALL_DELIVERY_GUYS,
+                timer
         );
 
         if (deliveryInfo == null) {
@@ -77,6 +126,7 @@ public class Glovo implements GlovoApi {
     public Delivery getFastestDelivery(MapEntity client, MapEntity restaurant, String foodItem)
             throws NoAvailableDeliveryGuyException {
 
+        OrderTimer timer = controlCenter.getOrderMetrics().startOrder();
         validateOrder(client, restaurant, foodItem);
 
         DeliveryInfo deliveryInfo = controlCenter.findOptimalDeliveryGuy(
@@ -84,7 +134,10 @@ public class Glovo implements GlovoApi {
                 client.location(),
                 -1,
                 -1,
-                ShippingMethod.FASTEST
+                ShippingMethod.FASTEST,
+                RoutingStrategy.AUTO,
+                ALL_DELIVERY_GUYS,
+                timer
         );
 
         if (deliveryInfo == null) {
@@ -114,6 +167,7 @@ public class Glovo implements GlovoApi {
                                                  String foodItem, double maxPrice)
             throws NoAvailableDeliveryGuyException {
 
+        OrderTimer timer = controlCenter.getOrderMetrics().startOrder();
         validateOrder(client, restaurant, foodItem);
         validateMaxPrice(maxPrice);
 
@@ -122,7 +176,10 @@ public class Glovo implements GlovoApi {
                 client.location(),
                 maxPrice,
                 -1,
-                ShippingMethod.FASTEST
+                ShippingMethod.FASTEST,
+                RoutingStrategy.AUTO,
+                ALL_DELIVERY_GUYS,
+                timer
         );
 
         if (deliveryInfo == null) {
@@ -152,6 +209,7 @@ public class Glovo implements GlovoApi {
                                                        String foodItem, int maxTime)
             throws NoAvailableDeliveryGuyException {
 
+        OrderTimer timer = controlCenter.getOrderMetrics().startOrder();
         validateOrder(client, restaurant, foodItem);
         validateMaxTime(maxTime);
 
@@ -160,7 +218,10 @@ public class Glovo implements GlovoApi {
                 client.location(),
                 -1,
                 maxTime,
-                ShippingMethod.CHEAPEST
+                ShippingMethod.CHEAPEST,
+                RoutingStrategy.AUTO,
+                ALL_DELIVERY_GUYS,
+                timer
         );
 
         if (deliveryInfo == null) {
@@ -170,6 +231,134 @@ public class Glovo implements GlovoApi {
         return createDelivery(client, restaurant, deliveryInfo, foodItem);
     }
 
+    /**
+     * Returns the deliveries for a whole wave of orders, assigning a different delivery guy to every order.
+     * The assignment minimizes the total cost of the wave, where the cost of an order is its price if it is
+     * shipped by CHEAPEST and its time if it is shipped by FASTEST, so the result can differ from calling
+     * the single order methods one by one.
+     *
+     * @param orders The orders of the wave.
+     * @return A list with the delivery of every order at the same position as the order. An order that
+     * cannot get a delivery guy, because there are not enough of them or none of them can reach the
+     * restaurant and the client, has null at its position.
+     * @throws InvalidOrderException If the list of orders or one of the orders is null.
+     */
+    @Override
+    public List<Delivery> getBatchDeliveries(List<Order> orders) {
+
+        if (orders == null || orders.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidOrderException("The orders must be provided.");
+        }
+
+        return batchAssigner.assign(orders);
+    }
+
+    /**
+     * Returns the best delivery options for a given food item from a restaurant to a client location, so the
+     * client can choose among them.
+     *
+     * @param client         The delivery destination, represented by a MapEntity.
+     * @param restaurant     The location of the restaurant from which the food item is sourced,
+     *                       represented by a MapEntity.
+     * @param foodItem       The name of the food item to be delivered.
+     * @param shippingMethod CHEAPEST orders the options by price and FASTEST by time.
+     * @param count          The largest number of options returned.
+     * @return A list of the delivery options from the best one to the worst one, empty if no delivery guy can
+     * make the delivery.
+     * @throws InvalidOrderException       If there is no client or restaurant at the specified location
+     *                                     on the map, or if the location is outside the map's defined boundaries.
+     * @throws InvalidOrderEntityException If the count is not positive.
+     */
+    @Override
+    public List<Delivery> getDeliveryAlternatives(MapEntity client, MapEntity restaurant, String foodItem,
+                                                  ShippingMethod shippingMethod, int count) {
+
+        validateOrder(client, restaurant, foodItem);
+        if (shippingMethod == null) {
+            throw new InvalidOrderException("The shipping method must be provided.");
+        }
+        if (count <= 0) {
+            throw new InvalidOrderEntityException("The count of the options must be positive.");
+        }
+
+        return controlCenter.findDeliveryAlternatives(restaurant.location(), client.location(), -1, -1,
+                        shippingMethod, count).stream()
+                .map(info -> createDelivery(client, restaurant, info, foodItem))
+                .toList();
+    }
+
+    /**
+     * Returns the delivery options that no other option beats in both price and time, for a given food item
+     * from a restaurant to a client location.
+     *
+     * @param client     The delivery destination, represented by a MapEntity.
+     * @param restaurant The location of the restaurant from which the food item is sourced,
+     *                   represented by a MapEntity.
+     * @param foodItem   The name of the food item to be delivered.
+     * @return A list of the delivery options from the cheapest to the fastest, empty if no delivery guy can
+     * make the delivery.
+     * @throws InvalidOrderException If there is no client or restaurant at the specified location
+     *                               on the map, or if the location is outside the map's defined boundaries.
+     */
+    @Override
+    public List<Delivery> getParetoDeliveries(MapEntity client, MapEntity restaurant, String foodItem) {
+
+        validateOrder(client, restaurant, foodItem);
+
+        return controlCenter.findParetoDeliveries(restaurant.location(), client.location(), -1, -1).stream()
+                .map(info -> createDelivery(client, restaurant, info, foodItem))
+                .toList();
+    }
+
+    /**
+     * Returns the road of a delivery step by step, from the delivery guy through the restaurant to the client.
+     * The road is searched only when it is asked for, and it is kept with 2 bits per step.
+     *
+     * @param delivery A delivery returned by this Glovo whose delivery guy has not moved since.
+     * @return The EncodedPath of the delivery, null if there is no road anymore.
+     * @throws InvalidOrderException          If the delivery is null.
+     * @throws InvalidLocationEntityException If the delivery guy of the delivery is not at his location anymore.
+     */
+    @Override
+    public EncodedPath getDeliveryPath(Delivery delivery) {
+
+        if (delivery == null) {
+            throw new InvalidOrderException("The delivery must be provided.");
+        }
+
+        return controlCenter.findDeliveryPath(delivery.getDeliveryGuyLocation(), delivery.getRestaurantLocation(),
+                delivery.getClientLocation());
+    }
+
+    /**
+     * Returns the timings of the single orders, from their validation through the search of the delivery guys
+     * to the selection of the optimal one. The metrics are disabled until setEnabled(true) is called on them.
+     *
+     * @return the OrderMetrics of the orders
+     */
+    public OrderMetrics getOrderMetrics() {
+        return controlCenter.getOrderMetrics();
+    }
+
+    /**
+     * Moves a delivery guy to another location on the map. The next deliveries are searched with the delivery
+     * guy at the new location.
+     *
+     * @param from The current location of the delivery guy.
+     * @param to   The new location of the delivery guy, a road, traffic or a pedestrian zone.
+     * @throws InvalidLocationEntityException If there is no delivery guy at from, or to is outside the map or
+     *                                        is not one of these.
+     */
+    @Override
+    public void moveDeliveryGuy(Location from, Location to) {
+
+        if (from == null || to == null) {
+            throw new InvalidLocationEntityException("The locations must be provided.");
+        }
+
+        controlCenter.moveDeliveryGuy(from, to);
+    }
+
     /**
      * Validates the data of the parameters client, restaurant, foodItem
      *
@@ -1,10 +1,18 @@
 package bg.sofia.uni.fmi.mjt.glovo;
 
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.EncodedPath;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidLocationEntityException;
+import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidOrderEntityException;
 import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidOrderException;
 import bg.sofia.uni.fmi.mjt.glovo.exception.NoAvailableDeliveryGuyException;
 
+import java.util.List;
+
 public interface GlovoApi {
 
     /**
@@ -76,4 +84,74 @@ public interface GlovoApi {
     Delivery getCheapestDeliveryWithinTimeLimit(MapEntity client, MapEntity restaurant, String foodItem, int maxTime)
             throws NoAvailableDeliveryGuyException;
 
+    /**
+     * Returns the deliveries for a whole wave of orders, assigning a different delivery guy to every order.
+     * The assignment minimizes the total cost of the wave, where the cost of an order is its price if it is
+     * shipped by CHEAPEST and its time if it is shipped by FASTEST, so the result can differ from calling
+     * the single order methods one by one.
+     *
+     * @param orders The orders of the wave.
+     * @return A list with the delivery of every order at the same position as the order. An order that
+     * cannot get a delivery guy, because there are not enough of them or none of them can reach the
+     * restaurant and the client, has null at its position.
+     * @throws InvalidOrderException If the list of orders or one of the orders is null.
+     */
+    List<Delivery> getBatchDeliveries(List<Order> orders);
+
+    /**
+     * Returns the best delivery options for a given food item from a restaurant to a client location, so the
+     * client can choose among them.
+     *
+     * @param client         The delivery destination, represented by a MapEntity.
+     * @param restaurant     The location of the restaurant from which the food item is sourced,
+     *                       represented by a MapEntity.
+     * @param foodItem       The name of the food item to be delivered.
+     * @param shippingMethod CHEAPEST orders the options by price and FASTEST by time.
+     * @param count          The largest number of options returned.
+     * @return A list of the delivery options from the best one to the worst one, empty if no delivery guy can
+     * make the delivery.
+     * @throws InvalidOrderException       If there is no client or restaurant at the specified location
+     *                                     on the map, or if the location is outside the map's defined boundaries.
+     * @throws InvalidOrderEntityException If the count is not positive.
+     */
+    List<Delivery> getDeliveryAlternatives(MapEntity client, MapEntity restaurant, String foodItem,
+                                           ShippingMethod shippingMethod, int count);
+
+    /**
+     * Returns the delivery options that no other option beats in both price and time, for a given food item
+     * from a restaurant to a client location.
+     *
+     * @param client     The delivery destination, represented by a MapEntity.
+     * @param restaurant The location of the restaurant from which the food item is sourced,
+     *                   represented by a MapEntity.
+     * @param foodItem   The name of the food item to be delivered.
+     * @return A list of the delivery options from the cheapest to the fastest, empty if no delivery guy can
+     * make the delivery.
+     * @throws InvalidOrderException If there is no client or restaurant at the specified location
+     *                               on the map, or if the location is outside the map's defined boundaries.
+     */
+    List<Delivery> getParetoDeliveries(MapEntity client, MapEntity restaurant, String foodItem);
+
+    /**
+     * Returns the road of a delivery step by step, from the delivery guy through the restaurant to the client.
+     * The road is searched only when it is asked for, and it is kept with 2 bits per step.
+     *
+     * @param delivery A delivery returned by this Glovo whose delivery guy has not moved since.
+     * @return The EncodedPath of the delivery, null if there is no road anymore.
+     * @throws InvalidOrderException          If the delivery is null.
+     * @throws InvalidLocationEntityException If the delivery guy of the delivery is not at his location anymore.
+     */
+    EncodedPath getDeliveryPath(Delivery delivery);
+
+    /**
+     * Moves a delivery guy to another location on the map. The next deliveries are searched with the delivery
+     * guy at the new location.
+     *
+     * @param from The current location of the delivery guy.
+     * @param to   The new location of the delivery guy, a road, traffic or a pedestrian zone.
+     * @throws InvalidLocationEntityException If there is no delivery guy at from, or to is outside the map or
+     *                                        is not one of these.
+     */
+    void moveDeliveryGuy(Location from, Location to);
+
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+/**
+ * Binary min-heap of delivery guys keyed by the lower bound of their cost. The keys and the delivery guys
+ * are kept in primitive arrays, so the queue does not box anything.
+ */
+final class CandidateQueue {
+
+    private final double[] keys;
+    private final int[] deliveryGuys;
+    private int size;
+
+    /**
+     * Makes an empty queue
+     *
+     * @param capacity the largest number of delivery guys in the queue at the same time
+     */
+    CandidateQueue(int capacity) {
+        this.keys = new double[capacity];
+        this.deliveryGuys = new int[capacity];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the smallest key in the queue
+     *
+     * @return the smallest key, positive infinity if the queue is empty
+     */
+    double peekKey() {
+        return size == 0 ? Double.POSITIVE_INFINITY : keys[0];
+    }
+
+    void push(double key, int deliveryGuy) {
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+
+            keys[i] = keys[parent];
+            deliveryGuys[i] = deliveryGuys[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        deliveryGuys[i] = deliveryGuy;
+    }
+
+    /**
+     * Removes the delivery guy with the smallest key
+     *
+     * @return the index of the delivery guy
+     */
+    int pop() {
+        int top = deliveryGuys[0];
+        double key = keys[--size];
+        int deliveryGuy = deliveryGuys[size];
+
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+            if (key <= keys[child]) break;
+
+            keys[i] = keys[child];
+            deliveryGuys[i] = deliveryGuys[child];
+            i = child;
+        }
+        keys[i] = key;
+        deliveryGuys[i] = deliveryGuy;
+
+        return top;
+    }
+}
@@ -3,22 +3,72 @@ package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.AStarSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.ArrayCellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.BidirectionalSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.BreadthFirstSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.CellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.DijkstraSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.EncodedPath;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.HierarchicalSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.PathFinder;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.SearchBuffers;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryInfo;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryType;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidLocationEntityException;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.OrderMetrics;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.OrderTimer;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
 
 public class ControlCenter implements ControlCenterApi {
 
-    private final MapEntity[][] map;
+    private static final int AUTO_BFS_MAX_CELLS = 250_000;
+    private static final int AUTO_BFS_MIN_DELIVERY_GUYS = 16;
+    private static final int DEFAULT_CACHED_ROUTES = 1 << 16;
+    private static final IntPredicate ALL_DELIVERY_GUYS = deliveryGuy -> true;
+
+    private volatile MapEntity[][] map;
     private final List<MapEntity> deliveryGuys;
-    private final int rows;
-    private final int cols;
-    private final int directionsCount = 4;
+    private final CellGrid grid;
+    private final int[] deliveryGuyCells;
+    private final Map<Location, Integer> deliveryGuyIndexes;
+    // the terrain under every delivery guy, given back to the cell when he leaves it
+    private final MapEntityType[] deliveryGuyTerrains;
+    private final BreadthFirstSearch bfs;
+    private final BidirectionalSearch bidirectionalSearch;
+    private final AStarSearch aStarSearch;
+    private DijkstraSearch[] dijkstraSearches;
+    private volatile HierarchicalSearch hierarchicalSearch;
+    private final Object hierarchicalBuild = new Object();
+    private final AtomicBoolean hierarchicalBuildStarted = new AtomicBoolean();
+    // the cells whose walls changed while the clusters are built from a snapshot, null when none is built
+    private List<Integer> changedWhileBuilding;
+    private final int[] deliveryGuysOfType;
+    private final DistanceFieldCache distanceFields;
+    private final RouteCache routes;
+    private final DeliveryGuyBuckets buckets;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder guidedOrders = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder skippedSearches = new LongAdder();
+    private final OrderMetrics orderMetrics = new OrderMetrics();
 
     /**
      * Makes the map from the layout that is char[][] to MapEntity
@@ -26,11 +76,81 @@ public class ControlCenter implements ControlCenterApi {
      * @param layout char[][] of the layout
      */
     public ControlCenter(char[][] layout) {
+        this(layout, 0);
+    }
+
+    /**
+     * Makes the map from the layout that is char[][] to MapEntity and precomputes the distances from the
+     * restaurants, so the orders are answered with table lookups instead of searches on the map.
+     *
+     * @param layout                 char[][] of the layout
+     * @param precomputedRestaurants The number of restaurants whose distances are kept. Use -1 to compute the
+     *                               distances from every restaurant while the map is built, 0 for no
+     *                               precomputation. A positive number keeps the distances of only that many
+     *                               most recently ordered from restaurants.
+     */
+    public ControlCenter(char[][] layout, int precomputedRestaurants) {
+        this(new ArrayCellGrid(layout), precomputedRestaurants);
+    }
+
+    /**
+     * Makes the control center over a grid, for example a map file mapped with MapFile.open(). The searches
+     * work on the grid directly and the MapEntity[][] of the map is built only if getLayout() is called.
+     * The grid belongs to the control center from then on, because the moves of the delivery guys change it.
+     * If the grid has cells that cost differently for the vehicles, such as traffic or pedestrian zones, every
+     * vehicle is routed with its own weights and the distances from the restaurants are not precomputed.
+     *
+     * @param grid                   the grid of the map
+     * @param precomputedRestaurants The number of restaurants whose distances are kept. Use -1 to compute the
+     *                               distances from every restaurant while the map is built, 0 for no
+     *                               precomputation. A positive number keeps the distances of only that many
+     *                               most recently ordered from restaurants.
+     */
+    public ControlCenter(CellGrid grid, int precomputedRestaurants) {
+        this(grid, precomputedRestaurants, DEFAULT_CACHED_ROUTES);
+    }
+
+    /**
+     * Makes the control center over a grid with a cache of the searched routes. A route asked again, like
+     * the road from a restaurant to a regular client or from a waiting delivery guy to a restaurant, is not
+     * searched again until a cell of the map changes.
+     *
+     * @param grid                   the grid of the map
+     * @param precomputedRestaurants The number of restaurants whose distances are kept, like in the other
+     *                               constructors.
+     * @param cachedRoutes           The number of routes whose distances are kept, 0 for no cache. When the
+     *                               limit is reached the least recently used routes are evicted.
+     */
+    public ControlCenter(CellGrid grid, int precomputedRestaurants, int cachedRoutes) {
 
-        this.map = convertToMapEntities(layout);
-        this.deliveryGuys = findDeliveryGuys();
-        this.rows = map.length;
-        this.cols = map[0].length;
+        this.grid = grid;
+        this.deliveryGuyCells = grid.deliveryGuyCells();
+        this.deliveryGuys = new ArrayList<>(deliveryGuyCells.length);
+        this.deliveryGuyIndexes = new HashMap<>();
+        for (int i = 0; i < deliveryGuyCells.length; i++) {
+            int cell = deliveryGuyCells[i];
+            Location location = new Location(grid.x(cell), grid.y(cell));
+            deliveryGuys.add(new MapEntity(location, grid.type(cell)));
+            deliveryGuyIndexes.put(location, i);
+        }
+        this.deliveryGuyTerrains = new MapEntityType[deliveryGuyCells.length];
+        Arrays.fill(deliveryGuyTerrains, MapEntityType.ROAD);
+        this.bfs = new BreadthFirstSearch(grid);
+        this.bidirectionalSearch = new BidirectionalSearch(grid);
+        this.aStarSearch = new AStarSearch(grid);
+        this.dijkstraSearches = isWeighted(grid) ? dijkstraSearches(grid) : null;
+        this.deliveryGuysOfType = new int[DeliveryType.values().length];
+        for (MapEntity deliveryGuy : deliveryGuys) {
+            deliveryGuysOfType[getDeliveryType(deliveryGuy.type()).ordinal()]++;
+        }
+        this.distanceFields = precomputedRestaurants == 0 || dijkstraSearches != null ?
+                null : new DistanceFieldCache(precomputedRestaurants);
+        this.buckets = new DeliveryGuyBuckets(grid, deliveryGuyCells);
+        this.routes = new RouteCache(cachedRoutes);
+
+        if (distanceFields != null && precomputedRestaurants == -1) {
+            precomputeDistanceFields();
+        }
     }
 
     /**
@@ -43,111 +163,1167 @@ public class ControlCenter implements ControlCenterApi {
      * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
      * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
      * @param shippingMethod     The method for shipping the delivery.
+     * @param routingStrategy    The search used to find the distances on the map. On a map with weighted
+     *                           cells every strategy uses Dijkstra's search with the weights of each vehicle.
      * @return A DeliveryInfo object containing the optimal delivery guy, the total cost,
      * the total time, and the delivery type. Returns null if no valid path is found.
      */
     @Override
     public DeliveryInfo findOptimalDeliveryGuy(Location restaurantLocation, Location clientLocation,
-                                               double maxPrice, int maxTime, ShippingMethod shippingMethod) {
+                                               double maxPrice, int maxTime, ShippingMethod shippingMethod,
+                                               RoutingStrategy routingStrategy) {
+        return findOptimalDeliveryGuy(restaurantLocation, clientLocation, maxPrice, maxTime, shippingMethod,
+                routingStrategy, ALL_DELIVERY_GUYS);
+    }
 
-        List<DeliveryInfo> potentialDeliveries = new ArrayList<>();
+    /**
+     * Finds the optimal delivery person for a given delivery task among the delivery guys that are
+     * available, for example the ones that are not busy with another delivery.
+     *
+     * @param restaurantLocation The location of the restaurant to start the delivery from.
+     * @param clientLocation     The location of the client receiving the delivery.
+     * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
+     * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
+     * @param shippingMethod     The method for shipping the delivery.
+     * @param routingStrategy    The search used to find the distances on the map.
+     * @param available          Tests the index of a delivery guy (see getDeliveryGuyIndex) and returns
+     *                           true if the delivery guy can take the delivery.
+     * @return A DeliveryInfo object containing the optimal delivery guy, the total cost,
+     * the total time, and the delivery type. Returns null if no valid path is found.
+     */
+    public DeliveryInfo findOptimalDeliveryGuy(Location restaurantLocation, Location clientLocation,
+                                               double maxPrice, int maxTime, ShippingMethod shippingMethod,
+                                               RoutingStrategy routingStrategy, IntPredicate available) {
+        return findOptimalDeliveryGuy(restaurantLocation, clientLocation, maxPrice, maxTime, shippingMethod,
+                routingStrategy, available, orderMetrics.startOrder());
+    }
 
-        for (MapEntity deliveryGuy : deliveryGuys) {
-            int distanceToRestaurant = bfs(deliveryGuy.location(), restaurantLocation);
-            if (distanceToRestaurant == -1) continue;
+    /**
+     * Finds the optimal delivery person like the other findOptimalDeliveryGuy() methods and records the
+     * order in getOrderMetrics() with a timer that the caller started, so the timings include what the
+     * caller did before, such as the validation of the order.
+     *
+     * @param restaurantLocation The location of the restaurant to start the delivery from.
+     * @param clientLocation     The location of the client receiving the delivery.
+     * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
+     * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
+     * @param shippingMethod     The method for shipping the delivery.
+     * @param routingStrategy    The search used to find the distances on the map.
+     * @param available          Tests the index of a delivery guy and returns true if he can take the delivery.
+     * @param timer              The timer from getOrderMetrics().startOrder(), null if the metrics are disabled.
+     * @return A DeliveryInfo object containing the optimal delivery guy, the total cost,
+     * the total time, and the delivery type. Returns null if no valid path is found.
+     */
+    public DeliveryInfo findOptimalDeliveryGuy(Location restaurantLocation, Location clientLocation,
+                                               double maxPrice, int maxTime, ShippingMethod shippingMethod,
+                                               RoutingStrategy routingStrategy, IntPredicate available,
+                                               OrderTimer timer) {
+        DeliveryInfo deliveryInfo;
+        lock.readLock().lock();
+        try {
+            deliveryInfo = toDeliveryInfo(findOptimal(restaurantLocation, clientLocation, maxPrice, maxTime,
+                    shippingMethod, routingStrategy, available, timer));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        orderMetrics.record(timer, deliveryInfo != null);
+        return deliveryInfo;
+    }
+
+    /**
+     * Finds the optimal delivery guy among the available ones like findOptimalDeliveryGuy() and returns his
+     * index with the delivery, so a caller that reserves delivery guys by index reserves the one that was
+     * found even if another delivery guy moves to his location afterwards.
+     *
+     * @param restaurantLocation The location of the restaurant to start the delivery from.
+     * @param clientLocation     The location of the client receiving the delivery.
+     * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
+     * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
+     * @param shippingMethod     The method for shipping the delivery.
+     * @param routingStrategy    The search used to find the distances on the map.
+     * @param available          Tests the index of a delivery guy and returns true if he can take the delivery.
+     * @return SelectedDeliveryGuy of the optimal delivery guy, null if no valid path is found
+     */
+    public SelectedDeliveryGuy selectDeliveryGuy(Location restaurantLocation, Location clientLocation,
+                                                 double maxPrice, int maxTime, ShippingMethod shippingMethod,
+                                                 RoutingStrategy routingStrategy, IntPredicate available) {
+        OrderTimer timer = orderMetrics.startOrder();
+        SelectedDeliveryGuy selected = null;
+        lock.readLock().lock();
+        try {
+            Selection selection = findOptimal(restaurantLocation, clientLocation, maxPrice, maxTime,
+                    shippingMethod, routingStrategy, available, timer);
+            DeliveryInfo deliveryInfo = toDeliveryInfo(selection);
+            if (deliveryInfo != null) {
+                selected = new SelectedDeliveryGuy(selection.optimal, deliveryInfo);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
 
-            int distanceToClient = bfs(restaurantLocation, clientLocation);
-            if (distanceToClient == -1) continue;
+        orderMetrics.record(timer, selected != null);
+        return selected;
+    }
 
-            int totalDistance = distanceToRestaurant + distanceToClient;
+    /**
+     * Finds the best delivery guys for a given delivery task, up to count of them. Only count delivery guys
+     * are kept while the others are compared, so the memory does not grow with the number of delivery guys.
+     *
+     * @param restaurantLocation The location of the restaurant to start the delivery from.
+     * @param clientLocation     The location of the client receiving the delivery.
+     * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
+     * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
+     * @param shippingMethod     The method for shipping the delivery, which decides the order of the deliveries.
+     * @param count              The largest number of deliveries returned.
+     * @return List<DeliveryInfo> of the deliveries from the optimal one to the worst one, empty if no valid
+     * path is found. The first of them is the one findOptimalDeliveryGuy() returns.
+     */
+    @Override
+    public List<DeliveryInfo> findDeliveryAlternatives(Location restaurantLocation, Location clientLocation,
+                                                       double maxPrice, int maxTime, ShippingMethod shippingMethod,
+                                                       int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("The count of the deliveries cannot be negative");
+        }
 
-            DeliveryType deliveryType = getDeliveryType(deliveryGuy.type());
+        Selection selection = new Selection(maxPrice, maxTime, shippingMethod);
+        TopDeliveries top = new TopDeliveries(Math.min(count, deliveryGuyCells.length));
 
-            double totalPrice = totalDistance * deliveryType.getPricePerKM();
-            int totalTime = totalDistance * deliveryType.getTimePerKM();
+        lock.readLock().lock();
+        try {
+            forEachDelivery(restaurantLocation, clientLocation, (deliveryGuy, cell, totalDistance, deliveryType) -> {
+                if (selection.isWithinConstraints(totalDistance, deliveryType)) {
+                    top.offer(deliveryGuy, cell, totalDistance, selection.cost(totalDistance, deliveryType));
+                }
+            });
 
-            if ((maxPrice == -1 || totalPrice <= maxPrice) && (maxTime == -1 || totalTime <= maxTime)) {
-                DeliveryInfo info = new DeliveryInfo(
-                        deliveryGuy.location(),
-                        totalPrice,
-                        totalTime,
-                        deliveryType
-                );
-                potentialDeliveries.add(info);
+            top.sort();
+            List<DeliveryInfo> deliveries = new ArrayList<>(top.size());
+            for (int rank = 0; rank < top.size(); rank++) {
+                deliveries.add(toDeliveryInfo(top.deliveryGuy(rank), top.totalDistance(rank)));
             }
+            return deliveries;
+        } finally {
+            lock.readLock().unlock();
         }
+    }
+
+    /**
+     * Finds the deliveries that no other delivery beats in both price and time. The price and the time of a
+     * delivery grow with the distance for every vehicle, so only the closest delivery guy of each vehicle can
+     * be on the frontier, and the memory stays O(number of vehicles).
+     *
+     * @param restaurantLocation The location of the restaurant to start the delivery from.
+     * @param clientLocation     The location of the client receiving the delivery.
+     * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
+     * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
+     * @return List<DeliveryInfo> of the deliveries from the cheapest to the fastest, empty if no valid path
+     * is found
+     */
+    @Override
+    public List<DeliveryInfo> findParetoDeliveries(Location restaurantLocation, Location clientLocation,
+                                                   double maxPrice, int maxTime) {
+        Selection constraints = new Selection(maxPrice, maxTime, ShippingMethod.CHEAPEST);
+        int[] closest = new int[DeliveryType.values().length];
+        int[] closestDistances = new int[closest.length];
+        Arrays.fill(closest, -1);
+
+        lock.readLock().lock();
+        try {
+            forEachDelivery(restaurantLocation, clientLocation, (deliveryGuy, cell, totalDistance, deliveryType) -> {
+                int type = deliveryType.ordinal();
+                boolean closer = closest[type] == -1 || totalDistance < closestDistances[type]
+                        || (totalDistance == closestDistances[type] && cell < deliveryGuyCells[closest[type]]);
+                if (closer && constraints.isWithinConstraints(totalDistance, deliveryType)) {
+                    closest[type] = deliveryGuy;
+                    closestDistances[type] = totalDistance;
+                }
+            });
+
+            List<DeliveryInfo> candidates = new ArrayList<>(closest.length);
+            for (int type = 0; type < closest.length; type++) {
+                if (closest[type] != -1) {
+                    candidates.add(toDeliveryInfo(closest[type], closestDistances[type]));
+                }
+            }
+            candidates.sort(Comparator.comparingDouble(DeliveryInfo::price)
+                    .thenComparingInt(DeliveryInfo::estimatedTime));
+
+            List<DeliveryInfo> frontier = new ArrayList<>(candidates.size());
+            for (DeliveryInfo candidate : candidates) {
+                if (frontier.isEmpty() || candidate.estimatedTime() < frontier.getLast().estimatedTime()) {
+                    frontier.add(candidate);
+                }
+            }
+            return frontier;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the delivery guy at one location to another. The delivery guy keeps his index, and the searches
+     * that start after the move see him at the new location.
+     *
+     * @param from The current location of the delivery guy.
+     * @param to   The new location of the delivery guy, a road, traffic or a pedestrian zone.
+     * @throws InvalidLocationEntityException If there is no delivery guy at from, or to is outside the map or
+     *                                        is not one of these.
+     */
+    @Override
+    public void moveDeliveryGuy(Location from, Location to) {
+        lock.writeLock().lock();
+        try {
+            Integer index = deliveryGuyIndexes.get(from);
+            if (index == null) {
+                throw new InvalidLocationEntityException("There is no delivery guy at " + from);
+            }
+            move(index, to);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the delivery guy with the given index to another location
+     *
+     * @param index    the index between 0 and getDeliveryGuysCount() - 1
+     * @param location the new location of the delivery guy, a road, traffic or a pedestrian zone
+     * @throws InvalidLocationEntityException if the location is outside the map or is not one of these
+     */
+    public void moveDeliveryGuy(int index, Location location) {
+        if (index < 0 || index >= deliveryGuyCells.length) {
+            throw new IllegalArgumentException("There is no delivery guy with index " + index);
+        }
+
+        lock.writeLock().lock();
+        try {
+            move(index, location);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Selection findOptimal(Location restaurantLocation, Location clientLocation,
+                                  double maxPrice, int maxTime, ShippingMethod shippingMethod,
+                                  RoutingStrategy routingStrategy, IntPredicate available, OrderTimer timer) {
 
-        if (potentialDeliveries.isEmpty()) {
+        if (!grid.contains(restaurantLocation.x(), restaurantLocation.y())) {
             return null;
         }
 
-        DeliveryInfo optimal = null;
-        for (DeliveryInfo info : potentialDeliveries) {
-            if (optimal == null) {
-                optimal = info;
-                continue;
+        int restaurant = grid.index(restaurantLocation.x(), restaurantLocation.y());
+        if (grid.isWall(restaurant)) {
+            return null;
+        }
+
+        if (timer != null) {
+            timer.validated();
+        }
+
+        LongConsumer visitedCells = timer == null ? null : timer::addVisitedCells;
+        RoutingStrategy strategy = resolve(routingStrategy);
+        PathFinder pathFinder = pathFinder(strategy);
+        int client = grid.contains(clientLocation.x(), clientLocation.y()) ?
+                grid.index(clientLocation.x(), clientLocation.y()) : -1;
+
+        if (dijkstraSearches != null) {
+            return client == -1 ?
+                    null : selectWeighted(restaurant, client, new Selection(maxPrice, maxTime, shippingMethod),
+                    available, timer);
+        }
+
+        int distanceToClient;
+        int[] precomputed = null;
+        long searchStart = timer == null ? 0 : System.nanoTime();
+
+        if (distanceFields != null && grid.type(restaurant) == MapEntityType.RESTAURANT) {
+            precomputed = distanceFields.get(restaurantLocation, source -> computeDistanceField(restaurant));
+            distanceToClient = client == -1 ? -1 : precomputed[client];
+        } else {
+            distanceToClient = client == -1 ?
+                    -1 : routes.distance(restaurant, client, routeKey(pathFinder), search(pathFinder, visitedCells));
+        }
+        if (timer != null) {
+            timer.searched(searchStart);
+        }
+
+        if (distanceToClient == -1) {
+            return null;
+        }
+
+        Selection selection = new Selection(maxPrice, maxTime, shippingMethod);
+        int maxDistance = selection.maxDistance();
+        if (maxDistance != -1 && maxDistance < distanceToClient) {
+            return null;
+        }
+
+        if (precomputed != null || strategy != RoutingStrategy.BFS) {
+            return selectOptimal(restaurant, distanceToClient, precomputed, null, pathFinder, selection, available,
+                    timer);
+        }
+
+        // the delivery guys farther than the constraints allow are left unvisited, which reads as unreachable
+        searchStart = timer == null ? 0 : System.nanoTime();
+        SearchBuffers distanceFromRestaurant = bfs.distancesFrom(restaurant, deliveryGuyCells.length,
+                maxDistance == -1 ? -1 : maxDistance - distanceToClient);
+        if (timer != null) {
+            timer.searched(searchStart);
+            timer.addVisitedCells(distanceFromRestaurant.visits());
+        }
+        try {
+            return selectOptimal(restaurant, distanceToClient, null, distanceFromRestaurant, pathFinder,
+                    selection, available, timer);
+        } finally {
+            bfs.release(distanceFromRestaurant);
+        }
+    }
+
+    /**
+     * Finds the distances from every delivery guy to the restaurant with a single search, or with table
+     * lookups if the distances from the restaurant are precomputed. On a map with weighted cells every
+     * delivery guy gets the distance with the weights of his own vehicle.
+     *
+     * @param restaurantLocation The location of the restaurant.
+     * @return int[] of the distances indexed like getDeliveryGuyIndex, -1 for the delivery guys that cannot
+     * reach the restaurant
+     */
+    public int[] findDeliveryGuyDistances(Location restaurantLocation) {
+        lock.readLock().lock();
+        try {
+            return deliveryGuyDistances(restaurantLocation);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] deliveryGuyDistances(Location restaurantLocation) {
+        int[] distances = new int[deliveryGuyCells.length];
+        Arrays.fill(distances, -1);
+        if (grid.contains(restaurantLocation.x(), restaurantLocation.y())) {
+            visitDeliveryGuyDistances(restaurantLocation, grid.index(restaurantLocation.x(), restaurantLocation.y()),
+                    (deliveryGuy, distance) -> distances[deliveryGuy] = distance);
+        }
+        return distances;
+    }
+
+    /**
+     * Gives the distance from every delivery guy that can reach the restaurant to the visitor, read straight
+     * from the buffers of the search or from the precomputed distances, so no array of the distances of all
+     * delivery guys is made. The caller holds the read lock.
+     */
+    private void visitDeliveryGuyDistances(Location restaurantLocation, int restaurant, DistanceVisitor visitor) {
+        if (dijkstraSearches != null) {
+            weightedDeliveryGuyDistances(restaurant, visitor);
+            return;
+        }
+        if (distanceFields != null && grid.type(restaurant) == MapEntityType.RESTAURANT) {
+            int[] precomputed = distanceFields.get(restaurantLocation, source -> computeDistanceField(restaurant));
+            for (int i = 0; i < deliveryGuyCells.length; i++) {
+                int distance = precomputed[deliveryGuyCells[i]];
+                if (distance != -1) {
+                    visitor.visit(i, distance);
+                }
             }
-            if (shippingMethod == ShippingMethod.CHEAPEST) {
-                if (info.price() < optimal.price()) {
-                    optimal = info;
+            return;
+        }
+
+        SearchBuffers distanceFromRestaurant = bfs.distancesFrom(restaurant, deliveryGuyCells.length);
+        try {
+            for (int i = 0; i < deliveryGuyCells.length; i++) {
+                int distance = distanceFromRestaurant.distance(deliveryGuyCells[i]);
+                if (distance != -1) {
+                    visitor.visit(i, distance);
                 }
-            } else {
-                if (info.estimatedTime() < optimal.estimatedTime()) {
-                    optimal = info;
+            }
+        } finally {
+            bfs.release(distanceFromRestaurant);
+        }
+    }
+
+    private void weightedDeliveryGuyDistances(int restaurant, DistanceVisitor visitor) {
+        for (DeliveryType deliveryType : DeliveryType.values()) {
+            int count = deliveryGuysOfType[deliveryType.ordinal()];
+            if (count == 0) continue;
+
+            DijkstraSearch search = dijkstraSearches[deliveryType.ordinal()];
+            MapEntityType deliveryGuyType = getDeliveryGuyType(deliveryType);
+            SearchBuffers distanceToRestaurant = search.distancesTo(restaurant, deliveryGuyType, count, -1);
+            try {
+                for (int i = 0; i < deliveryGuyCells.length; i++) {
+                    if (grid.type(deliveryGuyCells[i]) != deliveryGuyType) continue;
+
+                    int distance = distanceToRestaurant.distance(deliveryGuyCells[i]);
+                    if (distance != -1) {
+                        visitor.visit(i, distance);
+                    }
                 }
+            } finally {
+                search.release(distanceToRestaurant);
             }
         }
+    }
 
-        return optimal;
+    /**
+     * Finds the cost of the cheapest road between two locations for a vehicle. On a map without weighted
+     * cells this is the same as findDistance().
+     *
+     * @param from         starting location of searching
+     * @param to           ending location of searching
+     * @param deliveryType the vehicle whose weights of the cells are used
+     * @return             the cost of the cheapest path, -1 if there is no path or a location is outside the map
+     */
+    public int findDistance(Location from, Location to, DeliveryType deliveryType) {
+        if (!grid.contains(from.x(), from.y()) || !grid.contains(to.x(), to.y())) {
+            return -1;
+        }
+
+        lock.readLock().lock();
+        try {
+            return distance(grid.index(from.x(), from.y()), grid.index(to.x(), to.y()), deliveryType);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
-     * Returns the map
+     * Finds the cheapest road between two locations for a vehicle, step by step. The path is searched only
+     * when it is asked for, the orders search only the distances.
+     *
+     * @param from         starting location of searching
+     * @param to           ending location of searching
+     * @param deliveryType the vehicle whose weights of the cells are used
+     * @return             EncodedPath of the road, null if there is no path or a location is outside the map
+     */
+    public EncodedPath findPath(Location from, Location to, DeliveryType deliveryType) {
+        if (!grid.contains(from.x(), from.y()) || !grid.contains(to.x(), to.y())) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            return path(grid.index(from.x(), from.y()), grid.index(to.x(), to.y()), deliveryType);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the road of a delivery step by step: from the delivery guy to the restaurant and then to the
+     * client, with the weights of the vehicle of the delivery guy.
+     *
+     * @param deliveryGuyLocation the current location of the delivery guy
+     * @param restaurantLocation  the location of the restaurant
+     * @param clientLocation      the location of the client
+     * @return                    EncodedPath of the whole delivery, null if there is no path or a location is
+     *                            outside the map
+     * @throws InvalidLocationEntityException if there is no delivery guy at deliveryGuyLocation
+     */
+    public EncodedPath findDeliveryPath(Location deliveryGuyLocation, Location restaurantLocation,
+                                        Location clientLocation) {
+        lock.readLock().lock();
+        try {
+            Integer index = deliveryGuyIndexes.get(deliveryGuyLocation);
+            if (index == null) {
+                throw new InvalidLocationEntityException("There is no delivery guy at " + deliveryGuyLocation);
+            }
+            if (!grid.contains(restaurantLocation.x(), restaurantLocation.y())
+                    || !grid.contains(clientLocation.x(), clientLocation.y())) {
+                return null;
+            }
+
+            int restaurant = grid.index(restaurantLocation.x(), restaurantLocation.y());
+            DeliveryType deliveryType = deliveryTypeOf(index);
+            EncodedPath toRestaurant = path(deliveryGuyCells[index], restaurant, deliveryType);
+            EncodedPath toClient = path(restaurant, grid.index(clientLocation.x(), clientLocation.y()), deliveryType);
+
+            return toRestaurant == null || toClient == null ? null : toRestaurant.append(toClient);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the distances between a location and every cell of the map for every vehicle, so many roads that
+     * start or end at the location are answered with table lookups. On a map without weighted cells all
+     * vehicles share one field, which is kept like the other distances of a restaurant.
+     *
+     * @param location the source of the fields
+     * @return         DistanceField[] indexed by the ordinal of the DeliveryType
+     * @throws InvalidLocationEntityException if the location is outside the map
+     */
+    public DistanceField[] findDistanceFields(Location location) {
+        if (!grid.contains(location.x(), location.y())) {
+            throw new InvalidLocationEntityException("The location is outside the map: " + location);
+        }
+
+        DistanceField[] fields = new DistanceField[DeliveryType.values().length];
+        int source = grid.index(location.x(), location.y());
+        lock.readLock().lock();
+        try {
+            if (dijkstraSearches == null) {
+                int[] distances = distanceFields != null && grid.type(source) == MapEntityType.RESTAURANT ?
+                        distanceFields.get(location, restaurant -> computeDistanceField(source)) :
+                        computeDistanceField(source);
+                Arrays.fill(fields, new DistanceField(grid.rows(), grid.cols(), distances, distances));
+                return fields;
+            }
+
+            for (DeliveryType deliveryType : DeliveryType.values()) {
+                DijkstraSearch search = dijkstraSearches[deliveryType.ordinal()];
+                SearchBuffers from = search.distancesFrom(source);
+                int[] fromSource = from.toArray();
+                search.release(from);
+                SearchBuffers to = search.distancesTo(source, null, -1, -1);
+                int[] toSource = to.toArray();
+                search.release(to);
+                fields[deliveryType.ordinal()] = new DistanceField(grid.rows(), grid.cols(), fromSource, toSource);
+            }
+            return fields;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the length of the fastest road between two locations on the map. Every cell counts as one, also
+     * on a map with weighted cells.
+     *
+     * @param from starting location of searching
+     * @param to   ending location of searching
+     * @return     the length of the closest path, -1 if there is no path or a location is outside the map
+     */
+    public int findDistance(Location from, Location to) {
+        if (!grid.contains(from.x(), from.y()) || !grid.contains(to.x(), to.y())) {
+            return -1;
+        }
+
+        lock.readLock().lock();
+        try {
+            return unitDistance(grid.index(from.x(), from.y()), grid.index(to.x(), to.y()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the cost of the cheapest road between two cells for a vehicle. The caller holds the read lock.
+     */
+    private int distance(int start, int end, DeliveryType deliveryType) {
+        if (dijkstraSearches == null) {
+            return unitDistance(start, end);
+        }
+        return routes.distance(start, end, deliveryType.ordinal(), dijkstraSearches[deliveryType.ordinal()]::distance);
+    }
+
+    /**
+     * Finds the cheapest road between two cells for a vehicle. The caller holds the read lock.
+     */
+    private EncodedPath path(int start, int end, DeliveryType deliveryType) {
+        return dijkstraSearches == null ?
+                bfs.path(start, end) : dijkstraSearches[deliveryType.ordinal()].path(start, end);
+    }
+
+    /**
+     * Finds the length of the closest road between two cells. The caller holds the read lock.
+     */
+    private int unitDistance(int start, int end) {
+        if (distanceFields != null && grid.type(start) == MapEntityType.RESTAURANT) {
+            return distanceFields.get(new Location(grid.x(start), grid.y(start)),
+                    source -> computeDistanceField(start))[end];
+        }
+        return routes.distance(start, end, RouteCache.UNIT, pathFinder(resolve(RoutingStrategy.AUTO))::distance);
+    }
+
+    /**
+     * Returns the index of the delivery guy at the location. The index of a delivery guy stays the same for
+     * the whole life of the control center, even when he moves.
+     *
+     * @param location the location of the delivery guy
+     * @return         the index between 0 and getDeliveryGuysCount() - 1, -1 if there is no delivery guy
+     */
+    public int getDeliveryGuyIndex(Location location) {
+        lock.readLock().lock();
+        try {
+            Integer index = deliveryGuyIndexes.get(location);
+            return index == null ? -1 : index;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of the delivery guys on the map
+     *
+     * @return int number of delivery guys
+     */
+    public int getDeliveryGuysCount() {
+        return deliveryGuyCells.length;
+    }
+
+    /**
+     * Returns the delivery guy with the given index
+     *
+     * @param index the index between 0 and getDeliveryGuysCount() - 1
+     * @return      the MapEntity of the delivery guy
+     */
+    public MapEntity getDeliveryGuy(int index) {
+        lock.readLock().lock();
+        try {
+            return deliveryGuys.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the vehicle of the delivery guy with the given index
+     *
+     * @param index the index between 0 and getDeliveryGuysCount() - 1
+     * @return      the DeliveryType of the delivery guy
+     */
+    public DeliveryType getDeliveryGuyType(int index) {
+        return getDeliveryType(getDeliveryGuy(index).type());
+    }
+
+    /**
+     * Returns how many searches of delivery guys were skipped by the lower bounds so far. Only the orders
+     * that search the delivery guys one by one with a guided search are counted, the other orders find all
+     * delivery guys with a single search from the restaurant.
+     *
+     * @return SearchStatistics snapshot
+     */
+    public SearchStatistics getSearchStatistics() {
+        return new SearchStatistics(guidedOrders.sum(), searches.sum(), skippedSearches.sum());
+    }
+
+    /**
+     * Returns the timings of the orders. They are recorded only after getOrderMetrics().setEnabled(true),
+     * and until then the orders are not slowed down by them.
+     *
+     * @return the OrderMetrics of the control center
+     */
+    public OrderMetrics getOrderMetrics() {
+        return orderMetrics;
+    }
+
+    /**
+     * Returns how the route cache has been used so far
+     *
+     * @return RouteCacheStatistics snapshot
+     */
+    public RouteCacheStatistics getRouteCacheStatistics() {
+        return routes.statistics();
+    }
+
+    /**
+     * Builds the clusters of the hierarchical search and returns when they are ready. Otherwise the first
+     * HIERARCHICAL order starts building them in the background, and the orders use A* until they are ready.
+     * The clusters are built from a snapshot of the grid without holding the lock, so the orders and the cell
+     * changes go on meanwhile. The walls changed after the snapshot are applied when the clusters are ready.
+     */
+    public void prepareHierarchicalRouting() {
+        synchronized (hierarchicalBuild) {
+            if (hierarchicalSearch != null) {
+                return;
+            }
+
+            CellGrid snapshot;
+            lock.readLock().lock();
+            try {
+                snapshot = grid.snapshot();
+                // only the builder sets it, and the read lock keeps out the writers that add to it
+                changedWhileBuilding = new ArrayList<>();
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            HierarchicalSearch search = null;
+            try {
+                search = new HierarchicalSearch(snapshot);
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (search != null) {
+                        search = search.onGrid(grid);
+                        search.update(changedWhileBuilding.stream().mapToInt(Integer::intValue).toArray());
+                        hierarchicalSearch = search;
+                    }
+                    changedWhileBuilding = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Changes the terrain of a cell, for example closes a road with a wall or marks it as traffic. The cached
+     * routes and distances are dropped, and the searches that start after the change see the new cell.
+     *
+     * @param location the location of the cell
+     * @param type     the new type of the cell, one of ROAD, WALL, TRAFFIC and PEDESTRIAN
+     * @throws InvalidLocationEntityException if the location is outside the map or is not one of these types,
+     *                                        or the new type is not one of them
+     */
+    public void changeCell(Location location, MapEntityType type) {
+        if (!isTerrain(type)) {
+            throw new InvalidLocationEntityException("A cell can only be changed to a terrain: " + type);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!grid.contains(location.x(), location.y())
+                    || !isTerrain(grid.type(grid.index(location.x(), location.y())))) {
+                throw new InvalidLocationEntityException("Only the terrain of a cell can be changed: " + location);
+            }
+
+            int cell = grid.index(location.x(), location.y());
+            if (grid.type(cell) == type) {
+                return;
+            }
+
+            boolean wallChanged = grid.isWall(cell) != (type == MapEntityType.WALL);
+            grid.setType(cell, type);
+            if (wallChanged && hierarchicalSearch != null) {
+                hierarchicalSearch.update(cell);
+            } else if (wallChanged && changedWhileBuilding != null) {
+                changedWhileBuilding.add(cell);
+            }
+            MapEntity[][] layout = map;
+            if (layout != null) {
+                layout[location.x()][location.y()] = new MapEntity(location, type);
+            }
+            if (dijkstraSearches == null && isWeighted(grid)) {
+                dijkstraSearches = dijkstraSearches(grid);
+            }
+            if (distanceFields != null) {
+                distanceFields.clear();
+            }
+            routes.invalidate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isTerrain(MapEntityType type) {
+        return type == MapEntityType.ROAD || type == MapEntityType.WALL
+                || type == MapEntityType.TRAFFIC || type == MapEntityType.PEDESTRIAN;
+    }
+
+    /**
+     * Selects the optimal delivery guy once the distance from the restaurant to the client is known. The
+     * distance from a delivery guy to the restaurant is taken from the precomputed field if there is one,
+     * else from the search from the restaurant if there is one, else it is searched with the path finder.
+     *
+     * @return the Selection of the optimal delivery guy
+     */
+    private Selection selectOptimal(int restaurant, int distanceToClient, int[] precomputed,
+                                    SearchBuffers distanceFromRestaurant, PathFinder pathFinder,
+                                    Selection selection, IntPredicate available, OrderTimer timer) {
+        if (precomputed == null && distanceFromRestaurant == null) {
+            selectNearestFirst(restaurant, distanceToClient, pathFinder, available, selection, timer);
+        } else {
+            for (int i = 0; i < deliveryGuyCells.length; i++) {
+                if (!available.test(i)) continue;
+
+                int cell = deliveryGuyCells[i];
+                int distanceToRestaurant = precomputed != null ?
+                        precomputed[cell] : distanceFromRestaurant.distance(cell);
+                if (distanceToRestaurant != -1) {
+                    selection.offer(i, cell, distanceToRestaurant + distanceToClient, deliveryTypeOf(i));
+                }
+            }
+        }
+
+        return selection;
+    }
+
+    /**
+     * Selects the optimal delivery guy on a map with weighted cells. The distances depend on the vehicle, so
+     * for every vehicle the road from the restaurant to the client is searched with its weights, and then a
+     * single backward search from the restaurant finds the delivery guys with that vehicle.
+     *
+     * @return the Selection of the optimal delivery guy
+     */
+    private Selection selectWeighted(int restaurant, int client, Selection selection, IntPredicate available,
+                                     OrderTimer timer) {
+        int maxDistance = selection.maxDistance();
+        LongConsumer visitedCells = timer == null ? null : timer::addVisitedCells;
+
+        for (DeliveryType deliveryType : DeliveryType.values()) {
+            int count = deliveryGuysOfType[deliveryType.ordinal()];
+            if (count == 0) continue;
+
+            DijkstraSearch search = dijkstraSearches[deliveryType.ordinal()];
+            long searchStart = timer == null ? 0 : System.nanoTime();
+            int distanceToClient = routes.distance(restaurant, client, deliveryType.ordinal(),
+                    search(search, visitedCells));
+            if (timer != null) {
+                timer.searched(searchStart);
+            }
+            if (distanceToClient == -1 || (maxDistance != -1 && maxDistance < distanceToClient)) continue;
+
+            MapEntityType deliveryGuyType = getDeliveryGuyType(deliveryType);
+            searchStart = timer == null ? 0 : System.nanoTime();
+            SearchBuffers distanceToRestaurant = search.distancesTo(restaurant, deliveryGuyType, count,
+                    maxDistance == -1 ? -1 : maxDistance - distanceToClient);
+            if (timer != null) {
+                timer.searched(searchStart);
+                timer.addVisitedCells(distanceToRestaurant.visits());
+            }
+            try {
+                for (int i = 0; i < deliveryGuyCells.length; i++) {
+                    int cell = deliveryGuyCells[i];
+                    if (grid.type(cell) != deliveryGuyType || !available.test(i)) continue;
+
+                    int distance = distanceToRestaurant.distance(cell);
+                    if (distance != -1) {
+                        selection.offer(i, cell, distance + distanceToClient, deliveryType);
+                    }
+                }
+            } finally {
+                search.release(distanceToRestaurant);
+            }
+        }
+
+        return selection;
+    }
+
+    private DeliveryInfo toDeliveryInfo(Selection selection) {
+        if (selection == null || selection.optimal == -1) {
+            return null;
+        }
+
+        MapEntity deliveryGuy = deliveryGuys.get(selection.optimal);
+        return new DeliveryInfo(deliveryGuy.location(), selection.price, selection.time,
+                getDeliveryType(deliveryGuy.type()));
+    }
+
+    /**
+     * Searches the distances of the delivery guys in the order of the lower bounds of their costs. A delivery
+     * guy cannot be closer to the restaurant than the Manhattan distance, so the lower bound is the cost of
+     * a road without walls. The delivery guys are taken ring by ring from the buckets around the restaurant
+     * and searched only once no delivery guy of a farther ring can have a smaller bound. The search stops as
+     * soon as the smallest bound left is above the optimal cost so far or above the constraints, and the
+     * delivery guys whose own bound is above them are never searched.
+     */
+    private void selectNearestFirst(int restaurant, int distanceToClient, PathFinder pathFinder,
+                                    IntPredicate available, Selection selection, OrderTimer timer) {
+        IntBinaryOperator search = search(pathFinder, timer == null ? null : timer::addVisitedCells);
+        int[] candidates = new int[deliveryGuyCells.length];
+        CandidateQueue queue = new CandidateQueue(deliveryGuyCells.length);
+        int lastRing = buckets.lastRing(restaurant);
+        int searched = 0;
+        boolean moreRings = true;
+
+        for (int ring = 0; ; ring++) {
+            int ringDistance = buckets.lowerBound(ring) + distanceToClient;
+            moreRings = moreRings && ring <= lastRing && selection.canReach(ringDistance);
+            double ringBound = moreRings ? selection.minCost(ringDistance) : Double.POSITIVE_INFINITY;
+
+            while (!queue.isEmpty() && queue.peekKey() <= ringBound) {
+                if (!selection.canImprove(queue.peekKey())) {
+                    moreRings = false;
+                    break;
+                }
+
+                int i = queue.pop();
+                int cell = deliveryGuyCells[i];
+                long searchStart = timer == null ? 0 : System.nanoTime();
+                int distanceToRestaurant = routes.distance(cell, restaurant, routeKey(pathFinder), search);
+                if (timer != null) {
+                    timer.searched(searchStart);
+                }
+                searched++;
+                if (distanceToRestaurant != -1) {
+                    selection.offer(i, cell, distanceToRestaurant + distanceToClient, deliveryTypeOf(i));
+                }
+            }
+
+            if (!moreRings) {
+                break;
+            }
+
+            int count = buckets.collect(restaurant, ring, candidates);
+            for (int k = 0; k < count; k++) {
+                int i = candidates[k];
+                if (!available.test(i)) continue;
+
+                int minDistance = grid.manhattanDistance(deliveryGuyCells[i], restaurant) + distanceToClient;
+                DeliveryType deliveryType = deliveryTypeOf(i);
+                if (selection.isWithinConstraints(minDistance, deliveryType)) {
+                    queue.push(selection.cost(minDistance, deliveryType), i);
+                }
+            }
+        }
+
+        guidedOrders.increment();
+        searches.add(searched);
+        skippedSearches.add(deliveryGuyCells.length - searched);
+    }
+
+    /**
+     * Chooses the strategy for AUTO. Small maps are cheap to search whole, and with many delivery guys a
+     * single search from the restaurant beats a separate guided search for each of them.
+     *
+     * @param routingStrategy the requested strategy
+     * @return                the strategy that will be used
+     */
+    private RoutingStrategy resolve(RoutingStrategy routingStrategy) {
+        if (routingStrategy == null) {
+            throw new IllegalArgumentException("The routing strategy cannot be null");
+        }
+        if (routingStrategy != RoutingStrategy.AUTO) {
+            return routingStrategy;
+        }
+        return grid.size() <= AUTO_BFS_MAX_CELLS || deliveryGuyCells.length >= AUTO_BFS_MIN_DELIVERY_GUYS ?
+                RoutingStrategy.BFS : RoutingStrategy.A_STAR;
+    }
+
+    private PathFinder pathFinder(RoutingStrategy strategy) {
+        return switch (strategy) {
+            case BIDIRECTIONAL_BFS -> bidirectionalSearch;
+            case A_STAR -> aStarSearch;
+            case HIERARCHICAL -> hierarchicalSearch();
+            default -> bfs;
+        };
+    }
+
+    /**
+     * Returns the hierarchical search, or A* until its clusters are ready. Unless prepareHierarchicalRouting()
+     * was called, the clusters are built in the background the first time they are needed, so the maps that
+     * are never routed hierarchically do not pay for them. If the build fails, the orders keep using A*.
+     */
+    private PathFinder hierarchicalSearch() {
+        HierarchicalSearch search = hierarchicalSearch;
+        if (search != null) {
+            return search;
+        }
+        if (hierarchicalBuildStarted.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::prepareHierarchicalRouting);
+        }
+        return aStarSearch;
+    }
+
+    /**
+     * Returns the search of the distance between two cells with the path finder, which counts the visited
+     * cells if there is a counter
+     */
+    private static IntBinaryOperator search(PathFinder pathFinder, LongConsumer visitedCells) {
+        return visitedCells == null ?
+                pathFinder::distance : (start, end) -> pathFinder.distance(start, end, visitedCells);
+    }
+
+    /**
+     * Returns the vehicle under which the routes of the path finder are cached. The hierarchical routes are
+     * not always the shortest, so they never answer the other strategies.
+     */
+    private static int routeKey(PathFinder pathFinder) {
+        return pathFinder instanceof HierarchicalSearch ? RouteCache.HIERARCHICAL : RouteCache.UNIT;
+    }
+
+    /**
+     * Returns the map. It is built from the grid the first time it is needed and then kept up to date with
+     * the moves of the delivery guys.
      *
      * @return A MapEntity[][] containing the map
      */
     @Override
     public MapEntity[][] getLayout() {
-        return map;
+        MapEntity[][] layout = map;
+        if (layout != null) {
+            return layout;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (map == null) {
+                map = convertToMapEntities();
+            }
+            return map;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
-     * Converting the layout char[][] to MapEntity
+     * Converting the grid to MapEntity. The rows are converted in parallel.
      *
-     * @param layout    char[][] of the layout
-     * @return          MapEntity of the new map
+     * @return MapEntity of the new map
      */
-    private MapEntity[][] convertToMapEntities(char[][] layout) {
-        int rows = layout.length;
-        int cols = layout[0].length;
-        MapEntity[][] mapEntities = new MapEntity[rows][cols];
+    private MapEntity[][] convertToMapEntities() {
+        MapEntity[][] mapEntities = new MapEntity[grid.rows()][];
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                Location location = new Location(i, j);
-                MapEntityType type = MapEntityType.fromChar(layout[i][j]);
-                mapEntities[i][j] = new MapEntity(location, type);
+        IntStream.range(0, grid.rows()).parallel().forEach(i -> {
+            MapEntity[] row = new MapEntity[grid.cols()];
+            for (int j = 0; j < grid.cols(); j++) {
+                row[j] = new MapEntity(new Location(i, j), grid.type(grid.index(i, j)));
             }
-        }
+            mapEntities[i] = row;
+        });
         return mapEntities;
     }
 
     /**
-     * Finding the delivery guys.
+     * Computes the distances from every restaurant on the map.
+     */
+    private void precomputeDistanceFields() {
+        for (int cell = 0; cell < grid.size(); cell++) {
+            if (grid.type(cell) == MapEntityType.RESTAURANT) {
+                int restaurant = cell;
+                distanceFields.get(new Location(grid.x(cell), grid.y(cell)),
+                        source -> computeDistanceField(restaurant));
+            }
+        }
+    }
+
+    /**
+     * Computes the distances from the cell to the whole reachable part of the map.
      *
-     * @return List<MapEntity> list of the delivery guys
+     * @param source the cell the search starts from
+     * @return       int[] of the distances indexed by cell, -1 for the unreachable cells
      */
-    private List<MapEntity> findDeliveryGuys() {
-        List<MapEntity> deliveryGuys = new ArrayList<>();
-        for (MapEntity[] row : map) {
-            for (MapEntity entity : row) {
-                if (entity.type() == MapEntityType.DELIVERY_GUY_CAR ||
-                        entity.type() == MapEntityType.DELIVERY_GUY_BIKE) {
-                    deliveryGuys.add(entity);
+    private int[] computeDistanceField(int source) {
+        SearchBuffers field = bfs.distancesFrom(source, -1);
+        try {
+            return field.toArray();
+        } finally {
+            bfs.release(field);
+        }
+    }
+
+    /**
+     * Moves the delivery guy on the grid, the buckets and the map if it is built. The caller holds the write
+     * lock.
+     *
+     * @param index    the index of the delivery guy
+     * @param location the new location of the delivery guy
+     */
+    private void move(int index, Location location) {
+        MapEntity deliveryGuy = deliveryGuys.get(index);
+        if (deliveryGuy.location().equals(location)) {
+            return;
+        }
+        if (!grid.contains(location.x(), location.y())) {
+            throw new InvalidLocationEntityException("A delivery guy cannot move outside the map: " + location);
+        }
+        int cell = grid.index(location.x(), location.y());
+        MapEntityType terrain = grid.type(cell);
+        if (!isTerrain(terrain) || terrain == MapEntityType.WALL) {
+            throw new InvalidLocationEntityException("A delivery guy can only move to a road, traffic or a "
+                    + "pedestrian zone: " + location);
+        }
+
+        Location from = deliveryGuy.location();
+        MapEntityType left = deliveryGuyTerrains[index];
+        MapEntity moved = new MapEntity(location, deliveryGuy.type());
+
+        MapEntity[][] layout = map;
+        if (layout != null) {
+            layout[from.x()][from.y()] = new MapEntity(from, left);
+            layout[location.x()][location.y()] = moved;
+        }
+        grid.setType(deliveryGuyCells[index], left);
+        grid.setType(cell, moved.type());
+        deliveryGuyTerrains[index] = terrain;
+
+        // a delivery guy weighs like a road, so covering or uncovering other terrain changes the distances
+        if (left != MapEntityType.ROAD || terrain != MapEntityType.ROAD) {
+            if (distanceFields != null) {
+                distanceFields.clear();
+            }
+            routes.invalidate();
+        }
+
+        deliveryGuys.set(index, moved);
+        deliveryGuyIndexes.remove(from);
+        deliveryGuyIndexes.put(location, index);
+        deliveryGuyCells[index] = cell;
+        buckets.move(index, cell);
+    }
+
+    /**
+     * Gives every delivery guy that can reach the restaurant and then the client to the visitor, with the
+     * total distance for his vehicle. The caller holds the read lock.
+     */
+    private void forEachDelivery(Location restaurantLocation, Location clientLocation, DeliveryVisitor visitor) {
+        if (!grid.contains(restaurantLocation.x(), restaurantLocation.y())
+                || !grid.contains(clientLocation.x(), clientLocation.y())) {
+            return;
+        }
+
+        int restaurant = grid.index(restaurantLocation.x(), restaurantLocation.y());
+        int client = grid.index(clientLocation.x(), clientLocation.y());
+        if (grid.isWall(restaurant)) {
+            return;
+        }
+
+        int[] clientDistances = new int[DeliveryType.values().length];
+        for (DeliveryType deliveryType : DeliveryType.values()) {
+            clientDistances[deliveryType.ordinal()] = deliveryGuysOfType[deliveryType.ordinal()] == 0 ?
+                    -1 : distance(restaurant, client, deliveryType);
+        }
+
+        visitDeliveryGuyDistances(restaurantLocation, restaurant, (deliveryGuy, distance) -> {
+            DeliveryType deliveryType = deliveryTypeOf(deliveryGuy);
+            int distanceToClient = clientDistances[deliveryType.ordinal()];
+            if (distanceToClient != -1) {
+                visitor.visit(deliveryGuy, deliveryGuyCells[deliveryGuy], distance + distanceToClient, deliveryType);
+            }
+        });
+    }
+
+    private DeliveryInfo toDeliveryInfo(int deliveryGuy, int totalDistance) {
+        MapEntity entity = deliveryGuys.get(deliveryGuy);
+        DeliveryType deliveryType = getDeliveryType(entity.type());
+        return new DeliveryInfo(entity.location(), totalDistance * deliveryType.getPricePerKM(),
+                totalDistance * deliveryType.getTimePerKM(), deliveryType);
+    }
+
+    /**
+     * Checks if some cell of the grid costs more than one for some vehicle
+     */
+    private static boolean isWeighted(CellGrid grid) {
+        for (MapEntityType type : MapEntityType.values()) {
+            if (!grid.mayContain(type)) continue;
+
+            for (DeliveryType deliveryType : DeliveryType.values()) {
+                if (deliveryType.getCellWeight(type) != 1) {
+                    return true;
                 }
             }
         }
-        return deliveryGuys;
+        return false;
+    }
+
+    private static DijkstraSearch[] dijkstraSearches(CellGrid grid) {
+        MapEntityType[] types = MapEntityType.values();
+        DijkstraSearch[] searches = new DijkstraSearch[DeliveryType.values().length];
+
+        for (DeliveryType deliveryType : DeliveryType.values()) {
+            int[] weights = new int[types.length];
+            for (MapEntityType type : types) {
+                weights[type.ordinal()] = deliveryType.getCellWeight(type);
+            }
+            searches[deliveryType.ordinal()] = new DijkstraSearch(grid, weights);
+        }
+        return searches;
+    }
+
+    @FunctionalInterface
+    private interface DeliveryVisitor {
+        void visit(int deliveryGuy, int cell, int totalDistance, DeliveryType deliveryType);
+    }
+
+    @FunctionalInterface
+    private interface DistanceVisitor {
+        void visit(int deliveryGuy, int distance);
+    }
+
+    private DeliveryType deliveryTypeOf(int index) {
+        return getDeliveryType(deliveryGuys.get(index).type());
     }
 
     /**
@@ -166,65 +1342,104 @@ public class ControlCenter implements ControlCenterApi {
         }
     }
 
+    private static MapEntityType getDeliveryGuyType(DeliveryType deliveryType) {
+        return deliveryType == DeliveryType.CAR ? MapEntityType.DELIVERY_GUY_CAR : MapEntityType.DELIVERY_GUY_BIKE;
+    }
+
     /**
-     * Breath First Search algorithm to find the length of the fastest road between two coordinates in the map
-     *
-     * @param start starting location of searching
-     * @param end   ending point of searching if found
-     * @return      the length of the closet path
+     * The optimal delivery guy among the ones offered so far. Of the delivery guys with equal cost the one
+     * that comes first on the map row by row is kept, so neither the order of the offers nor the moves of
+     * the delivery guys change the result. The cost is the price for CHEAPEST and the time for FASTEST.
      */
-    private int bfs(Location start, Location end) {
-        if (start.equals(end)) return 0;
+    private static final class Selection {
 
-        boolean[][] visited = new boolean[rows][cols];
-        int[][] distance = new int[rows][cols];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                distance[i][j] = -1;
-            }
+        private static final double MIN_PRICE_PER_KM = Arrays.stream(DeliveryType.values())
+                .mapToDouble(DeliveryType::getPricePerKM).min().orElseThrow();
+        private static final int MIN_TIME_PER_KM = Arrays.stream(DeliveryType.values())
+                .mapToInt(DeliveryType::getTimePerKM).min().orElseThrow();
+
+        private final double maxPrice;
+        private final int maxTime;
+        private final boolean cheapest;
+
+        private int optimal = -1;
+        private int optimalCell;
+        private double price;
+        private int time;
+
+        Selection(double maxPrice, int maxTime, ShippingMethod shippingMethod) {
+            this.maxPrice = maxPrice;
+            this.maxTime = maxTime;
+            this.cheapest = shippingMethod == ShippingMethod.CHEAPEST;
         }
 
-        Queue<Location> queue = new LinkedList<>();
-        queue.add(start);
-        visited[start.x()][start.y()] = true;
-        distance[start.x()][start.y()] = 0;
+        void offer(int deliveryGuy, int cell, int totalDistance, DeliveryType deliveryType) {
+            if (!isWithinConstraints(totalDistance, deliveryType)) {
+                return;
+            }
 
-        int[] dirX = {-1, 1, 0, 0};
-        int[] dirY = {0, 0, -1, 1};
+            double totalPrice = totalDistance * deliveryType.getPricePerKM();
+            int totalTime = totalDistance * deliveryType.getTimePerKM();
 
-        while (!queue.isEmpty()) {
-            Location current = queue.poll();
+            boolean better = cheapest ? totalPrice < price : totalTime < time;
+            boolean tie = cheapest ? totalPrice == price : totalTime == time;
+            if (optimal == -1 || better || (tie && cell < optimalCell)) {
+                optimal = deliveryGuy;
+                optimalCell = cell;
+                price = totalPrice;
+                time = totalTime;
+            }
+        }
 
-            for (int i = 0; i < directionsCount; i++) {
-                int newX = current.x() + dirX[i];
-                int newY = current.y() + dirY[i];
+        double cost(int totalDistance, DeliveryType deliveryType) {
+            return cheapest ?
+                    totalDistance * deliveryType.getPricePerKM() : (double) totalDistance * deliveryType.getTimePerKM();
+        }
 
-                if (isValid(newX, newY) && !visited[newX][newY] &&
-                        map[newX][newY].type() != MapEntityType.WALL) {
+        /**
+         * Returns the cost of the distance with the cheapest or the fastest vehicle
+         */
+        double minCost(int totalDistance) {
+            return cheapest ? totalDistance * MIN_PRICE_PER_KM : (double) totalDistance * MIN_TIME_PER_KM;
+        }
 
-                    visited[newX][newY] = true;
-                    distance[newX][newY] = distance[current.x()][current.y()] + 1;
-                    Location neighbor = new Location(newX, newY);
-                    queue.add(neighbor);
+        boolean isWithinConstraints(int totalDistance, DeliveryType deliveryType) {
+            return (maxPrice == -1 || totalDistance * deliveryType.getPricePerKM() <= maxPrice)
+                    && (maxTime == -1 || totalDistance * deliveryType.getTimePerKM() <= maxTime);
+        }
 
-                    if (neighbor.equals(end)) {
-                        return distance[newX][newY];
-                    }
-                }
-            }
+        /**
+         * Checks if a delivery guy with a cost of at least minCost could still replace the optimal one
+         */
+        boolean canImprove(double minCost) {
+            return optimal == -1 || minCost <= (cheapest ? price : time);
         }
 
-        return -1;
-    }
+        /**
+         * Checks if any vehicle could make a delivery of at least the given distance within the constraints
+         * and for a cost that could still replace the optimal delivery guy
+         */
+        boolean canReach(int minDistance) {
+            return (maxPrice == -1 || minDistance * MIN_PRICE_PER_KM <= maxPrice)
+                    && (maxTime == -1 || minDistance * MIN_TIME_PER_KM <= maxTime)
+                    && canImprove(minCost(minDistance));
+        }
 
-    /**
-     * Validates the coordinates for map in the class.
-     *
-     * @param x  First coordinate of the Location
-     * @param y  Second coordinate of the Location
-     * @return   True if the coordinates are possible for the map
-     */
-    private boolean isValid(int x, int y) {
-        return x >= 0 && x < rows && y >= 0 && y < cols;
+        /**
+         * Returns the longest total distance that any vehicle can make within the constraints, with one cell
+         * to spare for the rounding of the price
+         *
+         * @return the longest distance, -1 if there are no constraints
+         */
+        int maxDistance() {
+            long distance = Long.MAX_VALUE;
+            if (maxPrice != -1) {
+                distance = (long) Math.floor(maxPrice / MIN_PRICE_PER_KM) + 1;
+            }
+            if (maxTime != -1) {
+                distance = Math.min(distance, maxTime / MIN_TIME_PER_KM);
+            }
+            return distance == Long.MAX_VALUE ? -1 : (int) Math.max(0, Math.min(distance, Integer.MAX_VALUE));
+        }
     }
-}
\ No newline at end of file
+}
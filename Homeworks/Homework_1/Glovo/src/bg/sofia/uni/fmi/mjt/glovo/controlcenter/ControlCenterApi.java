@@ -2,8 +2,12 @@ package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
 
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryInfo;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidLocationEntityException;
+
+import java.util.List;
 
 public interface ControlCenterApi {
 
@@ -20,8 +24,69 @@ public interface ControlCenterApi {
      * @return A DeliveryInfo object containing the optimal delivery guy, the total cost,
      * the total time, and the delivery type. Returns null if no valid path is found.
      */
+    default DeliveryInfo findOptimalDeliveryGuy(Location restaurantLocation, Location clientLocation,
+                                                double maxPrice, int maxTime, ShippingMethod shippingMethod) {
+        return findOptimalDeliveryGuy(restaurantLocation, clientLocation, maxPrice, maxTime, shippingMethod,
+                RoutingStrategy.AUTO);
+    }
+
+    /**
+     * Finds the optimal delivery person for a given delivery task, searching the map with the given
+     * routing strategy. Every strategy finds the same delivery as the others, only faster or slower
+     * depending on the map.
+     *
+     * @param restaurantLocation The location of the restaurant to start the delivery from.
+     * @param clientLocation     The location of the client receiving the delivery.
+     * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
+     * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
+     * @param shippingMethod     The method for shipping the delivery.
+     * @param routingStrategy    The search used to find the distances on the map.
+     * @return A DeliveryInfo object containing the optimal delivery guy, the total cost,
+     * the total time, and the delivery type. Returns null if no valid path is found.
+     */
     DeliveryInfo findOptimalDeliveryGuy(Location restaurantLocation, Location clientLocation,
-                                        double maxPrice, int maxTime, ShippingMethod shippingMethod);
+                                        double maxPrice, int maxTime, ShippingMethod shippingMethod,
+                                        RoutingStrategy routingStrategy);
+
+    /**
+     * Finds the best delivery guys for a given delivery task, up to count of them.
+     *
+     * @param restaurantLocation The location of the restaurant to start the delivery from.
+     * @param clientLocation     The location of the client receiving the delivery.
+     * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
+     * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
+     * @param shippingMethod     The method for shipping the delivery, which decides the order of the deliveries.
+     * @param count              The largest number of deliveries returned.
+     * @return List<DeliveryInfo> of the deliveries from the optimal one to the worst one, empty if no valid
+     * path is found.
+     */
+    List<DeliveryInfo> findDeliveryAlternatives(Location restaurantLocation, Location clientLocation,
+                                                double maxPrice, int maxTime, ShippingMethod shippingMethod,
+                                                int count);
+
+    /**
+     * Finds the deliveries that no other delivery beats in both price and time.
+     *
+     * @param restaurantLocation The location of the restaurant to start the delivery from.
+     * @param clientLocation     The location of the client receiving the delivery.
+     * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
+     * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
+     * @return List<DeliveryInfo> of the deliveries from the cheapest to the fastest, empty if no valid path
+     * is found.
+     */
+    List<DeliveryInfo> findParetoDeliveries(Location restaurantLocation, Location clientLocation,
+                                            double maxPrice, int maxTime);
+
+    /**
+     * Moves the delivery guy at one location to another. The delivery guy leaves behind him the terrain that
+     * was there before he came.
+     *
+     * @param from The current location of the delivery guy.
+     * @param to   The new location of the delivery guy, a road, traffic or a pedestrian zone.
+     * @throws InvalidLocationEntityException If there is no delivery guy at from, or to is outside the map or
+     *                                        is not one of these.
+     */
+    void moveDeliveryGuy(Location from, Location to);
 
     /**
      * Returns the map
@@ -0,0 +1,151 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.CellGrid;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid of square buckets laid over the map. Every delivery guy is kept in the bucket of the part of
+ * the map that he is in, so the delivery guys near a cell are found ring by ring without looking at all of
+ * them. A delivery guy that moves is only taken out of his old bucket and put in the new one.
+ * The buckets are not thread-safe, the control center guards them with its lock.
+ */
+final class DeliveryGuyBuckets {
+
+    private static final int DELIVERY_GUYS_PER_BUCKET = 2;
+    private static final int MIN_BUCKET_SIZE = 4;
+
+    private final CellGrid grid;
+    private final int bucketSize;
+    private final int bucketRows;
+    private final int bucketCols;
+    private final int[][] members;
+    private final int[] sizes;
+    private final int[] bucketOf;
+    private final int[] slotOf;
+
+    /**
+     * Puts the delivery guys in buckets that are big enough to hold a couple of delivery guys on average
+     *
+     * @param grid  the grid of the map
+     * @param cells the cells of the delivery guys indexed by delivery guy
+     */
+    DeliveryGuyBuckets(CellGrid grid, int[] cells) {
+        this.grid = grid;
+        this.bucketSize = Math.max(MIN_BUCKET_SIZE, (int) Math.ceil(
+                Math.sqrt((double) grid.size() * DELIVERY_GUYS_PER_BUCKET / Math.max(1, cells.length))));
+        this.bucketRows = (grid.rows() + bucketSize - 1) / bucketSize;
+        this.bucketCols = (grid.cols() + bucketSize - 1) / bucketSize;
+        this.members = new int[bucketRows * bucketCols][];
+        this.sizes = new int[members.length];
+        this.bucketOf = new int[cells.length];
+        this.slotOf = new int[cells.length];
+
+        for (int i = 0; i < cells.length; i++) {
+            add(i, bucket(cells[i]));
+        }
+    }
+
+    /**
+     * Moves the delivery guy to the bucket of his new cell
+     *
+     * @param deliveryGuy the index of the delivery guy
+     * @param cell        the new cell of the delivery guy
+     */
+    void move(int deliveryGuy, int cell) {
+        int bucket = bucket(cell);
+        if (bucket == bucketOf[deliveryGuy]) {
+            return;
+        }
+
+        remove(deliveryGuy);
+        add(deliveryGuy, bucket);
+    }
+
+    /**
+     * Returns the number of the last ring around the bucket of the cell, after which there are no buckets
+     *
+     * @param cell the center of the rings
+     * @return     the number of the last ring
+     */
+    int lastRing(int cell) {
+        int row = grid.x(cell) / bucketSize;
+        int col = grid.y(cell) / bucketSize;
+
+        return Math.max(Math.max(row, bucketRows - 1 - row), Math.max(col, bucketCols - 1 - col));
+    }
+
+    /**
+     * Returns the smallest Manhattan distance between a cell and a delivery guy in the given ring around the
+     * bucket of the cell. A bucket of the ring is that many buckets away along at least one of the axes.
+     *
+     * @param ring the number of the ring, 0 for the bucket of the cell itself
+     * @return     the lower bound of the distance
+     */
+    int lowerBound(int ring) {
+        return ring == 0 ? 0 : (ring - 1) * bucketSize + 1;
+    }
+
+    /**
+     * Writes the delivery guys in the ring of buckets around the bucket of the cell
+     *
+     * @param cell         the center of the ring
+     * @param ring         the number of the ring, 0 for the bucket of the cell itself
+     * @param deliveryGuys array with a place for every delivery guy that receives their indexes
+     * @return             the number of the delivery guys in the ring
+     */
+    int collect(int cell, int ring, int[] deliveryGuys) {
+        int row = grid.x(cell) / bucketSize;
+        int col = grid.y(cell) / bucketSize;
+        int count = 0;
+
+        for (int r = row - ring; r <= row + ring; r++) {
+            if (r < 0 || r >= bucketRows) continue;
+
+            boolean edge = r == row - ring || r == row + ring;
+            int step = edge || ring == 0 ? 1 : 2 * ring;
+            for (int c = col - ring; c <= col + ring; c += step) {
+                if (c >= 0 && c < bucketCols) {
+                    count = copy(r * bucketCols + c, deliveryGuys, count);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private int copy(int bucket, int[] deliveryGuys, int count) {
+        int size = sizes[bucket];
+        if (size > 0) {
+            System.arraycopy(members[bucket], 0, deliveryGuys, count, size);
+        }
+        return count + size;
+    }
+
+    private int bucket(int cell) {
+        return grid.x(cell) / bucketSize * bucketCols + grid.y(cell) / bucketSize;
+    }
+
+    private void add(int deliveryGuy, int bucket) {
+        int[] bucketMembers = members[bucket];
+        if (bucketMembers == null) {
+            bucketMembers = new int[DELIVERY_GUYS_PER_BUCKET];
+        } else if (sizes[bucket] == bucketMembers.length) {
+            bucketMembers = Arrays.copyOf(bucketMembers, bucketMembers.length * 2);
+        }
+        members[bucket] = bucketMembers;
+
+        bucketMembers[sizes[bucket]] = deliveryGuy;
+        bucketOf[deliveryGuy] = bucket;
+        slotOf[deliveryGuy] = sizes[bucket]++;
+    }
+
+    private void remove(int deliveryGuy) {
+        int bucket = bucketOf[deliveryGuy];
+        int slot = slotOf[deliveryGuy];
+        int last = members[bucket][--sizes[bucket]];
+
+        members[bucket][slot] = last;
+        slotOf[last] = slot;
+    }
+}
@@ -0,0 +1,49 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+
+/**
+ * The distances between one location, the source, and every cell of the map for one vehicle, found with a
+ * single search in each direction. Reading a distance is a table lookup. On a map without weighted cells
+ * the roads are as long both ways, so both directions share one table.
+ */
+public final class DistanceField {
+
+    private final int rows;
+    private final int cols;
+    private final int[] fromSource;
+    private final int[] toSource;
+
+    DistanceField(int rows, int cols, int[] fromSource, int[] toSource) {
+        this.rows = rows;
+        this.cols = cols;
+        this.fromSource = fromSource;
+        this.toSource = toSource;
+    }
+
+    /**
+     * Returns the distance of the road from the source to the location
+     *
+     * @param location the end of the road
+     * @return         the distance, -1 if there is no road or the location is outside the map
+     */
+    public int from(Location location) {
+        return distance(fromSource, location);
+    }
+
+    /**
+     * Returns the distance of the road from the location to the source
+     *
+     * @param location the start of the road
+     * @return         the distance, -1 if there is no road or the location is outside the map
+     */
+    public int to(Location location) {
+        return distance(toSource, location);
+    }
+
+    private int distance(int[] distances, Location location) {
+        int x = location.x();
+        int y = location.y();
+        return x < 0 || x >= rows || y < 0 || y >= cols ? -1 : distances[x * cols + y];
+    }
+}
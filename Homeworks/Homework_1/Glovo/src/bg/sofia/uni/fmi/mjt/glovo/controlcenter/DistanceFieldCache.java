@@ -0,0 +1,79 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keeps the BFS distance fields of the restaurants. A field computed once stays valid until a cell of the
+ * map changes, and every next order from the same restaurant is answered with table lookups.
+ */
+class DistanceFieldCache {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Map<Location, int[]> fields;
+
+    /**
+     * Makes a cache for the distance fields
+     *
+     * @param capacity the maximum number of fields to keep, -1 for no limit. When the limit is reached
+     *                 the least recently used field is evicted.
+     */
+    DistanceFieldCache(int capacity) {
+        if (capacity == 0 || capacity < -1) {
+            throw new IllegalArgumentException("The capacity must be positive or -1 for no limit");
+        }
+
+        this.fields = new LinkedHashMap<>(16, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Location, int[]> eldest) {
+                return capacity != -1 && size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the distance field of the restaurant and computes it if it is not kept yet. The search runs
+     * outside the lock, so the orders of other restaurants do not wait for it. Two orders that miss the same
+     * restaurant at the same time may both search it, and both get the field that was kept first.
+     *
+     * @param restaurant the location of the restaurant
+     * @param compute    the function that computes the field of a location
+     * @return           int[] of the distances from the restaurant
+     */
+    int[] get(Location restaurant, Function<Location, int[]> compute) {
+        int[] field;
+        synchronized (this) {
+            field = fields.get(restaurant);
+        }
+        if (field != null) {
+            return field;
+        }
+
+        int[] computed = compute.apply(restaurant);
+        synchronized (this) {
+            field = fields.putIfAbsent(restaurant, computed);
+        }
+        return field == null ? computed : field;
+    }
+
+    /**
+     * Forgets all fields, because the map has changed. The caller makes sure that no field is computed at the
+     * same time.
+     */
+    synchronized void clear() {
+        fields.clear();
+    }
+
+    /**
+     * Returns the number of the fields that are kept
+     *
+     * @return int number of fields
+     */
+    synchronized int size() {
+        return fields.size();
+    }
+}
@@ -0,0 +1,250 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Keeps the distances of the routes searched so far, so a route that is asked again, for example the road
+ * from a restaurant to a regular client, is answered without a search. The routes are spread over segments
+ * with their own locks and least recently used eviction, so the orders answered in parallel rarely wait
+ * for each other. The distances stay valid until a cell of the map changes. The delivery guys do not block
+ * the roads, so their moves do not change any distance.
+ */
+class RouteCache {
+
+    /**
+     * The vehicle of the routes on which every cell counts as one
+     */
+    static final int UNIT = -1;
+
+    /**
+     * The vehicle of the routes found by the hierarchical search, which are kept apart from the shortest
+     * ones because they can be a few cells longer
+     */
+    static final int HIERARCHICAL = -2;
+
+    private static final int SEGMENTS = 16;
+    private static final int VEHICLE_BITS = 2;
+    private static final int MAX_VEHICLE = HIERARCHICAL + (1 << VEHICLE_BITS) - 1;
+    private static final int NOT_KEPT = Integer.MIN_VALUE;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Makes a cache for the routes. The capacity is split between at most 16 segments, so the cache never
+     * keeps more routes than the capacity.
+     *
+     * @param capacity the maximum number of routes to keep, 0 to keep none
+     */
+    RouteCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity cannot be negative");
+        }
+
+        this.segments = new Segment[Math.min(SEGMENTS, capacity)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(capacity / segments.length + (i < capacity % segments.length ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the distance of the route and searches it if it is not kept yet. Two orders that miss the
+     * same route at the same time may both search it, but the search runs outside the lock of the segment.
+     *
+     * @param from    the cell the route starts from
+     * @param to      the cell the route ends at
+     * @param vehicle the ordinal of the DeliveryType whose weights are used, UNIT for the unit weights,
+     *                HIERARCHICAL for the routes of the hierarchical search
+     * @param search  the search of the distance between two cells
+     * @return        the distance of the route, -1 if there is no route
+     */
+    int distance(int from, int to, int vehicle, IntBinaryOperator search) {
+        if (segments.length == 0) {
+            return search.applyAsInt(from, to);
+        }
+        if (vehicle < HIERARCHICAL || vehicle > MAX_VEHICLE) {
+            throw new IllegalArgumentException("The routes of vehicle " + vehicle + " cannot be cached");
+        }
+
+        // the cells are not negative, so they take 31 bits each and leave the lowest bits to the vehicle
+        long route = (long) from << (Integer.SIZE + 1) | (long) to << VEHICLE_BITS | vehicle - HIERARCHICAL;
+        int hash = (int) (route * GOLDEN_RATIO >>> Integer.SIZE);
+        Segment segment = segments[Integer.remainderUnsigned(hash, segments.length)];
+
+        int distance;
+        synchronized (segment) {
+            distance = segment.get(route, hash);
+        }
+        if (distance != NOT_KEPT) {
+            hits.increment();
+            return distance;
+        }
+
+        misses.increment();
+        int searched = search.applyAsInt(from, to);
+        synchronized (segment) {
+            segment.put(route, hash, searched);
+        }
+        return searched;
+    }
+
+    /**
+     * Forgets all routes. The caller makes sure that no route is searched at the same time.
+     */
+    void invalidate() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        invalidations.increment();
+    }
+
+    RouteCacheStatistics statistics() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new RouteCacheStatistics(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size);
+    }
+
+    /**
+     * A hash table of the routes with least recently used eviction, kept in primitive arrays so that neither a
+     * lookup nor an insert allocates. Every route has a slot; the slots are chained by bucket and linked from
+     * the least to the most recently used. A full segment reuses the slot of the least recently used route.
+     */
+    private final class Segment {
+
+        private final long[] routes;
+        private final int[] distances;
+        private final int[] chained;
+        private final int[] older;
+        private final int[] newer;
+        private final int[] buckets;
+        private final int bucketBits;
+        private int size;
+        private int oldest = -1;
+        private int newest = -1;
+
+        Segment(int capacity) {
+            this.routes = new long[capacity];
+            this.distances = new int[capacity];
+            this.chained = new int[capacity];
+            this.older = new int[capacity];
+            this.newer = new int[capacity];
+            this.bucketBits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros((int) (capacity / LOAD_FACTOR)));
+            this.buckets = new int[1 << bucketBits];
+            Arrays.fill(buckets, -1);
+        }
+
+        int get(long route, int hash) {
+            int slot = find(route, hash);
+            if (slot == -1) {
+                return NOT_KEPT;
+            }
+            makeNewest(slot);
+            return distances[slot];
+        }
+
+        void put(long route, int hash, int distance) {
+            int slot = find(route, hash);
+            if (slot != -1) {
+                distances[slot] = distance;
+                makeNewest(slot);
+                return;
+            }
+
+            if (size < routes.length) {
+                slot = size++;
+            } else {
+                slot = oldest;
+                unchain(slot);
+                unlink(slot);
+                evictions.increment();
+            }
+            int bucket = bucket(hash);
+            routes[slot] = route;
+            distances[slot] = distance;
+            chained[slot] = buckets[bucket];
+            buckets[bucket] = slot;
+            link(slot);
+        }
+
+        void clear() {
+            Arrays.fill(buckets, -1);
+            size = 0;
+            oldest = -1;
+            newest = -1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int find(long route, int hash) {
+            int slot = buckets[bucket(hash)];
+            while (slot != -1 && routes[slot] != route) {
+                slot = chained[slot];
+            }
+            return slot;
+        }
+
+        private int bucket(int hash) {
+            // the segment is chosen by the lowest bits, so the bucket is chosen by the highest
+            return hash >>> (Integer.SIZE - bucketBits);
+        }
+
+        private void unchain(int slot) {
+            int bucket = bucket((int) (routes[slot] * GOLDEN_RATIO >>> Integer.SIZE));
+            if (buckets[bucket] == slot) {
+                buckets[bucket] = chained[slot];
+                return;
+            }
+            int previous = buckets[bucket];
+            while (chained[previous] != slot) {
+                previous = chained[previous];
+            }
+            chained[previous] = chained[slot];
+        }
+
+        private void makeNewest(int slot) {
+            if (slot != newest) {
+                unlink(slot);
+                link(slot);
+            }
+        }
+
+        private void link(int slot) {
+            older[slot] = newest;
+            newer[slot] = -1;
+            if (newest == -1) {
+                oldest = slot;
+            } else {
+                newer[newest] = slot;
+            }
+            newest = slot;
+        }
+
+        private void unlink(int slot) {
+            if (older[slot] == -1) {
+                oldest = newer[slot];
+            } else {
+                newer[older[slot]] = newer[slot];
+            }
+            if (newer[slot] == -1) {
+                newest = older[slot];
+            } else {
+                older[newer[slot]] = older[slot];
+            }
+        }
+    }
+}
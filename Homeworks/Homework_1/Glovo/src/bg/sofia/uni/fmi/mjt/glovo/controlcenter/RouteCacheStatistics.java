@@ -0,0 +1,14 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+/**
+ * Snapshot of the route cache of a ControlCenter
+ *
+ * @param hits          the number of routes answered from the cache
+ * @param misses        the number of routes that had to be searched
+ * @param evictions     the number of routes dropped to keep the cache within its capacity
+ * @param invalidations the number of times the whole cache was dropped, because a cell of the map changed
+ * @param size          the number of routes kept now
+ */
+public record RouteCacheStatistics(long hits, long misses, long evictions, long invalidations, int size) {
+
+}
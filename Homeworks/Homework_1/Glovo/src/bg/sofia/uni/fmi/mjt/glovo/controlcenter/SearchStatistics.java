@@ -0,0 +1,13 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+/**
+ * Snapshot of the searches of delivery guys made by a ControlCenter
+ *
+ * @param orders          the number of orders that searched the delivery guys one by one
+ * @param searches        the number of delivery guys whose distance to the restaurant was searched
+ * @param skippedSearches the number of delivery guys that were not searched, because their lower bound
+ *                        could not beat the optimal delivery guy or the constraints, or they were not available
+ */
+public record SearchStatistics(long orders, long searches, long skippedSearches) {
+
+}
@@ -0,0 +1,14 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryInfo;
+
+/**
+ * The optimal delivery guy of an order together with his index, both read under the same lock, so the
+ * index is the one of the delivery guy at the location of the DeliveryInfo when the search ended
+ *
+ * @param index        the index of the delivery guy, see ControlCenter.getDeliveryGuyIndex
+ * @param deliveryInfo the delivery of the delivery guy
+ */
+public record SelectedDeliveryGuy(int index, DeliveryInfo deliveryInfo) {
+
+}
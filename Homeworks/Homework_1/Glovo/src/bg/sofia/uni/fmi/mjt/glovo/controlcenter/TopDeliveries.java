@@ -0,0 +1,103 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+/**
+ * The K best delivery guys among the ones offered, kept in a bounded binary max-heap with the worst of them
+ * at the root. A delivery guy better than the root replaces it, so the memory stays O(K) however many
+ * delivery guys are offered. Of the delivery guys with equal cost the one with the smaller cell is better,
+ * like in the selection of the optimal delivery guy.
+ */
+final class TopDeliveries {
+
+    private final double[] costs;
+    private final int[] cells;
+    private final int[] deliveryGuys;
+    private final int[] distances;
+    private int size;
+
+    /**
+     * Makes an empty selection
+     *
+     * @param capacity the number K of delivery guys that are kept
+     */
+    TopDeliveries(int capacity) {
+        this.costs = new double[capacity];
+        this.cells = new int[capacity];
+        this.deliveryGuys = new int[capacity];
+        this.distances = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void offer(int deliveryGuy, int cell, int totalDistance, double cost) {
+        if (costs.length == 0) {
+            return;
+        }
+
+        if (size < costs.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!isWorse(cost, cell, costs[parent], cells[parent])) break;
+                move(parent, i);
+                i = parent;
+            }
+            put(i, deliveryGuy, cell, totalDistance, cost);
+        } else if (isWorse(costs[0], cells[0], cost, cell)) {
+            siftDown(0, size, deliveryGuy, cell, totalDistance, cost);
+        }
+    }
+
+    /**
+     * Sorts the kept delivery guys from the best to the worst. The selection cannot take offers afterwards.
+     */
+    void sort() {
+        for (int last = size - 1; last > 0; last--) {
+            int deliveryGuy = deliveryGuys[last];
+            int cell = cells[last];
+            int distance = distances[last];
+            double cost = costs[last];
+
+            move(0, last);
+            siftDown(0, last, deliveryGuy, cell, distance, cost);
+        }
+    }
+
+    int deliveryGuy(int rank) {
+        return deliveryGuys[rank];
+    }
+
+    int totalDistance(int rank) {
+        return distances[rank];
+    }
+
+    private void siftDown(int i, int end, int deliveryGuy, int cell, int totalDistance, double cost) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= end) break;
+            if (child + 1 < end && isWorse(costs[child + 1], cells[child + 1], costs[child], cells[child])) {
+                child++;
+            }
+            if (!isWorse(costs[child], cells[child], cost, cell)) break;
+            move(child, i);
+            i = child;
+        }
+        put(i, deliveryGuy, cell, totalDistance, cost);
+    }
+
+    private static boolean isWorse(double cost, int cell, double otherCost, int otherCell) {
+        return cost > otherCost || (cost == otherCost && cell > otherCell);
+    }
+
+    private void move(int from, int to) {
+        put(to, deliveryGuys[from], cells[from], distances[from], costs[from]);
+    }
+
+    private void put(int i, int deliveryGuy, int cell, int totalDistance, double cost) {
+        deliveryGuys[i] = deliveryGuy;
+        cells[i] = cell;
+        distances[i] = totalDistance;
+        costs[i] = cost;
+    }
+}
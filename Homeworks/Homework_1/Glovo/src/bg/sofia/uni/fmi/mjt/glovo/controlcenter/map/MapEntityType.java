@@ -8,7 +8,17 @@ public enum MapEntityType {
     DELIVERY_GUY_BIKE('B'),
     RESTAURANT('R'),
     ROAD('.'),
-    WALL('#');
+    WALL('#'),
+    TRAFFIC('T'),
+    PEDESTRIAN('P');
+
+    private static final MapEntityType[] BY_SYMBOL = new MapEntityType[128];
+
+    static {
+        for (final MapEntityType type : MapEntityType.values()) {
+            BY_SYMBOL[type.symbol] = type;
+        }
+    }
 
     private final char symbol;
 
@@ -24,12 +34,10 @@ public enum MapEntityType {
 
     public static MapEntityType fromChar(char symbol) {
 
-        for (final MapEntityType type : MapEntityType.values()) {
-
-            if (type.getSymbol() == symbol) {
+        final MapEntityType type = symbol < BY_SYMBOL.length ? BY_SYMBOL[symbol] : null;
+        if (type != null) {
 
-                return type;
-            }
+            return type;
         }
 
         throw new InvalidLocationEntityException("Invalid symbol: " + symbol);
@@ -0,0 +1,87 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A* search with the Manhattan distance as heuristic. On a grid with unit moves a step changes the
+ * Manhattan distance by exactly one, so the estimate f = g + h of a neighbour is either the same as the
+ * estimate of the current cell or larger by 2. The open list is therefore just two stacks: the cells with
+ * the current estimate and the cells with the next one.
+ */
+public final class AStarSearch implements PathFinder {
+
+    private static final int ESTIMATE_STEP = 2;
+
+    private final CellGrid grid;
+    private final BufferPool<SearchBuffers> buffers;
+
+    public AStarSearch(CellGrid grid) {
+        this.grid = grid;
+        this.buffers = new BufferPool<>(() -> new SearchBuffers(grid.size(), 2));
+    }
+
+    @Override
+    public int distance(int start, int end) {
+        return distance(start, end, null);
+    }
+
+    @Override
+    public int distance(int start, int end, LongConsumer visitedCells) {
+        if (start == end) return 0;
+        if (grid.isWall(start) || grid.isWall(end)) return -1;
+
+        SearchBuffers search = buffers.acquire();
+        try {
+            return search(search, start, end);
+        } finally {
+            if (visitedCells != null) visitedCells.accept(search.visits());
+            buffers.release(search);
+        }
+    }
+
+    private int search(SearchBuffers search, int start, int end) {
+        search.reset();
+        int[] current = search.queue(0);
+        int[] next = search.queue(1);
+        int[] neighbours = search.neighbours();
+        int currentSize = 0;
+        int nextSize = 0;
+
+        search.visit(start, 0);
+        current[currentSize++] = start;
+        int estimate = grid.manhattanDistance(start, end);
+
+        while (true) {
+            if (currentSize == 0) {
+                if (nextSize == 0) {
+                    return -1;
+                }
+                int[] swap = current;
+                current = next;
+                next = swap;
+                currentSize = nextSize;
+                nextSize = 0;
+                estimate += ESTIMATE_STEP;
+            }
+
+            int cell = current[--currentSize];
+            int distance = search.distance(cell);
+            if (distance + grid.manhattanDistance(cell, end) != estimate) continue;
+            if (cell == end) return distance;
+
+            int count = grid.neighbours(cell, neighbours);
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbours[i];
+                int known = search.distance(neighbour);
+                if (known != -1 && known <= distance + 1) continue;
+
+                search.visit(neighbour, distance + 1);
+                if (distance + 1 + grid.manhattanDistance(neighbour, end) == estimate) {
+                    current[currentSize++] = neighbour;
+                } else {
+                    next[nextSize++] = neighbour;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * CellGrid that keeps its cells in a byte array on the heap. The array is filled in parallel by blocks of
+ * rows, and the delivery guys are found in the same pass, so a huge layout is read only once.
+ */
+public final class ArrayCellGrid extends CellGrid {
+
+    private static final int CELLS_PER_TASK = 1 << 16;
+    private static final byte DELIVERY_GUY_CAR = (byte) MapEntityType.DELIVERY_GUY_CAR.ordinal();
+    private static final byte DELIVERY_GUY_BIKE = (byte) MapEntityType.DELIVERY_GUY_BIKE.ordinal();
+
+    private final byte[] cells;
+    private final int[] deliveryGuyCells;
+
+    /**
+     * Makes the grid from the layout
+     *
+     * @param layout char[][] of the layout
+     */
+    public ArrayCellGrid(char[][] layout) {
+        this(layout.length, layout[0].length, (x, y) -> MapEntityType.fromChar(layout[x][y]));
+    }
+
+    /**
+     * Makes the grid from the map
+     *
+     * @param map MapEntity[][] of the map
+     */
+    public ArrayCellGrid(MapEntity[][] map) {
+        this(map.length, map[0].length, (x, y) -> map[x][y].type());
+    }
+
+    private ArrayCellGrid(int rows, int cols, CellReader reader) {
+        super(rows, cols);
+        this.cells = new byte[size()];
+
+        int rowsPerTask = Math.max(1, CELLS_PER_TASK / cols);
+        Rows rowsRead = ForkJoinPool.commonPool().invoke(new ReadRows(reader, 0, rows, rowsPerTask));
+        this.deliveryGuyCells = rowsRead.deliveryGuyCells;
+        addTypes(rowsRead.types);
+    }
+
+    private ArrayCellGrid(ArrayCellGrid grid) {
+        super(grid.rows(), grid.cols());
+        this.cells = grid.cells.clone();
+        this.deliveryGuyCells = grid.deliveryGuyCells;
+        addTypes(grid.types());
+    }
+
+    /**
+     * Returns the cells of the delivery guys found when the grid was made
+     *
+     * @return int[] of the cells of the delivery guys
+     */
+    @Override
+    public int[] deliveryGuyCells() {
+        return deliveryGuyCells.clone();
+    }
+
+    @Override
+    protected byte get(int cell) {
+        return cells[cell];
+    }
+
+    @Override
+    protected void set(int cell, byte value) {
+        cells[cell] = value;
+    }
+
+    @Override
+    public CellGrid snapshot() {
+        return new ArrayCellGrid(this);
+    }
+
+    @FunctionalInterface
+    private interface CellReader {
+        MapEntityType type(int x, int y);
+    }
+
+    /**
+     * The types and the delivery guys found in a block of rows
+     */
+    private record Rows(int types, int[] deliveryGuyCells) {
+
+        Rows merge(Rows next) {
+            int[] merged = Arrays.copyOf(deliveryGuyCells, deliveryGuyCells.length + next.deliveryGuyCells.length);
+            System.arraycopy(next.deliveryGuyCells, 0, merged, deliveryGuyCells.length, next.deliveryGuyCells.length);
+            return new Rows(types | next.types, merged);
+        }
+    }
+
+    /**
+     * Fills the rows from first to last (exclusive). The blocks are split in halves until they are small
+     * enough, and the delivery guys of the first half come before the ones of the second, so they stay in
+     * the order of their cells.
+     */
+    private final class ReadRows extends RecursiveTask<Rows> {
+
+        private final CellReader reader;
+        private final int first;
+        private final int last;
+        private final int rowsPerTask;
+
+        ReadRows(CellReader reader, int first, int last, int rowsPerTask) {
+            this.reader = reader;
+            this.first = first;
+            this.last = last;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected Rows compute() {
+            if (last - first > rowsPerTask) {
+                int middle = (first + last) >>> 1;
+                ReadRows second = new ReadRows(reader, middle, last, rowsPerTask);
+                second.fork();
+                Rows firstRows = new ReadRows(reader, first, middle, rowsPerTask).compute();
+                return firstRows.merge(second.join());
+            }
+
+            int types = 0;
+            int count = 0;
+            int[] found = new int[0];
+            for (int x = first; x < last; x++) {
+                for (int y = 0; y < cols(); y++) {
+                    int cell = index(x, y);
+                    byte type = (byte) reader.type(x, y).ordinal();
+                    cells[cell] = type;
+                    types |= 1 << type;
+
+                    if (type == DELIVERY_GUY_CAR || type == DELIVERY_GUY_BIKE) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, Math.max(16, count * 2));
+                        }
+                        found[count++] = cell;
+                    }
+                }
+            }
+            return new Rows(types, Arrays.copyOf(found, count));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Breath First Search that grows one frontier from the start and one from the end, always a whole level
+ * of the smaller frontier at a time, and stops at the level where the frontiers meet. It explores roughly
+ * two circles of half the radius of a plain BFS.
+ */
+public final class BidirectionalSearch implements PathFinder {
+
+    private final CellGrid grid;
+    private final BufferPool<Frontier[]> frontiers;
+
+    public BidirectionalSearch(CellGrid grid) {
+        this.grid = grid;
+        this.frontiers = new BufferPool<>(() -> new Frontier[] {
+            new Frontier(new SearchBuffers(grid.size())),
+            new Frontier(new SearchBuffers(grid.size()))
+        });
+    }
+
+    @Override
+    public int distance(int start, int end) {
+        return distance(start, end, null);
+    }
+
+    @Override
+    public int distance(int start, int end, LongConsumer visitedCells) {
+        if (start == end) return 0;
+        if (grid.isWall(start) || grid.isWall(end)) return -1;
+
+        Frontier[] pair = frontiers.acquire();
+        try {
+            Frontier forward = pair[0];
+            Frontier backward = pair[1];
+            forward.start(start);
+            backward.start(end);
+
+            while (!forward.isEmpty() && !backward.isEmpty()) {
+                int distance = forward.size() <= backward.size() ?
+                        expandLevel(forward, backward) : expandLevel(backward, forward);
+                if (distance != -1) {
+                    return distance;
+                }
+            }
+
+            return -1;
+        } finally {
+            if (visitedCells != null) visitedCells.accept(pair[0].search.visits() + pair[1].search.visits());
+            frontiers.release(pair);
+        }
+    }
+
+    /**
+     * Expands the whole current level of one frontier
+     *
+     * @param side  the frontier that is expanded
+     * @param other the frontier growing from the other end
+     * @return      the length of the shortest path through the cells where the frontiers met, -1 if they
+     *              did not meet
+     */
+    private int expandLevel(Frontier side, Frontier other) {
+        SearchBuffers search = side.search;
+        int[] queue = search.queue();
+        int[] neighbours = search.neighbours();
+        int levelEnd = side.tail;
+        int best = -1;
+
+        while (side.head < levelEnd) {
+            int current = queue[side.head++];
+            int nextDistance = search.distance(current) + 1;
+            int count = grid.neighbours(current, neighbours);
+
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbours[i];
+                if (search.isVisited(neighbour)) continue;
+
+                search.visit(neighbour, nextDistance);
+                queue[side.tail++] = neighbour;
+
+                int otherDistance = other.search.distance(neighbour);
+                if (otherDistance != -1 && (best == -1 || nextDistance + otherDistance < best)) {
+                    best = nextDistance + otherDistance;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * The buffers and the queue bounds of the search from one end of the path
+     */
+    private static final class Frontier {
+
+        private final SearchBuffers search;
+        private int head;
+        private int tail;
+
+        private Frontier(SearchBuffers search) {
+            this.search = search;
+        }
+
+        private void start(int cell) {
+            search.reset();
+            search.visit(cell, 0);
+            search.queue()[0] = cell;
+            head = 0;
+            tail = 1;
+        }
+
+        private boolean isEmpty() {
+            return head == tail;
+        }
+
+        private int size() {
+            return tail - head;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Breath First Search on a CellGrid. The searches do not allocate, because they reuse SearchBuffers from
+ * a pool.
+ */
+public final class BreadthFirstSearch implements PathFinder {
+
+    private final CellGrid grid;
+    private final BufferPool<SearchBuffers> buffers;
+
+    public BreadthFirstSearch(CellGrid grid) {
+        this.grid = grid;
+        this.buffers = new BufferPool<>(() -> new SearchBuffers(grid.size()));
+    }
+
+    @Override
+    public int distance(int start, int end) {
+        return distance(start, end, null);
+    }
+
+    @Override
+    public int distance(int start, int end, LongConsumer visitedCells) {
+        if (start == end) return 0;
+        if (grid.isWall(start) || grid.isWall(end)) return -1;
+
+        SearchBuffers search = buffers.acquire();
+        try {
+            return reach(search, start, end) ? search.distance(end) : -1;
+        } finally {
+            if (visitedCells != null) visitedCells.accept(search.visits());
+            buffers.release(search);
+        }
+    }
+
+    /**
+     * Finds a shortest path between two cells. Of the shortest paths the one found first is returned, so the
+     * same cells always give the same path.
+     *
+     * @param start starting cell of searching
+     * @param end   ending cell of searching if found
+     * @return      EncodedPath from the start to the end, null if there is no path or one of the cells is a wall
+     */
+    public EncodedPath path(int start, int end) {
+        if (grid.isWall(start) || grid.isWall(end)) return null;
+
+        SearchBuffers search = buffers.acquire();
+        try {
+            return reach(search, start, end) ? EncodedPath.trace(grid, search, start, end, null) : null;
+        } finally {
+            buffers.release(search);
+        }
+    }
+
+    /**
+     * Searches from the start until the end is visited
+     *
+     * @return true if the end was reached
+     */
+    private boolean reach(SearchBuffers search, int start, int end) {
+        search.reset();
+        int[] queue = search.queue();
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = start;
+        search.visit(start, 0);
+
+        while (head < tail && !search.isVisited(end)) {
+            tail = expand(search, queue[head++], tail);
+        }
+        return search.isVisited(end);
+    }
+
+    /**
+     * Finds the distances from the source to the other cells. Every move on the grid is reversible, so the
+     * distance from the source to a cell equals the distance from that cell back to the source.
+     *
+     * @param source       the cell the search starts from
+     * @param deliveryGuys the number of delivery guys after which the search stops, -1 to cover the whole
+     *                     reachable part of the grid
+     * @return             the buffers holding the distances. They have to be given back with release() once
+     *                     the distances are read.
+     */
+    public SearchBuffers distancesFrom(int source, int deliveryGuys) {
+        return distancesFrom(source, deliveryGuys, -1);
+    }
+
+    /**
+     * Finds the distances from the source to the other cells that are at most maxDistance away. The cells
+     * that are farther are left unvisited.
+     *
+     * @param source       the cell the search starts from
+     * @param deliveryGuys the number of delivery guys after which the search stops, -1 to cover the whole
+     *                     reachable part of the grid
+     * @param maxDistance  the distance after which the search stops, -1 for no limit
+     * @return             the buffers holding the distances. They have to be given back with release() once
+     *                     the distances are read.
+     */
+    public SearchBuffers distancesFrom(int source, int deliveryGuys, int maxDistance) {
+        SearchBuffers search = buffers.acquire();
+        search.reset();
+
+        if (grid.isWall(source)) {
+            return search;
+        }
+
+        int[] queue = search.queue();
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = source;
+        search.visit(source, 0);
+
+        int remaining = deliveryGuys;
+        if (grid.isDeliveryGuy(source)) {
+            remaining--;
+        }
+
+        while (head < tail && remaining != 0) {
+            if (search.distance(queue[head]) == maxDistance) {
+                break;
+            }
+
+            int added = tail;
+            tail = expand(search, queue[head++], tail);
+
+            for (int i = added; i < tail && remaining > 0; i++) {
+                if (grid.isDeliveryGuy(queue[i])) {
+                    remaining--;
+                }
+            }
+        }
+
+        return search;
+    }
+
+    /**
+     * Gives back the buffers returned by distancesFrom()
+     *
+     * @param search the buffers of a finished search
+     */
+    public void release(SearchBuffers search) {
+        buffers.release(search);
+    }
+
+    /**
+     * Adds the neighbours of the cell that were not visited yet to the queue
+     *
+     * @param search  the buffers of the current search
+     * @param current the cell whose neighbours are visited
+     * @param tail    the end of the queue
+     * @return        the new end of the queue
+     */
+    private int expand(SearchBuffers search, int current, int tail) {
+        int nextDistance = search.distance(current) + 1;
+        int[] queue = search.queue();
+        int[] neighbours = search.neighbours();
+        int count = grid.neighbours(current, neighbours);
+
+        for (int i = 0; i < count; i++) {
+            if (!search.isVisited(neighbours[i])) {
+                search.visit(neighbours[i], nextDistance);
+                queue[tail++] = neighbours[i];
+            }
+        }
+
+        return tail;
+    }
+}
@@ -0,0 +1,85 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of search buffers. A thread takes buffers for the time of one search and gives them back,
+ * so the buffers are reused even by short-lived virtual threads. At most capacity buffers are taken at once:
+ * a thread that finds all of them taken waits until one is given back, so a burst of threads does not
+ * allocate a buffer of the whole grid each. The buffers are made when they are first needed.
+ * <p>
+ * A thread should not take a second buffer of the same pool before it gives back the first, as all
+ * threads could wait for each other. A search that needs two buffers takes a pair from a pool of pairs.
+ *
+ * @param <T> the type of the buffers
+ */
+public final class BufferPool<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final Semaphore permits;
+    private final Supplier<T> factory;
+
+    /**
+     * Makes a pool with two slots for every processor
+     *
+     * @param factory makes a new buffer when the pool is empty
+     */
+    public BufferPool(Supplier<T> factory) {
+        this(2 * Runtime.getRuntime().availableProcessors(), factory);
+    }
+
+    /**
+     * @param capacity the number of buffers that can be taken at once
+     * @param factory  makes a new buffer when no free one is kept
+     */
+    public BufferPool(int capacity, Supplier<T> factory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the pool should be positive");
+        }
+
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.permits = new Semaphore(capacity);
+        this.factory = factory;
+    }
+
+    /**
+     * Takes a buffer from the pool, waiting while all of them are taken
+     *
+     * @return a buffer that no other thread uses until it is released
+     */
+    public T acquire() {
+        permits.acquireUninterruptibly();
+        try {
+            for (int i = 0; i < slots.length(); i++) {
+                T buffer = slots.getAndSet(i, null);
+                if (buffer != null) {
+                    return buffer;
+                }
+            }
+            // fewer than capacity buffers are made, or one is being given back right now
+            return factory.get();
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives the buffer back to the pool
+     *
+     * @param buffer the buffer taken with acquire()
+     */
+    public void release(T buffer) {
+        try {
+            for (int i = 0; i < slots.length(); i++) {
+                if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+                    return;
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+
+import java.util.Arrays;
+
+/**
+ * The map as a flat sequence with one byte per cell. The cell (x, y) is stored at the index x * cols + y and
+ * holds the ordinal of its MapEntityType, so the searches work on primitive indexes instead of objects.
+ * The bytes live in an array on the heap (ArrayCellGrid) or in a memory-mapped map file (MappedCellGrid).
+ */
+public abstract class CellGrid {
+
+    private static final MapEntityType[] TYPES = MapEntityType.values();
+    private static final byte WALL = (byte) MapEntityType.WALL.ordinal();
+    private static final byte DELIVERY_GUY_CAR = (byte) MapEntityType.DELIVERY_GUY_CAR.ordinal();
+    private static final byte DELIVERY_GUY_BIKE = (byte) MapEntityType.DELIVERY_GUY_BIKE.ordinal();
+
+    private final int rows;
+    private final int cols;
+    private int types;
+
+    protected CellGrid(int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid size of the grid: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Returns the byte of the cell
+     *
+     * @param cell the index of the cell
+     * @return     the ordinal of the MapEntityType of the cell
+     */
+    protected abstract byte get(int cell);
+
+    /**
+     * Stores the byte of the cell
+     *
+     * @param cell  the index of the cell
+     * @param value the ordinal of the new MapEntityType of the cell
+     */
+    protected abstract void set(int cell, byte value);
+
+    /**
+     * Adds types to the types of the cells that the grid may contain
+     *
+     * @param mask a bit set with the bit of the ordinal of every added MapEntityType
+     */
+    protected void addTypes(int mask) {
+        types |= mask;
+    }
+
+    /**
+     * Returns the types of the cells that the grid may contain
+     *
+     * @return a bit set with the bit of the ordinal of every MapEntityType that the grid may contain
+     */
+    protected int types() {
+        return types;
+    }
+
+    /**
+     * Copies the cells of the grid, so the copy can be read while the grid is changed
+     *
+     * @return CellGrid with the same cells that is not changed with this one
+     */
+    public abstract CellGrid snapshot();
+
+    /**
+     * Checks if the grid may contain cells of the type. The answer is false only if no cell of the grid has
+     * ever been of that type, so the whole grid does not have to be scanned for it.
+     *
+     * @param type the type of the cells
+     * @return     false if there is no cell of that type
+     */
+    public boolean mayContain(MapEntityType type) {
+        return (types & (1 << type.ordinal())) != 0;
+    }
+
+    /**
+     * Finds the cells of the delivery guys in the order of their indexes
+     *
+     * @return int[] of the cells of the delivery guys
+     */
+    public int[] deliveryGuyCells() {
+        int count = 0;
+        int[] found = new int[16];
+        for (int cell = 0; cell < size(); cell++) {
+            if (isDeliveryGuy(cell)) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = cell;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Returns the number of cells in the grid
+     *
+     * @return int rows * cols
+     */
+    public int size() {
+        return rows * cols;
+    }
+
+    /**
+     * Validates the coordinates for the grid.
+     *
+     * @param x  First coordinate of the Location
+     * @param y  Second coordinate of the Location
+     * @return   True if the coordinates are possible for the grid
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < rows && y >= 0 && y < cols;
+    }
+
+    public int index(int x, int y) {
+        return x * cols + y;
+    }
+
+    public int x(int cell) {
+        return cell / cols;
+    }
+
+    public int y(int cell) {
+        return cell % cols;
+    }
+
+    public MapEntityType type(int cell) {
+        return TYPES[get(cell)];
+    }
+
+    /**
+     * Changes the type of the cell. The caller is responsible for not changing the cells while they are
+     * searched.
+     *
+     * @param cell the index of the cell
+     * @param type the new type of the cell
+     */
+    public void setType(int cell, MapEntityType type) {
+        set(cell, (byte) type.ordinal());
+        addTypes(1 << type.ordinal());
+    }
+
+    public boolean isWall(int cell) {
+        return get(cell) == WALL;
+    }
+
+    /**
+     * Writes the neighbours of the cell that are not walls
+     *
+     * @param cell       the index of the cell
+     * @param neighbours array of at least 4 elements that receives the indexes of the neighbours
+     * @return           the number of the neighbours
+     */
+    public int neighbours(int cell, int[] neighbours) {
+        int x = cell / cols;
+        int y = cell - x * cols;
+        int count = 0;
+
+        if (x > 0 && get(cell - cols) != WALL) neighbours[count++] = cell - cols;
+        if (x < rows - 1 && get(cell + cols) != WALL) neighbours[count++] = cell + cols;
+        if (y > 0 && get(cell - 1) != WALL) neighbours[count++] = cell - 1;
+        if (y < cols - 1 && get(cell + 1) != WALL) neighbours[count++] = cell + 1;
+
+        return count;
+    }
+
+    /**
+     * Returns the Manhattan distance between two cells, which is the length of the path between them if
+     * there are no walls on the way
+     *
+     * @param from the index of the first cell
+     * @param to   the index of the second cell
+     * @return     the Manhattan distance
+     */
+    public int manhattanDistance(int from, int to) {
+        return Math.abs(x(from) - x(to)) + Math.abs(y(from) - y(to));
+    }
+
+    public boolean isDeliveryGuy(int cell) {
+        byte value = get(cell);
+        return value == DELIVERY_GUY_CAR || value == DELIVERY_GUY_BIKE;
+    }
+}
@@ -0,0 +1,255 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Dijkstra search on a CellGrid whose cells have small integer weights, the cost of entering the cell.
+ * The open list is a bucket queue (Dial's algorithm): a circular array of maxWeight + 1 buckets, where the
+ * bucket of a cell is its distance modulo the number of buckets. Every cell waiting in the queue is at most
+ * maxWeight away from the cell being settled, so the buckets never collide, and pushing, moving and
+ * popping a cell are all O(1). The buckets are doubly linked lists threaded through two arrays of the
+ * search buffers, so the searches do not allocate.
+ */
+public final class DijkstraSearch implements PathFinder {
+
+    private static final MapEntityType[] TYPES = MapEntityType.values();
+    private static final int NONE = -1;
+
+    private final CellGrid grid;
+    private final int[] weights;
+    private final int bucketCount;
+    private final BufferPool<SearchBuffers> buffers;
+    private final BufferPool<int[]> heads;
+
+    /**
+     * Makes the search for a grid
+     *
+     * @param grid    the grid of the map
+     * @param weights the weight of entering a cell of every MapEntityType indexed by ordinal, at least 1
+     */
+    public DijkstraSearch(CellGrid grid, int[] weights) {
+        if (weights.length != TYPES.length) {
+            throw new IllegalArgumentException("There should be a weight for every type of cell");
+        }
+
+        int maxWeight = 1;
+        for (int weight : weights) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("The weights should be positive");
+            }
+            maxWeight = Math.max(maxWeight, weight);
+        }
+
+        this.grid = grid;
+        this.weights = weights.clone();
+        this.bucketCount = maxWeight + 1;
+        this.buffers = new BufferPool<>(() -> new SearchBuffers(grid.size(), 2));
+        this.heads = new BufferPool<>(() -> new int[bucketCount]);
+    }
+
+    /**
+     * Finds the cost of the cheapest path between two cells, which is the sum of the weights of the cells
+     * entered on the way, including the end but not the start
+     *
+     * @param start starting cell of searching
+     * @param end   ending cell of searching if found
+     * @return      the cost of the cheapest path, -1 if there is no path or one of the cells is a wall
+     */
+    @Override
+    public int distance(int start, int end) {
+        return distance(start, end, null);
+    }
+
+    @Override
+    public int distance(int start, int end, LongConsumer visitedCells) {
+        if (start == end) return 0;
+        if (grid.isWall(start) || grid.isWall(end)) return -1;
+
+        SearchBuffers search = buffers.acquire();
+        int[] buckets = heads.acquire();
+        try {
+            run(search, buckets, start, false, end, null, 0, -1);
+            return search.distance(end);
+        } finally {
+            if (visitedCells != null) visitedCells.accept(search.visits());
+            heads.release(buckets);
+            buffers.release(search);
+        }
+    }
+
+    /**
+     * Finds a cheapest path between two cells. Of the cheapest paths the one found first is returned, so the
+     * same cells always give the same path.
+     *
+     * @param start starting cell of searching
+     * @param end   ending cell of searching if found
+     * @return      EncodedPath from the start to the end, null if there is no path or one of the cells is a wall
+     */
+    public EncodedPath path(int start, int end) {
+        if (grid.isWall(start) || grid.isWall(end)) return null;
+
+        SearchBuffers search = buffers.acquire();
+        int[] buckets = heads.acquire();
+        try {
+            run(search, buckets, start, false, end, null, 0, -1);
+            return search.isVisited(end) ? EncodedPath.trace(grid, search, start, end, weights) : null;
+        } finally {
+            heads.release(buckets);
+            buffers.release(search);
+        }
+    }
+
+    /**
+     * Finds the costs of the cheapest paths from the source to the other cells
+     *
+     * @param source the cell the paths start from
+     * @return       the buffers holding the costs. They have to be given back with release() once the costs
+     *               are read.
+     */
+    public SearchBuffers distancesFrom(int source) {
+        SearchBuffers search = buffers.acquire();
+        if (grid.isWall(source)) {
+            search.reset();
+            return search;
+        }
+
+        int[] buckets = heads.acquire();
+        try {
+            run(search, buckets, source, false, NONE, null, 0, -1);
+        } finally {
+            heads.release(buckets);
+        }
+        return search;
+    }
+
+    /**
+     * Finds the costs of the cheapest paths from the other cells to the target. The search runs backwards
+     * from the target: stepping back from a cell u to its neighbour costs the weight of u, because the
+     * forward path enters u.
+     *
+     * @param target          the cell the paths end at
+     * @param deliveryGuyType the type of the delivery guys that are counted
+     * @param deliveryGuys    the number of delivery guys of that type after which the search stops, -1 to
+     *                        cover the whole reachable part of the grid
+     * @param maxDistance     the cost after which the search stops, -1 for no limit
+     * @return                the buffers holding the costs. They have to be given back with release() once
+     *                        the costs are read. Only the cells settled before the search stopped have a cost.
+     */
+    public SearchBuffers distancesTo(int target, MapEntityType deliveryGuyType, int deliveryGuys, int maxDistance) {
+        SearchBuffers search = buffers.acquire();
+        if (grid.isWall(target)) {
+            search.reset();
+            return search;
+        }
+
+        int[] buckets = heads.acquire();
+        try {
+            run(search, buckets, target, true, NONE, deliveryGuyType, deliveryGuys, maxDistance);
+        } finally {
+            heads.release(buckets);
+        }
+        return search;
+    }
+
+    /**
+     * Gives back the buffers returned by distancesTo()
+     *
+     * @param search the buffers of a finished search
+     */
+    public void release(SearchBuffers search) {
+        buffers.release(search);
+    }
+
+    /**
+     * Runs the search until the end is settled, the counted delivery guys are settled, the costs pass
+     * maxDistance or the queue is empty. When the search stops early, the cells left in the queue are
+     * unvisited, so their tentative costs never leak out as final ones.
+     */
+    private void run(SearchBuffers search, int[] buckets, int source, boolean backwards, int end,
+                     MapEntityType deliveryGuyType, int deliveryGuys, int maxDistance) {
+        search.reset();
+        Arrays.fill(buckets, NONE);
+        int[] next = search.queue(0);
+        int[] previous = search.queue(1);
+        int[] neighbours = search.neighbours();
+
+        search.visit(source, 0);
+        link(buckets, next, previous, source, 0);
+        int queued = 1;
+        int remaining = deliveryGuys;
+        int distance = 0;
+
+        while (queued > 0) {
+            int bucket = distance % bucketCount;
+            int cell = buckets[bucket];
+            if (cell == NONE) {
+                distance++;
+                continue;
+            }
+
+            if ((maxDistance != -1 && distance > maxDistance) || (deliveryGuyType != null && remaining == 0)) {
+                break;
+            }
+
+            unlink(buckets, next, previous, cell, bucket);
+            queued--;
+            if (cell == end) {
+                return;
+            }
+            if (deliveryGuyType != null && remaining > 0 && grid.type(cell) == deliveryGuyType) {
+                remaining--;
+            }
+
+            int leave = backwards ? weights[grid.get(cell)] : 0;
+            int count = grid.neighbours(cell, neighbours);
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbours[i];
+                int cost = distance + (backwards ? leave : weights[grid.get(neighbour)]);
+
+                if (!search.isVisited(neighbour)) {
+                    search.visit(neighbour, cost);
+                    link(buckets, next, previous, neighbour, cost % bucketCount);
+                    queued++;
+                } else if (cost < search.distance(neighbour)) {
+                    unlink(buckets, next, previous, neighbour, search.distance(neighbour) % bucketCount);
+                    search.visit(neighbour, cost);
+                    link(buckets, next, previous, neighbour, cost % bucketCount);
+                }
+            }
+        }
+
+        forgetQueued(search, buckets, next);
+    }
+
+    private void forgetQueued(SearchBuffers search, int[] buckets, int[] next) {
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            for (int cell = buckets[bucket]; cell != NONE; cell = next[cell]) {
+                search.forget(cell);
+            }
+        }
+    }
+
+    private static void link(int[] buckets, int[] next, int[] previous, int cell, int bucket) {
+        int head = buckets[bucket];
+        next[cell] = head;
+        previous[cell] = NONE;
+        if (head != NONE) {
+            previous[head] = cell;
+        }
+        buckets[bucket] = cell;
+    }
+
+    private static void unlink(int[] buckets, int[] next, int[] previous, int cell, int bucket) {
+        if (previous[cell] == NONE) {
+            buckets[bucket] = next[cell];
+        } else {
+            next[previous[cell]] = next[cell];
+        }
+        if (next[cell] != NONE) {
+            previous[next[cell]] = previous[cell];
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+/**
+ * A step between two neighbouring cells. The ordinal fits in 2 bits, which is how EncodedPath stores it.
+ */
+public enum Direction {
+    UP(-1, 0),
+    DOWN(1, 0),
+    LEFT(0, -1),
+    RIGHT(0, 1);
+
+    private final int dx;
+    private final int dy;
+
+    Direction(int dx, int dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * Returns the change of the first coordinate (the row) of a Location after the step
+     *
+     * @return int -1, 0 or 1
+     */
+    public int dx() {
+        return dx;
+    }
+
+    /**
+     * Returns the change of the second coordinate (the column) of a Location after the step
+     *
+     * @return int -1, 0 or 1
+     */
+    public int dy() {
+        return dy;
+    }
+}
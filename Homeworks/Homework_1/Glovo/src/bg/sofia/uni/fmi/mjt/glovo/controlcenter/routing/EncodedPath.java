@@ -0,0 +1,252 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A path on the map stored as its start and one Direction of 2 bits per step, 32 steps in a long. A path of
+ * a thousand cells takes 256 bytes instead of a thousand Location objects. The locations and the legs are
+ * decoded only when they are asked for.
+ */
+public final class EncodedPath {
+
+    private static final int BITS_PER_STEP = 2;
+    private static final int STEPS_PER_WORD = Long.SIZE / BITS_PER_STEP;
+    private static final long STEP_MASK = (1L << BITS_PER_STEP) - 1;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Location start;
+    private final Location end;
+    private final int length;
+    private final long[] steps;
+
+    /**
+     * A leg of the path, a run of steps in the same direction, like "go down for 5 cells"
+     *
+     * @param direction the direction of the steps
+     * @param cells     the number of the steps
+     */
+    public record Leg(Direction direction, int cells) {
+
+    }
+
+    private EncodedPath(Location start, Location end, int length, long[] steps) {
+        this.start = start;
+        this.end = end;
+        this.length = length;
+        this.steps = steps;
+    }
+
+    /**
+     * Makes a path without steps
+     *
+     * @param location the location where the path starts and ends
+     * @return         EncodedPath of length 0
+     */
+    public static EncodedPath empty(Location location) {
+        return new EncodedPath(location, location, 0, new long[0]);
+    }
+
+    /**
+     * Makes a path from its directions
+     *
+     * @param start      the location where the path starts
+     * @param directions the ordinals of the directions of the steps
+     * @param length     the number of the steps
+     * @return           EncodedPath of the steps
+     */
+    static EncodedPath of(Location start, byte[] directions, int length) {
+        long[] steps = new long[words(length)];
+        int x = start.x();
+        int y = start.y();
+        for (int step = 0; step < length; step++) {
+            Direction direction = DIRECTIONS[directions[step]];
+            write(steps, step, direction);
+            x += direction.dx();
+            y += direction.dy();
+        }
+        return new EncodedPath(start, new Location(x, y), length, steps);
+    }
+
+    public Location start() {
+        return start;
+    }
+
+    public Location end() {
+        return end;
+    }
+
+    /**
+     * Returns the number of steps of the path
+     *
+     * @return int number of steps, one less than the number of locations
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the direction of a step
+     *
+     * @param step the index of the step between 0 and length() - 1
+     * @return     the Direction of the step
+     */
+    public Direction direction(int step) {
+        if (step < 0 || step >= length) {
+            throw new IndexOutOfBoundsException("There is no step " + step + " in a path of " + length);
+        }
+        return DIRECTIONS[(int) (steps[step / STEPS_PER_WORD] >>> (step % STEPS_PER_WORD * BITS_PER_STEP)
+                & STEP_MASK)];
+    }
+
+    /**
+     * Decodes the locations of the path from the start to the end
+     *
+     * @return List<Location> of length() + 1 locations
+     */
+    public List<Location> locations() {
+        List<Location> locations = new ArrayList<>(length + 1);
+        int x = start.x();
+        int y = start.y();
+        locations.add(start);
+
+        for (int step = 0; step < length; step++) {
+            Direction direction = direction(step);
+            x += direction.dx();
+            y += direction.dy();
+            locations.add(new Location(x, y));
+        }
+        return Collections.unmodifiableList(locations);
+    }
+
+    /**
+     * Decodes the path turn by turn, joining the steps in the same direction in a single leg
+     *
+     * @return List<Leg> of the legs from the start to the end
+     */
+    public List<Leg> legs() {
+        List<Leg> legs = new ArrayList<>();
+        int step = 0;
+        while (step < length) {
+            Direction direction = direction(step);
+            int first = step;
+            while (step < length && direction(step) == direction) {
+                step++;
+            }
+            legs.add(new Leg(direction, step - first));
+        }
+        return Collections.unmodifiableList(legs);
+    }
+
+    /**
+     * Joins the path with another one that starts where this one ends
+     *
+     * @param next the path that continues this one
+     * @return     EncodedPath from the start of this path to the end of the next one
+     */
+    public EncodedPath append(EncodedPath next) {
+        if (!end.equals(next.start)) {
+            throw new IllegalArgumentException("The next path should start at " + end);
+        }
+
+        long[] joined = Arrays.copyOf(steps, words(length + next.length));
+        for (int step = 0; step < next.length; step++) {
+            write(joined, length + step, next.direction(step));
+        }
+        return new EncodedPath(start, next.end, length + next.length, joined);
+    }
+
+    /**
+     * Traces back the path of a finished search from the end to the start. A cell is entered from the
+     * neighbour whose distance is smaller exactly by the weight of the cell, so the distances of the search
+     * lead back to the start without keeping a parent for every cell.
+     *
+     * @param grid    the grid that was searched
+     * @param search  the buffers of the search, with the start at distance 0 and the end reached
+     * @param start   the cell the search started from
+     * @param end     the cell the path ends at
+     * @param weights the weights of the cells indexed by the ordinal of their type, null if every cell is 1
+     * @return        EncodedPath from the start to the end
+     */
+    static EncodedPath trace(CellGrid grid, SearchBuffers search, int start, int end, int[] weights) {
+        int length = 0;
+        for (int cell = end; cell != start; cell = from(grid, cell, entered(grid, search, cell, weights))) {
+            length++;
+        }
+
+        long[] steps = new long[words(length)];
+        int step = length;
+        for (int cell = end; cell != start; ) {
+            Direction direction = entered(grid, search, cell, weights);
+            write(steps, --step, direction);
+            cell = from(grid, cell, direction);
+        }
+
+        return new EncodedPath(location(grid, start), location(grid, end), length, steps);
+    }
+
+    /**
+     * Finds the direction in which the path enters the cell
+     */
+    private static Direction entered(CellGrid grid, SearchBuffers search, int cell, int[] weights) {
+        int distance = search.distance(cell) - (weights == null ? 1 : weights[grid.get(cell)]);
+        int x = grid.x(cell);
+        int y = grid.y(cell);
+
+        for (Direction direction : DIRECTIONS) {
+            int fromX = x - direction.dx();
+            int fromY = y - direction.dy();
+            if (!grid.contains(fromX, fromY)) continue;
+
+            int from = grid.index(fromX, fromY);
+            if (!grid.isWall(from) && search.distance(from) == distance) {
+                return direction;
+            }
+        }
+        throw new IllegalStateException("The search does not lead back from " + location(grid, cell));
+    }
+
+    /**
+     * Returns the cell that a step in the direction enters the cell from
+     */
+    private static int from(CellGrid grid, int cell, Direction direction) {
+        return grid.index(grid.x(cell) - direction.dx(), grid.y(cell) - direction.dy());
+    }
+
+    private static void write(long[] steps, int step, Direction direction) {
+        steps[step / STEPS_PER_WORD] |= (long) direction.ordinal() << (step % STEPS_PER_WORD * BITS_PER_STEP);
+    }
+
+    private static int words(int length) {
+        return (length + STEPS_PER_WORD - 1) / STEPS_PER_WORD;
+    }
+
+    private static Location location(CellGrid grid, int cell) {
+        return new Location(grid.x(cell), grid.y(cell));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EncodedPath other)) return false;
+        return length == other.length && start.equals(other.start) && Arrays.equals(steps, other.steps);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * start.hashCode() + length) + Arrays.hashCode(steps);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(length + 16).append(start).append(' ');
+        for (int step = 0; step < length; step++) {
+            builder.append(direction(step).name().charAt(0));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,717 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Hierarchical path finding (HPA*) on a CellGrid. The grid is split into square clusters. Along the border
+ * of two neighbouring clusters every run of open cells on both sides is an entrance, and each entrance gets
+ * one transition in its middle, or two at its ends if it is long. The cells of the transitions are the nodes
+ * of an abstract graph, whose edges are the steps across the borders and the distances between the nodes
+ * of the same cluster, searched once inside the cluster.
+ * <p>
+ * A route is planned with A* on the abstract graph, after the start and the end are connected to the nodes
+ * of their clusters, and is refined to cells with searches inside single clusters. The searches never touch
+ * more than two clusters cell by cell, so a route across a huge map costs about as much as a route across a
+ * few clusters. The price is that the route must go through the transitions, so the distance can be a few
+ * cells longer than the shortest one. Whether a route exists is always answered exactly.
+ * <p>
+ * A change of a cell rebuilds only the borders and the distances of its cluster and of the clusters next to
+ * it. The caller is responsible for not changing the grid while it is searched.
+ */
+public final class HierarchicalSearch implements PathFinder {
+
+    /**
+     * The side of the clusters if none is given
+     */
+    public static final int DEFAULT_CLUSTER_SIZE = 64;
+
+    private static final int LONG_ENTRANCE = 6;
+    private static final int START = -1;
+    private static final int DIRECT = -2;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final CellGrid grid;
+    private final int clusterSize;
+    private final int clusterRows;
+    private final int clusterCols;
+    private final int maxNodes;
+    private final int[][][] transitions;
+    private final int[][] nodes;
+    private final int[][] intraDistances;
+    // the searches from the start and towards the end of a road in their clusters
+    private final BufferPool<SearchBuffers[]> localBuffers;
+    private final BufferPool<AbstractBuffers> abstractBuffers;
+
+    public HierarchicalSearch(CellGrid grid) {
+        this(grid, DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * Builds the abstract graph of the grid. The clusters are built in parallel.
+     *
+     * @param grid        the grid of the map
+     * @param clusterSize the side of the clusters, at least 2
+     */
+    public HierarchicalSearch(CellGrid grid, int clusterSize) {
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("The clusters should be at least 2x2");
+        }
+
+        this.grid = grid;
+        this.clusterSize = clusterSize;
+        this.clusterRows = (grid.rows() + clusterSize - 1) / clusterSize;
+        this.clusterCols = (grid.cols() + clusterSize - 1) / clusterSize;
+        // every border holds at most clusterSize transitions on its side
+        this.maxNodes = DIRECTIONS.length * clusterSize;
+        if ((long) clusterRows * clusterCols * maxNodes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The clusters are too small for the grid");
+        }
+
+        int clusters = clusterRows * clusterCols;
+        this.transitions = new int[clusters][DIRECTIONS.length][];
+        this.nodes = new int[clusters][];
+        this.intraDistances = new int[clusters][];
+        this.localBuffers = new BufferPool<>(() -> new SearchBuffers[] {
+            new SearchBuffers(clusterSize * clusterSize),
+            new SearchBuffers(clusterSize * clusterSize)
+        });
+        this.abstractBuffers = new BufferPool<>(() -> new AbstractBuffers(clusters * maxNodes));
+
+        for (int[][] sides : transitions) {
+            Arrays.fill(sides, new int[0]);
+        }
+        IntStream.range(0, clusters).parallel().forEach(cluster -> {
+            buildBorder(cluster, Direction.RIGHT);
+            buildBorder(cluster, Direction.DOWN);
+        });
+        IntStream.range(0, clusters).parallel().forEach(this::buildCluster);
+    }
+
+    private HierarchicalSearch(HierarchicalSearch search, CellGrid grid) {
+        this.grid = grid;
+        this.clusterSize = search.clusterSize;
+        this.clusterRows = search.clusterRows;
+        this.clusterCols = search.clusterCols;
+        this.maxNodes = search.maxNodes;
+        this.transitions = search.transitions;
+        this.nodes = search.nodes;
+        this.intraDistances = search.intraDistances;
+        this.localBuffers = search.localBuffers;
+        this.abstractBuffers = search.abstractBuffers;
+    }
+
+    /**
+     * Moves the abstract graph to another grid with the same cells, usually the grid whose snapshot the graph
+     * was built from, so the graph can be built without stopping the changes of the grid. The cells changed
+     * after the snapshot should then be passed to update(). This search should not be used afterwards.
+     *
+     * @param grid the grid with the same size
+     * @return     the search over that grid
+     */
+    public HierarchicalSearch onGrid(CellGrid grid) {
+        if (grid.rows() != this.grid.rows() || grid.cols() != this.grid.cols()) {
+            throw new IllegalArgumentException("The grid should have the same size as the one of the search");
+        }
+        return new HierarchicalSearch(this, grid);
+    }
+
+    /**
+     * Rebuilds the part of the abstract graph that a changed cell can affect: the borders of its cluster and
+     * the distances inside its cluster and the clusters next to it.
+     *
+     * @param cell the index of the changed cell
+     */
+    public void update(int cell) {
+        int cluster = clusterOf(cell);
+        buildBorder(cluster, Direction.RIGHT);
+        buildBorder(cluster, Direction.DOWN);
+
+        int left = neighbourCluster(cluster, Direction.LEFT);
+        int up = neighbourCluster(cluster, Direction.UP);
+        if (left != -1) buildBorder(left, Direction.RIGHT);
+        if (up != -1) buildBorder(up, Direction.DOWN);
+
+        buildCluster(cluster);
+        for (Direction side : DIRECTIONS) {
+            int neighbour = neighbourCluster(cluster, side);
+            if (neighbour != -1) {
+                buildCluster(neighbour);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the part of the abstract graph that any of the changed cells can affect, like update() for
+     * each of them, but every border and every cluster is rebuilt only once and they are rebuilt in parallel
+     *
+     * @param cells the indexes of the changed cells
+     */
+    public void update(int[] cells) {
+        // the clusters whose right and bottom borders are rebuilt, and the clusters whose distances are
+        BitSet borders = new BitSet();
+        BitSet clusters = new BitSet();
+        for (int cell : cells) {
+            int cluster = clusterOf(cell);
+            borders.set(cluster);
+            clusters.set(cluster);
+            for (Direction side : DIRECTIONS) {
+                int neighbour = neighbourCluster(cluster, side);
+                if (neighbour == -1) continue;
+                clusters.set(neighbour);
+                if (side == Direction.LEFT || side == Direction.UP) {
+                    borders.set(neighbour);
+                }
+            }
+        }
+
+        borders.stream().parallel().forEach(cluster -> {
+            buildBorder(cluster, Direction.RIGHT);
+            buildBorder(cluster, Direction.DOWN);
+        });
+        clusters.stream().parallel().forEach(this::buildCluster);
+    }
+
+    /**
+     * Returns the number of the nodes of the abstract graph
+     *
+     * @return int number of nodes
+     */
+    public int nodeCount() {
+        int count = 0;
+        for (int[] clusterNodes : nodes) {
+            count += clusterNodes.length;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the length of a road between two cells through the abstract graph
+     *
+     * @param start starting cell of searching
+     * @param end   ending cell of searching if found
+     * @return      the length of the road, which can be a few cells longer than the shortest one. -1 if there
+     *              is no path or one of the cells is a wall.
+     */
+    @Override
+    public int distance(int start, int end) {
+        return distance(start, end, null);
+    }
+
+    /**
+     * Finds the length of a road between two cells through the abstract graph. The visited cells are the
+     * cells visited in the clusters of the start and the end and the nodes visited in the abstract graph.
+     */
+    @Override
+    public int distance(int start, int end, LongConsumer visitedCells) {
+        if (start == end) return 0;
+        if (grid.isWall(start) || grid.isWall(end)) return -1;
+
+        SearchBuffers[] pair = localBuffers.acquire();
+        SearchBuffers fromStart = pair[0];
+        SearchBuffers toEnd = pair[1];
+        AbstractBuffers search = abstractBuffers.acquire();
+        try {
+            return plan(start, end, fromStart, toEnd, search);
+        } finally {
+            if (visitedCells != null) {
+                visitedCells.accept(fromStart.visits() + toEnd.visits() + search.distances.visits());
+            }
+            abstractBuffers.release(search);
+            localBuffers.release(pair);
+        }
+    }
+
+    /**
+     * Finds a road between two cells through the abstract graph and refines it to cells
+     *
+     * @param start starting cell of searching
+     * @param end   ending cell of searching if found
+     * @return      EncodedPath of the road of distance() cells, null if there is no path or one of the cells is
+     *              a wall
+     */
+    public EncodedPath path(int start, int end) {
+        if (grid.isWall(start) || grid.isWall(end)) return null;
+        if (start == end) return EncodedPath.empty(location(start));
+
+        SearchBuffers[] pair = localBuffers.acquire();
+        SearchBuffers fromStart = pair[0];
+        SearchBuffers toEnd = pair[1];
+        AbstractBuffers search = abstractBuffers.acquire();
+        try {
+            int distance = plan(start, end, fromStart, toEnd, search);
+            if (distance == -1) {
+                return null;
+            }
+
+            Steps steps = new Steps(distance);
+            if (search.last == DIRECT) {
+                appendFrom(steps, fromStart, clusterOf(start), start, end);
+                return steps.toPath(location(start));
+            }
+
+            int hops = 0;
+            for (int slot = search.last; slot != START; slot = search.parents[slot]) {
+                hops++;
+            }
+            int[] route = new int[hops];
+            for (int slot = search.last; slot != START; slot = search.parents[slot]) {
+                route[--hops] = slot;
+            }
+
+            appendFrom(steps, fromStart, clusterOf(start), start, cellOf(route[0]));
+            for (int i = 1; i < route.length; i++) {
+                appendHop(steps, cellOf(route[i - 1]), cellOf(route[i]), fromStart);
+            }
+            appendTowards(steps, toEnd, clusterOf(end), cellOf(route[route.length - 1]));
+            return steps.toPath(location(start));
+        } finally {
+            abstractBuffers.release(search);
+            localBuffers.release(pair);
+        }
+    }
+
+    /**
+     * Connects the start and the end to the nodes of their clusters and runs A* on the abstract graph. The
+     * estimate of a node is its Manhattan distance to the end, which no edge can beat.
+     *
+     * @return the distance of the road, -1 if there is none. search.last is the last node before the end,
+     *         or DIRECT if the road stays inside the cluster of the start and the end.
+     */
+    private int plan(int start, int end, SearchBuffers fromStart, SearchBuffers toEnd, AbstractBuffers search) {
+        int startCluster = clusterOf(start);
+        int endCluster = clusterOf(end);
+        searchCluster(startCluster, start, fromStart);
+        searchCluster(endCluster, end, toEnd);
+
+        int best = -1;
+        search.reset();
+        search.last = START;
+        if (startCluster == endCluster) {
+            best = fromStart.distance(local(startCluster, end));
+            if (best != -1) {
+                search.last = DIRECT;
+            }
+        }
+
+        int[] startNodes = nodes[startCluster];
+        for (int i = 0; i < startNodes.length; i++) {
+            int distance = fromStart.distance(local(startCluster, startNodes[i]));
+            if (distance != -1) {
+                search.relax(startCluster * maxNodes + i, START, distance, grid.manhattanDistance(startNodes[i], end));
+            }
+        }
+
+        while (!search.isEmpty()) {
+            int estimate = search.peekKey();
+            if (best != -1 && estimate >= best) break;
+
+            int slot = search.pop();
+            int cluster = slot / maxNodes;
+            int node = slot % maxNodes;
+            int cell = nodes[cluster][node];
+            int distance = search.distances.distance(slot);
+            if (distance + grid.manhattanDistance(cell, end) != estimate) continue;
+
+            if (cluster == endCluster) {
+                int rest = toEnd.distance(local(cluster, cell));
+                if (rest != -1 && (best == -1 || distance + rest < best)) {
+                    best = distance + rest;
+                    search.last = slot;
+                }
+            }
+
+            int[] clusterNodes = nodes[cluster];
+            int[] clusterDistances = intraDistances[cluster];
+            for (int other = 0; other < clusterNodes.length; other++) {
+                int edge = clusterDistances[node * clusterNodes.length + other];
+                if (other != node && edge != -1) {
+                    search.relax(cluster * maxNodes + other, slot, distance + edge,
+                            grid.manhattanDistance(clusterNodes[other], end));
+                }
+            }
+
+            for (Direction direction : DIRECTIONS) {
+                int across = acrossBorder(cell, cluster, direction);
+                if (across != -1) {
+                    search.relax(across, slot, distance + 1, grid.manhattanDistance(cellOf(across), end));
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Finds the node of the neighbouring cluster that a step from a node in the direction reaches
+     *
+     * @return the slot of the node, -1 if the step does not reach a node of another cluster
+     */
+    private int acrossBorder(int cell, int cluster, Direction direction) {
+        int x = grid.x(cell) + direction.dx();
+        int y = grid.y(cell) + direction.dy();
+        if (!grid.contains(x, y)) return -1;
+
+        int next = grid.index(x, y);
+        int nextCluster = clusterOf(next);
+        if (nextCluster == cluster || grid.isWall(next)) return -1;
+
+        // the nodes of a cluster are sorted
+        int node = Arrays.binarySearch(nodes[nextCluster], next);
+        return node < 0 ? -1 : nextCluster * maxNodes + node;
+    }
+
+    /**
+     * Finds the transitions on the border between the cluster and its neighbour on the given side, which is
+     * RIGHT or DOWN. A run of pairs of open cells across the border is an entrance.
+     */
+    private void buildBorder(int cluster, Direction side) {
+        int neighbour = neighbourCluster(cluster, side);
+        if (neighbour == -1) return;
+
+        int x0 = firstRow(cluster);
+        int y0 = firstCol(cluster);
+        int length = side == Direction.RIGHT ? rowsOf(cluster) : colsOf(cluster);
+        int[] inside = new int[length];
+        int[] outside = new int[length];
+        int count = 0;
+
+        int run = 0;
+        for (int i = 0; i <= length; i++) {
+            boolean open = false;
+            int a = 0;
+            int b = 0;
+            if (i < length) {
+                a = side == Direction.RIGHT ? grid.index(x0 + i, y0 + colsOf(cluster) - 1) :
+                        grid.index(x0 + rowsOf(cluster) - 1, y0 + i);
+                b = a + (side == Direction.RIGHT ? 1 : grid.cols());
+                open = !grid.isWall(a) && !grid.isWall(b);
+            }
+
+            if (open) {
+                run++;
+                continue;
+            }
+            if (run > 0) {
+                int first = i - run;
+                int last = i - 1;
+                if (run >= LONG_ENTRANCE) {
+                    count = addTransition(cluster, side, first, inside, outside, count);
+                    count = addTransition(cluster, side, last, inside, outside, count);
+                } else {
+                    count = addTransition(cluster, side, (first + last) / 2, inside, outside, count);
+                }
+                run = 0;
+            }
+        }
+
+        transitions[cluster][side.ordinal()] = Arrays.copyOf(inside, count);
+        transitions[neighbour][opposite(side).ordinal()] = Arrays.copyOf(outside, count);
+    }
+
+    private int addTransition(int cluster, Direction side, int offset, int[] inside, int[] outside, int count) {
+        int x = side == Direction.RIGHT ? firstRow(cluster) + offset : firstRow(cluster) + rowsOf(cluster) - 1;
+        int y = side == Direction.RIGHT ? firstCol(cluster) + colsOf(cluster) - 1 : firstCol(cluster) + offset;
+        int a = grid.index(x, y);
+        inside[count] = a;
+        outside[count] = a + (side == Direction.RIGHT ? 1 : grid.cols());
+        return count + 1;
+    }
+
+    /**
+     * Collects the nodes of the cluster from the transitions on its sides and searches the distances
+     * between them inside the cluster
+     */
+    private void buildCluster(int cluster) {
+        int[] clusterNodes = Arrays.stream(transitions[cluster])
+                .flatMapToInt(Arrays::stream)
+                .sorted()
+                .distinct()
+                .toArray();
+
+        int k = clusterNodes.length;
+        int[] distances = new int[k * k];
+        SearchBuffers[] pair = localBuffers.acquire();
+        SearchBuffers local = pair[0];
+        try {
+            // the distances are symmetric, so every search fills a row and a column
+            for (int i = 0; i < k - 1; i++) {
+                searchCluster(cluster, clusterNodes[i], local);
+                for (int j = i + 1; j < k; j++) {
+                    int distance = local.distance(local(cluster, clusterNodes[j]));
+                    distances[i * k + j] = distance;
+                    distances[j * k + i] = distance;
+                }
+            }
+        } finally {
+            localBuffers.release(pair);
+        }
+
+        nodes[cluster] = clusterNodes;
+        intraDistances[cluster] = distances;
+    }
+
+    /**
+     * Breath First Search from the source that does not leave its cluster. The queue and the buffers are
+     * indexed by the position of the cell inside the cluster, so the search does not divide by the size of
+     * the grid on every step.
+     */
+    private void searchCluster(int cluster, int source, SearchBuffers local) {
+        local.reset();
+        int[] queue = local.queue();
+        int rows = rowsOf(cluster);
+        int cols = colsOf(cluster);
+        int corner = grid.index(firstRow(cluster), firstCol(cluster));
+        int head = 0;
+        int tail = 0;
+
+        int first = local(cluster, source);
+        queue[tail++] = first;
+        local.visit(first, 0);
+
+        while (head < tail) {
+            int index = queue[head++];
+            int x = index / clusterSize;
+            int y = index - x * clusterSize;
+            int cell = corner + x * grid.cols() + y;
+            int nextDistance = local.distance(index) + 1;
+
+            if (x > 0) tail = visit(local, queue, tail, index - clusterSize, cell - grid.cols(), nextDistance);
+            if (x < rows - 1) tail = visit(local, queue, tail, index + clusterSize, cell + grid.cols(), nextDistance);
+            if (y > 0) tail = visit(local, queue, tail, index - 1, cell - 1, nextDistance);
+            if (y < cols - 1) tail = visit(local, queue, tail, index + 1, cell + 1, nextDistance);
+        }
+    }
+
+    private int visit(SearchBuffers local, int[] queue, int tail, int index, int cell, int distance) {
+        if (local.isVisited(index) || grid.isWall(cell)) {
+            return tail;
+        }
+        local.visit(index, distance);
+        queue[tail] = index;
+        return tail + 1;
+    }
+
+    /**
+     * Appends the steps of a hop between two nodes: a step across a border, or a road inside their cluster
+     */
+    private void appendHop(Steps steps, int from, int to, SearchBuffers local) {
+        int cluster = clusterOf(from);
+        if (clusterOf(to) != cluster) {
+            steps.add(directionOf(from, to));
+            return;
+        }
+        searchCluster(cluster, from, local);
+        appendFrom(steps, local, cluster, from, to);
+    }
+
+    /**
+     * Appends the road from the source of a finished search inside the cluster to the target, tracing it
+     * back from the target
+     */
+    private void appendFrom(Steps steps, SearchBuffers local, int cluster, int source, int target) {
+        int length = local.distance(local(cluster, target));
+        int first = steps.size;
+        steps.size += length;
+
+        int cell = target;
+        for (int step = first + length - 1; step >= first; step--) {
+            int previous = closer(local, cluster, cell);
+            steps.directions[step] = (byte) directionOf(previous, cell).ordinal();
+            cell = previous;
+        }
+    }
+
+    /**
+     * Appends the road from the cell to the source of a finished search inside the cluster, following the
+     * distances down to the source
+     */
+    private void appendTowards(Steps steps, SearchBuffers local, int cluster, int cell) {
+        while (local.distance(local(cluster, cell)) != 0) {
+            int next = closer(local, cluster, cell);
+            steps.add(directionOf(cell, next));
+            cell = next;
+        }
+    }
+
+    /**
+     * Finds the neighbour of the cell inside the cluster that is one step closer to the source of the search
+     */
+    private int closer(SearchBuffers local, int cluster, int cell) {
+        int distance = local.distance(local(cluster, cell)) - 1;
+        for (Direction direction : DIRECTIONS) {
+            int x = grid.x(cell) + direction.dx();
+            int y = grid.y(cell) + direction.dy();
+            if (!grid.contains(x, y)) continue;
+
+            int neighbour = grid.index(x, y);
+            if (clusterOf(neighbour) == cluster && !grid.isWall(neighbour)
+                    && local.distance(local(cluster, neighbour)) == distance) {
+                return neighbour;
+            }
+        }
+        throw new IllegalStateException("The search does not lead back from " + location(cell));
+    }
+
+    private Direction directionOf(int from, int to) {
+        int dx = grid.x(to) - grid.x(from);
+        int dy = grid.y(to) - grid.y(from);
+        for (Direction direction : DIRECTIONS) {
+            if (direction.dx() == dx && direction.dy() == dy) {
+                return direction;
+            }
+        }
+        throw new IllegalArgumentException("The cells are not neighbours");
+    }
+
+    private int clusterOf(int cell) {
+        return grid.x(cell) / clusterSize * clusterCols + grid.y(cell) / clusterSize;
+    }
+
+    private int cellOf(int slot) {
+        return nodes[slot / maxNodes][slot % maxNodes];
+    }
+
+    private int local(int cluster, int cell) {
+        return (grid.x(cell) - firstRow(cluster)) * clusterSize + grid.y(cell) - firstCol(cluster);
+    }
+
+    private int firstRow(int cluster) {
+        return cluster / clusterCols * clusterSize;
+    }
+
+    private int firstCol(int cluster) {
+        return cluster % clusterCols * clusterSize;
+    }
+
+    private int rowsOf(int cluster) {
+        return Math.min(clusterSize, grid.rows() - firstRow(cluster));
+    }
+
+    private int colsOf(int cluster) {
+        return Math.min(clusterSize, grid.cols() - firstCol(cluster));
+    }
+
+    private int neighbourCluster(int cluster, Direction side) {
+        int row = cluster / clusterCols + side.dx();
+        int col = cluster % clusterCols + side.dy();
+        return row < 0 || row >= clusterRows || col < 0 || col >= clusterCols ? -1 : row * clusterCols + col;
+    }
+
+    private static Direction opposite(Direction side) {
+        return switch (side) {
+            case UP -> Direction.DOWN;
+            case DOWN -> Direction.UP;
+            case LEFT -> Direction.RIGHT;
+            case RIGHT -> Direction.LEFT;
+        };
+    }
+
+    private Location location(int cell) {
+        return new Location(grid.x(cell), grid.y(cell));
+    }
+
+    /**
+     * The steps of a road being refined
+     */
+    private static final class Steps {
+
+        private final byte[] directions;
+        private int size;
+
+        Steps(int length) {
+            this.directions = new byte[length];
+        }
+
+        void add(Direction direction) {
+            directions[size++] = (byte) direction.ordinal();
+        }
+
+        EncodedPath toPath(Location start) {
+            return EncodedPath.of(start, directions, size);
+        }
+    }
+
+    /**
+     * The buffers of a search on the abstract graph. The open list is a binary min-heap of estimates that
+     * may hold stale entries of nodes reached again with a smaller distance. They are skipped when popped.
+     */
+    private static final class AbstractBuffers {
+
+        private final SearchBuffers distances;
+        private final int[] parents;
+        private int[] keys = new int[64];
+        private int[] slots = new int[64];
+        private int size;
+        private int last;
+
+        AbstractBuffers(int slotCount) {
+            this.distances = new SearchBuffers(slotCount, 0);
+            this.parents = new int[slotCount];
+        }
+
+        void reset() {
+            distances.reset();
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int peekKey() {
+            return keys[0];
+        }
+
+        void relax(int slot, int parent, int distance, int estimate) {
+            int known = distances.distance(slot);
+            if (known != -1 && known <= distance) return;
+
+            distances.visit(slot, distance);
+            parents[slot] = parent;
+            push(distance + estimate, slot);
+        }
+
+        private void push(int key, int slot) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                keys[i] = keys[parent];
+                slots[i] = slots[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            slots[i] = slot;
+        }
+
+        int pop() {
+            int result = slots[0];
+            int key = keys[--size];
+            int slot = slots[size];
+
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= key) break;
+                keys[i] = keys[child];
+                slots[i] = slots[child];
+                i = child;
+            }
+            keys[i] = key;
+            slots[i] = slot;
+            return result;
+        }
+    }
+}
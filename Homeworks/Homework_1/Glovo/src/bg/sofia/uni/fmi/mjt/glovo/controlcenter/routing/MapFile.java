@@ -0,0 +1,190 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary file format of a map that is opened by mapping it into memory instead of reading it. All numbers
+ * are big-endian.
+ * <pre>
+ * int    magic, the characters GLOV
+ * int    version of the format
+ * int    rows
+ * int    cols
+ * int    types, a bit set with the bit of the ordinal of every MapEntityType on the map (since version 2)
+ * int    number of delivery guys n
+ * int[n] cells of the delivery guys in increasing order
+ * byte[] rows * cols cells, the ordinal of the MapEntityType of every cell row by row
+ * </pre>
+ * Version 1 files have no types, because the only types then were the ones without weights.
+ */
+public final class MapFile {
+
+    private static final int MAGIC = 0x474C4F56;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+    private static final int VERSION_1_HEADER_BYTES = 5 * Integer.BYTES;
+    private static final int VERSION_1_TYPES = (1 << (MapEntityType.WALL.ordinal() + 1)) - 1;
+    private static final int ALL_TYPES = (1 << MapEntityType.values().length) - 1;
+
+    private MapFile() {
+    }
+
+    /**
+     * Writes the layout to a map file, replacing the file if it exists
+     *
+     * @param file   the path of the map file
+     * @param layout char[][] of the layout
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, char[][] layout) throws IOException {
+        int rows = layout.length;
+        int cols = layout[0].length;
+        int[] deliveryGuys = findDeliveryGuys(layout);
+        int types = 0;
+        for (char[] symbols : layout) {
+            for (int j = 0; j < cols; j++) {
+                types |= 1 << MapEntityType.fromChar(symbols[j]).ordinal();
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + deliveryGuys.length * Integer.BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putInt(types).putInt(deliveryGuys.length);
+            for (int cell : deliveryGuys) {
+                header.putInt(cell);
+            }
+            writeFully(channel, header.flip());
+
+            ByteBuffer row = ByteBuffer.allocate(cols);
+            for (char[] symbols : layout) {
+                row.clear();
+                for (int j = 0; j < cols; j++) {
+                    row.put((byte) MapEntityType.fromChar(symbols[j]).ordinal());
+                }
+                writeFully(channel, row.flip());
+            }
+        }
+    }
+
+    /**
+     * Maps the map file into memory. The file is only read, so it may be read-only, and the moves of the
+     * delivery guys change only the copies of the changed pages that the grid keeps on the heap.
+     * <p>
+     * The header and the cells of the delivery guys are checked here. The other cells are checked by the grid
+     * when their pages are first read, so a cell that is not one of the types in the header makes that read
+     * throw UncheckedIOException instead.
+     *
+     * @param file the path of the map file
+     * @return     the CellGrid over the mapped cells
+     * @throws IOException if the file cannot be read or its header or delivery guys are not valid
+     */
+    public static CellGrid open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < VERSION_1_HEADER_BYTES) {
+                throw new IOException("Not a map file: " + file);
+            }
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(HEADER_BYTES, channel.size()));
+            readFully(channel, header, 0);
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a map file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException("Unsupported version " + version + " of the map file: " + file);
+            }
+
+            int rows = header.getInt();
+            int cols = header.getInt();
+            int types = version == 1 ? VERSION_1_TYPES : header.getInt();
+            int count = version == 1 ? header.getInt(VERSION_1_HEADER_BYTES - Integer.BYTES) : header.getInt();
+            int headerBytes = version == 1 ? VERSION_1_HEADER_BYTES : HEADER_BYTES;
+            if (rows <= 0 || cols <= 0 || count < 0 || (long) rows * cols > Integer.MAX_VALUE) {
+                throw new IOException("Invalid size of the map in the map file: " + file);
+            }
+            if ((types & ~ALL_TYPES) != 0) {
+                throw new IOException("Invalid types " + Integer.toBinaryString(types) + " in the map file: " + file);
+            }
+
+            long cellsOffset = headerBytes + (long) count * Integer.BYTES;
+            if (channel.size() != cellsOffset + (long) rows * cols) {
+                throw new IOException("The size of the map file does not match its header: " + file);
+            }
+
+            ByteBuffer deliveryGuyBytes = ByteBuffer.allocate(count * Integer.BYTES);
+            readFully(channel, deliveryGuyBytes, headerBytes);
+            int[] deliveryGuys = new int[count];
+            deliveryGuyBytes.asIntBuffer().get(deliveryGuys);
+
+            ByteBuffer cells = channel.map(FileChannel.MapMode.READ_ONLY, cellsOffset, (long) rows * cols);
+            CellGrid grid = new MappedCellGrid(cells, rows, cols, deliveryGuys, types);
+            validateDeliveryGuys(grid, deliveryGuys, file);
+
+            return grid;
+        }
+    }
+
+    private static void validateDeliveryGuys(CellGrid grid, int[] deliveryGuys, Path file) throws IOException {
+        for (int i = 0; i < deliveryGuys.length; i++) {
+            int cell = deliveryGuys[i];
+            if (cell < 0 || cell >= grid.size() || (i > 0 && cell <= deliveryGuys[i - 1])
+                    || !isDeliveryGuy(grid, cell, file)) {
+                throw new IOException("Invalid delivery guy cell " + cell + " in the map file: " + file);
+            }
+        }
+    }
+
+    private static boolean isDeliveryGuy(CellGrid grid, int cell, Path file) throws IOException {
+        try {
+            return grid.isDeliveryGuy(cell);
+        } catch (UncheckedIOException e) {
+            throw new IOException("Invalid cells in the map file: " + file, e.getCause());
+        }
+    }
+
+    private static int[] findDeliveryGuys(char[][] layout) {
+        int cols = layout[0].length;
+        int count = 0;
+        int[] cells = new int[16];
+
+        for (int i = 0; i < layout.length; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (layout[i][j] == MapEntityType.DELIVERY_GUY_CAR.getSymbol()
+                        || layout[i][j] == MapEntityType.DELIVERY_GUY_BIKE.getSymbol()) {
+                    if (count == cells.length) {
+                        cells = Arrays.copyOf(cells, count * 2);
+                    }
+                    cells[count++] = i * cols + j;
+                }
+            }
+        }
+        return Arrays.copyOf(cells, count);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read == -1) {
+                throw new IOException("Unexpected end of the map file");
+            }
+            offset += read;
+        }
+        buffer.flip();
+    }
+}
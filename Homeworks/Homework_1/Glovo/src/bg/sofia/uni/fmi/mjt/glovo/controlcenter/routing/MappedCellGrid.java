@@ -0,0 +1,128 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * CellGrid that reads its cells straight from a buffer outside the heap, usually a map file mapped with
+ * MapFile.open(). Only the pages of the file that the searches touch are ever loaded.
+ * <p>
+ * The buffer is never written, so it may be read-only. A changed cell, like the cells of a moved delivery
+ * guy, is written to a copy of its page on the heap, and the cells of a copied page are read from the copy.
+ * <p>
+ * The cells of a page are checked the first time the page is touched, so a corrupt buffer is found without
+ * loading the pages that are never touched. A cell that is not the ordinal of one of the types of the grid
+ * makes the read of its page throw UncheckedIOException.
+ */
+public final class MappedCellGrid extends CellGrid {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    // the page of a checked part of the buffer that has not been copied, so its cells are read from the buffer
+    private static final byte[] CHECKED = new byte[0];
+
+    private final ByteBuffer cells;
+    private final int[] deliveryGuyCells;
+    private final byte[][] pages;
+
+    /**
+     * Makes the grid over the buffer
+     *
+     * @param cells            the buffer with one byte per cell, starting at position 0
+     * @param rows             the number of rows of the map
+     * @param cols             the number of columns of the map
+     * @param deliveryGuyCells the cells of the delivery guys in increasing order, so that the buffer does not
+     *                         have to be scanned to find them
+     * @param types            a bit set with the bit of the ordinal of every MapEntityType in the buffer
+     */
+    public MappedCellGrid(ByteBuffer cells, int rows, int cols, int[] deliveryGuyCells, int types) {
+        super(rows, cols);
+        if (cells.capacity() < size()) {
+            throw new IllegalArgumentException("The buffer is smaller than the grid");
+        }
+        if (types >>> MapEntityType.values().length != 0) {
+            throw new IllegalArgumentException("The types should only have the bits of the MapEntityTypes");
+        }
+
+        this.cells = cells;
+        this.deliveryGuyCells = deliveryGuyCells.clone();
+        this.pages = new byte[(int) (((long) size() + PAGE_SIZE - 1) >>> PAGE_BITS)][];
+        addTypes(types);
+    }
+
+    /**
+     * Shares the buffer, which is never written, and copies the pages with changed cells
+     */
+    private MappedCellGrid(MappedCellGrid grid) {
+        super(grid.rows(), grid.cols());
+        this.cells = grid.cells;
+        this.deliveryGuyCells = grid.deliveryGuyCells;
+        this.pages = new byte[grid.pages.length][];
+        for (int page = 0; page < pages.length; page++) {
+            byte[] copy = grid.pages[page];
+            pages[page] = copy == null || copy == CHECKED ? copy : copy.clone();
+        }
+        addTypes(grid.types());
+    }
+
+    @Override
+    public int[] deliveryGuyCells() {
+        return deliveryGuyCells.clone();
+    }
+
+    @Override
+    public CellGrid snapshot() {
+        return new MappedCellGrid(this);
+    }
+
+    @Override
+    protected byte get(int cell) {
+        int pageIndex = cell >>> PAGE_BITS;
+        byte[] page = pages[pageIndex];
+        if (page == CHECKED) {
+            return cells.get(cell);
+        }
+        if (page == null) {
+            check(pageIndex);
+            return cells.get(cell);
+        }
+        return page[cell & (PAGE_SIZE - 1)];
+    }
+
+    @Override
+    protected void set(int cell, byte value) {
+        int pageIndex = cell >>> PAGE_BITS;
+        byte[] page = pages[pageIndex];
+        if (page == null || page == CHECKED) {
+            if (page == null) {
+                check(pageIndex);
+            }
+            int start = pageIndex << PAGE_BITS;
+            page = new byte[PAGE_SIZE];
+            cells.get(start, page, 0, Math.min(PAGE_SIZE, size() - start));
+            pages[pageIndex] = page;
+        }
+        page[cell & (PAGE_SIZE - 1)] = value;
+    }
+
+    /**
+     * Checks that every cell of the page in the buffer is the ordinal of one of the types of the grid. Several
+     * readers may check the same page at once, which only repeats the check.
+     */
+    private void check(int pageIndex) {
+        int start = pageIndex << PAGE_BITS;
+        int end = Math.min(start + PAGE_SIZE, size());
+        int types = types();
+        for (int cell = start; cell < end; cell++) {
+            byte value = cells.get(cell);
+            if (value < 0 || value >= Integer.SIZE || (types & (1 << value)) == 0) {
+                throw new UncheckedIOException(new IOException("Invalid cell " + cell + " of type " + value
+                        + " that is not among the types of the map"));
+            }
+        }
+        pages[pageIndex] = CHECKED;
+    }
+}
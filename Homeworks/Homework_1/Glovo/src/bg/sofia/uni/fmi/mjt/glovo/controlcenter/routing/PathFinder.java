@@ -0,0 +1,27 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import java.util.function.LongConsumer;
+
+public interface PathFinder {
+
+    /**
+     * Finds the length of the fastest road between two cells
+     *
+     * @param start starting cell of searching
+     * @param end   ending cell of searching if found
+     * @return      the length of the closest path, -1 if there is no path or one of the cells is a wall
+     */
+    int distance(int start, int end);
+
+    /**
+     * Finds the length of the fastest road between two cells and tells how many cells the search visited
+     *
+     * @param start         starting cell of searching
+     * @param end           ending cell of searching if found
+     * @param visitedCells  receives the number of the visited cells once the search ends, null to not count them
+     * @return              the length of the closest path, -1 if there is no path or one of the cells is a wall
+     */
+    default int distance(int start, int end, LongConsumer visitedCells) {
+        return distance(start, end);
+    }
+}
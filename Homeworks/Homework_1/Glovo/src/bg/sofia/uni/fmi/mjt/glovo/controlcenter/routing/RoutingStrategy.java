@@ -0,0 +1,38 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+/**
+ * The search used to find the distances of an order. All strategies except HIERARCHICAL find the exact
+ * shortest paths, so they differ only in how much of the map they explore. On a map with traffic or
+ * pedestrian cells the distances depend on the vehicle, and every strategy is answered with DijkstraSearch
+ * and the weights of each vehicle.
+ */
+public enum RoutingStrategy {
+
+    /**
+     * Breath First Search. The delivery guys are reached with a single search from the restaurant.
+     */
+    BFS,
+
+    /**
+     * Breath First Search from both ends of every path, meeting in the middle.
+     */
+    BIDIRECTIONAL_BFS,
+
+    /**
+     * A* search guided by the Manhattan distance to the end of every path.
+     */
+    A_STAR,
+
+    /**
+     * A* search on the clusters of the map, refined inside the clusters. It is the fastest on huge maps but
+     * the distances can be a few cells longer than the shortest ones, so AUTO never chooses it. The clusters
+     * are built in the background from the first order, which is routed with A_STAR until they are ready,
+     * unless ControlCenter.prepareHierarchicalRouting() is called before.
+     */
+    HIERARCHICAL,
+
+    /**
+     * Chooses BFS for small maps or many delivery guys and A* otherwise.
+     */
+    AUTO
+}
@@ -0,0 +1,122 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing;
+
+import java.util.Arrays;
+
+/**
+ * Reusable arrays for one search at a time. Instead of clearing the arrays before every search,
+ * each search gets a new epoch and a cell counts as visited only if it was stamped with the current epoch.
+ */
+public final class SearchBuffers {
+
+    private static final int DIRECTIONS_COUNT = 4;
+
+    private final int[][] queues;
+    private final int[] neighbours = new int[DIRECTIONS_COUNT];
+    private final int[] distance;
+    private final int[] stamps;
+    private int epoch;
+    private int visits;
+
+    /**
+     * Makes the buffers for a grid
+     *
+     * @param size the number of cells in the grid
+     */
+    public SearchBuffers(int size) {
+        this(size, 1);
+    }
+
+    /**
+     * Makes the buffers for a grid
+     *
+     * @param size   the number of cells in the grid
+     * @param queues the number of queues the search needs
+     */
+    public SearchBuffers(int size, int queues) {
+        this.queues = new int[queues][size];
+        this.distance = new int[size];
+        this.stamps = new int[size];
+    }
+
+    /**
+     * Starts a new search. The previous search is forgotten in O(1), except once every 2^32 searches
+     * when the epoch overflows and the stamps are cleared.
+     */
+    public void reset() {
+        visits = 0;
+        epoch++;
+        if (epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+    }
+
+    public boolean isVisited(int cell) {
+        return stamps[cell] == epoch;
+    }
+
+    public void visit(int cell, int cellDistance) {
+        visits++;
+        stamps[cell] = epoch;
+        distance[cell] = cellDistance;
+    }
+
+    /**
+     * Returns how many times the current search visited a cell. A cell whose distance was lowered is counted
+     * again.
+     *
+     * @return int number of visits since reset()
+     */
+    public int visits() {
+        return visits;
+    }
+
+    /**
+     * Makes the cell unvisited again in the current search
+     *
+     * @param cell the index of the cell
+     */
+    public void forget(int cell) {
+        stamps[cell] = 0;
+    }
+
+    /**
+     * Returns the distance of the cell found by the current search
+     *
+     * @param cell the index of the cell
+     * @return     the distance, -1 if the cell was not reached
+     */
+    public int distance(int cell) {
+        return stamps[cell] == epoch ? distance[cell] : -1;
+    }
+
+    public int[] queue() {
+        return queues[0];
+    }
+
+    public int[] queue(int index) {
+        return queues[index];
+    }
+
+    /**
+     * Returns an array for CellGrid.neighbours
+     *
+     * @return int[] of 4 elements
+     */
+    public int[] neighbours() {
+        return neighbours;
+    }
+
+    /**
+     * Copies the distances of the current search
+     *
+     * @return int[] of the distances, -1 for the cells that were not reached
+     */
+    public int[] toArray() {
+        int[] result = new int[distance.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = distance(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,352 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.shard;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.DistanceField;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The border distance tables of the regions. Every pair of open cells facing each other across the border
+ * of two regions is a crossing, and each of its two cells is a node of the graph. A region keeps the
+ * distances between all of its nodes in a table, found with one search from every node on the thread of
+ * the region, so a road between two regions is found without searching the map: a search over the nodes
+ * that starts from the distance field of the start and ends at the distance field of the end.
+ * <p>
+ * The tables are exact, so the roads found are as short as the roads over the whole map. The graph does not
+ * change after it is built, which holds because the regions only move their delivery guys between roads.
+ */
+final class BorderGraph {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int INITIAL_HEAP = 64;
+
+    private final int[] shardStarts;
+    private final int[] shardOf;
+    private final Location[] localCells;
+    private final int[] partners;
+    // enterCosts[vehicle][node] is the cost of stepping into the node from its partner and
+    // tables[vehicle][shard][a * k + b] the distance from the node a to the node b of a region with k nodes
+    private final int[][] enterCosts;
+    private final int[][][] tables;
+
+    /**
+     * Finds the crossings between the regions and builds the tables of all regions in parallel
+     *
+     * @param layout the layout of the whole map
+     * @param shards the regions from the top of the map to the bottom
+     */
+    BorderGraph(char[][] layout, RegionShard[] shards) {
+        List<List<Location>> cells = new ArrayList<>();
+        for (int s = 0; s < shards.length; s++) {
+            cells.add(new ArrayList<>());
+        }
+
+        // the crossings as pairs of positions in the lists of the upper and the lower region
+        List<int[]> crossings = new ArrayList<>();
+        for (int s = 0; s + 1 < shards.length; s++) {
+            int lowerRow = shards[s + 1].firstRow();
+            for (int y = 0; y < layout[lowerRow].length; y++) {
+                if (isOpen(layout[lowerRow - 1][y]) && isOpen(layout[lowerRow][y])) {
+                    crossings.add(new int[] {s, cells.get(s).size(), cells.get(s + 1).size()});
+                    cells.get(s).add(new Location(lowerRow - 1 - shards[s].firstRow(), y));
+                    cells.get(s + 1).add(new Location(0, y));
+                }
+            }
+        }
+
+        this.shardStarts = new int[shards.length + 1];
+        for (int s = 0; s < shards.length; s++) {
+            shardStarts[s + 1] = shardStarts[s] + cells.get(s).size();
+        }
+        int nodes = shardStarts[shards.length];
+        this.shardOf = new int[nodes];
+        this.localCells = new Location[nodes];
+        for (int s = 0; s < shards.length; s++) {
+            for (int i = 0; i < cells.get(s).size(); i++) {
+                shardOf[shardStarts[s] + i] = s;
+                localCells[shardStarts[s] + i] = cells.get(s).get(i);
+            }
+        }
+
+        this.partners = new int[nodes];
+        for (int[] crossing : crossings) {
+            int upper = shardStarts[crossing[0]] + crossing[1];
+            int lower = shardStarts[crossing[0] + 1] + crossing[2];
+            partners[upper] = lower;
+            partners[lower] = upper;
+        }
+
+        DeliveryType[] vehicles = DeliveryType.values();
+        this.enterCosts = new int[vehicles.length][nodes];
+        for (int node = 0; node < nodes; node++) {
+            Location cell = localCells[node];
+            MapEntityType type = MapEntityType.fromChar(layout[shards[shardOf[node]].firstRow() + cell.x()][cell.y()]);
+            for (DeliveryType vehicle : vehicles) {
+                enterCosts[vehicle.ordinal()][node] = vehicle.getCellWeight(type);
+            }
+        }
+
+        this.tables = new int[vehicles.length][shards.length][];
+        List<CompletableFuture<Void>> builds = new ArrayList<>();
+        for (RegionShard shard : shards) {
+            builds.add(shard.submit(controlCenter -> {
+                List<Location> borderCells = cells.get(shard.index());
+                int k = borderCells.size();
+                int[][] regionTables = new int[vehicles.length][k * k];
+                for (int a = 0; a < k; a++) {
+                    DistanceField[] fields = controlCenter.findDistanceFields(borderCells.get(a));
+                    for (DeliveryType vehicle : vehicles) {
+                        int[] table = regionTables[vehicle.ordinal()];
+                        for (int b = 0; b < k; b++) {
+                            table[a * k + b] = fields[vehicle.ordinal()].from(borderCells.get(b));
+                        }
+                    }
+                }
+                for (DeliveryType vehicle : vehicles) {
+                    tables[vehicle.ordinal()][shard.index()] = regionTables[vehicle.ordinal()];
+                }
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(builds.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Returns the number of the nodes, two for every crossing
+     *
+     * @return int number of nodes
+     */
+    int nodeCount() {
+        return partners.length;
+    }
+
+    /**
+     * @return the first node of the region
+     */
+    int firstNode(int shard) {
+        return shardStarts[shard];
+    }
+
+    /**
+     * @return the node after the last node of the region
+     */
+    int endNode(int shard) {
+        return shardStarts[shard + 1];
+    }
+
+    /**
+     * @return the cell of the node in its region
+     */
+    Location localCell(int node) {
+        return localCells[node];
+    }
+
+    /**
+     * @return the node on the other side of the crossing of the node
+     */
+    int partner(int node) {
+        return partners[node];
+    }
+
+    /**
+     * @return the cost of stepping into the node from its partner
+     */
+    int enterCost(DeliveryType vehicle, int node) {
+        return enterCosts[vehicle.ordinal()][node];
+    }
+
+    /**
+     * Finds the distances of the shortest roads from every node to the end, through any regions. The search
+     * runs backwards from the nodes of the region of the end, so it is one search for all nodes.
+     *
+     * @param vehicle the vehicle whose weights of the cells are used
+     * @param toShard the region of the end
+     * @param to      the distance field of the end in its region
+     * @return        int[] of the distances indexed by node, -1 for the nodes that cannot reach the end
+     */
+    int[] distancesTo(DeliveryType vehicle, int toShard, DistanceField to) {
+        int[] enterCost = enterCosts[vehicle.ordinal()];
+        int[][] shardTables = tables[vehicle.ordinal()];
+        int[] distances = new int[partners.length];
+        Arrays.fill(distances, UNREACHED);
+        NodeHeap heap = new NodeHeap();
+
+        for (int node = shardStarts[toShard]; node < shardStarts[toShard + 1]; node++) {
+            int distance = to.to(localCells[node]);
+            if (distance != -1) {
+                distances[node] = distance;
+                heap.push(distance, node);
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            int distance = heap.peekKey();
+            int node = heap.pop();
+            if (distance > distances[node]) continue;
+
+            // the partner steps into the node
+            int partner = partners[node];
+            if (distance + enterCost[node] < distances[partner]) {
+                distances[partner] = distance + enterCost[node];
+                heap.push(distance + enterCost[node], partner);
+            }
+
+            int shard = shardOf[node];
+            int start = shardStarts[shard];
+            int k = shardStarts[shard + 1] - start;
+            int[] table = shardTables[shard];
+            int column = node - start;
+            for (int a = 0; a < k; a++) {
+                int length = table[a * k + column];
+                if (length != -1 && distance + length < distances[start + a]) {
+                    distances[start + a] = distance + length;
+                    heap.push(distance + length, start + a);
+                }
+            }
+        }
+
+        for (int node = 0; node < distances.length; node++) {
+            if (distances[node] == UNREACHED) {
+                distances[node] = -1;
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Finds the distance of the shortest road that leaves the region of the start, possibly through other
+     * regions, and reaches the end. Within a region the road follows the tables, so only the crossings are
+     * searched.
+     *
+     * @param vehicle   the vehicle whose weights of the cells are used
+     * @param fromShard the region of the start
+     * @param from      the distance field of the start in its region
+     * @param toShard   the region of the end
+     * @param to        the distance field of the end in its region
+     * @return          the distance, -1 if there is no such road
+     */
+    int distance(DeliveryType vehicle, int fromShard, DistanceField from, int toShard, DistanceField to) {
+        int[] enterCost = enterCosts[vehicle.ordinal()];
+        int[][] shardTables = tables[vehicle.ordinal()];
+        int[] distances = new int[partners.length];
+        // a node reached by a crossing continues through its region, a node reached through its region
+        // only by its crossing, as going through the region again is never shorter
+        boolean[] crossed = new boolean[partners.length];
+        Arrays.fill(distances, UNREACHED);
+        NodeHeap heap = new NodeHeap();
+
+        for (int node = shardStarts[fromShard]; node < shardStarts[fromShard + 1]; node++) {
+            int distance = from.from(localCells[node]);
+            if (distance != -1) {
+                distances[node] = distance;
+                heap.push(distance, node);
+            }
+        }
+
+        int best = UNREACHED;
+        while (!heap.isEmpty()) {
+            int distance = heap.peekKey();
+            int node = heap.pop();
+            if (distance > distances[node]) continue;
+            if (distance >= best) break;
+
+            int shard = shardOf[node];
+            if (shard == toShard) {
+                int rest = to.to(localCells[node]);
+                if (rest != -1) {
+                    best = Math.min(best, distance + rest);
+                }
+            }
+
+            int partner = partners[node];
+            int throughCrossing = distance + enterCost[partner];
+            if (throughCrossing < distances[partner]) {
+                distances[partner] = throughCrossing;
+                crossed[partner] = true;
+                heap.push(throughCrossing, partner);
+            }
+
+            if (!crossed[node]) continue;
+
+            int start = shardStarts[shard];
+            int k = shardStarts[shard + 1] - start;
+            int[] table = shardTables[shard];
+            int row = (node - start) * k;
+            for (int b = 0; b < k; b++) {
+                int length = table[row + b];
+                if (length != -1 && distance + length < distances[start + b]) {
+                    distances[start + b] = distance + length;
+                    crossed[start + b] = false;
+                    heap.push(distance + length, start + b);
+                }
+            }
+        }
+        return best == UNREACHED ? -1 : best;
+    }
+
+    private static boolean isOpen(char symbol) {
+        return symbol != MapEntityType.WALL.getSymbol();
+    }
+
+    /**
+     * A binary heap of nodes by their distance, where a node can be pushed again with a shorter distance and
+     * the older entry is skipped when it is popped
+     */
+    private static final class NodeHeap {
+
+        private int[] keys = new int[INITIAL_HEAP];
+        private int[] nodes = new int[INITIAL_HEAP];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int peekKey() {
+            return keys[0];
+        }
+
+        void push(int key, int node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        int pop() {
+            int result = nodes[0];
+            int key = keys[--size];
+            int node = nodes[size];
+
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= key) break;
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.shard;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryInfo;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * A region of the map made of whole rows, with its own control center and its own thread. Everything the
+ * region is asked goes through the queue of its thread, so the requests of a region run one after another
+ * while the regions run in parallel.
+ */
+final class RegionShard implements AutoCloseable {
+
+    private final int index;
+    private final int firstRow;
+    private final int rows;
+    // the layout of the region as it was built, whose terrain never changes
+    private final char[][] region;
+    private final ControlCenter controlCenter;
+    private final ExecutorService executor;
+
+    /**
+     * Makes the region of the rows from firstRow to firstRow + rows - 1 of the layout
+     */
+    RegionShard(int index, char[][] layout, int firstRow, int rows, int precomputedRestaurants) {
+        char[][] region = new char[rows][];
+        for (int x = 0; x < rows; x++) {
+            region[x] = layout[firstRow + x].clone();
+        }
+
+        this.index = index;
+        this.firstRow = firstRow;
+        this.rows = rows;
+        this.region = region;
+        this.controlCenter = new ControlCenter(region, precomputedRestaurants);
+        this.executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("region-" + index).factory());
+    }
+
+    int index() {
+        return index;
+    }
+
+    int firstRow() {
+        return firstRow;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    /**
+     * Runs the request on the thread of the region
+     *
+     * @param request the request, given the control center of the region
+     * @return        a future of the result of the request
+     */
+    <T> CompletableFuture<T> submit(Function<ControlCenter, T> request) {
+        return CompletableFuture.supplyAsync(() -> request.apply(controlCenter), executor);
+    }
+
+    boolean contains(Location location) {
+        return location.x() >= firstRow && location.x() < firstRow + rows;
+    }
+
+    /**
+     * @return true if the terrain of the cell of the region is a road, also under a delivery guy
+     */
+    boolean isRoad(Location local) {
+        MapEntityType type = MapEntityType.fromChar(region[local.x()][local.y()]);
+        return type == MapEntityType.ROAD || type == MapEntityType.DELIVERY_GUY_CAR
+                || type == MapEntityType.DELIVERY_GUY_BIKE;
+    }
+
+    Location toLocal(Location location) {
+        return new Location(location.x() - firstRow, location.y());
+    }
+
+    Location toGlobal(Location location) {
+        return new Location(location.x() + firstRow, location.y());
+    }
+
+    DeliveryInfo toGlobal(DeliveryInfo deliveryInfo) {
+        return deliveryInfo == null ? null : new DeliveryInfo(toGlobal(deliveryInfo.deliveryGuyLocation()),
+                deliveryInfo.price(), deliveryInfo.estimatedTime(), deliveryInfo.deliveryType());
+    }
+
+    /**
+     * Finishes the requests already in the queue and stops the thread of the region
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
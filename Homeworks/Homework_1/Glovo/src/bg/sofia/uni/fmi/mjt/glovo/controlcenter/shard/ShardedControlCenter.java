@@ -0,0 +1,429 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter.shard;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.DistanceField;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryInfo;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidLocationEntityException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The map split into regions of whole rows, each with its own control center, delivery guys and thread, so
+ * the orders of different regions are handled in parallel on different cores. A region finds the delivery
+ * guys of the orders from its restaurants.
+ * <p>
+ * The answers are the same as those of one ControlCenter of the whole map, as the shortest road between two
+ * cells may leave their region and come back. The region of the restaurant finds the distances of its
+ * delivery guys to the restaurant, the region of the client finds the distances to the client, and the
+ * coordinator joins them over the border distance tables on its own thread. The delivery guys of the other
+ * regions are only searched when the border graph says they can be close enough. The regions and the
+ * coordinator only talk through the queues of their threads.
+ */
+public class ShardedControlCenter implements AutoCloseable {
+
+    private final RegionShard[] shards;
+    private final BorderGraph borders;
+    private final ExecutorService coordinator;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * Splits the map into regions of nearly equal numbers of rows
+     *
+     * @param layout     char[][] of the layout
+     * @param shardCount the number of regions, between 1 and the number of rows
+     */
+    public ShardedControlCenter(char[][] layout, int shardCount) {
+        this(layout, shardCount, 0);
+    }
+
+    /**
+     * Splits the map into regions of nearly equal numbers of rows and precomputes the distances from the
+     * restaurants of every region
+     *
+     * @param layout                 char[][] of the layout
+     * @param shardCount             the number of regions, between 1 and the number of rows
+     * @param precomputedRestaurants The number of restaurants whose distances are kept by every region, like
+     *                               in the constructors of ControlCenter.
+     */
+    public ShardedControlCenter(char[][] layout, int shardCount, int precomputedRestaurants) {
+        if (layout == null || layout.length == 0) {
+            throw new IllegalArgumentException("The layout cannot be null or empty");
+        }
+        if (shardCount < 1 || shardCount > layout.length) {
+            throw new IllegalArgumentException("The number of regions should be between 1 and the number of rows");
+        }
+
+        this.rows = layout.length;
+        this.cols = layout[0].length;
+        this.shards = new RegionShard[shardCount];
+        int firstRow = 0;
+        for (int s = 0; s < shardCount; s++) {
+            int shardRows = rows / shardCount + (s < rows % shardCount ? 1 : 0);
+            shards[s] = new RegionShard(s, layout, firstRow, shardRows, precomputedRestaurants);
+            firstRow += shardRows;
+        }
+        this.borders = new BorderGraph(layout, shards);
+        this.coordinator = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("coordinator").factory());
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of the pairs of open cells that face each other across the borders of the regions
+     *
+     * @return int number of crossings
+     */
+    public int getCrossingCount() {
+        return borders.nodeCount() / 2;
+    }
+
+    /**
+     * Finds the optimal delivery guy for a delivery like ControlCenter.findOptimalDeliveryGuy() on the whole
+     * map. An order of a region without crossings is answered by the region alone.
+     * <p>
+     * Otherwise the region of the restaurant finds the distances of its delivery guys to the restaurant and
+     * the region of the client the distances to the client. The coordinator finds the road from the
+     * restaurant to the client, also the one that leaves the region and comes back, and the distances from
+     * every node of the border graph to the restaurant. A region whose nodes are too far from the restaurant
+     * for any of its delivery guys to beat the best one found so far is not asked; the others find the
+     * distances of their delivery guys to the restaurant through their nodes.
+     *
+     * @param restaurantLocation The location of the restaurant to start the delivery from.
+     * @param clientLocation     The location of the client receiving the delivery.
+     * @param maxPrice           The maximum price allowed for the delivery. Use -1 for no cost constraint.
+     * @param maxTime            The maximum time allowed for the delivery. Use -1 for no time constraint.
+     * @param shippingMethod     The method for shipping the delivery.
+     * @return a future of the DeliveryInfo with the location of the delivery guy on the whole map, completed
+     * with null if no valid path is found
+     */
+    public CompletableFuture<DeliveryInfo> findOptimalDeliveryGuy(Location restaurantLocation,
+                                                                  Location clientLocation, double maxPrice,
+                                                                  int maxTime, ShippingMethod shippingMethod) {
+        RegionShard restaurantShard = shardOf(restaurantLocation);
+        RegionShard clientShard = shardOf(clientLocation);
+        if (restaurantShard == null || clientShard == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Location restaurant = restaurantShard.toLocal(restaurantLocation);
+        Location client = clientShard.toLocal(clientLocation);
+        if (restaurantShard == clientShard && !hasCrossings(restaurantShard)) {
+            return restaurantShard.submit(controlCenter -> restaurantShard.toGlobal(
+                    controlCenter.findOptimalDeliveryGuy(restaurant, client, maxPrice, maxTime, shippingMethod)));
+        }
+
+        CompletableFuture<RestaurantSide> restaurantSide = restaurantShard.submit(controlCenter ->
+                restaurantSide(controlCenter, restaurantShard, restaurant));
+        CompletableFuture<DistanceField[]> clientFields = clientShard.submit(controlCenter ->
+                controlCenter.findDistanceFields(client));
+        return restaurantSide.thenCombineAsync(clientFields, (side, toClient) -> {
+            Order order = new Order(restaurantShard.index(), maxPrice, maxTime, shippingMethod);
+            for (DeliveryType vehicle : DeliveryType.values()) {
+                DistanceField fromRestaurant = side.fields()[vehicle.ordinal()];
+                int local = restaurantShard == clientShard ? fromRestaurant.from(client) : -1;
+                int throughBorders = borders.distance(vehicle, restaurantShard.index(), fromRestaurant,
+                        clientShard.index(), toClient[vehicle.ordinal()]);
+                order.restaurantToClient[vehicle.ordinal()] = shorter(local, throughBorders);
+                order.nodesToRestaurant[vehicle.ordinal()] =
+                        borders.distancesTo(vehicle, restaurantShard.index(), fromRestaurant);
+            }
+            order.optimal = select(side.deliveryGuys(), order, null);
+            return order;
+        }, coordinator).thenComposeAsync(order -> {
+            List<CompletableFuture<DeliveryGuys>> regions = new ArrayList<>();
+            for (RegionShard shard : shards) {
+                if (canBeat(shard, order)) {
+                    regions.add(shard.submit(controlCenter -> throughBorders(controlCenter, shard, order)));
+                }
+            }
+            return CompletableFuture.allOf(regions.toArray(CompletableFuture[]::new)).thenApplyAsync(done -> {
+                DeliveryInfo optimal = order.optimal;
+                for (CompletableFuture<DeliveryGuys> region : regions) {
+                    optimal = select(region.join(), order, optimal);
+                }
+                return optimal;
+            }, coordinator);
+        }, coordinator);
+    }
+
+    /**
+     * Finds the cost of the cheapest road between two locations of the map for a vehicle, like
+     * ControlCenter.findDistance() on the whole map. A road between two locations of the same region is the
+     * cheaper of the road inside the region and the road that leaves it and comes back.
+     *
+     * @param from         starting location of searching
+     * @param to           ending location of searching
+     * @param deliveryType the vehicle whose weights of the cells are used
+     * @return a future of the cost, -1 if there is no path or a location is outside the map
+     */
+    public CompletableFuture<Integer> findDistance(Location from, Location to, DeliveryType deliveryType) {
+        RegionShard fromShard = shardOf(from);
+        RegionShard toShard = shardOf(to);
+        if (fromShard == null || toShard == null) {
+            return CompletableFuture.completedFuture(-1);
+        }
+
+        Location start = fromShard.toLocal(from);
+        Location end = toShard.toLocal(to);
+        CompletableFuture<Integer> local = fromShard == toShard ?
+                fromShard.submit(controlCenter -> controlCenter.findDistance(start, end, deliveryType)) :
+                CompletableFuture.completedFuture(-1);
+        if (!hasCrossings(fromShard) || !hasCrossings(toShard)) {
+            return local;
+        }
+
+        CompletableFuture<DistanceField[]> fromFields = fromShard.submit(controlCenter ->
+                controlCenter.findDistanceFields(start));
+        CompletableFuture<DistanceField[]> toFields = toShard.submit(controlCenter ->
+                controlCenter.findDistanceFields(end));
+        return fromFields.thenCombineAsync(toFields, (fromStart, toEnd) -> borders.distance(deliveryType,
+                fromShard.index(), fromStart[deliveryType.ordinal()], toShard.index(),
+                toEnd[deliveryType.ordinal()]), coordinator).thenCombine(local, ShardedControlCenter::shorter);
+    }
+
+    /**
+     * Moves the delivery guy at one location to another inside the same region
+     *
+     * @param from The current location of the delivery guy.
+     * @param to   The new location of the delivery guy, which has to be a road of the same region.
+     * @return a future completed when the delivery guy is moved, exceptionally with
+     * InvalidLocationEntityException if there is no delivery guy at from or to is not a road
+     * @throws InvalidLocationEntityException if a location is outside the map or the locations are in
+     *                                        different regions
+     */
+    public CompletableFuture<Void> moveDeliveryGuy(Location from, Location to) {
+        RegionShard shard = shardOf(from);
+        if (shard == null || shardOf(to) != shard) {
+            throw new InvalidLocationEntityException("A delivery guy can only move inside his region: " + from +
+                    " -> " + to);
+        }
+
+        Location start = shard.toLocal(from);
+        Location end = shard.toLocal(to);
+        return shard.submit(controlCenter -> {
+            // a delivery guy on traffic or a pedestrian zone would change the border distance tables
+            if (!shard.isRoad(end)) {
+                throw new InvalidLocationEntityException("A delivery guy can only move to a road: " + to);
+            }
+            controlCenter.moveDeliveryGuy(start, end);
+            return null;
+        });
+    }
+
+    /**
+     * Finishes the requests already queued by the regions and the coordinator and stops their threads
+     */
+    @Override
+    public void close() {
+        for (RegionShard shard : shards) {
+            shard.close();
+        }
+        coordinator.close();
+    }
+
+    private RegionShard shardOf(Location location) {
+        if (location == null || location.x() < 0 || location.x() >= rows || location.y() < 0
+                || location.y() >= cols) {
+            return null;
+        }
+
+        for (RegionShard shard : shards) {
+            if (shard.contains(location)) {
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasCrossings(RegionShard shard) {
+        return borders.endNode(shard.index()) > borders.firstNode(shard.index());
+    }
+
+    private static int shorter(int distance, int other) {
+        if (distance == -1) return other;
+        return other == -1 ? distance : Math.min(distance, other);
+    }
+
+    /**
+     * What the coordinator knows about an order that the regions need to find their delivery guys
+     */
+    private static final class Order {
+
+        private final int restaurantShard;
+        private final double maxPrice;
+        private final int maxTime;
+        private final boolean cheapest;
+        // indexed by the ordinal of the vehicle, -1 if there is no road
+        private final int[] restaurantToClient = new int[DeliveryType.values().length];
+        private final int[][] nodesToRestaurant = new int[DeliveryType.values().length][];
+        // the best delivery of the region of the restaurant without the roads that leave it
+        private DeliveryInfo optimal;
+
+        private Order(int restaurantShard, double maxPrice, int maxTime, ShippingMethod shippingMethod) {
+            this.restaurantShard = restaurantShard;
+            this.maxPrice = maxPrice;
+            this.maxTime = maxTime;
+            this.cheapest = shippingMethod == ShippingMethod.CHEAPEST;
+        }
+    }
+
+    /**
+     * The delivery guys of a region with their locations on the whole map and their distances to the
+     * restaurant, -1 for the ones that cannot reach it
+     */
+    private record DeliveryGuys(Location[] locations, DeliveryType[] deliveryTypes, int[] distances) {
+    }
+
+    /**
+     * What the region of the restaurant knows about an order
+     *
+     * @param fields       the distance fields of the restaurant in its region
+     * @param deliveryGuys the delivery guys of the region with the distances of the roads inside the region
+     */
+    private record RestaurantSide(DistanceField[] fields, DeliveryGuys deliveryGuys) {
+    }
+
+    private static RestaurantSide restaurantSide(ControlCenter controlCenter, RegionShard shard,
+                                                 Location restaurant) {
+        return new RestaurantSide(controlCenter.findDistanceFields(restaurant),
+                deliveryGuys(controlCenter, shard, controlCenter.findDeliveryGuyDistances(restaurant)));
+    }
+
+    private static DeliveryGuys deliveryGuys(ControlCenter controlCenter, RegionShard shard, int[] distances) {
+        int count = controlCenter.getDeliveryGuysCount();
+        Location[] locations = new Location[count];
+        DeliveryType[] deliveryTypes = new DeliveryType[count];
+        for (int i = 0; i < count; i++) {
+            locations[i] = shard.toGlobal(controlCenter.getDeliveryGuy(i).location());
+            deliveryTypes[i] = controlCenter.getDeliveryGuyType(i);
+        }
+        return new DeliveryGuys(locations, deliveryTypes, distances);
+    }
+
+    /**
+     * Tells if a delivery guy of the region can beat or tie the best delivery found so far with a road that
+     * leaves his region, which is at least as long as the road from the nearest node of the region that
+     * leaves it. In the region of the restaurant the road to the restaurant has to cross to another region
+     * first, as the roads inside it are already counted.
+     */
+    private boolean canBeat(RegionShard shard, Order order) {
+        for (DeliveryType vehicle : DeliveryType.values()) {
+            int toClient = order.restaurantToClient[vehicle.ordinal()];
+            if (toClient == -1) continue;
+
+            int[] toRestaurant = order.nodesToRestaurant[vehicle.ordinal()];
+            int nearest = Integer.MAX_VALUE;
+            for (int node = borders.firstNode(shard.index()); node < borders.endNode(shard.index()); node++) {
+                int distance = toRestaurant[node];
+                if (shard.index() == order.restaurantShard) {
+                    int partner = borders.partner(node);
+                    distance = toRestaurant[partner] == -1 ? -1 :
+                            borders.enterCost(vehicle, partner) + toRestaurant[partner];
+                }
+                if (distance != -1) {
+                    nearest = Math.min(nearest, distance);
+                }
+            }
+            if (nearest != Integer.MAX_VALUE && isWithin(vehicle, nearest + toClient, order, order.optimal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the distances of the delivery guys of the region to the restaurant over the roads that leave the
+     * region through one of its nodes, with one search from each node that can reach the restaurant
+     */
+    private DeliveryGuys throughBorders(ControlCenter controlCenter, RegionShard shard, Order order) {
+        int count = controlCenter.getDeliveryGuysCount();
+        Location[] localLocations = new Location[count];
+        for (int i = 0; i < count; i++) {
+            localLocations[i] = controlCenter.getDeliveryGuy(i).location();
+        }
+        DeliveryGuys deliveryGuys = deliveryGuys(controlCenter, shard, new int[count]);
+        int[] distances = deliveryGuys.distances();
+        Arrays.fill(distances, -1);
+
+        for (int node = borders.firstNode(shard.index()); node < borders.endNode(shard.index()); node++) {
+            if (!reachesRestaurant(node, order)) continue;
+
+            DistanceField[] fields = controlCenter.findDistanceFields(borders.localCell(node));
+            for (int i = 0; i < count; i++) {
+                DeliveryType vehicle = deliveryGuys.deliveryTypes()[i];
+                int toNode = fields[vehicle.ordinal()].to(localLocations[i]);
+                int fromNode = order.nodesToRestaurant[vehicle.ordinal()][node];
+                if (toNode != -1 && fromNode != -1) {
+                    distances[i] = shorter(distances[i], toNode + fromNode);
+                }
+            }
+        }
+        return deliveryGuys;
+    }
+
+    private static boolean reachesRestaurant(int node, Order order) {
+        for (int[] toRestaurant : order.nodesToRestaurant) {
+            if (toRestaurant[node] != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Selects the delivery guy like the control center does: the lowest cost within the constraints, and of
+     * equal costs the delivery guy that comes first on the map row by row
+     *
+     * @param optimal the best delivery found so far, null if there is none
+     */
+    private static DeliveryInfo select(DeliveryGuys deliveryGuys, Order order, DeliveryInfo optimal) {
+        for (int i = 0; i < deliveryGuys.locations().length; i++) {
+            DeliveryType deliveryType = deliveryGuys.deliveryTypes()[i];
+            int toRestaurant = deliveryGuys.distances()[i];
+            int toClient = order.restaurantToClient[deliveryType.ordinal()];
+            if (toRestaurant == -1 || toClient == -1) continue;
+
+            int totalDistance = toRestaurant + toClient;
+            if (!isWithin(deliveryType, totalDistance, order, optimal)) continue;
+
+            double price = totalDistance * deliveryType.getPricePerKM();
+            int time = totalDistance * deliveryType.getTimePerKM();
+            Location location = deliveryGuys.locations()[i];
+            boolean better = optimal == null ||
+                    (order.cheapest ? price < optimal.price() : time < optimal.estimatedTime());
+            if (better || comesFirst(location, optimal.deliveryGuyLocation())) {
+                optimal = new DeliveryInfo(location, price, time, deliveryType);
+            }
+        }
+        return optimal;
+    }
+
+    /**
+     * @return true if a delivery of the distance is within the constraints of the order and not worse than
+     * the optimal one
+     */
+    private static boolean isWithin(DeliveryType deliveryType, int totalDistance, Order order,
+                                    DeliveryInfo optimal) {
+        double price = totalDistance * deliveryType.getPricePerKM();
+        int time = totalDistance * deliveryType.getTimePerKM();
+        if ((order.maxPrice != -1 && price > order.maxPrice) || (order.maxTime != -1 && time > order.maxTime)) {
+            return false;
+        }
+        return optimal == null || (order.cheapest ? price <= optimal.price() : time <= optimal.estimatedTime());
+    }
+
+    private static boolean comesFirst(Location location, Location other) {
+        return location.x() < other.x() || (location.x() == other.x() && location.y() < other.y());
+    }
+}
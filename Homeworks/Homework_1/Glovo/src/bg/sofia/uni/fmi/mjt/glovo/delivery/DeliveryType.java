@@ -1,17 +1,23 @@
 package bg.sofia.uni.fmi.mjt.glovo.delivery;
 
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+
 public enum DeliveryType {
 
-    CAR(5.0, 3),
-    BIKE(3.0, 5);
+    CAR(5.0, 3, 3, 5),
+    BIKE(3.0, 5, 1, 2);
 
     double pricePerKM;
     int timePerKM;
+    int trafficWeight;
+    int pedestrianWeight;
 
-    DeliveryType(double pricePerKM, int timePerKM) {
+    DeliveryType(double pricePerKM, int timePerKM, int trafficWeight, int pedestrianWeight) {
 
         this.pricePerKM = pricePerKM;
         this.timePerKM = timePerKM;
+        this.trafficWeight = trafficWeight;
+        this.pedestrianWeight = pedestrianWeight;
     }
 
     public double getPricePerKM() {
@@ -24,4 +30,20 @@ public enum DeliveryType {
         return timePerKM;
     }
 
+    /**
+     * Returns how many KM entering a cell of the given type counts as for this vehicle. A car is stuck in
+     * traffic and crawls through pedestrian areas, while a bike rides through traffic as through a road.
+     *
+     * @param type the type of the cell, which cannot be a wall
+     * @return     int weight of the cell, 1 for a plain road
+     */
+    public int getCellWeight(MapEntityType type) {
+
+        return switch (type) {
+            case TRAFFIC -> trafficWeight;
+            case PEDESTRIAN -> pedestrianWeight;
+            default -> 1;
+        };
+    }
+
 }
\ No newline at end of file
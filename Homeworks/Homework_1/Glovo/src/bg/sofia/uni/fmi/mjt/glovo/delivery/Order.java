@@ -0,0 +1,23 @@
+package bg.sofia.uni.fmi.mjt.glovo.delivery;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidOrderException;
+
+public record Order(MapEntity client, MapEntity restaurant, String foodItem, ShippingMethod shippingMethod) {
+
+    public Order {
+
+        if (client == null || restaurant == null || foodItem == null || foodItem.isEmpty() ||
+                shippingMethod == null) {
+
+            throw new InvalidOrderException("Client, restaurant, food item and shipping method must be provided.");
+        }
+
+        if (client.type() != MapEntityType.CLIENT || restaurant.type() != MapEntityType.RESTAURANT) {
+
+            throw new InvalidOrderException("Invalid client or restaurant type.");
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package bg.sofia.uni.fmi.mjt.glovo.delivery;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+
+/**
+ * The outcome of a single order submitted asynchronously
+ *
+ * @param client     the client of the order
+ * @param restaurant the restaurant of the order
+ * @param foodItem   the food item of the order
+ * @param delivery   the delivery of the order, null if the order failed
+ * @param failure    why the order failed, null if it got a delivery
+ */
+public record OrderResult(MapEntity client, MapEntity restaurant, String foodItem, Delivery delivery,
+                          Throwable failure) {
+
+    public boolean isDelivered() {
+        return delivery != null;
+    }
+}
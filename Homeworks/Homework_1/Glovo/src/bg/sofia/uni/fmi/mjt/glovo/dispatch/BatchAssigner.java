@@ -0,0 +1,118 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns a whole wave of orders at once. Instead of giving every order its best delivery guy one after
+ * another, the orders and the delivery guys are matched so that the sum of the costs of all orders is
+ * minimal. The cost of an order is its price if it is shipped by CHEAPEST and its time if it is shipped by
+ * FASTEST.
+ */
+public class BatchAssigner {
+
+    /**
+     * The cost of an order without a delivery guy. It is higher than any real cost, so the matching first
+     * serves as many orders as possible and only then minimizes their cost.
+     */
+    private static final double UNASSIGNED = 1e12;
+
+    private final ControlCenter controlCenter;
+
+    public BatchAssigner(ControlCenter controlCenter) {
+        if (controlCenter == null) {
+            throw new IllegalArgumentException("The control center cannot be null");
+        }
+        this.controlCenter = controlCenter;
+    }
+
+    /**
+     * Assigns a different delivery guy to as many orders as possible with minimal total cost. The distances
+     * are searched in parallel, once for every different restaurant in the wave.
+     *
+     * @param orders the orders of the wave
+     * @return       List<Delivery> with the delivery of every order at the same position, null for the
+     *               orders that did not get a delivery guy
+     */
+    public List<Delivery> assign(List<Order> orders) {
+        if (orders == null || orders.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("The orders cannot be null");
+        }
+        if (orders.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int deliveryGuys = controlCenter.getDeliveryGuysCount();
+        Map<Location, int[]> deliveryGuyDistances = orders.stream()
+                .map(order -> order.restaurant().location())
+                .distinct()
+                .parallel()
+                .collect(Collectors.toConcurrentMap(Function.identity(), controlCenter::findDeliveryGuyDistances));
+
+        // the weighted cells of the map may make the road to the client cost differently for every vehicle
+        int[][] clientDistances = orders.parallelStream()
+                .map(order -> Arrays.stream(DeliveryType.values())
+                        .mapToInt(deliveryType -> controlCenter.findDistance(order.restaurant().location(),
+                                order.client().location(), deliveryType))
+                        .toArray())
+                .toArray(int[][]::new);
+
+        // one extra column per order stands for leaving the order without a delivery guy
+        double[][] cost = new double[orders.size()][deliveryGuys + orders.size()];
+        IntStream.range(0, orders.size()).parallel().forEach(i -> {
+            Order order = orders.get(i);
+            int[] distances = deliveryGuyDistances.get(order.restaurant().location());
+
+            for (int j = 0; j < cost[i].length; j++) {
+                DeliveryType deliveryType = j < deliveryGuys ? controlCenter.getDeliveryGuyType(j) : null;
+                int clientDistance = deliveryType == null ? -1 : clientDistances[i][deliveryType.ordinal()];
+                cost[i][j] = clientDistance != -1 && distances[j] != -1 ?
+                        cost(order, deliveryType, distances[j] + clientDistance) : UNASSIGNED;
+            }
+        });
+
+        int[] assignment = MinCostAssignment.solve(cost);
+
+        List<Delivery> deliveries = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            int deliveryGuy = assignment[i];
+            if (cost[i][deliveryGuy] >= UNASSIGNED) {
+                deliveries.add(null);
+                continue;
+            }
+
+            int clientDistance = clientDistances[i][controlCenter.getDeliveryGuyType(deliveryGuy).ordinal()];
+            int distance = deliveryGuyDistances.get(order.restaurant().location())[deliveryGuy] + clientDistance;
+            deliveries.add(createDelivery(order, deliveryGuy, distance));
+        }
+        return deliveries;
+    }
+
+    private double cost(Order order, DeliveryType deliveryType, int distance) {
+        return order.shippingMethod() == ShippingMethod.CHEAPEST ?
+                distance * deliveryType.getPricePerKM() : distance * deliveryType.getTimePerKM();
+    }
+
+    private Delivery createDelivery(Order order, int deliveryGuy, int distance) {
+        DeliveryType deliveryType = controlCenter.getDeliveryGuyType(deliveryGuy);
+
+        return new Delivery(order.client().location(), order.restaurant().location(),
+                controlCenter.getDeliveryGuy(deliveryGuy).location(), order.foodItem(),
+                distance * deliveryType.getPricePerKM(), distance * deliveryType.getTimePerKM());
+    }
+}
@@ -0,0 +1,58 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free busy flags of the delivery guys, indexed as in ControlCenter.getDeliveryGuyIndex. A delivery
+ * guy is reserved with a single compare-and-set, so two orders can never reserve the same one.
+ */
+public class CourierReservations {
+
+    private static final int FREE = 0;
+    private static final int BUSY = 1;
+
+    private final AtomicIntegerArray states;
+
+    public CourierReservations(int deliveryGuys) {
+        this.states = new AtomicIntegerArray(deliveryGuys);
+    }
+
+    /**
+     * Marks the delivery guy as busy
+     *
+     * @param deliveryGuy the index of the delivery guy
+     * @return            True if the delivery guy was free and is now reserved by the caller
+     */
+    public boolean tryReserve(int deliveryGuy) {
+        return states.compareAndSet(deliveryGuy, FREE, BUSY);
+    }
+
+    /**
+     * Marks the delivery guy as free again
+     *
+     * @param deliveryGuy the index of the delivery guy
+     * @throws IllegalStateException if the delivery guy was not reserved
+     */
+    public void release(int deliveryGuy) {
+        if (!states.compareAndSet(deliveryGuy, BUSY, FREE)) {
+            throw new IllegalStateException("The delivery guy is not reserved");
+        }
+    }
+
+    public boolean isAvailable(int deliveryGuy) {
+        return states.get(deliveryGuy) == FREE;
+    }
+
+    /**
+     * Returns the number of the delivery guys that are busy
+     *
+     * @return int number of reserved delivery guys
+     */
+    public int reservedCount() {
+        int count = 0;
+        for (int i = 0; i < states.length(); i++) {
+            count += states.get(i);
+        }
+        return count;
+    }
+}
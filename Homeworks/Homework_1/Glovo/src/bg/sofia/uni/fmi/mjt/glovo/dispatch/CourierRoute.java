@@ -0,0 +1,174 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The planned stops of one delivery guy. The route starts at the location of the delivery guy and keeps the
+ * distance of every leg between two stops, so a new order is tried in every place of the route without
+ * searching the roads that are already planned.
+ */
+public class CourierRoute {
+
+    private static final int INITIAL_STOPS = 8;
+
+    private final int deliveryGuy;
+    private final DeliveryType deliveryType;
+    private Location start;
+    private int onBoard;
+
+    // the point 0 is the start and the point k is stops[k - 1]. legs[k] is the distance from the point k to
+    // the point k + 1, and deadlines[k] is the latest arrival at stops[k] in minutes, -1 for none.
+    private RouteStop[] stops = new RouteStop[INITIAL_STOPS];
+    private int[] legs = new int[INITIAL_STOPS];
+    private int[] deadlines = new int[INITIAL_STOPS];
+    private int size;
+
+    CourierRoute(int deliveryGuy, DeliveryType deliveryType, Location start) {
+        this.deliveryGuy = deliveryGuy;
+        this.deliveryType = deliveryType;
+        this.start = start;
+    }
+
+    /**
+     * Returns the index of the delivery guy of the route in the control center
+     *
+     * @return int index of the delivery guy
+     */
+    public int getDeliveryGuy() {
+        return deliveryGuy;
+    }
+
+    public DeliveryType getDeliveryType() {
+        return deliveryType;
+    }
+
+    /**
+     * Returns where the route starts, the location of the delivery guy or his last completed stop
+     *
+     * @return Location of the start
+     */
+    public Location getStart() {
+        return start;
+    }
+
+    public List<RouteStop> getStops() {
+        return List.of(Arrays.copyOf(stops, size));
+    }
+
+    /**
+     * Returns the distance from the start to the last stop
+     *
+     * @return int distance of the route
+     */
+    public int getDistance() {
+        int distance = 0;
+        for (int k = 0; k < size; k++) {
+            distance += legs[k];
+        }
+        return distance;
+    }
+
+    /**
+     * Returns the minutes from the start until the stop is reached
+     *
+     * @param stop the index of the stop in getStops()
+     * @return     the arrival time in minutes
+     */
+    public int getArrivalTime(int stop) {
+        if (stop < 0 || stop >= size) {
+            throw new IllegalArgumentException("There is no stop with index " + stop);
+        }
+
+        int distance = 0;
+        for (int k = 0; k <= stop; k++) {
+            distance += legs[k];
+        }
+        return distance * deliveryType.getTimePerKM();
+    }
+
+    int size() {
+        return size;
+    }
+
+    int onBoard() {
+        return onBoard;
+    }
+
+    RouteStop stop(int index) {
+        return stops[index];
+    }
+
+    int leg(int point) {
+        return legs[point];
+    }
+
+    int deadline(int index) {
+        return deadlines[index];
+    }
+
+    /**
+     * Returns the location of a point of the route, the start for 0 and the stop k - 1 for k
+     */
+    Location point(int point) {
+        return point == 0 ? start : stops[point - 1].location();
+    }
+
+    /**
+     * Inserts a stop right after a point of the route
+     *
+     * @param after    the point after which the stop comes
+     * @param stop     the new stop
+     * @param legIn    the distance from the point to the new stop
+     * @param legOut   the distance from the new stop to the point that was after the point, ignored if there
+     *                 was none
+     * @param deadline the latest arrival at the stop in minutes, -1 for none
+     */
+    void insert(int after, RouteStop stop, int legIn, int legOut, int deadline) {
+        if (size == stops.length) {
+            stops = Arrays.copyOf(stops, size * 2);
+            legs = Arrays.copyOf(legs, size * 2);
+            deadlines = Arrays.copyOf(deadlines, size * 2);
+        }
+
+        System.arraycopy(stops, after, stops, after + 1, size - after);
+        System.arraycopy(deadlines, after, deadlines, after + 1, size - after);
+        if (after < size) {
+            System.arraycopy(legs, after + 1, legs, after + 2, size - after - 1);
+            legs[after + 1] = legOut;
+        }
+        stops[after] = stop;
+        deadlines[after] = deadline;
+        legs[after] = legIn;
+        size++;
+    }
+
+    /**
+     * Removes the first stop and moves the start to it. The deadlines of the other stops come closer by the
+     * time of the first leg.
+     *
+     * @return the completed stop
+     */
+    RouteStop completeFirst() {
+        RouteStop first = stops[0];
+        int minutes = legs[0] * deliveryType.getTimePerKM();
+
+        System.arraycopy(stops, 1, stops, 0, size - 1);
+        System.arraycopy(legs, 1, legs, 0, size - 1);
+        System.arraycopy(deadlines, 1, deadlines, 0, size - 1);
+        size--;
+        stops[size] = null;
+        for (int k = 0; k < size; k++) {
+            if (deadlines[k] != -1) {
+                deadlines[k] -= minutes;
+            }
+        }
+
+        start = first.location();
+        onBoard += first.pickup() ? 1 : -1;
+        return first;
+    }
+}
@@ -0,0 +1,16 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+/**
+ * Snapshot of the work of an OrderDispatcher
+ *
+ * @param dispatched       the number of orders that got a delivery guy
+ * @param rejected         the number of orders for which there was no available delivery guy
+ * @param retries          the number of times a selected delivery guy was reserved by another order first
+ * @param throughput       the dispatched orders per second since the dispatcher was made
+ * @param meanLatencyNanos the mean time to dispatch an order
+ * @param p99LatencyNanos  the time under which 99% of the orders were dispatched
+ */
+public record DispatchStatistics(long dispatched, long rejected, long retries, double throughput,
+                                 double meanLatencyNanos, long p99LatencyNanos) {
+
+}
@@ -0,0 +1,87 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Hungarian algorithm for the assignment problem in O(n^2 * m) time, where n is the number of rows and
+ * m >= n is the number of columns of the cost matrix.
+ */
+final class MinCostAssignment {
+
+    private MinCostAssignment() {
+    }
+
+    /**
+     * Assigns every row to a different column so that the total cost is minimal
+     *
+     * @param cost the cost matrix with at most as many rows as columns
+     * @return     int[] with the assigned column of every row
+     */
+    static int[] solve(double[][] cost) {
+        int n = cost.length;
+        int m = n == 0 ? 0 : cost[0].length;
+        if (n > m) {
+            throw new IllegalArgumentException("The cost matrix cannot have more rows than columns");
+        }
+
+        // 1-based potentials of the rows and the columns, rowOfColumn[0] is the row being added
+        double[] rowPotential = new double[n + 1];
+        double[] columnPotential = new double[m + 1];
+        int[] rowOfColumn = new int[m + 1];
+        int[] previousColumn = new int[m + 1];
+        double[] minSlack = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+
+        for (int row = 1; row <= n; row++) {
+            rowOfColumn[0] = row;
+            int column = 0;
+            Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+
+            do {
+                used[column] = true;
+                int currentRow = rowOfColumn[column];
+                double delta = Double.POSITIVE_INFINITY;
+                int nextColumn = 0;
+
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) continue;
+
+                    double slack = cost[currentRow - 1][j - 1] - rowPotential[currentRow] - columnPotential[j];
+                    if (slack < minSlack[j]) {
+                        minSlack[j] = slack;
+                        previousColumn[j] = column;
+                    }
+                    if (minSlack[j] < delta) {
+                        delta = minSlack[j];
+                        nextColumn = j;
+                    }
+                }
+
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        rowPotential[rowOfColumn[j]] += delta;
+                        columnPotential[j] -= delta;
+                    } else {
+                        minSlack[j] -= delta;
+                    }
+                }
+                column = nextColumn;
+            } while (rowOfColumn[column] != 0);
+
+            do {
+                int previous = previousColumn[column];
+                rowOfColumn[column] = rowOfColumn[previous];
+                column = previous;
+            } while (column != 0);
+        }
+
+        int[] assignment = new int[n];
+        for (int j = 1; j <= m; j++) {
+            if (rowOfColumn[j] != 0) {
+                assignment[rowOfColumn[j] - 1] = j - 1;
+            }
+        }
+        return assignment;
+    }
+}
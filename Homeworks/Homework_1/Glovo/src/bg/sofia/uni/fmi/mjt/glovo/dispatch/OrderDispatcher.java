@@ -0,0 +1,166 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.SelectedDeliveryGuy;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryInfo;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.exception.NoAvailableDeliveryGuyException;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe dispatcher of orders. Every order reserves the delivery guy that it gets, so concurrent orders
+ * never share a delivery guy, and the delivery guy becomes available again when the delivery is completed.
+ */
+public class OrderDispatcher implements AutoCloseable {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double P99 = 99;
+
+    private final ControlCenter controlCenter;
+    private final CourierReservations reservations;
+    private final ExecutorService executor;
+    private final Map<Delivery, Integer> inProgress = new ConcurrentHashMap<>();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Makes a dispatcher that handles every submitted order on its own virtual thread
+     *
+     * @param controlCenter the control center of the map
+     */
+    public OrderDispatcher(ControlCenter controlCenter) {
+        this(controlCenter, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Makes a dispatcher that handles the submitted orders on the given executor
+     *
+     * @param controlCenter the control center of the map
+     * @param executor      the executor of the submitted orders, closed together with the dispatcher
+     */
+    public OrderDispatcher(ControlCenter controlCenter, ExecutorService executor) {
+        if (controlCenter == null || executor == null) {
+            throw new IllegalArgumentException("The control center and the executor cannot be null");
+        }
+
+        this.controlCenter = controlCenter;
+        this.reservations = new CourierReservations(controlCenter.getDeliveryGuysCount());
+        this.executor = executor;
+    }
+
+    /**
+     * Dispatches the order asynchronously
+     *
+     * @param order the order to dispatch
+     * @return      a future of the delivery, completed exceptionally with NoAvailableDeliveryGuyException if
+     *              all delivery guys that can reach the restaurant and the client are busy
+     */
+    public CompletableFuture<Delivery> submit(Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("The order cannot be null");
+        }
+        return CompletableFuture.supplyAsync(() -> dispatch(order), executor);
+    }
+
+    /**
+     * Dispatches the order on the calling thread and reserves the selected delivery guy until the delivery
+     * is completed
+     *
+     * @param order the order to dispatch
+     * @return      the delivery of the order
+     * @throws NoAvailableDeliveryGuyException if all delivery guys that can make the delivery are busy
+     */
+    public Delivery dispatch(Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("The order cannot be null");
+        }
+
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                SelectedDeliveryGuy selected = controlCenter.selectDeliveryGuy(order.restaurant().location(),
+                        order.client().location(), -1, -1, order.shippingMethod(), RoutingStrategy.AUTO,
+                        reservations::isAvailable);
+
+                if (selected == null) {
+                    rejected.increment();
+                    throw new NoAvailableDeliveryGuyException("No available delivery guy for the requested route.");
+                }
+
+                int deliveryGuy = selected.index();
+                DeliveryInfo info = selected.deliveryInfo();
+                if (reservations.tryReserve(deliveryGuy)) {
+                    // the delivery guy may have moved since the search, then the order is searched again
+                    if (controlCenter.getDeliveryGuy(deliveryGuy).location().equals(info.deliveryGuyLocation())) {
+                        dispatched.increment();
+                        Delivery delivery = new Delivery(order.client().location(), order.restaurant().location(),
+                                info.deliveryGuyLocation(), order.foodItem(), info.price(), info.estimatedTime());
+                        inProgress.put(delivery, deliveryGuy);
+                        return delivery;
+                    }
+                    reservations.release(deliveryGuy);
+                }
+                retries.increment();
+            }
+        } finally {
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Completes the delivery and makes its delivery guy available for other orders
+     *
+     * @param delivery a delivery returned by this dispatcher, even if its delivery guy has moved since then
+     * @throws IllegalStateException if the delivery is not in progress
+     */
+    public void complete(Delivery delivery) {
+        if (delivery == null) {
+            throw new IllegalArgumentException("The delivery cannot be null");
+        }
+
+        Integer deliveryGuy = inProgress.remove(delivery);
+        if (deliveryGuy == null) {
+            throw new IllegalStateException("The delivery is not in progress");
+        }
+        reservations.release(deliveryGuy);
+    }
+
+    /**
+     * Returns the number of the delivery guys that are busy with a delivery
+     *
+     * @return int number of busy delivery guys
+     */
+    public int getBusyDeliveryGuysCount() {
+        return reservations.reservedCount();
+    }
+
+    /**
+     * Returns the throughput and the latency of the dispatched orders so far
+     *
+     * @return DispatchStatistics snapshot
+     */
+    public DispatchStatistics getStatistics() {
+        long dispatchedCount = dispatched.sum();
+        double seconds = (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+
+        return new DispatchStatistics(dispatchedCount, rejected.sum(), retries.sum(),
+                seconds == 0 ? 0 : dispatchedCount / seconds, latencies.mean(), latencies.percentile(P99));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
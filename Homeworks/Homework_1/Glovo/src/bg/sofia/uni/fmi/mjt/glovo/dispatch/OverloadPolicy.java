@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+/**
+ * What happens to a new order when the queue of the waiting orders is full
+ */
+public enum OverloadPolicy {
+
+    /**
+     * The new order is rejected, and the orders already waiting keep their places
+     */
+    REJECT,
+
+    /**
+     * The order that has waited the longest is rejected to make room for the new one, so the answered
+     * orders are the freshest ones
+     */
+    DROP_OLDEST,
+
+    /**
+     * The caller waits until there is room in the queue, which slows down the submitting side to the speed
+     * of the searches
+     */
+    BLOCK
+
+}
@@ -0,0 +1,247 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.DistanceField;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+
+import java.util.List;
+
+/**
+ * Plans routes with many orders per delivery guy. A new order is inserted where it adds the least to the
+ * routes: its pickup and its dropoff are tried in every pair of places of every route, keeping the pickup
+ * before the dropoff, the orders on board within the capacity and every stop within its deadline.
+ * <p>
+ * The roads from and to the restaurant and the client of the order are read from two distance fields, one
+ * search each, so trying a place costs a few table lookups and the routes are never searched again.
+ * The planner is thread-safe, the orders are planned one at a time.
+ */
+public class RoutePlanner {
+
+    private static final int NONE = -1;
+    private static final int NO_DEADLINE = Integer.MAX_VALUE;
+
+    private final ControlCenter controlCenter;
+    private final int capacity;
+    private final CourierRoute[] routes;
+
+    // the place of the best insertion found by the last call of tryRoute
+    private int bestPickup;
+    private int bestDropoff;
+
+    /**
+     * Makes an empty route for every delivery guy of the control center
+     *
+     * @param controlCenter the control center of the map
+     * @param capacity      the most orders a delivery guy carries at once
+     */
+    public RoutePlanner(ControlCenter controlCenter, int capacity) {
+        if (controlCenter == null) {
+            throw new IllegalArgumentException("The control center cannot be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity should be positive");
+        }
+
+        this.controlCenter = controlCenter;
+        this.capacity = capacity;
+        this.routes = new CourierRoute[controlCenter.getDeliveryGuysCount()];
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = new CourierRoute(i, controlCenter.getDeliveryGuyType(i),
+                    controlCenter.getDeliveryGuy(i).location());
+        }
+    }
+
+    /**
+     * Inserts the order in the route where it adds the least cost: the price of the added kilometres for
+     * the cheapest orders and their time for the fastest ones. On equal costs the delivery guy with the
+     * lower index gets the order.
+     *
+     * @param order   the order to plan
+     * @param maxTime the minutes from now until the order has to be delivered, -1 for no limit
+     * @return        the CourierRoute the order was inserted in, null if no delivery guy can take it
+     */
+    public synchronized CourierRoute addOrder(Order order, int maxTime) {
+        if (order == null) {
+            throw new IllegalArgumentException("The order cannot be null");
+        }
+        if (maxTime < NONE) {
+            throw new IllegalArgumentException("The time limit cannot be negative");
+        }
+
+        DistanceField[] restaurantFields = controlCenter.findDistanceFields(order.restaurant().location());
+        DistanceField[] clientFields = controlCenter.findDistanceFields(order.client().location());
+
+        CourierRoute best = null;
+        double bestCost = Double.MAX_VALUE;
+        int pickup = NONE;
+        int dropoff = NONE;
+        for (CourierRoute route : routes) {
+            DeliveryType deliveryType = route.getDeliveryType();
+            int added = tryRoute(route, order, restaurantFields[deliveryType.ordinal()],
+                    clientFields[deliveryType.ordinal()], maxTime);
+            if (added == NONE) {
+                continue;
+            }
+
+            double cost = added * (order.shippingMethod() == ShippingMethod.CHEAPEST ?
+                    deliveryType.getPricePerKM() : deliveryType.getTimePerKM());
+            if (cost < bestCost) {
+                best = route;
+                bestCost = cost;
+                pickup = bestPickup;
+                dropoff = bestDropoff;
+            }
+        }
+
+        if (best != null) {
+            insert(best, order, restaurantFields[best.getDeliveryType().ordinal()],
+                    clientFields[best.getDeliveryType().ordinal()], pickup, dropoff, maxTime);
+        }
+        return best;
+    }
+
+    /**
+     * Marks the next stop of the delivery guy as reached
+     *
+     * @param deliveryGuy the index of the delivery guy
+     * @return            the reached RouteStop
+     * @throws IllegalStateException if the route of the delivery guy has no stops
+     */
+    public synchronized RouteStop completeNextStop(int deliveryGuy) {
+        if (deliveryGuy < 0 || deliveryGuy >= routes.length) {
+            throw new IllegalArgumentException("There is no delivery guy with index " + deliveryGuy);
+        }
+        if (routes[deliveryGuy].size() == 0) {
+            throw new IllegalStateException("The delivery guy has no stops left");
+        }
+        return routes[deliveryGuy].completeFirst();
+    }
+
+    public synchronized List<CourierRoute> getRoutes() {
+        return List.of(routes);
+    }
+
+    public synchronized List<RouteStop> getStops(int deliveryGuy) {
+        if (deliveryGuy < 0 || deliveryGuy >= routes.length) {
+            throw new IllegalArgumentException("There is no delivery guy with index " + deliveryGuy);
+        }
+        return routes[deliveryGuy].getStops();
+    }
+
+    /**
+     * Finds the cheapest place of the order in the route. The pickup goes after the point i and the dropoff
+     * after the point j >= i of the route, where j == i means right after the pickup. A delay d of the points
+     * from p on is allowed if d is at most the smallest slack of these points, the kilometres they can still
+     * be late by.
+     *
+     * @return the added kilometres, -1 if the order does not fit in the route. The place is left in
+     *         bestPickup and bestDropoff.
+     */
+    private int tryRoute(CourierRoute route, Order order, DistanceField restaurant, DistanceField client,
+                         int maxTime) {
+        int betweenStops = restaurant.from(order.client().location());
+        if (betweenStops == NONE) {
+            return NONE;
+        }
+
+        int size = route.size();
+        int timePerKM = route.getDeliveryType().getTimePerKM();
+        int maxDistance = maxTime == NONE ? NO_DEADLINE : maxTime / timePerKM;
+
+        // arrival[p] is the distance to the point p, load[p] the orders on board after it and minSlack[p] the
+        // smallest slack of the points from p on
+        int[] arrival = new int[size + 1];
+        int[] load = new int[size + 1];
+        int[] minSlack = new int[size + 2];
+        load[0] = route.onBoard();
+        for (int p = 1; p <= size; p++) {
+            arrival[p] = arrival[p - 1] + route.leg(p - 1);
+            load[p] = load[p - 1] + (route.stop(p - 1).pickup() ? 1 : -1);
+        }
+        minSlack[size + 1] = NO_DEADLINE;
+        for (int p = size; p >= 1; p--) {
+            int deadline = route.deadline(p - 1);
+            int slack = deadline == NONE ? NO_DEADLINE : deadline / timePerKM - arrival[p];
+            minSlack[p] = Math.min(slack, minSlack[p + 1]);
+        }
+
+        int best = NONE;
+        for (int i = 0; i <= size; i++) {
+            int toRestaurant = restaurant.to(route.point(i));
+            if (toRestaurant == NONE || load[i] >= capacity) {
+                continue;
+            }
+
+            int fromRestaurant = i < size ? restaurant.from(route.point(i + 1)) : 0;
+            if (fromRestaurant == NONE) {
+                continue;
+            }
+            int pickupDetour = toRestaurant + fromRestaurant - (i < size ? route.leg(i) : 0);
+
+            // the dropoff right after the pickup
+            int direct = toRestaurant + betweenStops;
+            int fromClient = i < size ? client.from(route.point(i + 1)) : 0;
+            if (fromClient != NONE) {
+                int added = direct + fromClient - (i < size ? route.leg(i) : 0);
+                if (added <= minSlack[i + 1] && arrival[i] + direct <= maxDistance
+                        && (best == NONE || added < best)) {
+                    best = added;
+                    bestPickup = i;
+                    bestDropoff = i;
+                }
+            }
+
+            // the dropoff after a later point j, delaying the points i + 1..j by the pickup detour
+            int slackBetween = NO_DEADLINE;
+            for (int j = i + 1; j <= size; j++) {
+                if (load[j] >= capacity) {
+                    break;
+                }
+                int deadline = route.deadline(j - 1);
+                slackBetween = Math.min(slackBetween,
+                        deadline == NONE ? NO_DEADLINE : deadline / timePerKM - arrival[j]);
+                if (pickupDetour > slackBetween) {
+                    break;
+                }
+
+                int toClient = client.to(route.point(j));
+                fromClient = j < size ? client.from(route.point(j + 1)) : 0;
+                if (toClient == NONE || fromClient == NONE) {
+                    continue;
+                }
+
+                int added = pickupDetour + toClient + fromClient - (j < size ? route.leg(j) : 0);
+                if (added <= minSlack[j + 1] && arrival[j] + pickupDetour + toClient <= maxDistance
+                        && (best == NONE || added < best)) {
+                    best = added;
+                    bestPickup = i;
+                    bestDropoff = j;
+                }
+            }
+        }
+        return best;
+    }
+
+    private void insert(CourierRoute route, Order order, DistanceField restaurant, DistanceField client,
+                        int pickup, int dropoff, int maxTime) {
+        RouteStop restaurantStop = new RouteStop(order, true);
+        RouteStop clientStop = new RouteStop(order, false);
+        int size = route.size();
+
+        if (pickup == dropoff) {
+            route.insert(pickup, restaurantStop, restaurant.to(route.point(pickup)),
+                    pickup < size ? restaurant.from(route.point(pickup + 1)) : 0, NONE);
+            route.insert(pickup + 1, clientStop, restaurant.from(clientStop.location()),
+                    pickup < size ? client.from(route.point(pickup + 2)) : 0, maxTime);
+            return;
+        }
+
+        // the dropoff first, so the points up to the pickup keep their indexes
+        route.insert(dropoff, clientStop, client.to(route.point(dropoff)),
+                dropoff < size ? client.from(route.point(dropoff + 1)) : 0, maxTime);
+        route.insert(pickup, restaurantStop, restaurant.to(route.point(pickup)),
+                restaurant.from(route.point(pickup + 1)), NONE);
+    }
+}
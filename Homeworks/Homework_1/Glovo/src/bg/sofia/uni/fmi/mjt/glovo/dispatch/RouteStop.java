@@ -0,0 +1,17 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+
+/**
+ * A stop of a courier route, where the order is picked up at its restaurant or dropped off at its client
+ *
+ * @param order  the order of the stop
+ * @param pickup true for the restaurant of the order, false for the client
+ */
+public record RouteStop(Order order, boolean pickup) {
+
+    public Location location() {
+        return pickup ? order.restaurant().location() : order.client().location();
+    }
+}
@@ -0,0 +1,17 @@
+package bg.sofia.uni.fmi.mjt.glovo.exception;
+
+public class OrderRejectedException extends RuntimeException {
+
+    public OrderRejectedException(String message) {
+
+        super(message);
+
+    }
+
+    public OrderRejectedException(String message, Throwable cause) {
+
+        super(message, cause);
+
+    }
+
+}
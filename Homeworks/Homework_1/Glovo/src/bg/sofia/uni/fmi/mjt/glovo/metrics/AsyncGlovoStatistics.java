@@ -0,0 +1,23 @@
+package bg.sofia.uni.fmi.mjt.glovo.metrics;
+
+/**
+ * Snapshot of the queue and the results of an AsyncGlovo
+ *
+ * @param queueDepth          the number of requests waiting for a worker now
+ * @param maxQueueDepth       the most requests that have waited at once
+ * @param queueCapacity       the most requests that can wait at once
+ * @param activeWorkers       the number of workers running a request now
+ * @param submitted           the number of submitted requests
+ * @param completed           the number of requests that completed normally
+ * @param failed              the number of requests that completed with an exception, other than the shed ones
+ * @param shed                the number of requests rejected because the queue was full or closed
+ * @param droppedResults      the number of order results that a subscriber had no room for
+ * @param resultLag           the most results that a subscriber has not consumed yet
+ * @param meanQueueWaitNanos  the mean time that a request waited for a worker
+ * @param p99QueueWaitNanos   the time under which 99% of the requests got a worker
+ */
+public record AsyncGlovoStatistics(int queueDepth, int maxQueueDepth, int queueCapacity, int activeWorkers,
+                                   long submitted, long completed, long failed, long shed, long droppedResults,
+                                   int resultLag, double meanQueueWaitNanos, long p99QueueWaitNanos) {
+
+}
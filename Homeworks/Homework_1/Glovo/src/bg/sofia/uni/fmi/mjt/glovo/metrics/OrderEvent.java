@@ -0,0 +1,19 @@
+package bg.sofia.uni.fmi.mjt.glovo.metrics;
+
+/**
+ * The timings of a single order
+ *
+ * @param validationNanos      the time to check the order and its locations
+ * @param candidateSearchNanos the time of the searches of the roads to the client and the delivery guys
+ * @param selectionNanos       the time to compare the candidates and select the optimal one
+ * @param visitedCells         the number of the cells visited by the searches, 0 for the distances that were
+ *                             cached or precomputed
+ * @param delivered            true if the order got a delivery guy
+ */
+public record OrderEvent(long validationNanos, long candidateSearchNanos, long selectionNanos,
+                         long visitedCells, boolean delivered) {
+
+    public long totalNanos() {
+        return validationNanos + candidateSearchNanos + selectionNanos;
+    }
+}
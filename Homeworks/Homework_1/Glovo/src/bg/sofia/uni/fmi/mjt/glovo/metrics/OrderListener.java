@@ -0,0 +1,16 @@
+package bg.sofia.uni.fmi.mjt.glovo.metrics;
+
+/**
+ * Receives every order recorded by OrderMetrics. It is called on the thread that handled the order, right
+ * after the order is answered, so it should return quickly.
+ */
+@FunctionalInterface
+public interface OrderListener {
+
+    /**
+     * Called once for every recorded order
+     *
+     * @param event the timings of the order
+     */
+    void onOrder(OrderEvent event);
+}
@@ -0,0 +1,106 @@
+package bg.sofia.uni.fmi.mjt.glovo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the timings of the orders of a control center in lock-free counters and histograms. The metrics
+ * are pulled with snapshot() or pushed to a listener as every order ends. They are disabled at first, and
+ * while they are disabled an order costs a single read of a volatile flag and allocates nothing.
+ */
+public class OrderMetrics {
+
+    private volatile boolean enabled;
+    private volatile OrderListener listener;
+
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder visitedCells = new LongAdder();
+    private final LatencyHistogram validation = new LatencyHistogram();
+    private final LatencyHistogram candidateSearch = new LatencyHistogram();
+    private final LatencyHistogram selection = new LatencyHistogram();
+    private final LatencyHistogram total = new LatencyHistogram();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording the orders. The orders that started before the change are recorded the way
+     * they started.
+     *
+     * @param enabled true to record the orders
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Sets the listener that receives every recorded order, in addition to the counters and histograms
+     *
+     * @param listener the listener, null to remove it
+     */
+    public void setListener(OrderListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts timing an order
+     *
+     * @return a new OrderTimer, null if the metrics are disabled
+     */
+    public OrderTimer startOrder() {
+        return enabled ? new OrderTimer() : null;
+    }
+
+    /**
+     * Records an order that has been answered
+     *
+     * @param timer     the timer of the order returned by startOrder(), nothing is recorded if it is null
+     * @param delivered true if the order got a delivery guy
+     */
+    public void record(OrderTimer timer, boolean delivered) {
+        if (timer == null) {
+            return;
+        }
+
+        OrderEvent event = timer.finish(delivered);
+        orders.increment();
+        if (delivered) {
+            this.delivered.increment();
+        }
+        visitedCells.add(event.visitedCells());
+        validation.record(event.validationNanos());
+        candidateSearch.record(event.candidateSearchNanos());
+        selection.record(event.selectionNanos());
+        total.record(event.totalNanos());
+
+        OrderListener current = listener;
+        if (current != null) {
+            current.onOrder(event);
+        }
+    }
+
+    /**
+     * Returns the metrics of the orders recorded so far
+     *
+     * @return OrderMetricsSnapshot snapshot
+     */
+    public OrderMetricsSnapshot snapshot() {
+        return new OrderMetricsSnapshot(orders.sum(), delivered.sum(), visitedCells.sum(),
+                PhaseStatistics.of(validation), PhaseStatistics.of(candidateSearch),
+                PhaseStatistics.of(selection), PhaseStatistics.of(total));
+    }
+
+    /**
+     * Forgets the recorded orders
+     */
+    public void reset() {
+        orders.reset();
+        delivered.reset();
+        visitedCells.reset();
+        validation.reset();
+        candidateSearch.reset();
+        selection.reset();
+        total.reset();
+    }
+}
@@ -0,0 +1,18 @@
+package bg.sofia.uni.fmi.mjt.glovo.metrics;
+
+/**
+ * Snapshot of the orders recorded by OrderMetrics
+ *
+ * @param orders          the number of recorded orders
+ * @param delivered       the number of recorded orders that got a delivery guy
+ * @param visitedCells    the number of the cells visited by the searches of all recorded orders
+ * @param validation      the latencies of the validation of the orders
+ * @param candidateSearch the latencies of the searches of the candidates
+ * @param selection       the latencies of the selection of the optimal delivery guy
+ * @param total           the latencies of the whole orders
+ */
+public record OrderMetricsSnapshot(long orders, long delivered, long visitedCells, PhaseStatistics validation,
+                                   PhaseStatistics candidateSearch, PhaseStatistics selection,
+                                   PhaseStatistics total) {
+
+}
@@ -0,0 +1,58 @@
+package bg.sofia.uni.fmi.mjt.glovo.metrics;
+
+/**
+ * Measures the phases of a single order on the thread that handles it. The order is validated first, and
+ * after that its time is split between the searches of the candidate delivery guys and the selection among
+ * them. A timer is made by OrderMetrics.startOrder() only while the metrics are enabled, so the orders do not
+ * pay for the timer otherwise.
+ */
+public final class OrderTimer {
+
+    private final long startNanos;
+    private long validatedNanos;
+    private long searchNanos;
+    private long visitedCells;
+
+    OrderTimer() {
+        this.startNanos = System.nanoTime();
+        this.validatedNanos = startNanos;
+    }
+
+    /**
+     * Marks the end of the validation. Everything since the start of the order until now is validation,
+     * so it can be called again after a later check.
+     */
+    public void validated() {
+        validatedNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds the time of a search of candidates that started at the given time
+     *
+     * @param searchStartNanos the System.nanoTime() before the search
+     */
+    public void searched(long searchStartNanos) {
+        searchNanos += System.nanoTime() - searchStartNanos;
+    }
+
+    /**
+     * Adds cells visited by a search
+     *
+     * @param cells the number of the visited cells
+     */
+    public void addVisitedCells(long cells) {
+        visitedCells += cells;
+    }
+
+    /**
+     * Ends the order
+     *
+     * @param delivered true if the order got a delivery guy
+     * @return          the OrderEvent of the order
+     */
+    OrderEvent finish(boolean delivered) {
+        long validationNanos = validatedNanos - startNanos;
+        long selectionNanos = Math.max(0, System.nanoTime() - validatedNanos - searchNanos);
+        return new OrderEvent(validationNanos, searchNanos, selectionNanos, visitedCells, delivered);
+    }
+}
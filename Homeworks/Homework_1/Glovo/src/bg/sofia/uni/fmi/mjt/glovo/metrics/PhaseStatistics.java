@@ -0,0 +1,17 @@
+package bg.sofia.uni.fmi.mjt.glovo.metrics;
+
+/**
+ * Snapshot of the latencies of one phase of the orders
+ *
+ * @param meanNanos the mean latency
+ * @param p50Nanos  the latency under which half of the orders were
+ * @param p99Nanos  the latency under which 99% of the orders were
+ * @param p999Nanos the latency under which 99.9% of the orders were
+ */
+public record PhaseStatistics(double meanNanos, long p50Nanos, long p99Nanos, long p999Nanos) {
+
+    static PhaseStatistics of(LatencyHistogram histogram) {
+        return new PhaseStatistics(histogram.mean(), histogram.percentile(50), histogram.percentile(99),
+                histogram.percentile(99.9));
+    }
+}
@@ -1,20 +1,60 @@
 package bg.sofia.uni.fmi.mjt.glovo;
 
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.SearchStatistics;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
 import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.ArrayCellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.CellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.Direction;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.EncodedPath;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.HierarchicalSearch;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.MapFile;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.shard.ShardedControlCenter;
 import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryInfo;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.DeliveryType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.OrderResult;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.dispatch.OverloadPolicy;
+import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidLocationEntityException;
 import bg.sofia.uni.fmi.mjt.glovo.exception.InvalidOrderException;
 import bg.sofia.uni.fmi.mjt.glovo.exception.NoAvailableDeliveryGuyException;
+import bg.sofia.uni.fmi.mjt.glovo.exception.OrderRejectedException;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.OrderEvent;
+import bg.sofia.uni.fmi.mjt.glovo.metrics.OrderMetricsSnapshot;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class GlovoTest {
 
+    private static final long SEED = 42;
+
     @Test
     void testGetCheapestDelivery() throws NoAvailableDeliveryGuyException {
         char[][] layout = {
@@ -320,4 +360,768 @@ class GlovoTest {
         assertTrue(fastestDelivery.getPrice() > 0, "The price of the delivery must be positive");
         assertTrue(fastestDelivery.getEstimatedTime() > 0, "Estimated time should be calculated correctly");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testPrecomputedDistancesMatchSearchOnTheMap() throws NoAvailableDeliveryGuyException {
+        char[][] layout = {
+                {'#', '#', '#', '#', '#', '#', '#', '#', '#', '#'},
+                {'#', 'R', '.', '.', '.', 'A', 'B', '.', 'C', '#'},
+                {'#', '.', '#', '#', '#', '.', '#', '#', '.', '#'},
+                {'#', '.', '.', '.', '#', '.', '.', '.', '.', '#'},
+                {'#', '#', '#', '.', '#', '#', '#', '#', '.', '#'},
+                {'#', 'B', '#', '.', '.', '.', '.', '#', '.', '#'},
+                {'#', '.', '#', '#', '#', '#', '.', '#', '.', '#'},
+                {'#', '.', '.', '#', '#', '#', '.', '.', '.', '#'},
+                {'#', 'A', '.', 'B', '#', '.', '.', 'A', '.', '#'},
+                {'#', '#', '#', '#', '#', '#', '#', '#', '#', '#'}
+        };
+
+        GlovoApi glovo = new Glovo(layout);
+        GlovoApi precomputed = new Glovo(layout, -1);
+        GlovoApi bounded = new Glovo(layout, 1);
+
+        MapEntity client = new MapEntity(new Location(1, 8), MapEntityType.CLIENT);
+        MapEntity restaurant = new MapEntity(new Location(1, 1), MapEntityType.RESTAURANT);
+        String foodItem = "Burger";
+
+        Delivery expected = glovo.getFastestDelivery(client, restaurant, foodItem);
+
+        for (GlovoApi cached : new GlovoApi[] {precomputed, bounded}) {
+            Delivery delivery = cached.getFastestDelivery(client, restaurant, foodItem);
+            assertEquals(expected.getDeliveryGuyLocation(), delivery.getDeliveryGuyLocation(),
+                    "Precomputed distances should select the same delivery guy");
+            assertEquals(expected.getPrice(), delivery.getPrice(), "Price should be calculated correctly");
+            assertEquals(expected.getEstimatedTime(), delivery.getEstimatedTime(),
+                    "Estimated time should be calculated correctly");
+        }
+    }
+
+    @Test
+    void testRoutingStrategiesGiveTheSameDeliveriesOnWalledMaps() {
+        List<char[][]> layouts = new ArrayList<>();
+        layouts.add(new char[][] {
+                {'A', '.', '#', '.', 'C'},
+                {'.', '#', 'R', '#', '.'},
+                {'B', '.', '#', '.', '.'}
+        });
+        layouts.add(new char[][] {
+                {'A', '.', '.', '#', 'C'},
+                {'.', '#', 'R', '#', '#'},
+                {'B', '.', '.', '.', '.'}
+        });
+        Random random = new Random(SEED);
+        for (int map = 0; map < 40; map++) {
+            layouts.add(randomLayout(random, 2 + random.nextInt(16), 1 + random.nextInt(16), false));
+        }
+
+        RoutingStrategy[] strategies = {RoutingStrategy.BIDIRECTIONAL_BFS, RoutingStrategy.A_STAR,
+                RoutingStrategy.AUTO};
+        for (char[][] layout : layouts) {
+            ControlCenter controlCenter = new ControlCenter(layout);
+            for (Location restaurant : locationsOf(layout, MapEntityType.RESTAURANT)) {
+                for (Location client : locationsOf(layout, MapEntityType.CLIENT)) {
+                    for (ShippingMethod shippingMethod : ShippingMethod.values()) {
+                        DeliveryInfo expected = controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1,
+                                shippingMethod, RoutingStrategy.BFS);
+                        for (RoutingStrategy strategy : strategies) {
+                            assertEquals(expected, controlCenter.findOptimalDeliveryGuy(restaurant, client, -1,
+                                            -1, shippingMethod, strategy),
+                                    strategy + " should find the same delivery as BFS from " + restaurant + " to "
+                                            + client);
+                        }
+                    }
+                }
+            }
+        }
+
+        ControlCenter walledRestaurant = new ControlCenter(layouts.get(0));
+        assertNull(walledRestaurant.findOptimalDeliveryGuy(new Location(1, 2), new Location(0, 4), -1, -1,
+                        ShippingMethod.CHEAPEST, RoutingStrategy.A_STAR),
+                "A walled in restaurant should not be reached");
+        ControlCenter walledClient = new ControlCenter(layouts.get(1));
+        assertNull(walledClient.findOptimalDeliveryGuy(new Location(1, 2), new Location(0, 4), -1, -1,
+                        ShippingMethod.CHEAPEST, RoutingStrategy.BIDIRECTIONAL_BFS),
+                "A walled in client should not be reached");
+    }
+
+    @Test
+    void testBatchDeliveriesUseDifferentDeliveryGuys() {
+        char[][] layout = {
+                {'#', '#', '#', '.', '#'},
+                {'#', '.', 'B', 'R', '.'},
+                {'.', '.', '#', '.', '#'},
+                {'#', 'C', '.', 'A', '.'},
+                {'#', '.', '#', '#', '#'}
+        };
+
+        GlovoApi glovo = new Glovo(layout);
+
+        MapEntity client = new MapEntity(new Location(3, 1), MapEntityType.CLIENT);
+        MapEntity restaurant = new MapEntity(new Location(1, 3), MapEntityType.RESTAURANT);
+        Order cheapest = new Order(client, restaurant, "Pizza", ShippingMethod.CHEAPEST);
+        Order fastest = new Order(client, restaurant, "Sushi", ShippingMethod.FASTEST);
+        Order unserved = new Order(client, restaurant, "Pasta", ShippingMethod.FASTEST);
+
+        List<Delivery> deliveries = glovo.getBatchDeliveries(List.of(cheapest, fastest, unserved));
+
+        assertEquals(3, deliveries.size(), "There should be a result for every order");
+        assertNotNull(deliveries.get(0), "The first order should get a delivery guy");
+        assertNotNull(deliveries.get(1), "The second order should get a delivery guy");
+        assertNotEquals(deliveries.get(0).getDeliveryGuyLocation(), deliveries.get(1).getDeliveryGuyLocation(),
+                "The orders of a batch should get different delivery guys");
+        assertNull(deliveries.get(2), "There are only two delivery guys for three orders");
+    }
+
+    @Test
+    void testMapFileGivesTheSameDeliveriesAsTheLayout() throws IOException, NoAvailableDeliveryGuyException {
+        char[][] layout = {
+                {'#', '#', '#', '.', '#'},
+                {'#', '.', 'B', 'R', '.'},
+                {'.', '.', '#', '.', '#'},
+                {'#', 'C', '.', 'A', '.'},
+                {'#', '.', '#', '#', '#'}
+        };
+
+        Path mapFile = Files.createTempFile("glovo", ".map");
+        try {
+            MapFile.write(mapFile, layout);
+            GlovoApi mapped = new Glovo(mapFile);
+            GlovoApi glovo = new Glovo(layout);
+
+            MapEntity client = new MapEntity(new Location(3, 1), MapEntityType.CLIENT);
+            MapEntity restaurant = new MapEntity(new Location(1, 3), MapEntityType.RESTAURANT);
+
+            Delivery expected = glovo.getCheapestDelivery(client, restaurant, "Pizza");
+            Delivery delivery = mapped.getCheapestDelivery(client, restaurant, "Pizza");
+
+            assertEquals(expected.getDeliveryGuyLocation(), delivery.getDeliveryGuyLocation(),
+                    "The map file should select the same delivery guy");
+            assertEquals(expected.getPrice(), delivery.getPrice(), "Price should be calculated correctly");
+            assertEquals(expected.getEstimatedTime(), delivery.getEstimatedTime(),
+                    "Estimated time should be calculated correctly");
+        } finally {
+            Files.delete(mapFile);
+        }
+    }
+
+    @Test
+    void testReadOnlyMapFileKeepsTheMovesInMemory() throws IOException {
+        char[][] layout = new char[3][5000];
+        for (char[] row : layout) {
+            Arrays.fill(row, '.');
+        }
+        layout[0][0] = 'A';
+        layout[0][4998] = 'R';
+        layout[0][4999] = 'C';
+
+        Path mapFile = Files.createTempFile("glovo", ".map");
+        try {
+            MapFile.write(mapFile, layout);
+            byte[] written = Files.readAllBytes(mapFile);
+            mapFile.toFile().setReadOnly();
+
+            ControlCenter controlCenter = new ControlCenter(MapFile.open(mapFile), 0);
+            // the second page of the cells
+            controlCenter.moveDeliveryGuy(new Location(0, 0), new Location(0, 4997));
+            DeliveryInfo deliveryInfo = controlCenter.findOptimalDeliveryGuy(new Location(0, 4998),
+                    new Location(0, 4999), -1, -1, ShippingMethod.CHEAPEST);
+
+            assertEquals(new Location(0, 4997), deliveryInfo.deliveryGuyLocation(),
+                    "The delivery guy should be found at his new location");
+            assertEquals(MapEntityType.ROAD, controlCenter.getLayout()[0][0].type(),
+                    "The old location of the delivery guy should be a road");
+            assertEquals(10, deliveryInfo.price(), "Price should be calculated correctly");
+            assertTrue(Arrays.equals(written, Files.readAllBytes(mapFile)), "The map file should not change");
+        } finally {
+            mapFile.toFile().setWritable(true);
+            Files.delete(mapFile);
+        }
+    }
+
+    @Test
+    void testMapFileWithCellsOutsideItsTypesIsRejected() throws IOException {
+        char[][] layout = new char[3][5000];
+        for (char[] row : layout) {
+            Arrays.fill(row, '.');
+        }
+        layout[0][0] = 'A';
+        // the header, the cell of the delivery guy and the first cells
+        int cells = 7 * Integer.BYTES;
+
+        Path mapFile = Files.createTempFile("glovo", ".map");
+        try {
+            MapFile.write(mapFile, layout);
+            byte[] written = Files.readAllBytes(mapFile);
+
+            byte[] unknownTypes = written.clone();
+            unknownTypes[4 * Integer.BYTES] = 1;
+            Files.write(mapFile, unknownTypes);
+            assertThrows(IOException.class, () -> MapFile.open(mapFile), "Unknown types should be rejected");
+
+            byte[] unknownCell = written.clone();
+            unknownCell[cells + 1] = 100;
+            Files.write(mapFile, unknownCell);
+            assertThrows(IOException.class, () -> MapFile.open(mapFile),
+                    "A cell that is not a type should be rejected with the page of the delivery guys");
+
+            byte[] trafficCell = written.clone();
+            // the second page of the cells
+            trafficCell[cells + 4500] = (byte) MapEntityType.TRAFFIC.ordinal();
+            Files.write(mapFile, trafficCell);
+            CellGrid grid = MapFile.open(mapFile);
+            assertThrows(UncheckedIOException.class, () -> grid.type(4500),
+                    "A cell of a type that is not in the header should be rejected when its page is read");
+        } finally {
+            Files.delete(mapFile);
+        }
+    }
+
+    @Test
+    void testTrafficMakesTheBikeFaster() throws NoAvailableDeliveryGuyException {
+        char[][] layout = {
+                {'A', 'T', 'T', 'R', '.', '.', 'B'},
+                {'#', '#', '#', 'C', '#', '#', '#'}
+        };
+
+        GlovoApi glovo = new Glovo(layout);
+
+        MapEntity client = new MapEntity(new Location(1, 3), MapEntityType.CLIENT);
+        MapEntity restaurant = new MapEntity(new Location(0, 3), MapEntityType.RESTAURANT);
+
+        Delivery delivery = glovo.getFastestDelivery(client, restaurant, "Pizza");
+
+        assertEquals(new Location(0, 6), delivery.getDeliveryGuyLocation(),
+                "The car should be slowed down by the traffic");
+        assertEquals(12, delivery.getPrice(), "Price should be calculated correctly");
+        assertEquals(20, delivery.getEstimatedTime(), "Estimated time should be calculated correctly");
+    }
+
+    @Test
+    void testDeliveryGuyMovesOverTrafficAndLeavesItBehind() {
+        char[][] layout = {
+                {'A', 'T', 'P', 'R', '.', '.', 'B'},
+                {'#', '#', '#', 'C', '#', '#', '#'}
+        };
+
+        ControlCenter controlCenter = new ControlCenter(layout);
+        controlCenter.moveDeliveryGuy(new Location(0, 0), new Location(0, 1));
+        controlCenter.moveDeliveryGuy(new Location(0, 1), new Location(0, 2));
+
+        MapEntity[][] map = controlCenter.getLayout();
+        assertEquals(MapEntityType.ROAD, map[0][0].type(), "The start of the delivery guy should be a road");
+        assertEquals(MapEntityType.TRAFFIC, map[0][1].type(), "The traffic should be back after he leaves it");
+        assertEquals(MapEntityType.DELIVERY_GUY_CAR, map[0][2].type(), "The car should be in the pedestrian zone");
+        assertThrows(InvalidLocationEntityException.class,
+                () -> controlCenter.moveDeliveryGuy(new Location(0, 2), new Location(1, 2)),
+                "A delivery guy cannot move into a wall");
+
+        controlCenter.moveDeliveryGuy(new Location(0, 2), new Location(0, 0));
+        assertEquals(MapEntityType.PEDESTRIAN, controlCenter.getLayout()[0][2].type(),
+                "The pedestrian zone should be back after he leaves it");
+        assertEquals(new ControlCenter(layout).findDistance(new Location(0, 0), new Location(0, 3),
+                        DeliveryType.BIKE),
+                controlCenter.findDistance(new Location(0, 0), new Location(0, 3), DeliveryType.BIKE),
+                "The weights of the terrain should be the same as before the moves");
+    }
+
+    @Test
+    void testMovedDeliveryGuyIsChosenFromHisNewLocation() {
+        char[][] layout = {
+                {'A', '.', '.', '.', 'R', 'C', '.', '.', '.', 'A'}
+        };
+        Location restaurant = new Location(0, 4);
+        Location client = new Location(0, 5);
+
+        ControlCenter[] controlCenters = {new ControlCenter(layout), new ControlCenter(layout, -1)};
+        for (ControlCenter controlCenter : controlCenters) {
+            for (RoutingStrategy strategy : new RoutingStrategy[] {RoutingStrategy.BFS, RoutingStrategy.A_STAR}) {
+                assertEquals(new Location(0, 0), controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1,
+                                ShippingMethod.CHEAPEST, strategy).deliveryGuyLocation(),
+                        "The nearer delivery guy should be chosen before the move");
+            }
+
+            controlCenter.moveDeliveryGuy(new Location(0, 9), new Location(0, 6));
+            for (RoutingStrategy strategy : new RoutingStrategy[] {RoutingStrategy.BFS, RoutingStrategy.A_STAR}) {
+                DeliveryInfo deliveryInfo = controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1,
+                        ShippingMethod.CHEAPEST, strategy);
+                assertEquals(new Location(0, 6), deliveryInfo.deliveryGuyLocation(),
+                        "The delivery guy should be chosen from his new location");
+                assertEquals(15, deliveryInfo.price(), "Price should be calculated correctly");
+            }
+            controlCenter.moveDeliveryGuy(new Location(0, 6), new Location(0, 9));
+        }
+    }
+
+    @Test
+    void testInvalidMovesOfADeliveryGuyThrow() {
+        char[][] layout = {
+                {'A', '.', '#', 'R', 'C'}
+        };
+
+        ControlCenter controlCenter = new ControlCenter(layout);
+        Location deliveryGuy = new Location(0, 0);
+        assertThrows(InvalidLocationEntityException.class,
+                () -> controlCenter.moveDeliveryGuy(deliveryGuy, new Location(0, 2)),
+                "A delivery guy cannot move into a wall");
+        assertThrows(InvalidLocationEntityException.class,
+                () -> controlCenter.moveDeliveryGuy(deliveryGuy, new Location(1, 0)),
+                "A delivery guy cannot move outside the map");
+        assertThrows(InvalidLocationEntityException.class,
+                () -> controlCenter.moveDeliveryGuy(deliveryGuy, new Location(0, 3)),
+                "A delivery guy cannot move onto a restaurant");
+        assertThrows(InvalidLocationEntityException.class,
+                () -> controlCenter.moveDeliveryGuy(new Location(0, 1), new Location(0, 0)),
+                "There is no delivery guy to move on a road");
+
+        assertEquals(0, controlCenter.getDeliveryGuyIndex(deliveryGuy),
+                "The failed moves should leave the delivery guy where he was");
+        assertEquals(MapEntityType.ROAD, controlCenter.getLayout()[0][1].type(),
+                "The failed moves should not change the map");
+    }
+
+    @Test
+    void testNearestFirstSearchFindsTheDeliveryGuysAfterMoves() {
+        Random random = new Random(SEED);
+        int rows = 40;
+        int cols = 40;
+        char[][] layout = new char[rows][cols];
+        for (char[] row : layout) {
+            Arrays.fill(row, '.');
+        }
+        for (int i = 0; i < 30; i++) {
+            layout[random.nextInt(rows)][random.nextInt(cols)] = random.nextBoolean() ? 'A' : 'B';
+        }
+        layout[20][20] = 'R';
+        layout[21][20] = 'C';
+
+        ControlCenter controlCenter = new ControlCenter(layout);
+        Location restaurant = new Location(20, 20);
+        Location client = new Location(21, 20);
+        for (int move = 0; move < 200; move++) {
+            int index = random.nextInt(controlCenter.getDeliveryGuysCount());
+            Location to = new Location(random.nextInt(rows), random.nextInt(cols));
+            if (controlCenter.getLayout()[to.x()][to.y()].type() == MapEntityType.ROAD) {
+                controlCenter.moveDeliveryGuy(index, to);
+            }
+
+            for (ShippingMethod shippingMethod : ShippingMethod.values()) {
+                assertEquals(controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1, shippingMethod,
+                                RoutingStrategy.BFS),
+                        controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1, shippingMethod,
+                                RoutingStrategy.A_STAR),
+                        "The buckets should give the delivery guys nearest first after the moves");
+            }
+        }
+    }
+
+    @Test
+    void testLowerBoundsSkipTheFarDeliveryGuysWithoutChangingTheDelivery() {
+        char[][] layout = new char[30][30];
+        for (char[] row : layout) {
+            Arrays.fill(row, '.');
+        }
+        layout[1][1] = 'R';
+        layout[1][2] = 'C';
+        layout[2][1] = 'A';
+        for (int i = 0; i < 10; i++) {
+            layout[29][3 * i] = 'A';
+            layout[3 * i][29] = 'B';
+        }
+        Location restaurant = new Location(1, 1);
+        Location client = new Location(1, 2);
+
+        ControlCenter controlCenter = new ControlCenter(layout);
+        for (ShippingMethod shippingMethod : ShippingMethod.values()) {
+            assertEquals(controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1, shippingMethod,
+                            RoutingStrategy.BFS),
+                    controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1, shippingMethod,
+                            RoutingStrategy.A_STAR),
+                    "The pruned search should find the same delivery as the search of all delivery guys");
+        }
+
+        SearchStatistics statistics = controlCenter.getSearchStatistics();
+        int deliveryGuys = controlCenter.getDeliveryGuysCount();
+        assertEquals(ShippingMethod.values().length, statistics.orders(),
+                "Only the guided orders should be counted");
+        assertEquals(ShippingMethod.values().length * (long) deliveryGuys,
+                statistics.searches() + statistics.skippedSearches(),
+                "Every delivery guy should be either searched or skipped");
+        assertTrue(statistics.skippedSearches() > statistics.searches(),
+                "Most of the far delivery guys should not be searched");
+    }
+
+    @Test
+    void testParetoDeliveriesAreCheapestToFastest() {
+        char[][] layout = {
+                {'#', '#', '#', '.', '#'},
+                {'#', '.', 'B', 'R', '.'},
+                {'.', '.', '#', '.', '#'},
+                {'#', 'C', '.', 'A', '.'},
+                {'#', '.', '#', '#', '#'}
+        };
+
+        GlovoApi glovo = new Glovo(layout);
+
+        MapEntity client = new MapEntity(new Location(3, 1), MapEntityType.CLIENT);
+        MapEntity restaurant = new MapEntity(new Location(1, 3), MapEntityType.RESTAURANT);
+
+        List<Delivery> pareto = glovo.getParetoDeliveries(client, restaurant, "Pizza");
+        List<Delivery> fastest = glovo.getDeliveryAlternatives(client, restaurant, "Pizza", ShippingMethod.FASTEST, 5);
+
+        assertEquals(2, pareto.size(), "Both delivery guys should be on the frontier");
+        assertEquals(new Location(1, 2), pareto.get(0).getDeliveryGuyLocation(), "The bike should be the cheapest");
+        assertEquals(15, pareto.get(0).getPrice(), "Price should be calculated correctly");
+        assertEquals(18, pareto.get(1).getEstimatedTime(), "Estimated time should be calculated correctly");
+        assertEquals(2, fastest.size(), "There should be an option for every delivery guy");
+        assertEquals(new Location(3, 3), fastest.get(0).getDeliveryGuyLocation(), "The car should be the fastest");
+    }
+
+    @Test
+    void testRouteCacheIsDroppedWhenACellChanges() {
+        char[][] layout = {
+                {'A', '.', 'R', '.', 'C'},
+                {'.', '.', '.', '.', '.'}
+        };
+
+        ControlCenter controlCenter = new ControlCenter(layout);
+        Location restaurant = new Location(0, 2);
+        Location client = new Location(0, 4);
+
+        DeliveryInfo first = controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1, ShippingMethod.CHEAPEST);
+        DeliveryInfo second = controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1, ShippingMethod.CHEAPEST);
+
+        assertEquals(first, second, "The cached route should give the same delivery");
+        assertEquals(1, controlCenter.getRouteCacheStatistics().hits(), "The second order should hit the cache");
+
+        controlCenter.changeCell(new Location(0, 3), MapEntityType.WALL);
+        DeliveryInfo detour = controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1, ShippingMethod.CHEAPEST);
+
+        assertEquals(20, first.price(), "Price should be calculated correctly");
+        assertEquals(30, detour.price(), "The closed road should make the delivery go around");
+        assertEquals(1, controlCenter.getRouteCacheStatistics().invalidations(), "The change should drop the cache");
+    }
+
+    @Test
+    void testDeliveryPathGoesThroughTheRestaurant() throws NoAvailableDeliveryGuyException {
+        char[][] layout = {
+                {'A', 'T', 'T', 'R', '.', '.', 'B'},
+                {'#', '#', '#', 'C', '#', '#', '#'}
+        };
+
+        GlovoApi glovo = new Glovo(layout);
+
+        MapEntity client = new MapEntity(new Location(1, 3), MapEntityType.CLIENT);
+        MapEntity restaurant = new MapEntity(new Location(0, 3), MapEntityType.RESTAURANT);
+
+        Delivery delivery = glovo.getFastestDelivery(client, restaurant, "Pizza");
+        EncodedPath path = glovo.getDeliveryPath(delivery);
+
+        assertEquals(4, path.length(), "The path should have a step for every cell");
+        assertEquals(new Location(0, 6), path.start(), "The path should start at the delivery guy");
+        assertEquals(new Location(1, 3), path.end(), "The path should end at the client");
+        assertEquals(List.of(new EncodedPath.Leg(Direction.LEFT, 3), new EncodedPath.Leg(Direction.DOWN, 1)),
+                path.legs(), "The path should turn at the restaurant");
+    }
+
+    @Test
+    void testHierarchicalRoutingFollowsAClosedRoad() {
+        char[][] layout = {
+                {'A', '.', 'R', '.', 'C'},
+                {'.', '.', '.', '.', '.'}
+        };
+
+        ControlCenter controlCenter = new ControlCenter(layout);
+        Location restaurant = new Location(0, 2);
+        Location client = new Location(0, 4);
+
+        DeliveryInfo direct = controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1,
+                ShippingMethod.CHEAPEST, RoutingStrategy.HIERARCHICAL);
+        controlCenter.changeCell(new Location(0, 3), MapEntityType.WALL);
+        DeliveryInfo detour = controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1,
+                ShippingMethod.CHEAPEST, RoutingStrategy.HIERARCHICAL);
+
+        assertEquals(20, direct.price(), "Price should be calculated correctly");
+        assertEquals(30, detour.price(), "The closed road should make the delivery go around");
+    }
+
+    @Test
+    void testPreparedHierarchicalRoutingFollowsAClosedRoad() {
+        char[][] layout = {
+                {'A', '.', 'R', '.', 'C'},
+                {'.', '.', '.', '.', '.'}
+        };
+
+        ControlCenter controlCenter = new ControlCenter(layout);
+        controlCenter.prepareHierarchicalRouting();
+        controlCenter.changeCell(new Location(0, 3), MapEntityType.WALL);
+        DeliveryInfo detour = controlCenter.findOptimalDeliveryGuy(new Location(0, 2), new Location(0, 4), -1, -1,
+                ShippingMethod.CHEAPEST, RoutingStrategy.HIERARCHICAL);
+
+        assertEquals(30, detour.price(), "The clusters built before the change should be updated by it");
+    }
+
+    @Test
+    void testHierarchicalClustersOfASnapshotFollowTheChangesAfterIt() {
+        char[][] layout = {
+                {'A', '.', 'R', '.', 'C'},
+                {'.', '.', '.', '.', '.'}
+        };
+
+        CellGrid grid = new ArrayCellGrid(layout);
+        CellGrid snapshot = grid.snapshot();
+        HierarchicalSearch built = new HierarchicalSearch(snapshot);
+        int closed = grid.index(0, 3);
+        grid.setType(closed, MapEntityType.WALL);
+        HierarchicalSearch search = built.onGrid(grid);
+        search.update(closed);
+
+        assertEquals(MapEntityType.ROAD, snapshot.type(closed), "The snapshot should not see the change");
+        assertEquals(4, search.distance(grid.index(0, 2), grid.index(0, 4)),
+                "The clusters moved to the grid should be updated by the change");
+    }
+
+    @Test
+    void testOrderMetricsAreRecordedOnlyWhenEnabled() throws NoAvailableDeliveryGuyException {
+        char[][] layout = {
+                {'#', '#', '#', '.', '#'},
+                {'#', '.', 'B', 'R', '.'},
+                {'.', '.', '#', '.', '#'},
+                {'#', 'C', '.', 'A', '.'},
+                {'#', '.', '#', '#', '#'}
+        };
+
+        Glovo glovo = new Glovo(layout);
+        MapEntity client = new MapEntity(new Location(3, 1), MapEntityType.CLIENT);
+        MapEntity restaurant = new MapEntity(new Location(1, 3), MapEntityType.RESTAURANT);
+        List<OrderEvent> events = new ArrayList<>();
+
+        glovo.getCheapestDelivery(client, restaurant, "Pizza");
+        glovo.getOrderMetrics().setListener(events::add);
+        glovo.getOrderMetrics().setEnabled(true);
+        glovo.getFastestDelivery(client, restaurant, "Pizza");
+
+        OrderMetricsSnapshot snapshot = glovo.getOrderMetrics().snapshot();
+        assertEquals(1, snapshot.orders(), "Only the order after enabling the metrics should be recorded");
+        assertEquals(1, snapshot.delivered(), "The order should be recorded as delivered");
+        assertEquals(1, events.size(), "The listener should receive the recorded order");
+        assertTrue(events.getFirst().visitedCells() > 0, "The searches of the order should visit cells");
+        assertEquals(snapshot.visitedCells(), events.getFirst().visitedCells(),
+                "The snapshot should count the cells of the order");
+    }
+
+    @Test
+    void testShardedControlCenterCrossesTheBorderOfTheRegions() throws ExecutionException, InterruptedException {
+        char[][] layout = {
+                {'A', 'R', '.', '.', '.'},
+                {'#', '#', '#', '#', '.'},
+                {'.', '.', '.', '.', '.'},
+                {'C', '#', '#', '#', '#'}
+        };
+
+        try (ShardedControlCenter controlCenter = new ShardedControlCenter(layout, 2)) {
+            Location restaurant = new Location(0, 1);
+            Location client = new Location(3, 0);
+
+            DeliveryInfo deliveryInfo = controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1,
+                    ShippingMethod.CHEAPEST).get();
+
+            assertEquals(1, controlCenter.getCrossingCount(), "Only the open column should cross the border");
+            assertEquals(Integer.valueOf(10), controlCenter.findDistance(restaurant, client, DeliveryType.CAR).get(),
+                    "The road should go around the walls through both regions");
+            assertEquals(new DeliveryInfo(new Location(0, 0), 55, 33, DeliveryType.CAR), deliveryInfo,
+                    "The delivery guy should be found by the region of the restaurant");
+        }
+    }
+
+    @Test
+    void testShardedControlCenterLeavesTheRegionOnARoadInsideIt() throws ExecutionException, InterruptedException {
+        char[][] layout = {
+                {'R', '#', 'C'},
+                {'.', '#', '.'},
+                {'.', '.', '.'},
+                {'A', '.', '.'}
+        };
+
+        try (ShardedControlCenter controlCenter = new ShardedControlCenter(layout, 2)) {
+            Location restaurant = new Location(0, 0);
+            Location client = new Location(0, 2);
+
+            assertEquals(Integer.valueOf(6), controlCenter.findDistance(restaurant, client, DeliveryType.CAR).get(),
+                    "The road between two cells of the upper region should go through the lower one");
+            assertEquals(new ControlCenter(layout).findOptimalDeliveryGuy(restaurant, client, -1, -1,
+                            ShippingMethod.CHEAPEST),
+                    controlCenter.findOptimalDeliveryGuy(restaurant, client, -1, -1, ShippingMethod.CHEAPEST).get(),
+                    "The delivery guy of the lower region should be found");
+        }
+    }
+
+    @Test
+    void testShardedControlCenterGivesTheSameAnswersAsTheWholeMap()
+            throws ExecutionException, InterruptedException {
+        Random random = new Random(SEED);
+        for (int map = 0; map < 60; map++) {
+            int rows = 2 + random.nextInt(16);
+            int cols = 1 + random.nextInt(16);
+            char[][] layout = randomLayout(random, rows, cols, map % 2 == 0);
+            ControlCenter whole = new ControlCenter(layout);
+
+            int shards = 1 + random.nextInt(Math.min(rows, 5));
+            try (ShardedControlCenter sharded = new ShardedControlCenter(layout, shards)) {
+                for (int pair = 0; pair < 20; pair++) {
+                    Location from = new Location(random.nextInt(rows), random.nextInt(cols));
+                    Location to = new Location(random.nextInt(rows), random.nextInt(cols));
+                    for (DeliveryType deliveryType : DeliveryType.values()) {
+                        assertEquals(Integer.valueOf(whole.findDistance(from, to, deliveryType)),
+                                sharded.findDistance(from, to, deliveryType).get(),
+                                "The distance from " + from + " to " + to + " should not depend on the regions");
+                    }
+                }
+
+                for (Location restaurant : locationsOf(layout, MapEntityType.RESTAURANT)) {
+                    for (Location client : locationsOf(layout, MapEntityType.CLIENT)) {
+                        for (ShippingMethod shippingMethod : ShippingMethod.values()) {
+                            double maxPrice = random.nextBoolean() ? -1 : random.nextInt(100);
+                            int maxTime = random.nextBoolean() ? -1 : random.nextInt(100);
+                            assertEquals(whole.findOptimalDeliveryGuy(restaurant, client, maxPrice, maxTime,
+                                            shippingMethod),
+                                    sharded.findOptimalDeliveryGuy(restaurant, client, maxPrice, maxTime,
+                                            shippingMethod).get(),
+                                    "The delivery from " + restaurant + " to " + client
+                                            + " should not depend on the regions");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testAsyncGlovoShedsOrdersWhenTheQueueIsFull() throws InterruptedException {
+        char[][] layout = {
+                {'A', 'R', '.', 'C'}
+        };
+        MapEntity client = new MapEntity(new Location(0, 3), MapEntityType.CLIENT);
+        MapEntity restaurant = new MapEntity(new Location(0, 1), MapEntityType.RESTAURANT);
+        CountDownLatch release = new CountDownLatch(1);
+        GlovoApi slowGlovo = new Glovo(layout) {
+            @Override
+            public Delivery getCheapestDelivery(MapEntity client, MapEntity restaurant, String foodItem)
+                    throws NoAvailableDeliveryGuyException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getCheapestDelivery(client, restaurant, foodItem);
+            }
+        };
+
+        List<OrderResult> results = new CopyOnWriteArrayList<>();
+        CountDownLatch published = new CountDownLatch(3);
+        try (AsyncGlovo glovo = new AsyncGlovo(slowGlovo, 1, 1, OverloadPolicy.REJECT, 16)) {
+            glovo.getResults().subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(OrderResult result) {
+                    results.add(result);
+                    published.countDown();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+
+            CompletableFuture<Delivery> running = glovo.getCheapestDelivery(client, restaurant, "Pizza");
+            CompletableFuture<Delivery> queued = glovo.getCheapestDelivery(client, restaurant, "Pizza");
+            CompletableFuture<Delivery> shed = glovo.getCheapestDelivery(client, restaurant, "Pizza");
+
+            ExecutionException exception = assertThrows(ExecutionException.class, shed::get,
+                    "The order should be rejected when the queue is full");
+            assertInstanceOf(OrderRejectedException.class, exception.getCause());
+            assertEquals(1, glovo.getStatistics().queueDepth(), "One order should wait in the queue");
+
+            release.countDown();
+            assertEquals(15, running.join().getPrice(), "The running order should be delivered");
+            assertEquals(15, queued.join().getPrice(), "The queued order should be delivered");
+            assertTrue(published.await(5, TimeUnit.SECONDS), "Every order should be published");
+            assertEquals(2, results.stream().filter(OrderResult::isDelivered).count(),
+                    "The delivered orders should be published with their deliveries");
+            assertEquals(1, glovo.getStatistics().shed(), "The rejected order should be counted");
+        }
+    }
+
+    @Test
+    void testAsyncGlovoCompletesAnOrderThatFailedWithAnError() {
+        char[][] layout = {
+                {'A', 'R', '.', 'C'}
+        };
+        MapEntity client = new MapEntity(new Location(0, 3), MapEntityType.CLIENT);
+        MapEntity restaurant = new MapEntity(new Location(0, 1), MapEntityType.RESTAURANT);
+        GlovoApi brokenGlovo = new Glovo(layout) {
+            @Override
+            public Delivery getCheapestDelivery(MapEntity client, MapEntity restaurant, String foodItem) {
+                throw new AssertionError("The search is broken");
+            }
+        };
+
+        try (AsyncGlovo glovo = new AsyncGlovo(brokenGlovo, 1, 1, OverloadPolicy.REJECT, 16)) {
+            CompletableFuture<Delivery> broken = glovo.getCheapestDelivery(client, restaurant, "Pizza");
+
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> broken.get(5, TimeUnit.SECONDS), "The order should fail with the error");
+            assertInstanceOf(AssertionError.class, exception.getCause());
+            assertEquals(15, glovo.getFastestDelivery(client, restaurant, "Pizza").join().getPrice(),
+                    "The next order should still be delivered");
+            assertEquals(1, glovo.getStatistics().failed(), "The failed order should be counted");
+        }
+    }
+
+    private static char[][] randomLayout(Random random, int rows, int cols, boolean weighted) {
+        double walls = random.nextDouble() * 0.4;
+        char[][] layout = new char[rows][cols];
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < cols; y++) {
+                double cell = random.nextDouble();
+                if (cell < walls) {
+                    layout[x][y] = '#';
+                } else if (weighted && cell < walls + 0.1) {
+                    layout[x][y] = 'T';
+                } else if (weighted && cell < walls + 0.2) {
+                    layout[x][y] = 'P';
+                } else {
+                    layout[x][y] = '.';
+                }
+            }
+        }
+
+        for (int i = 0; i < 1 + random.nextInt(5); i++) {
+            layout[random.nextInt(rows)][random.nextInt(cols)] = random.nextBoolean() ? 'A' : 'B';
+        }
+        for (int i = 0; i < 2; i++) {
+            layout[random.nextInt(rows)][random.nextInt(cols)] = 'R';
+            layout[random.nextInt(rows)][random.nextInt(cols)] = 'C';
+        }
+        return layout;
+    }
+
+    private static List<Location> locationsOf(char[][] layout, MapEntityType type) {
+        List<Location> locations = new ArrayList<>();
+        for (int x = 0; x < layout.length; x++) {
+            for (int y = 0; y < layout[x].length; y++) {
+                if (layout[x][y] == type.getSymbol()) {
+                    locations.add(new Location(x, y));
+                }
+            }
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.ArrayCellGrid;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.CellGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeliveryGuyBucketsTest {
+
+    private static final long SEED = 42;
+
+    @Test
+    void testRingsGiveEveryDeliveryGuyOnceNearestFirstAfterMoves() {
+        char[][] layout = new char[37][23];
+        for (char[] row : layout) {
+            Arrays.fill(row, '.');
+        }
+        CellGrid grid = new ArrayCellGrid(layout);
+        Random random = new Random(SEED);
+        int[] cells = new int[12];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = random.nextInt(grid.size());
+        }
+
+        DeliveryGuyBuckets buckets = new DeliveryGuyBuckets(grid, cells);
+        int[] collected = new int[cells.length];
+        for (int move = 0; move < 500; move++) {
+            int deliveryGuy = random.nextInt(cells.length);
+            cells[deliveryGuy] = random.nextInt(grid.size());
+            buckets.move(deliveryGuy, cells[deliveryGuy]);
+
+            int center = random.nextInt(grid.size());
+            int[] seen = new int[cells.length];
+            for (int ring = 0; ring <= buckets.lastRing(center); ring++) {
+                int count = buckets.collect(center, ring, collected);
+                for (int k = 0; k < count; k++) {
+                    int i = collected[k];
+                    seen[i]++;
+                    assertTrue(grid.manhattanDistance(cells[i], center) >= buckets.lowerBound(ring),
+                            "A delivery guy should not be nearer than the lower bound of his ring");
+                }
+            }
+            for (int i = 0; i < cells.length; i++) {
+                assertEquals(1, seen[i], "Every delivery guy should be in exactly one ring after the moves");
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package bg.sofia.uni.fmi.mjt.glovo.controlcenter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteCacheTest {
+
+    private static final long SEED = 42;
+
+    @Test
+    void testCacheNeverKeepsMoreRoutesThanItsCapacity() {
+        Random random = new Random(SEED);
+        for (int capacity : new int[] {1, 3, 16, 17, 100}) {
+            RouteCache cache = new RouteCache(capacity);
+            for (int i = 0; i < 2000; i++) {
+                int from = random.nextInt(Integer.MAX_VALUE);
+                int to = random.nextInt(Integer.MAX_VALUE);
+                cache.distance(from, to, RouteCache.UNIT, (start, end) -> 1);
+                assertTrue(cache.statistics().size() <= capacity,
+                        "The cache should keep at most " + capacity + " routes");
+            }
+
+            RouteCacheStatistics statistics = cache.statistics();
+            assertEquals(statistics.misses(), statistics.size() + statistics.evictions(),
+                    "Every searched route should be kept or evicted");
+        }
+    }
+
+    @Test
+    void testCacheGivesTheDistanceOfTheRouteOfTheVehicle() {
+        Random random = new Random(SEED);
+        RouteCache cache = new RouteCache(50);
+        int searches = 0;
+        for (int i = 0; i < 5000; i++) {
+            int from = random.nextInt(10);
+            int to = random.nextInt(10) + (random.nextBoolean() ? 0 : Integer.MAX_VALUE - 10);
+            int vehicle = RouteCache.HIERARCHICAL + random.nextInt(4);
+            int[] searched = {0};
+
+            int distance = cache.distance(from, to, vehicle, (start, end) -> {
+                searched[0]++;
+                return distance(start, end, vehicle);
+            });
+            searches += searched[0];
+
+            assertEquals(distance(from, to, vehicle), distance,
+                    "The distance should be the one of the route from " + from + " to " + to + " of " + vehicle);
+        }
+
+        RouteCacheStatistics statistics = cache.statistics();
+        assertEquals(searches, statistics.misses(), "Every miss should search the route");
+        assertEquals(5000, statistics.hits() + statistics.misses(), "Every route should be a hit or a miss");
+        assertTrue(statistics.hits() > 0, "The routes asked again should be hits");
+    }
+
+    @Test
+    void testFullCacheEvictsTheLeastRecentlyUsedRoute() {
+        RouteCache cache = new RouteCache(1);
+        cache.distance(1, 2, RouteCache.UNIT, (start, end) -> 3);
+        cache.distance(1, 2, RouteCache.UNIT, (start, end) -> 3);
+        cache.distance(2, 1, RouteCache.UNIT, (start, end) -> 3);
+        cache.distance(2, 1, RouteCache.UNIT, (start, end) -> 3);
+        cache.invalidate();
+        cache.distance(2, 1, RouteCache.UNIT, (start, end) -> 3);
+
+        assertEquals(new RouteCacheStatistics(2, 3, 1, 1, 1), cache.statistics(),
+                "The older route should be evicted and the invalidation should drop the newer one");
+    }
+
+    private static int distance(int from, int to, int vehicle) {
+        return Math.floorMod(from * 31 + to, 1000) * 4 + vehicle;
+    }
+}
@@ -0,0 +1,133 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.SelectedDeliveryGuy;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.routing.RoutingStrategy;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Delivery;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import bg.sofia.uni.fmi.mjt.glovo.exception.NoAvailableDeliveryGuyException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderDispatcherTest {
+
+    private static final char[][] LAYOUT = {
+            {'#', '#', '#', '#', '#', '#', '#', '#', '#', '#'},
+            {'#', 'R', '.', '.', '.', 'A', 'B', '.', 'C', '#'},
+            {'#', '.', '#', '#', '#', '.', '#', '#', '.', '#'},
+            {'#', '.', '.', '.', '#', '.', '.', '.', '.', '#'},
+            {'#', '#', '#', '.', '#', '#', '#', '#', '.', '#'},
+            {'#', 'B', '#', '.', '.', '.', '.', '#', '.', '#'},
+            {'#', '.', '#', '#', '#', '#', '.', '#', '.', '#'},
+            {'#', '.', '.', '#', '#', '#', '.', '.', '.', '#'},
+            {'#', 'A', '.', 'B', '#', '.', '.', 'A', '.', '#'},
+            {'#', '#', '#', '#', '#', '#', '#', '#', '#', '#'}
+    };
+
+    private static final Order ORDER = new Order(
+            new MapEntity(new Location(1, 8), MapEntityType.CLIENT),
+            new MapEntity(new Location(1, 1), MapEntityType.RESTAURANT),
+            "Pizza",
+            ShippingMethod.CHEAPEST
+    );
+
+    @Test
+    void testConcurrentOrdersGetDifferentDeliveryGuys() throws InterruptedException {
+        try (OrderDispatcher dispatcher = new OrderDispatcher(new ControlCenter(LAYOUT))) {
+            List<CompletableFuture<Delivery>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(dispatcher.submit(ORDER));
+            }
+
+            Set<Location> deliveryGuys = new HashSet<>();
+            int rejected = 0;
+            for (CompletableFuture<Delivery> future : futures) {
+                try {
+                    assertTrue(deliveryGuys.add(future.get().getDeliveryGuyLocation()),
+                            "A delivery guy should not get two orders at the same time");
+                } catch (ExecutionException e) {
+                    assertInstanceOf(NoAvailableDeliveryGuyException.class, e.getCause());
+                    rejected++;
+                }
+            }
+
+            assertEquals(3, deliveryGuys.size(),
+                    "Every delivery guy that can reach the restaurant should get an order");
+            assertEquals(7, rejected, "The orders above the number of reachable delivery guys should be rejected");
+            assertEquals(3, dispatcher.getStatistics().dispatched());
+        }
+    }
+
+    @Test
+    void testCompletedDeliveryReleasesTheDeliveryGuy() {
+        try (OrderDispatcher dispatcher = new OrderDispatcher(new ControlCenter(LAYOUT))) {
+            Delivery first = dispatcher.dispatch(ORDER);
+            Delivery second = dispatcher.dispatch(ORDER);
+            assertTrue(first.getPrice() <= second.getPrice(), "The cheapest delivery guy should be taken first");
+
+            dispatcher.complete(first);
+            Delivery third = dispatcher.dispatch(ORDER);
+
+            assertEquals(first.getDeliveryGuyLocation(), third.getDeliveryGuyLocation(),
+                    "The released delivery guy should be available again");
+            assertEquals(2, dispatcher.getBusyDeliveryGuysCount());
+
+            dispatcher.complete(third);
+            assertThrows(IllegalStateException.class, () -> dispatcher.complete(first),
+                    "A delivery cannot be completed twice");
+        }
+    }
+
+    @Test
+    void testDeliveryGuyThatMovedAfterTheSearchIsNotReservedForHisOldLocation() {
+        ControlCenter controlCenter = new ControlCenter(LAYOUT) {
+            private boolean swapped;
+
+            @Override
+            public SelectedDeliveryGuy selectDeliveryGuy(Location restaurantLocation, Location clientLocation,
+                                                         double maxPrice, int maxTime,
+                                                         ShippingMethod shippingMethod,
+                                                         RoutingStrategy routingStrategy, IntPredicate available) {
+                SelectedDeliveryGuy selected = super.selectDeliveryGuy(restaurantLocation, clientLocation,
+                        maxPrice, maxTime, shippingMethod, routingStrategy, available);
+                if (!swapped) {
+                    // another delivery guy takes the place of the found one before he is reserved
+                    swapped = true;
+                    Location found = selected.deliveryInfo().deliveryGuyLocation();
+                    moveDeliveryGuy(selected.index(), new Location(1, 2));
+                    moveDeliveryGuy(new Location(8, 3), found);
+                }
+                return selected;
+            }
+        };
+
+        try (OrderDispatcher dispatcher = new OrderDispatcher(controlCenter)) {
+            Delivery delivery = dispatcher.dispatch(ORDER);
+
+            assertEquals(1, dispatcher.getStatistics().retries(),
+                    "The order should be searched again after the delivery guy has moved");
+            assertEquals(new Location(1, 2), delivery.getDeliveryGuyLocation(),
+                    "The delivery should go to the moved delivery guy at his new location");
+            assertEquals(1, dispatcher.getBusyDeliveryGuysCount());
+
+            assertEquals(new Location(1, 6), dispatcher.dispatch(ORDER).getDeliveryGuyLocation(),
+                    "The delivery guy that took the old place should still be available");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package bg.sofia.uni.fmi.mjt.glovo.dispatch;
+
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.ControlCenter;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.Location;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntity;
+import bg.sofia.uni.fmi.mjt.glovo.controlcenter.map.MapEntityType;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.Order;
+import bg.sofia.uni.fmi.mjt.glovo.delivery.ShippingMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutePlannerTest {
+
+    private static final char[][] LAYOUT = {
+            {'A', 'R', '.', 'C', '.', '.', 'C'}
+    };
+
+    private static final char[][] BRANCHING_LAYOUT = {
+            {'C', 'A', 'R', '.', '.', '.', 'C'}
+    };
+
+    private static final Order NEAR = order(1, 3);
+    private static final Order FAR = order(1, 6);
+
+    private static Order order(int restaurant, int client) {
+        return new Order(new MapEntity(new Location(0, client), MapEntityType.CLIENT),
+                new MapEntity(new Location(0, restaurant), MapEntityType.RESTAURANT), "Pizza",
+                ShippingMethod.CHEAPEST);
+    }
+
+    @Test
+    void testOrdersFromTheSameRestaurantArePickedUpTogether() {
+        RoutePlanner planner = new RoutePlanner(new ControlCenter(LAYOUT), 2);
+
+        planner.addOrder(NEAR, -1);
+        CourierRoute route = planner.addOrder(FAR, -1);
+
+        assertNotNull(route, "The delivery guy should take both orders");
+        assertEquals(List.of(new RouteStop(NEAR, false), new RouteStop(FAR, false)),
+                route.getStops().subList(2, 4), "Both orders should be picked up at once");
+        assertEquals(6, route.getDistance(), "The route should go once through the map");
+        assertEquals(18, route.getArrivalTime(3), "The car should reach the last client in 18 minutes");
+    }
+
+    @Test
+    void testCapacityMakesTheDeliveryGuyGoBack() {
+        RoutePlanner planner = new RoutePlanner(new ControlCenter(LAYOUT), 1);
+
+        planner.addOrder(NEAR, -1);
+        CourierRoute route = planner.addOrder(FAR, -1);
+
+        assertEquals(List.of(new RouteStop(NEAR, true), new RouteStop(NEAR, false), new RouteStop(FAR, true),
+                new RouteStop(FAR, false)), route.getStops(), "The first order should be delivered first");
+        assertEquals(10, route.getDistance(), "The delivery guy should go back to the restaurant");
+    }
+
+    @Test
+    void testTimeLimitsAreKept() {
+        Order forward = order(2, 6);
+        Order back = order(2, 0);
+        RoutePlanner planner = new RoutePlanner(new ControlCenter(BRANCHING_LAYOUT), 2);
+
+        assertNull(planner.addOrder(forward, 14), "The client cannot be reached in 14 minutes");
+        planner.addOrder(forward, 15);
+        CourierRoute route = planner.addOrder(back, -1);
+
+        assertEquals(new RouteStop(forward, false), route.getStops().get(2),
+                "The second order cannot delay the first one");
+        assertEquals(15, route.getArrivalTime(2), "The first client should be reached within the limit");
+        assertEquals(11, route.getDistance(), "The second client should be reached last");
+
+        planner.completeNextStop(0);
+        assertEquals(List.of(new RouteStop(forward, true), new RouteStop(forward, false), new RouteStop(back, false)),
+                planner.getStops(0), "The reached stop should be removed");
+        assertEquals(12, planner.getRoutes().getFirst().getArrivalTime(1),
+                "The first client should be reached in the rest of the limit");
+    }
+
+    @Test
+    void testTheCheapestDetourIsTakenWithoutTimeLimits() {
+        Order forward = order(2, 6);
+        Order back = order(2, 0);
+        RoutePlanner planner = new RoutePlanner(new ControlCenter(BRANCHING_LAYOUT), 2);
+
+        planner.addOrder(forward, -1);
+        CourierRoute route = planner.addOrder(back, -1);
+
+        List<RouteStop> stops = route.getStops();
+        assertTrue(stops.indexOf(new RouteStop(back, false)) < stops.indexOf(new RouteStop(forward, false)),
+                "The client behind the restaurant should be reached first");
+        assertEquals(9, route.getDistance(), "The detour should add the least distance");
+    }
+}
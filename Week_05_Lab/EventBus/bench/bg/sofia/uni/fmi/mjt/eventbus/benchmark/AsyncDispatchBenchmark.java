@@ -0,0 +1,100 @@
+package bg.sofia.uni.fmi.mjt.eventbus.benchmark;
+
+import bg.sofia.uni.fmi.mjt.eventbus.EventBus;
+import bg.sofia.uni.fmi.mjt.eventbus.EventBusImpl;
+import bg.sofia.uni.fmi.mjt.eventbus.async.AsyncEventBus;
+import bg.sofia.uni.fmi.mjt.eventbus.async.BackpressurePolicy;
+import bg.sofia.uni.fmi.mjt.eventbus.async.SubscriberStatistics;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+import bg.sofia.uni.fmi.mjt.eventbus.exception.SubscriberOverloadedException;
+import bg.sofia.uni.fmi.mjt.eventbus.subscribers.Subscriber;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes the same events to a fast and a slow subscriber, first on the bus that notifies them on the
+ * publishing thread and then on the asynchronous bus with every backpressure policy, and prints how fast
+ * the publisher was and what happened in the queues. java AsyncDispatchBenchmark [events slowMicros]
+ */
+public class AsyncDispatchBenchmark {
+
+    private static final int DEFAULT_EVENTS = 20_000;
+    private static final int DEFAULT_SLOW_MICROS = 20;
+    private static final int CAPACITY = 1024;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EVENTS;
+        long slowNanos = (args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SLOW_MICROS) * 1000L;
+
+        System.out.printf("%d events, slow subscriber %d us per event, queues of %d%n", events,
+                slowNanos / 1000, CAPACITY);
+        System.out.printf("%-12s %14s %10s%n", "bus", "published/s", "failed");
+        run("sync", new EventBusImpl(), events, slowNanos);
+        for (BackpressurePolicy policy : BackpressurePolicy.values()) {
+            AsyncEventBus bus = new AsyncEventBus(CAPACITY, policy);
+            // closed before the statistics are read, so the queues are drained
+            try (bus) {
+                run(policy.name(), bus, events, slowNanos);
+            }
+            for (SubscriberStatistics statistics : bus.getSubscriberStatistics()) {
+                System.out.printf("  %-9s delivered %6d, dropped %6d, rejected %6d, handling mean %7.1f us, "
+                                + "max %8.1f us%n", statistics.subscriber(), statistics.delivered(),
+                        statistics.dropped(), statistics.rejected(),
+                        statistics.meanHandlingNanos() / NANOS_PER_MICRO,
+                        statistics.maxHandlingNanos() / NANOS_PER_MICRO);
+            }
+        }
+    }
+
+    private static void run(String name, EventBus bus, int events, long slowNanos) {
+        bus.subscribe(TestEvent.class, new NamedSubscriber("fast", 0));
+        bus.subscribe(TestEvent.class, new NamedSubscriber("slow", slowNanos));
+
+        TestEvent event = new TestEvent(Instant.now(), 0, "benchmark", new TestPayload("payload"));
+        int failed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            try {
+                bus.publish(event);
+            } catch (SubscriberOverloadedException e) {
+                failed++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-12s %14.0f %10d%n", name, events / (elapsed / NANOS_PER_SECOND), failed);
+    }
+
+    /**
+     * A subscriber that spends the given time on every event
+     */
+    private static final class NamedSubscriber implements Subscriber<TestEvent> {
+
+        private final String name;
+        private final long workNanos;
+        private final LongAdder received = new LongAdder();
+
+        private NamedSubscriber(String name, long workNanos) {
+            this.name = name;
+            this.workNanos = workNanos;
+        }
+
+        @Override
+        public void onEvent(TestEvent event) {
+            long end = System.nanoTime() + workNanos;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            received.increment();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package bg.sofia.uni.fmi.mjt.eventbus.benchmark;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+import bg.sofia.uni.fmi.mjt.eventbus.log.SegmentedEventLog;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the queries of time ranges on the segmented log with a scan of a list of the events in the order
+ * in which they were published followed by a sort of the matches. Most events are published in timestamp
+ * order and some of them late. java EventLogQueryBenchmark [events lateEventsPercent]
+ */
+public class EventLogQueryBenchmark {
+
+    private static final long SEED = 42;
+    private static final int DEFAULT_EVENTS = 1_000_000;
+    private static final int DEFAULT_LATE_PERCENT = 1;
+    private static final int MAX_LATENESS_MILLIS = 5_000;
+    private static final int[] RANGE_MILLIS = {100, 10_000, 1_000_000};
+    private static final int QUERIES = 200;
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    public static void main(String[] args) {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EVENTS;
+        int latePercent = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LATE_PERCENT;
+        Random random = new Random(SEED);
+
+        // an event every millisecond
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        TestPayload payload = new TestPayload("payload");
+        List<Event<?>> events = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            long millis = random.nextInt(100) < latePercent ? Math.max(0, i - random.nextInt(MAX_LATENESS_MILLIS)) : i;
+            events.add(new TestEvent(start.plusMillis(millis), 0, "benchmark", payload));
+        }
+
+        SegmentedEventLog log = new SegmentedEventLog();
+        long appendStart = System.nanoTime();
+        for (Event<?> event : events) {
+            log.append(event);
+        }
+        log.between(start, start);
+        double appendNanos = (double) (System.nanoTime() - appendStart) / eventCount;
+
+        System.out.printf("%d events, %d%% late, append %.0f ns per event%n", eventCount, latePercent, appendNanos);
+        System.out.printf("%-12s %10s %16s %16s%n", "range ms", "events", "segmented us", "scan+sort us");
+        for (int range : RANGE_MILLIS) {
+            long[] froms = new long[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                froms[i] = random.nextInt(Math.max(1, eventCount - range));
+            }
+
+            long found = 0;
+            long segmentedStart = System.nanoTime();
+            for (long from : froms) {
+                found += log.between(start.plusMillis(from), start.plusMillis(from + range)).size();
+            }
+            double segmentedMicros = (System.nanoTime() - segmentedStart) / NANOS_PER_MICRO / QUERIES;
+
+            long scanned = 0;
+            long scanStart = System.nanoTime();
+            for (long from : froms) {
+                scanned += scan(events, start.plusMillis(from), start.plusMillis(from + range)).size();
+            }
+            double scanMicros = (System.nanoTime() - scanStart) / NANOS_PER_MICRO / QUERIES;
+
+            if (found != scanned) {
+                throw new IllegalStateException("The logs found different events: " + found + " and " + scanned);
+            }
+            System.out.printf("%-12d %10d %16.1f %16.1f%n", range, found / QUERIES, segmentedMicros, scanMicros);
+        }
+    }
+
+    private static List<Event<?>> scan(List<Event<?>> events, Instant from, Instant to) {
+        List<Event<?>> result = new ArrayList<>();
+        for (Event<?> event : events) {
+            if (!event.getTimestamp().isBefore(from) && event.getTimestamp().isBefore(to)) {
+                result.add(event);
+            }
+        }
+        result.sort(Comparator.comparing(Event::getTimestamp));
+        return result;
+    }
+}
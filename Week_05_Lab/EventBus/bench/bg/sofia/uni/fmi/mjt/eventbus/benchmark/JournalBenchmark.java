@@ -0,0 +1,92 @@
+package bg.sofia.uni.fmi.mjt.eventbus.benchmark;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+import bg.sofia.uni.fmi.mjt.eventbus.journal.EventJournal;
+import bg.sofia.uni.fmi.mjt.eventbus.journal.TestEventCodec;
+import bg.sofia.uni.fmi.mjt.eventbus.log.EventLogStatistics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Writes events to a journal in a temporary directory, opens it again as after a restart and measures the
+ * appends, the opening, the queries of time ranges and the replay of the whole journal. The heap used after
+ * the opening shows that the history is not loaded on it. java JournalBenchmark [events]
+ */
+public class JournalBenchmark {
+
+    private static final long SEED = 42;
+    private static final int DEFAULT_EVENTS = 2_000_000;
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int RANGE_MILLIS = 1000;
+    private static final int QUERIES = 200;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_MICRO = 1e3;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    public static void main(String[] args) throws IOException {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EVENTS;
+        Path directory = Files.createTempDirectory("event-journal");
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        Random random = new Random(SEED);
+
+        try {
+            long appendStart = System.nanoTime();
+            try (EventJournal journal = new EventJournal(directory, SEGMENT_SIZE, List.of(new TestEventCodec()))) {
+                TestPayload payload = new TestPayload("payload of the event");
+                for (int i = 0; i < events; i++) {
+                    journal.append(new TestEvent(start.plusMillis(i), i % 10, "benchmark", payload));
+                }
+            }
+            double appendSeconds = (System.nanoTime() - appendStart) / NANOS_PER_SECOND;
+            System.out.printf("append     %10.0f events/s%n", events / appendSeconds);
+
+            System.gc();
+            long heapBefore = usedHeap();
+            long openStart = System.nanoTime();
+            try (EventJournal journal = new EventJournal(directory, SEGMENT_SIZE, List.of(new TestEventCodec()))) {
+                double openMillis = (System.nanoTime() - openStart) / NANOS_PER_MILLI;
+                System.gc();
+                EventLogStatistics statistics = journal.statistics(TestEvent.class);
+                System.out.printf("open       %10.1f ms, %d events in %d segments of %.1f MB, heap +%.1f MB%n",
+                        openMillis, statistics.retainedEvents(), statistics.segments(),
+                        statistics.retainedBytes() / BYTES_PER_MEGABYTE,
+                        (usedHeap() - heapBefore) / BYTES_PER_MEGABYTE);
+
+                long found = 0;
+                long queryStart = System.nanoTime();
+                for (int i = 0; i < QUERIES; i++) {
+                    Instant from = start.plusMillis(random.nextInt(Math.max(1, events - RANGE_MILLIS)));
+                    found += journal.between(TestEvent.class, from, from.plusMillis(RANGE_MILLIS)).size();
+                }
+                double queryMicros = (System.nanoTime() - queryStart) / NANOS_PER_MICRO / QUERIES;
+                System.out.printf("query      %10.1f us for %d events%n", queryMicros, found / QUERIES);
+
+                long[] replayed = new long[1];
+                long replayStart = System.nanoTime();
+                journal.replay(TestEvent.class, event -> replayed[0] += event.getPriority());
+                double replaySeconds = (System.nanoTime() - replayStart) / NANOS_PER_SECOND;
+                System.out.printf("replay     %10.0f events/s%n", statistics.retainedEvents() / replaySeconds);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,162 @@
+package bg.sofia.uni.fmi.mjt.eventbus.benchmark;
+
+import bg.sofia.uni.fmi.mjt.eventbus.EventBus;
+import bg.sofia.uni.fmi.mjt.eventbus.EventBusImpl;
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+import bg.sofia.uni.fmi.mjt.eventbus.exception.MissingSubscriptionException;
+import bg.sofia.uni.fmi.mjt.eventbus.subscribers.Subscriber;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of publish with 1, 4, 16 and 64 publishing threads, for the bus and for the same
+ * bus behind a single lock, as a thread-safe bus without the lock-free publish would be. Every thread
+ * publishes the same number of events while another thread subscribes and unsubscribes all the time. The
+ * threads only run in parallel on a machine with as many cores, so the number of the available processors
+ * is printed with the results. java PublishBenchmark [eventsPerRun]
+ */
+public class PublishBenchmark {
+
+    private static final int[] THREADS = {1, 4, 16, 64};
+    private static final int DEFAULT_EVENTS_PER_RUN = 2_000_000;
+    private static final int WARMUP_RUNS = 2;
+    private static final int RUNS = 3;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    public static void main(String[] args) throws InterruptedException {
+        int eventsPerRun = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EVENTS_PER_RUN;
+
+        System.out.printf("%d processors, %d events per run%n", Runtime.getRuntime().availableProcessors(),
+                eventsPerRun);
+        System.out.printf("%-8s %8s %16s %10s%n", "bus", "threads", "events/s", "scaling");
+        for (String name : List.of("lock-free", "locked")) {
+            double single = 0;
+            for (int threads : THREADS) {
+                double best = 0;
+                for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+                    EventBus bus = name.equals("lock-free") ? new EventBusImpl() : new LockedEventBus();
+                    double throughput = run(bus, threads, eventsPerRun);
+                    if (run >= WARMUP_RUNS) {
+                        best = Math.max(best, throughput);
+                    }
+                }
+                if (threads == 1) {
+                    single = best;
+                }
+                System.out.printf("%-8s %8d %16.0f %9.2fx%n", name, threads, best, best / single);
+            }
+        }
+    }
+
+    /**
+     * Publishes the events from the threads at once and returns the events published per second
+     */
+    private static double run(EventBus bus, int threads, int events) throws InterruptedException {
+        LongAdder received = new LongAdder();
+        Subscriber<TestEvent> counter = event -> received.increment();
+        bus.subscribe(TestEvent.class, counter);
+
+        TestPayload payload = new TestPayload("payload");
+        Instant timestamp = Instant.now();
+        int perThread = events / threads;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> publishers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int source = t;
+            publishers.add(Thread.ofPlatform().start(() -> {
+                TestEvent event = new TestEvent(timestamp, source, "publisher-" + source, payload);
+                awaitQuietly(start);
+                for (int i = 0; i < perThread; i++) {
+                    bus.publish(event);
+                }
+            }));
+        }
+
+        // the subscriptions change while the events are published
+        Thread subscriptions = Thread.ofPlatform().start(() -> {
+            awaitQuietly(start);
+            Subscriber<TestEvent> churn = event -> { };
+            while (!Thread.currentThread().isInterrupted()) {
+                bus.subscribe(TestEvent.class, churn);
+                try {
+                    bus.unsubscribe(TestEvent.class, churn);
+                } catch (MissingSubscriptionException e) {
+                    throw new IllegalStateException(e);
+                }
+                Thread.onSpinWait();
+            }
+        });
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        subscriptions.interrupt();
+        subscriptions.join();
+
+        if (received.sum() != (long) perThread * threads) {
+            throw new IllegalStateException("Lost events: " + received.sum());
+        }
+        return (double) perThread * threads / elapsed * NANOS_PER_SECOND;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The bus with every method behind one lock
+     */
+    private static final class LockedEventBus implements EventBus {
+
+        private final EventBus bus = new EventBusImpl();
+
+        @Override
+        public synchronized <T extends Event<?>> void subscribe(Class<T> eventType,
+                                                                Subscriber<? super T> subscriber) {
+            bus.subscribe(eventType, subscriber);
+        }
+
+        @Override
+        public synchronized <T extends Event<?>> void unsubscribe(Class<T> eventType,
+                                                                  Subscriber<? super T> subscriber)
+                throws MissingSubscriptionException {
+            bus.unsubscribe(eventType, subscriber);
+        }
+
+        @Override
+        public synchronized <T extends Event<?>> void publish(T event) {
+            bus.publish(event);
+        }
+
+        @Override
+        public synchronized void clear() {
+            bus.clear();
+        }
+
+        @Override
+        public synchronized Collection<? extends Event<?>> getEventLogs(Class<? extends Event<?>> eventType,
+                                                                        Instant from, Instant to) {
+            return bus.getEventLogs(eventType, from, to);
+        }
+
+        @Override
+        public synchronized <T extends Event<?>> Collection<Subscriber<?>> getSubscribersForEvent(
+                Class<T> eventType) {
+            return bus.getSubscribersForEvent(eventType);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package bg.sofia.uni.fmi.mjt.eventbus.benchmark;
+
+import bg.sofia.uni.fmi.mjt.eventbus.EventBusImpl;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+import bg.sofia.uni.fmi.mjt.eventbus.log.EventLogStatistics;
+import bg.sofia.uni.fmi.mjt.eventbus.log.RetentionPolicy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Publishes the same events to a bus that keeps every event and to buses with each kind of retention, and
+ * prints the publish throughput, the events the logs kept and evicted and the heap used after the run.
+ * java RetentionBenchmark [events]
+ */
+public class RetentionBenchmark {
+
+    private static final int DEFAULT_EVENTS = 2_000_000;
+    private static final long MAX_COUNT = 100_000;
+    private static final Duration MAX_AGE = Duration.ofSeconds(100);
+    private static final long MAX_BYTES = 1_000_000;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EVENTS;
+
+        System.out.printf("%d events, one every millisecond%n", events);
+        System.out.printf("%-12s %14s %10s %10s %12s%n", "retention", "published/s", "retained", "evicted",
+                "heap MB");
+        List<String> names = List.of("unlimited", "count", "age", "bytes");
+        List<RetentionPolicy> policies = List.of(RetentionPolicy.UNLIMITED, RetentionPolicy.ofMaxCount(MAX_COUNT),
+                RetentionPolicy.ofMaxAge(MAX_AGE), RetentionPolicy.ofMaxBytes(MAX_BYTES));
+        for (int i = 0; i < policies.size(); i++) {
+            run(names.get(i), policies.get(i), events);
+        }
+    }
+
+    private static void run(String name, RetentionPolicy retention, int events) {
+        EventBusImpl bus = new EventBusImpl(retention);
+        TestPayload payload = new TestPayload("payload");
+        // the events end now, so the age is measured against the system clock
+        Instant start = Instant.now().minusMillis(events);
+
+        long publishStart = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            bus.publish(new TestEvent(start.plusMillis(i), 0, "benchmark", payload));
+        }
+        double elapsed = (System.nanoTime() - publishStart) / NANOS_PER_SECOND;
+
+        EventLogStatistics statistics = bus.getEventLogStatistics(TestEvent.class);
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        double heap = (runtime.totalMemory() - runtime.freeMemory()) / BYTES_PER_MEGABYTE;
+        System.out.printf("%-12s %14.0f %10d %10d %12.1f%n", name, events / elapsed, statistics.retainedEvents(),
+                statistics.evictedEvents(), heap);
+        // the bus is used after the heap is measured, so it is not collected before that
+        bus.clear();
+    }
+}
@@ -2,22 +2,82 @@ package bg.sofia.uni.fmi.mjt.eventbus;
 
 import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
 import bg.sofia.uni.fmi.mjt.eventbus.exception.MissingSubscriptionException;
+import bg.sofia.uni.fmi.mjt.eventbus.journal.EventJournal;
+import bg.sofia.uni.fmi.mjt.eventbus.log.EventLogStatistics;
+import bg.sofia.uni.fmi.mjt.eventbus.log.RetentionPolicy;
+import bg.sofia.uni.fmi.mjt.eventbus.log.SegmentedEventLog;
 import bg.sofia.uni.fmi.mjt.eventbus.subscribers.Subscriber;
 
+import java.time.Clock;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Thread-safe event bus. The subscribers of an event type are kept in an array that is never changed: a
+ * subscription replaces it with a copy, so a publish reads the subscribers without locks and notifies the
+ * subscribers that were there when it started. The events are appended to the log without locks as well,
+ * and the log keeps them in timestamp order, so getEventLogs finds a range of timestamps with a binary
+ * search. The subscribers are notified on the publishing thread, so they have to be thread-safe if more
+ * threads publish at once.
+ * <p>
+ * The log of every event type keeps the events allowed by its RetentionPolicy, so a long-running bus does
+ * not keep every event it has published. The event types with a codec in the optional EventJournal are
+ * logged in the journal on disk instead, which keeps all of them and outlives the bus.
+ */
 public class EventBusImpl implements EventBus {
 
-    private final Map<Class<? extends Event<?>>, Set<Subscriber<?>>> subscribers = new HashMap<>();
-    private final Map<Class<? extends Event<?>>, List<Event<?>>> eventLogs = new HashMap<>();
+    private static final Subscriber<?>[] NO_SUBSCRIBERS = new Subscriber<?>[0];
+
+    private final ConcurrentMap<Class<? extends Event<?>>, Subscriber<?>[]> subscribers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<? extends Event<?>>, SegmentedEventLog> eventLogs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<? extends Event<?>>, RetentionPolicy> retentionPolicies =
+            new ConcurrentHashMap<>();
+    private final RetentionPolicy defaultRetention;
+    private final Clock clock;
+    private final EventJournal journal;
+
+    public EventBusImpl() {
+        this(RetentionPolicy.UNLIMITED);
+    }
+
+    /**
+     * @param defaultRetention how many events to keep of the event types without a retention policy of their own
+     * @throws IllegalArgumentException if the retention policy is null
+     */
+    public EventBusImpl(RetentionPolicy defaultRetention) {
+        this(defaultRetention, Clock.systemUTC());
+    }
+
+    /**
+     * @param defaultRetention how many events to keep of the event types without a retention policy of their own
+     * @param clock            the clock against which the age of the logged events is measured
+     * @throws IllegalArgumentException if the retention policy or the clock is null
+     */
+    public EventBusImpl(RetentionPolicy defaultRetention, Clock clock) {
+        this(defaultRetention, clock, null);
+    }
+
+    /**
+     * @param defaultRetention how many events to keep of the event types without a retention policy of their own
+     * @param clock            the clock against which the age of the logged events is measured
+     * @param journal          the journal of the event types it has codecs for, null for none. The bus does not
+     *                         close it.
+     * @throws IllegalArgumentException if the retention policy or the clock is null
+     */
+    public EventBusImpl(RetentionPolicy defaultRetention, Clock clock, EventJournal journal) {
+        if (defaultRetention == null || clock == null) {
+            throw new IllegalArgumentException("Retention policy and clock cannot be null");
+        }
+
+        this.defaultRetention = defaultRetention;
+        this.clock = clock;
+        this.journal = journal;
+    }
 
     /**
      * Subscribes the given subscriber to the given event type.
@@ -33,12 +93,18 @@ public class EventBusImpl implements EventBus {
             throw new IllegalArgumentException("Event type and subscriber cannot be null");
         }
 
-        Set<Subscriber<?>> eventSubscribers = subscribers.get(eventType);
-        if (eventSubscribers == null) {
-            eventSubscribers = new HashSet<>();
-            subscribers.put(eventType, eventSubscribers);
-        }
-        eventSubscribers.add(subscriber);
+        subscribers.compute(eventType, (type, eventSubscribers) -> {
+            if (eventSubscribers == null) {
+                return new Subscriber<?>[] {subscriber};
+            }
+            if (indexOf(eventSubscribers, subscriber) != -1) {
+                return eventSubscribers;
+            }
+
+            Subscriber<?>[] copy = Arrays.copyOf(eventSubscribers, eventSubscribers.length + 1);
+            copy[eventSubscribers.length] = subscriber;
+            return copy;
+        });
     }
 
     /**
@@ -57,18 +123,32 @@ public class EventBusImpl implements EventBus {
             throw new IllegalArgumentException("Event type and subscriber cannot be null");
         }
 
-        Set<Subscriber<?>> eventSubscribers = subscribers.get(eventType);
-        if (eventSubscribers == null || !eventSubscribers.remove(subscriber)) {
-            throw new MissingSubscriptionException("Subscriber is not subscribed to the event type");
-        }
+        boolean[] removed = new boolean[1];
+        subscribers.computeIfPresent(eventType, (type, eventSubscribers) -> {
+            int index = indexOf(eventSubscribers, subscriber);
+            if (index == -1) {
+                return eventSubscribers;
+            }
+
+            removed[0] = true;
+            if (eventSubscribers.length == 1) {
+                return null;
+            }
+            Subscriber<?>[] copy = new Subscriber<?>[eventSubscribers.length - 1];
+            System.arraycopy(eventSubscribers, 0, copy, 0, index);
+            System.arraycopy(eventSubscribers, index + 1, copy, index, copy.length - index);
+            return copy;
+        });
 
-        if (eventSubscribers.isEmpty()) {
-            subscribers.remove(eventType);
+        if (!removed[0]) {
+            throw new MissingSubscriptionException("Subscriber is not subscribed to the event type");
         }
     }
 
     /**
-     * Publishes the given event to all subscribers of the event type.
+     * Publishes the given event to all subscribers of the event type. Every subscriber is notified even if
+     * one before it throws: the first exception is rethrown after the last subscriber, with the exceptions of
+     * the others suppressed in it.
      *
      * @param event the event to publish
      * @throws IllegalArgumentException if the event is null
@@ -79,32 +159,50 @@ public class EventBusImpl implements EventBus {
             throw new IllegalArgumentException("Event cannot be null");
         }
 
+        @SuppressWarnings("unchecked")
         Class<? extends Event<?>> eventType = (Class<? extends Event<?>>) event.getClass();
 
-        Set<Subscriber<?>> eventSubscribers = subscribers.get(eventType);
-        if (eventSubscribers != null) {
-            for (Subscriber<?> subscriber : eventSubscribers) {
-                @SuppressWarnings("unchecked")
-                Subscriber<T> typedSubscriber = (Subscriber<T>) subscriber;
-                typedSubscriber.onEvent(event);
+        // logged first, so the event is in the log even if a subscriber throws
+        if (isJournaled(eventType)) {
+            journal.append(event);
+        } else {
+            SegmentedEventLog events = eventLogs.get(eventType);
+            if (events == null) {
+                events = eventLogs.computeIfAbsent(eventType,
+                        type -> new SegmentedEventLog(retentionPolicies.getOrDefault(type, defaultRetention), clock));
             }
+            events.append(event);
         }
 
-        List<Event<?>> events = eventLogs.get(eventType);
-        if (events == null) {
-            events = new ArrayList<>();
-            eventLogs.put(eventType, events);
+        RuntimeException failure = null;
+        for (Subscriber<?> subscriber : subscribers.getOrDefault(eventType, NO_SUBSCRIBERS)) {
+            @SuppressWarnings("unchecked")
+            Subscriber<T> typedSubscriber = (Subscriber<T>) subscriber;
+            try {
+                typedSubscriber.onEvent(event);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
         }
-        events.add(event);
     }
 
     /**
-     * Clears all subscribers and event logs.
+     * Clears all subscribers and event logs, including the files of the journal.
      */
     @Override
     public void clear() {
         subscribers.clear();
         eventLogs.clear();
+        if (journal != null) {
+            journal.clear();
+        }
     }
 
     /**
@@ -127,30 +225,15 @@ public class EventBusImpl implements EventBus {
             throw new IllegalArgumentException("Event type and timestamps cannot be null");
         }
 
-        List<Event<?>> result = new ArrayList<>();
-        List<Event<?>> events = eventLogs.get(eventType);
-
-        if (events != null) {
-            for (Event<?> event : events) {
-                Instant timestamp = event.getTimestamp();
-                if (!timestamp.isBefore(from) && timestamp.isBefore(to)) {
-                    result.add(event);
-                }
-            }
-
-            for (int i = 1; i < result.size(); i++) {
-                Event<?> currentEvent = result.get(i);
-                int j = i - 1;
-
-                while (j >= 0 && result.get(j).getTimestamp().isAfter(currentEvent.getTimestamp())) {
-                    result.set(j + 1, result.get(j));
-                    j--;
-                }
-                result.set(j + 1, currentEvent);
-            }
+        if (isJournaled(eventType)) {
+            return Collections.unmodifiableList(journal.between(eventType, from, to));
         }
 
-        return Collections.unmodifiableList(result);
+        SegmentedEventLog events = eventLogs.get(eventType);
+        if (events == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(events.between(from, to));
     }
 
     /**
@@ -167,10 +250,62 @@ public class EventBusImpl implements EventBus {
             throw new IllegalArgumentException("Event type cannot be null");
         }
 
-        Set<Subscriber<?>> eventSubscribers = subscribers.get(eventType);
-        if (eventSubscribers == null) {
-            return Collections.emptySet();
+        return List.of(subscribers.getOrDefault(eventType, NO_SUBSCRIBERS));
+    }
+
+    /**
+     * Sets how many events of the given type are kept in the log. The events the policy does not keep are
+     * evicted at once. The policy stays after clear(). It does not apply to a journaled event type.
+     *
+     * @param eventType the type of event
+     * @param retention how many events to keep
+     * @throws IllegalArgumentException if the event type or the retention policy is null
+     */
+    public void setRetentionPolicy(Class<? extends Event<?>> eventType, RetentionPolicy retention) {
+        if (eventType == null || retention == null) {
+            throw new IllegalArgumentException("Event type and retention policy cannot be null");
+        }
+
+        // under the lock of the log's key, so a log created at the same time gets the new policy
+        eventLogs.compute(eventType, (type, events) -> {
+            retentionPolicies.put(type, retention);
+            if (events != null) {
+                events.setRetentionPolicy(retention);
+            }
+            return events;
+        });
+    }
+
+    /**
+     * Returns how many events of the given type the log keeps and how many it has evicted
+     *
+     * @param eventType the type of event
+     * @return the EventLogStatistics of the log of the event type
+     * @throws IllegalArgumentException if the event type is null
+     */
+    public EventLogStatistics getEventLogStatistics(Class<? extends Event<?>> eventType) {
+        if (eventType == null) {
+            throw new IllegalArgumentException("Event type cannot be null");
+        }
+
+        if (isJournaled(eventType)) {
+            return journal.statistics(eventType);
+        }
+
+        SegmentedEventLog events = eventLogs.get(eventType);
+        return events == null ? new EventLogStatistics(0, 0, 0, 0) : events.statistics();
+    }
+
+    private boolean isJournaled(Class<? extends Event<?>> eventType) {
+        return journal != null && journal.isJournaled(eventType);
+    }
+
+    private static int indexOf(Subscriber<?>[] eventSubscribers, Subscriber<?> subscriber) {
+        for (int i = 0; i < eventSubscribers.length; i++) {
+            if (eventSubscribers[i].equals(subscriber)) {
+                return i;
+            }
         }
-        return Collections.unmodifiableSet(eventSubscribers);
+        return -1;
     }
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+package bg.sofia.uni.fmi.mjt.eventbus.async;
+
+import bg.sofia.uni.fmi.mjt.eventbus.EventBus;
+import bg.sofia.uni.fmi.mjt.eventbus.EventBusImpl;
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+import bg.sofia.uni.fmi.mjt.eventbus.exception.MissingSubscriptionException;
+import bg.sofia.uni.fmi.mjt.eventbus.exception.SubscriberOverloadedException;
+import bg.sofia.uni.fmi.mjt.eventbus.log.EventLogStatistics;
+import bg.sofia.uni.fmi.mjt.eventbus.log.RetentionPolicy;
+import bg.sofia.uni.fmi.mjt.eventbus.subscribers.Subscriber;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Event bus that notifies the subscribers on other threads, so a slow subscriber does not stall the
+ * publishers. Every subscriber has its own bounded queue, and what happens when it is full is decided by
+ * the BackpressurePolicy. The events of a subscriber are given to it one at a time in the order in which
+ * they were put in its queue. The subscriptions and the log are kept by an EventBusImpl.
+ */
+public class AsyncEventBus implements EventBus, AutoCloseable {
+
+    private final EventBusImpl bus = new EventBusImpl();
+    private final ConcurrentMap<Subscriber<?>, SubscriberMailbox> mailboxes = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private volatile boolean closed;
+
+    /**
+     * Creates a bus that notifies the subscribers on virtual threads
+     *
+     * @param capacity the size of the queue of every subscriber
+     * @param policy   what happens to an event when the queue of a subscriber is full
+     * @throws IllegalArgumentException if the capacity is not positive or the policy is null
+     */
+    public AsyncEventBus(int capacity, BackpressurePolicy policy) {
+        this(capacity, policy, Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    /**
+     * Creates a bus that notifies the subscribers on the given executor, for example a pool of threads. A
+     * subscriber with waiting events holds a thread of the executor until its queue is empty. The executor
+     * is not shut down by close().
+     *
+     * @param capacity the size of the queue of every subscriber
+     * @param policy   what happens to an event when the queue of a subscriber is full
+     * @param executor the executor that runs the subscribers
+     * @throws IllegalArgumentException if the capacity is not positive or the policy or the executor is null
+     */
+    public AsyncEventBus(int capacity, BackpressurePolicy policy, Executor executor) {
+        this(capacity, policy, executor, false);
+    }
+
+    private AsyncEventBus(int capacity, BackpressurePolicy policy, Executor executor, boolean ownsExecutor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (policy == null || executor == null) {
+            throw new IllegalArgumentException("Policy and executor cannot be null");
+        }
+
+        this.capacity = capacity;
+        this.policy = policy;
+        this.executor = executor;
+        this.ownExecutor = ownsExecutor ? (ExecutorService) executor : null;
+    }
+
+    /**
+     * Subscribes the given subscriber to the given event type.
+     *
+     * @param eventType  the type of event to subscribe to
+     * @param subscriber the subscriber to subscribe
+     * @throws IllegalArgumentException if the event type is null
+     * @throws IllegalArgumentException if the subscriber is null
+     */
+    @Override
+    public <T extends Event<?>> void subscribe(Class<T> eventType, Subscriber<? super T> subscriber) {
+        if (eventType == null || subscriber == null) {
+            throw new IllegalArgumentException("Event type and subscriber cannot be null");
+        }
+
+        mailboxes.compute(subscriber, (key, mailbox) -> {
+            SubscriberMailbox subscriberMailbox =
+                    mailbox == null ? new SubscriberMailbox(subscriber, capacity, policy, executor) : mailbox;
+            if (subscriberMailbox.addEventType(eventType)) {
+                bus.subscribe(eventType, subscriberMailbox);
+            }
+            return subscriberMailbox;
+        });
+    }
+
+    /**
+     * Unsubscribes the given subscriber from the given event type. The events already in the queue of the
+     * subscriber are still given to it.
+     *
+     * @param eventType  the type of event to unsubscribe from
+     * @param subscriber the subscriber to unsubscribe
+     * @throws IllegalArgumentException     if the event type is null
+     * @throws IllegalArgumentException     if the subscriber is null
+     * @throws MissingSubscriptionException if the subscriber is not subscribed to the event type
+     */
+    @Override
+    public <T extends Event<?>> void unsubscribe(Class<T> eventType, Subscriber<? super T> subscriber)
+            throws MissingSubscriptionException {
+        if (eventType == null || subscriber == null) {
+            throw new IllegalArgumentException("Event type and subscriber cannot be null");
+        }
+
+        boolean[] removed = new boolean[1];
+        mailboxes.computeIfPresent(subscriber, (key, mailbox) -> {
+            if (!mailbox.removeEventType(eventType)) {
+                return mailbox;
+            }
+
+            removed[0] = true;
+            try {
+                bus.unsubscribe(eventType, mailbox);
+            } catch (MissingSubscriptionException e) {
+                throw new IllegalStateException("The mailbox was not subscribed to " + eventType, e);
+            }
+            return mailbox.hasEventTypes() ? mailbox : null;
+        });
+
+        if (!removed[0]) {
+            throw new MissingSubscriptionException("Subscriber is not subscribed to the event type");
+        }
+    }
+
+    /**
+     * Logs the given event and puts it in the queues of all subscribers of the event type. A full queue does
+     * not keep the event from the queues of the other subscribers.
+     *
+     * @param event the event to publish
+     * @throws IllegalArgumentException      if the event is null
+     * @throws IllegalStateException         if the bus is closed
+     * @throws SubscriberOverloadedException if the queues of one or more subscribers are full and the policy
+     *                                       is FAIL_FAST, after the event is put in all the other queues
+     */
+    @Override
+    public <T extends Event<?>> void publish(T event) {
+        if (closed) {
+            throw new IllegalStateException("The event bus is closed");
+        }
+
+        try {
+            bus.publish(event);
+        } catch (SubscriberOverloadedException e) {
+            throw overloaded(e);
+        }
+    }
+
+    /**
+     * Clears all subscribers and event logs. The events already in the queues are still given to the
+     * subscribers.
+     */
+    @Override
+    public void clear() {
+        bus.clear();
+        mailboxes.clear();
+    }
+
+    @Override
+    public Collection<? extends Event<?>> getEventLogs(Class<? extends Event<?>> eventType, Instant from, Instant to) {
+        return bus.getEventLogs(eventType, from, to);
+    }
+
+    /**
+     * Returns all subscribers for the given event type in an unmodifiable collection. If there are
+     * no subscribers for the event type, the method returns an empty unmodifiable collection.
+     *
+     * @param eventType the type of event to get subscribers for
+     * @return an unmodifiable collection of subscribers for the given event type
+     * @throws IllegalArgumentException if the event type is null
+     */
+    @Override
+    public <T extends Event<?>> Collection<Subscriber<?>> getSubscribersForEvent(Class<T> eventType) {
+        return bus.getSubscribersForEvent(eventType).stream()
+                .<Subscriber<?>>map(mailbox -> ((SubscriberMailbox) mailbox).subscriber())
+                .toList();
+    }
+
+    /**
+     * Sets how many events of the given type are kept in the log
+     *
+     * @param eventType the type of event
+     * @param retention how many events to keep
+     * @throws IllegalArgumentException if the event type or the retention policy is null
+     * @see EventBusImpl#setRetentionPolicy(Class, RetentionPolicy)
+     */
+    public void setRetentionPolicy(Class<? extends Event<?>> eventType, RetentionPolicy retention) {
+        bus.setRetentionPolicy(eventType, retention);
+    }
+
+    /**
+     * Returns how many events of the given type the log keeps and how many it has evicted
+     *
+     * @param eventType the type of event
+     * @return the EventLogStatistics of the log of the event type
+     * @throws IllegalArgumentException if the event type is null
+     */
+    public EventLogStatistics getEventLogStatistics(Class<? extends Event<?>> eventType) {
+        return bus.getEventLogStatistics(eventType);
+    }
+
+    /**
+     * Returns the state of the queues of all subscribers
+     *
+     * @return an unmodifiable collection with the SubscriberStatistics of every subscriber
+     */
+    public Collection<SubscriberStatistics> getSubscriberStatistics() {
+        return mailboxes.values().stream()
+                .map(SubscriberMailbox::statistics)
+                .toList();
+    }
+
+    /**
+     * @param first the exception of the first full queue, with the failures of the later subscribers
+     *              suppressed in it by the bus
+     * @return a single exception for all full queues, with the exception of every queue suppressed in it
+     */
+    private static SubscriberOverloadedException overloaded(SubscriberOverloadedException first) {
+        int overloaded = 1;
+        for (Throwable other : first.getSuppressed()) {
+            if (other instanceof SubscriberOverloadedException) {
+                overloaded++;
+            }
+        }
+        if (overloaded == 1) {
+            return first;
+        }
+
+        SubscriberOverloadedException aggregated =
+                new SubscriberOverloadedException("The queues of " + overloaded + " subscribers are full");
+        aggregated.addSuppressed(first);
+        for (Throwable other : first.getSuppressed()) {
+            aggregated.addSuppressed(other);
+        }
+        return aggregated;
+    }
+
+    /**
+     * Stops accepting events. If the bus runs the subscribers on its own virtual threads, it waits until the
+     * events already in the queues are given to the subscribers.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownExecutor != null) {
+            ownExecutor.close();
+        }
+    }
+}
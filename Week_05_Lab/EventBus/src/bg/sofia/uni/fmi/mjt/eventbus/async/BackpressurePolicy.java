@@ -0,0 +1,31 @@
+package bg.sofia.uni.fmi.mjt.eventbus.async;
+
+/**
+ * What happens to a published event when the queue of a subscriber is full
+ */
+public enum BackpressurePolicy {
+
+    /**
+     * The publisher waits until there is room in the queue, which slows down the publishers to the speed of
+     * the slowest subscriber
+     */
+    BLOCK,
+
+    /**
+     * The event that has waited the longest is dropped to make room for the new one, so the subscriber gets
+     * the freshest events
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new event is dropped, and the events already waiting keep their places
+     */
+    DROP_NEWEST,
+
+    /**
+     * The publish throws SubscriberOverloadedException, so the publisher learns about the slow subscriber
+     * at once. The event is still logged and given to the subscribers before the overloaded one.
+     */
+    FAIL_FAST
+
+}
@@ -0,0 +1,157 @@
+package bg.sofia.uni.fmi.mjt.eventbus.async;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+import bg.sofia.uni.fmi.mjt.eventbus.exception.SubscriberOverloadedException;
+import bg.sofia.uni.fmi.mjt.eventbus.subscribers.Subscriber;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bounded queue of one subscriber of AsyncEventBus. It is subscribed to the wrapped bus in place of
+ * the subscriber, so the publishers only put the events in the queue. The events are given to the
+ * subscriber by a single task on the executor, which is started when the first event arrives and ends
+ * when the queue is empty, so the subscriber is never called by two threads at once and an idle
+ * subscriber holds no thread.
+ */
+class SubscriberMailbox implements Subscriber<Event<?>> {
+
+    private final Subscriber<?> subscriber;
+    private final BlockingQueue<Event<?>> queue;
+    private final BackpressurePolicy policy;
+    private final Executor executor;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    // changed only inside the compute of AsyncEventBus for this subscriber
+    private final Set<Class<? extends Event<?>>> eventTypes = new HashSet<>();
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong handlingNanos = new AtomicLong();
+    private final AtomicLong maxHandlingNanos = new AtomicLong();
+
+    SubscriberMailbox(Subscriber<?> subscriber, int capacity, BackpressurePolicy policy, Executor executor) {
+        this.subscriber = subscriber;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.executor = executor;
+    }
+
+    Subscriber<?> subscriber() {
+        return subscriber;
+    }
+
+    boolean addEventType(Class<? extends Event<?>> eventType) {
+        return eventTypes.add(eventType);
+    }
+
+    boolean removeEventType(Class<? extends Event<?>> eventType) {
+        return eventTypes.remove(eventType);
+    }
+
+    boolean hasEventTypes() {
+        return !eventTypes.isEmpty();
+    }
+
+    /**
+     * Puts the event in the queue, following the policy if it is full, and starts the task that gives the
+     * events to the subscriber if it is not running.
+     *
+     * @param event the published event
+     * @throws SubscriberOverloadedException if the queue is full and the policy is FAIL_FAST
+     * @throws RejectedExecutionException     if the executor does not accept the task. The event stays in
+     *                                        the queue.
+     */
+    @Override
+    public void onEvent(Event<?> event) {
+        switch (policy) {
+            case BLOCK -> put(event);
+            case DROP_OLDEST -> {
+                while (!queue.offer(event)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+            }
+            case DROP_NEWEST -> {
+                if (!queue.offer(event)) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+            }
+            case FAIL_FAST -> {
+                if (!queue.offer(event)) {
+                    rejected.incrementAndGet();
+                    throw new SubscriberOverloadedException("The queue of subscriber " + subscriber + " is full");
+                }
+            }
+        }
+
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // no task is running, so the next event has to start one for this event and itself
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    SubscriberStatistics statistics() {
+        long handled = delivered.get() + failed.get();
+        return new SubscriberStatistics(subscriber, queue.size(), queue.size() + queue.remainingCapacity(),
+                delivered.get(), dropped.get(), rejected.get(), failed.get(),
+                handled == 0 ? 0 : (double) handlingNanos.get() / handled, maxHandlingNanos.get());
+    }
+
+    private void put(Event<?> event) {
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            // the publisher was interrupted while waiting, so the event is dropped and the interrupt kept
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Event<?> event = queue.poll();
+            if (event == null) {
+                scheduled.set(false);
+                // an event that arrived after the poll did not start a task, since this one was still running
+                if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            deliver(event);
+        }
+    }
+
+    private void deliver(Event<?> event) {
+        @SuppressWarnings("unchecked")
+        Subscriber<Event<?>> typedSubscriber = (Subscriber<Event<?>>) subscriber;
+
+        long start = System.nanoTime();
+        try {
+            typedSubscriber.onEvent(event);
+            delivered.incrementAndGet();
+        } catch (RuntimeException e) {
+            // the publisher is gone, so the failure is only counted and the next events are still delivered
+            failed.incrementAndGet();
+        }
+        long elapsed = System.nanoTime() - start;
+        handlingNanos.addAndGet(elapsed);
+        maxHandlingNanos.accumulateAndGet(elapsed, Math::max);
+    }
+}
@@ -0,0 +1,21 @@
+package bg.sofia.uni.fmi.mjt.eventbus.async;
+
+import bg.sofia.uni.fmi.mjt.eventbus.subscribers.Subscriber;
+
+/**
+ * The state of the queue of a subscriber of AsyncEventBus at one moment
+ *
+ * @param subscriber         the subscriber
+ * @param queueDepth         the events waiting in the queue
+ * @param capacity           the size of the queue
+ * @param delivered          the events given to the subscriber
+ * @param dropped            the events dropped because the queue was full
+ * @param rejected           the publishes that failed because the queue was full
+ * @param failed             the events on which the subscriber threw an exception
+ * @param meanHandlingNanos  the mean time the subscriber spent on an event
+ * @param maxHandlingNanos   the longest time the subscriber spent on an event
+ */
+public record SubscriberStatistics(Subscriber<?> subscriber, int queueDepth, int capacity, long delivered,
+                                   long dropped, long rejected, long failed, double meanHandlingNanos,
+                                   long maxHandlingNanos) {
+}
@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.eventbus.exception;
+
+public class SubscriberOverloadedException extends RuntimeException {
+    public SubscriberOverloadedException(String message) {
+        super(message);
+    }
+
+    public SubscriberOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
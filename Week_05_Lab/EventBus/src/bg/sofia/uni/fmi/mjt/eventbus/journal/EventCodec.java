@@ -0,0 +1,43 @@
+package bg.sofia.uni.fmi.mjt.eventbus.journal;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * The binary encoding of the events of one type in the EventJournal. The journal stores the timestamp of
+ * every event itself, so the codec encodes the rest of the event.
+ *
+ * @param <T> the type of the events
+ */
+public interface EventCodec<T extends Event<?>> {
+
+    /**
+     * @return the type of the events, which names the directory of their journal
+     */
+    Class<T> eventType();
+
+    /**
+     * @param event the event to encode
+     * @return the number of bytes encode() writes for the event
+     */
+    int encodedSize(T event);
+
+    /**
+     * Writes the event without its timestamp
+     *
+     * @param event  the event to encode
+     * @param buffer a buffer with exactly encodedSize(event) bytes remaining
+     */
+    void encode(T event, ByteBuffer buffer);
+
+    /**
+     * Reads an event written by encode()
+     *
+     * @param timestamp the timestamp of the event
+     * @param buffer    a buffer with the bytes written by encode() remaining
+     * @return the event
+     */
+    T decode(Instant timestamp, ByteBuffer buffer);
+}
@@ -0,0 +1,187 @@
+package bg.sofia.uni.fmi.mjt.eventbus.journal;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+import bg.sofia.uni.fmi.mjt.eventbus.log.EventLogStatistics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An append-only journal of events on disk, so the event logs outlive the process. Every event type with a
+ * codec has a directory of segment files of fixed size, mapped in memory, to which its events are appended
+ * in the order in which they were published.
+ * <p>
+ * Opening a journal reads only the headers of the records to rebuild a sparse index of their timestamps,
+ * so no event is decoded and the history is not loaded on the heap. A query decodes only the blocks of
+ * records the index says may be in its range. The appends of one event type take a lock.
+ */
+public class EventJournal implements AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private final Map<Class<?>, TypeJournal<?>> journals = new HashMap<>();
+
+    /**
+     * Opens the journal in the given directory with segments of the default size
+     *
+     * @param directory the directory of the journal, created if it does not exist
+     * @param codecs    the codecs of the journaled event types
+     * @throws IOException if the journal cannot be opened
+     */
+    public EventJournal(Path directory, EventCodec<?>... codecs) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, List.of(codecs));
+    }
+
+    /**
+     * Opens the journal in the given directory. The existing segments keep their size.
+     *
+     * @param directory   the directory of the journal, created if it does not exist
+     * @param segmentSize the size of the new segment files in bytes
+     * @param codecs      the codecs of the journaled event types
+     * @throws IllegalArgumentException if the directory or the codecs are null, the segment size is not
+     *                                  positive or two codecs are for the same event type
+     * @throws IOException              if the journal cannot be opened
+     */
+    public EventJournal(Path directory, int segmentSize, Collection<? extends EventCodec<?>> codecs)
+            throws IOException {
+        if (directory == null || codecs == null) {
+            throw new IllegalArgumentException("Directory and codecs cannot be null");
+        }
+        if (segmentSize <= JournalSegment.HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be larger than a record header");
+        }
+
+        for (EventCodec<?> codec : codecs) {
+            Class<?> eventType = codec.eventType();
+            if (journals.containsKey(eventType)) {
+                throw new IllegalArgumentException("There are two codecs for " + eventType.getName());
+            }
+            journals.put(eventType, new TypeJournal<>(directory.resolve(eventType.getName()), codec, segmentSize));
+        }
+    }
+
+    /**
+     * @param eventType the type of event
+     * @return true if the journal has a codec for the event type
+     */
+    public boolean isJournaled(Class<?> eventType) {
+        return journals.containsKey(eventType);
+    }
+
+    /**
+     * Appends the event to the journal of its type
+     *
+     * @param event the event to append
+     * @throws IllegalArgumentException if the event is null, has no codec or is larger than a segment
+     * @throws UncheckedIOException     if a new segment file cannot be created
+     */
+    public void append(Event<?> event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Event cannot be null");
+        }
+
+        journalOf(event.getClass()).append(event);
+    }
+
+    /**
+     * Returns the journaled events of the given type that occurred between the given timestamps, in
+     * timestamp order
+     *
+     * @param eventType the type of event
+     * @param from      the start timestamp (inclusive)
+     * @param to        the end timestamp (exclusive)
+     * @return a new list of the events
+     * @throws IllegalArgumentException if an argument is null or the event type has no codec
+     */
+    public List<Event<?>> between(Class<? extends Event<?>> eventType, Instant from, Instant to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Timestamps cannot be null");
+        }
+
+        return journalOf(eventType).between(from, to);
+    }
+
+    /**
+     * Gives the journaled events of the given type to the consumer one at a time, in the order in which
+     * they were journaled, so the history can be replayed without holding it on the heap
+     *
+     * @param eventType the type of event
+     * @param consumer  the consumer of the events
+     * @throws IllegalArgumentException if an argument is null or the event type has no codec
+     */
+    public <T extends Event<?>> void replay(Class<T> eventType, Consumer<? super T> consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer cannot be null");
+        }
+
+        @SuppressWarnings("unchecked")
+        TypeJournal<T> journal = (TypeJournal<T>) journalOf(eventType);
+        journal.replay(consumer);
+    }
+
+    /**
+     * Returns the events in the journal of the given type, the bytes they take and the number of segments
+     *
+     * @param eventType the type of event
+     * @return the EventLogStatistics of the journal of the event type
+     * @throws IllegalArgumentException if the event type is null or has no codec
+     */
+    public EventLogStatistics statistics(Class<? extends Event<?>> eventType) {
+        return journalOf(eventType).statistics();
+    }
+
+    /**
+     * Deletes the segment files of all event types
+     *
+     * @throws UncheckedIOException if a file cannot be deleted
+     */
+    public void clear() {
+        try {
+            for (TypeJournal<?> journal : journals.values()) {
+                journal.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete the journal", e);
+        }
+    }
+
+    /**
+     * Writes the appended events to the disk
+     */
+    public void flush() {
+        for (TypeJournal<?> journal : journals.values()) {
+            journal.flush();
+        }
+    }
+
+    /**
+     * Writes the appended events to the disk and closes the segment files
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (TypeJournal<?> journal : journals.values()) {
+            journal.close();
+        }
+    }
+
+    private TypeJournal<?> journalOf(Class<?> eventType) {
+        if (eventType == null) {
+            throw new IllegalArgumentException("Event type cannot be null");
+        }
+
+        TypeJournal<?> journal = journals.get(eventType);
+        if (journal == null) {
+            throw new IllegalArgumentException("There is no codec for " + eventType.getName());
+        }
+        return journal;
+    }
+}
@@ -0,0 +1,261 @@
+package bg.sofia.uni.fmi.mjt.eventbus.journal;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A journal file of fixed size, mapped in memory. A record is the length of the record, the timestamp of the
+ * event as seconds and nanoseconds, and the bytes of the codec. The length is written last and the rest of a
+ * new file is zeros, so the records end at the first zero length, also after a crash in the middle of a
+ * write.
+ * <p>
+ * The sparse index keeps the offset and the earliest and the latest timestamp of every block of
+ * BLOCK_RECORDS records, so a query reads only the blocks that overlap its range, even if the events were
+ * not published in timestamp order. It also keeps the latest timestamp up to every block and how much
+ * earlier than that an event has come at most, so a query finds its first and last block with binary
+ * searches instead of checking all of them. Not thread-safe: the TypeJournal guards it with its lock.
+ */
+final class JournalSegment {
+
+    static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private static final int BLOCK_RECORDS = 64;
+    private static final int TIMESTAMP_OFFSET = Integer.BYTES;
+    private static final int NANOS_OFFSET = Integer.BYTES + Long.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final List<Block> blocks = new ArrayList<>();
+    private int position;
+    private long records;
+    private Instant latest;
+    private Duration lateness = Duration.ZERO;
+
+    private JournalSegment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates an empty segment file
+     *
+     * @param path the file
+     * @param size the size of the file in bytes
+     * @return the segment
+     * @throws IOException if the file cannot be created
+     */
+    static JournalSegment create(Path path, int size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new JournalSegment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    /**
+     * Opens a segment file and rebuilds its index from the headers of the records, without decoding them
+     *
+     * @param path the file
+     * @return the segment
+     * @throws IOException if the file cannot be read
+     */
+    static JournalSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        JournalSegment segment =
+                new JournalSegment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+
+        MappedByteBuffer buffer = segment.buffer;
+        while (segment.position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(segment.position);
+            if (length < HEADER_SIZE || segment.position + length > buffer.capacity()) {
+                break;
+            }
+            segment.index(segment.timestampAt(segment.position), length);
+        }
+        return segment;
+    }
+
+    /**
+     * Zeros the bytes after the last record, which are left by a record cut by a crash. The appends write
+     * the length of a record last, so a shorter record written over a cut one would otherwise be followed by
+     * its bytes, and they would be read as the next record when the file is opened again.
+     */
+    void clearTail() {
+        for (int offset = position; offset < buffer.capacity(); offset++) {
+            if (buffer.get(offset) != 0) {
+                buffer.put(offset, (byte) 0);
+            }
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long records() {
+        return records;
+    }
+
+    int position() {
+        return position;
+    }
+
+    boolean hasRoom(int bodySize) {
+        return position + HEADER_SIZE + bodySize <= buffer.capacity();
+    }
+
+    <T extends Event<?>> void append(T event, EventCodec<T> codec, int bodySize) {
+        int length = HEADER_SIZE + bodySize;
+        Instant timestamp = event.getTimestamp();
+        buffer.putLong(position + TIMESTAMP_OFFSET, timestamp.getEpochSecond());
+        buffer.putInt(position + NANOS_OFFSET, timestamp.getNano());
+
+        ByteBuffer body = buffer.slice(position + HEADER_SIZE, bodySize);
+        codec.encode(event, body);
+        if (body.hasRemaining()) {
+            throw new IllegalStateException("The codec wrote less than its encoded size of " + bodySize + " bytes");
+        }
+
+        // last, so a record cut by a crash reads as the end of the segment
+        buffer.putInt(position, length);
+        index(timestamp, length);
+    }
+
+    /**
+     * Returns the parts of the segment that may hold events between the given timestamps. The parts end at
+     * the current end of the segment, so they can be read after the lock is released.
+     *
+     * @param from the start timestamp (inclusive), null for the start of the segment
+     * @param to   the end timestamp (exclusive), null for the end of the segment
+     * @param ranges the list to which the parts are added
+     */
+    void overlapping(Instant from, Instant to, List<Range> ranges) {
+        // the blocks before the first one whose latest timestamp so far is not before from end before it
+        int first = from == null ? 0 : firstBlockWithLatestAtLeast(from);
+        // an event is at most lateness earlier than the latest one before it, so after the first block whose
+        // latest timestamp so far is at least to + lateness the next blocks hold only events after to
+        Instant stop = to == null || to.isAfter(Instant.MAX.minus(lateness)) ? null : to.plus(lateness);
+        int last = stop == null ? blocks.size() - 1 : Math.min(blocks.size() - 1, firstBlockWithLatestAtLeast(stop));
+
+        for (int i = first; i <= last; i++) {
+            Block block = blocks.get(i);
+            if ((to == null || block.min.isBefore(to)) && (from == null || !block.max.isBefore(from))) {
+                int end = i + 1 < blocks.size() ? blocks.get(i + 1).offset : position;
+                ranges.add(new Range(this, block.offset, end));
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first block whose latest timestamp so far is not before the timestamp, the
+     * number of blocks if there is none
+     */
+    private int firstBlockWithLatestAtLeast(Instant timestamp) {
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (blocks.get(middle).latest.isBefore(timestamp)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Decodes the records between the given offsets whose timestamps are in the given range
+     */
+    <T extends Event<?>> void read(int start, int end, Instant from, Instant to, EventCodec<T> codec,
+                                   Consumer<? super T> consumer) {
+        for (int offset = start; offset < end; offset += buffer.getInt(offset)) {
+            Instant timestamp = timestampAt(offset);
+            if ((from == null || !timestamp.isBefore(from)) && (to == null || timestamp.isBefore(to))) {
+                int length = buffer.getInt(offset);
+                consumer.accept(codec.decode(timestamp, buffer.slice(offset + HEADER_SIZE, length - HEADER_SIZE)));
+            }
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private Instant timestampAt(int offset) {
+        return Instant.ofEpochSecond(buffer.getLong(offset + TIMESTAMP_OFFSET), buffer.getInt(offset + NANOS_OFFSET));
+    }
+
+    private void index(Instant timestamp, int length) {
+        if (latest == null || timestamp.isAfter(latest)) {
+            latest = timestamp;
+        } else if (Duration.between(timestamp, latest).compareTo(lateness) > 0) {
+            lateness = Duration.between(timestamp, latest);
+        }
+
+        Block last = blocks.isEmpty() ? null : blocks.getLast();
+        if (last == null || last.records == BLOCK_RECORDS) {
+            last = new Block(position, timestamp);
+            blocks.add(last);
+        }
+        last.add(timestamp);
+        last.latest = latest;
+        position += length;
+        records++;
+    }
+
+    /**
+     * Consecutive records of a segment
+     *
+     * @param segment the segment
+     * @param start   the offset of the first record
+     * @param end     the offset after the last record
+     */
+    record Range(JournalSegment segment, int start, int end) {
+    }
+
+    /**
+     * An entry of the sparse index
+     */
+    private static final class Block {
+
+        private final int offset;
+        private Instant min;
+        private Instant max;
+        // the latest timestamp in this block and the blocks before it
+        private Instant latest;
+        private int records;
+
+        private Block(int offset, Instant timestamp) {
+            this.offset = offset;
+            this.min = timestamp;
+            this.max = timestamp;
+        }
+
+        private void add(Instant timestamp) {
+            if (timestamp.isBefore(min)) {
+                min = timestamp;
+            }
+            if (timestamp.isAfter(max)) {
+                max = timestamp;
+            }
+            records++;
+        }
+    }
+}
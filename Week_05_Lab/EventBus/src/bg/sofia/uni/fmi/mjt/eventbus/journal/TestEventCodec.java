@@ -0,0 +1,72 @@
+package bg.sofia.uni.fmi.mjt.eventbus.journal;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Encodes a TestEvent as its priority followed by its source and payload as UTF-8 strings prefixed with
+ * their lengths. A missing string has a length of -1.
+ */
+public class TestEventCodec implements EventCodec<TestEvent> {
+
+    private static final int MISSING = -1;
+
+    @Override
+    public Class<TestEvent> eventType() {
+        return TestEvent.class;
+    }
+
+    @Override
+    public int encodedSize(TestEvent event) {
+        return Integer.BYTES + stringSize(event.getSource()) + stringSize(payloadOf(event));
+    }
+
+    @Override
+    public void encode(TestEvent event, ByteBuffer buffer) {
+        buffer.putInt(event.getPriority());
+        putString(buffer, event.getSource());
+        putString(buffer, payloadOf(event));
+    }
+
+    @Override
+    public TestEvent decode(Instant timestamp, ByteBuffer buffer) {
+        int priority = buffer.getInt();
+        String source = getString(buffer);
+        String payload = getString(buffer);
+        return new TestEvent(timestamp, priority, source, payload == null ? null : new TestPayload(payload));
+    }
+
+    private static String payloadOf(TestEvent event) {
+        return event.getPayload() == null ? null : event.getPayload().getPayload();
+    }
+
+    private static int stringSize(String string) {
+        return Integer.BYTES + (string == null ? 0 : string.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void putString(ByteBuffer buffer, String string) {
+        if (string == null) {
+            buffer.putInt(MISSING);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == MISSING) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
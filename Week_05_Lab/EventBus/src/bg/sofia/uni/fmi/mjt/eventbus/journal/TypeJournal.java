@@ -0,0 +1,168 @@
+package bg.sofia.uni.fmi.mjt.eventbus.journal;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+import bg.sofia.uni.fmi.mjt.eventbus.log.EventLogStatistics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * The journal of the events of one type: a directory of segment files numbered in the order in which they
+ * were written. The appends take a lock, the reads take it only to find the parts of the segments they need.
+ */
+final class TypeJournal<T extends Event<?>> {
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final Comparator<Event<?>> BY_TIMESTAMP = Comparator.comparing(Event::getTimestamp);
+
+    private final Path directory;
+    private final EventCodec<T> codec;
+    private final int segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // guarded by the lock
+    private final List<JournalSegment> segments = new ArrayList<>();
+    private long nextSegment;
+
+    TypeJournal(Path directory, EventCodec<T> codec, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.codec = codec;
+        this.segmentSize = segmentSize;
+
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listed = Files.list(directory)) {
+            files = listed.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            segments.add(JournalSegment.open(file));
+        }
+        if (!files.isEmpty()) {
+            // only the last segment is appended to
+            segments.getLast().clearTail();
+            String last = files.getLast().getFileName().toString();
+            nextSegment = Long.parseLong(last.substring(0, last.length() - SEGMENT_SUFFIX.length())) + 1;
+        }
+    }
+
+    void append(Event<?> event) {
+        T typedEvent = codec.eventType().cast(event);
+        int bodySize = codec.encodedSize(typedEvent);
+        if (JournalSegment.HEADER_SIZE + bodySize > segmentSize) {
+            throw new IllegalArgumentException("The event is larger than a journal segment of " + segmentSize
+                    + " bytes");
+        }
+
+        lock.lock();
+        try {
+            JournalSegment last = segments.isEmpty() ? null : segments.getLast();
+            if (last == null || !last.hasRoom(bodySize)) {
+                last = JournalSegment.create(directory.resolve(segmentName(nextSegment)), segmentSize);
+                segments.add(last);
+                nextSegment++;
+            }
+            last.append(typedEvent, codec, bodySize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create a journal segment in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    List<Event<?>> between(Instant from, Instant to) {
+        List<Event<?>> result = new ArrayList<>();
+        for (JournalSegment.Range range : ranges(from, to)) {
+            range.segment().read(range.start(), range.end(), from, to, codec, result::add);
+        }
+
+        // a stable sort, so events with equal timestamps stay in the order in which they were journaled
+        result.sort(BY_TIMESTAMP);
+        return result;
+    }
+
+    void replay(Consumer<? super T> consumer) {
+        for (JournalSegment.Range range : ranges(null, null)) {
+            range.segment().read(range.start(), range.end(), null, null, codec, consumer);
+        }
+    }
+
+    EventLogStatistics statistics() {
+        lock.lock();
+        try {
+            long records = 0;
+            long bytes = 0;
+            for (JournalSegment segment : segments) {
+                records += segment.records();
+                bytes += segment.position();
+            }
+            return new EventLogStatistics(records, bytes, 0, segments.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() throws IOException {
+        lock.lock();
+        try {
+            while (!segments.isEmpty()) {
+                // out of the list before its file is deleted, so a failed delete leaves no closed segment in it
+                JournalSegment segment = segments.removeFirst();
+                segment.close();
+                Files.delete(segment.path());
+            }
+            nextSegment = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void flush() {
+        lock.lock();
+        try {
+            for (JournalSegment segment : segments) {
+                segment.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() throws IOException {
+        lock.lock();
+        try {
+            for (JournalSegment segment : segments) {
+                segment.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<JournalSegment.Range> ranges(Instant from, Instant to) {
+        List<JournalSegment.Range> ranges = new ArrayList<>();
+        lock.lock();
+        try {
+            for (JournalSegment segment : segments) {
+                segment.overlapping(from, to, ranges);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return ranges;
+    }
+
+    private static String segmentName(long number) {
+        return String.format("%020d%s", number, SEGMENT_SUFFIX);
+    }
+}
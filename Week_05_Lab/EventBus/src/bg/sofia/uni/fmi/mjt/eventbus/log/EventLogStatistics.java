@@ -0,0 +1,12 @@
+package bg.sofia.uni.fmi.mjt.eventbus.log;
+
+/**
+ * The size of the log of an event type at one moment
+ *
+ * @param retainedEvents the events in the log
+ * @param retainedBytes  the size of the payloads of the events in the log
+ * @param evictedEvents  the events evicted by the RetentionPolicy so far
+ * @param segments       the segments of the log
+ */
+public record EventLogStatistics(long retainedEvents, long retainedBytes, long evictedEvents, int segments) {
+}
@@ -0,0 +1,58 @@
+package bg.sofia.uni.fmi.mjt.eventbus.log;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * How many events the log of an event type keeps. The oldest events are evicted when the log holds more
+ * than maxCount events, events older than maxAge, or more than maxBytes of payload, counted by
+ * Payload.getSize(). The log evicts whole segments, so it may keep up to a segment more than the limits.
+ *
+ * @param maxCount the number of events to keep
+ * @param maxAge   the age of the oldest event to keep
+ * @param maxBytes the size of the payloads of the events to keep
+ */
+public record RetentionPolicy(long maxCount, Duration maxAge, long maxBytes) {
+
+    /**
+     * Keeps every event
+     */
+    public static final RetentionPolicy UNLIMITED =
+            new RetentionPolicy(Long.MAX_VALUE, ChronoUnit.FOREVER.getDuration(), Long.MAX_VALUE);
+
+    /**
+     * @throws IllegalArgumentException if a limit is not positive or the age is null
+     */
+    public RetentionPolicy {
+        if (maxCount <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("The count and the bytes must be positive");
+        }
+        if (maxAge == null || maxAge.isNegative() || maxAge.isZero()) {
+            throw new IllegalArgumentException("The age must be positive");
+        }
+    }
+
+    public static RetentionPolicy ofMaxCount(long maxCount) {
+        return UNLIMITED.withMaxCount(maxCount);
+    }
+
+    public static RetentionPolicy ofMaxAge(Duration maxAge) {
+        return UNLIMITED.withMaxAge(maxAge);
+    }
+
+    public static RetentionPolicy ofMaxBytes(long maxBytes) {
+        return UNLIMITED.withMaxBytes(maxBytes);
+    }
+
+    public RetentionPolicy withMaxCount(long maxCount) {
+        return new RetentionPolicy(maxCount, maxAge, maxBytes);
+    }
+
+    public RetentionPolicy withMaxAge(Duration maxAge) {
+        return new RetentionPolicy(maxCount, maxAge, maxBytes);
+    }
+
+    public RetentionPolicy withMaxBytes(long maxBytes) {
+        return new RetentionPolicy(maxCount, maxAge, maxBytes);
+    }
+}
@@ -0,0 +1,378 @@
+package bg.sofia.uni.fmi.mjt.eventbus.log;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The log of the events of one type, kept in timestamp order in segments of fixed size, so a range of
+ * timestamps is found with a binary search over the first timestamps of the segments and one inside a
+ * segment, and is read without sorting.
+ * <p>
+ * The publishers do not touch the segments. They append without locks to a reorder buffer of several
+ * stripes, chosen by the publishing thread. When a stripe fills up, or before a query, the buffer is sorted
+ * and moved to the segments under a lock. The events that are not older than the last logged one are
+ * appended to the last segment. The rest are inserted in their places, and a full segment is split in two.
+ * <p>
+ * Events with equal timestamps keep the order in which they were moved from the buffer: the events of one
+ * thread stay in the order in which it published them.
+ * <p>
+ * After every move the RetentionPolicy is applied by dropping whole segments from the oldest end, so no
+ * event is cleaned up on its own. A log limited to a few events uses smaller segments, so it does not keep
+ * many more events than the limit.
+ */
+public class SegmentedEventLog {
+
+    private static final int SEGMENT_SIZE = 1024;
+    private static final int MIN_SEGMENT_SIZE = 16;
+    private static final int SEGMENTS_PER_MAX_COUNT = 8;
+    private static final int STRIPE_CAPACITY = 256;
+    private static final Comparator<Event<?>> BY_TIMESTAMP = Comparator.comparing(Event::getTimestamp);
+
+    // a power of two of at least twice the processors
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Clock clock;
+
+    // guarded by the lock
+    private final List<Segment> segments = new ArrayList<>();
+    private RetentionPolicy retention;
+    private long retainedEvents;
+    private long retainedBytes;
+    private long evictedEvents;
+
+    public SegmentedEventLog() {
+        this(RetentionPolicy.UNLIMITED, Clock.systemUTC());
+    }
+
+    /**
+     * @param retention how many events to keep
+     * @param clock     the clock against which the age of the events is measured
+     * @throws IllegalArgumentException if the retention or the clock is null
+     */
+    public SegmentedEventLog(RetentionPolicy retention, Clock clock) {
+        if (retention == null || clock == null) {
+            throw new IllegalArgumentException("Retention policy and clock cannot be null");
+        }
+
+        this.retention = retention;
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Appends the event to the reorder buffer. If the stripe of the calling thread is full and no other
+     * thread holds the lock, the buffer is moved to the segments.
+     *
+     * @param event the event to append
+     */
+    public void append(Event<?> event) {
+        Stripe stripe = stripes[(int) (Thread.currentThread().threadId() & (STRIPES - 1))];
+        stripe.events.add(event);
+        if (stripe.size.incrementAndGet() >= STRIPE_CAPACITY && lock.tryLock()) {
+            try {
+                flush();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the events that occurred between the given timestamps, in timestamp order
+     *
+     * @param from the start timestamp (inclusive)
+     * @param to   the end timestamp (exclusive)
+     * @return a new list of the events
+     */
+    public List<Event<?>> between(Instant from, Instant to) {
+        List<Event<?>> result = new ArrayList<>();
+        lock.lock();
+        try {
+            flush();
+
+            int segmentIndex = Math.max(0, lastSegmentStartingBefore(from));
+            if (segmentIndex >= segments.size()) {
+                return result;
+            }
+            int position = segments.get(segmentIndex).lowerBound(from);
+            for (; segmentIndex < segments.size(); segmentIndex++, position = 0) {
+                Segment segment = segments.get(segmentIndex);
+                for (; position < segment.size; position++) {
+                    if (!segment.events[position].getTimestamp().isBefore(to)) {
+                        return result;
+                    }
+                    result.add(segment.events[position]);
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the retention policy and evicts the events it does not keep
+     *
+     * @param retention how many events to keep
+     * @throws IllegalArgumentException if the retention is null
+     */
+    public void setRetentionPolicy(RetentionPolicy retention) {
+        if (retention == null) {
+            throw new IllegalArgumentException("Retention policy cannot be null");
+        }
+
+        lock.lock();
+        try {
+            this.retention = retention;
+            flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the size of the log, after the events in the reorder buffer are moved to it and the expired
+     * events are evicted
+     *
+     * @return the EventLogStatistics of the log
+     */
+    public EventLogStatistics statistics() {
+        lock.lock();
+        try {
+            flush();
+            return new EventLogStatistics(retainedEvents, retainedBytes, evictedEvents, segments.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the events of the reorder buffer to the segments and evicts the events the retention policy does
+     * not keep. Called with the lock held.
+     */
+    private void flush() {
+        List<Event<?>> arrived = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            int count = 0;
+            for (Event<?> event = stripe.events.poll(); event != null; event = stripe.events.poll()) {
+                arrived.add(event);
+                count++;
+            }
+            stripe.size.addAndGet(-count);
+        }
+
+        // a stable sort, so the order of the events of a stripe is kept
+        arrived.sort(BY_TIMESTAMP);
+        for (Event<?> event : arrived) {
+            insert(event);
+        }
+        evict();
+    }
+
+    private void evict() {
+        Instant now = clock.instant();
+        Duration maxAge = retention.maxAge();
+        // an age longer than the time since Instant.MIN keeps every event
+        Instant cutoff = maxAge.compareTo(Duration.between(Instant.MIN, now)) >= 0 ? null : now.minus(maxAge);
+
+        int evictedSegments = 0;
+        while (evictedSegments < segments.size()) {
+            Segment oldest = segments.get(evictedSegments);
+            boolean expired = cutoff != null && oldest.lastTimestamp().isBefore(cutoff);
+            boolean overCount = retainedEvents - oldest.size >= retention.maxCount();
+            boolean overBytes = retainedBytes - oldest.bytes >= retention.maxBytes();
+            if (!expired && !overCount && !overBytes) {
+                break;
+            }
+
+            retainedEvents -= oldest.size;
+            retainedBytes -= oldest.bytes;
+            evictedEvents += oldest.size;
+            evictedSegments++;
+        }
+        segments.subList(0, evictedSegments).clear();
+    }
+
+    private void insert(Event<?> event) {
+        Instant timestamp = event.getTimestamp();
+        Segment last = segments.isEmpty() ? null : segments.getLast();
+        if (last == null || !timestamp.isBefore(last.lastTimestamp())) {
+            if (last == null || last.isFull()) {
+                last = new Segment(segmentSize());
+                segments.add(last);
+            }
+            add(last, last.size, event);
+            return;
+        }
+
+        // a late event goes after the logged events with the same timestamp
+        int segmentIndex = Math.max(0, lastSegmentStartingAtOrBefore(timestamp));
+        Segment segment = segments.get(segmentIndex);
+        int position = segment.upperBound(timestamp);
+        if (segment.isFull()) {
+            Segment right = segment.split();
+            segments.add(segmentIndex + 1, right);
+            if (position > segment.size) {
+                position -= segment.size;
+                segment = right;
+            }
+        }
+        add(segment, position, event);
+    }
+
+    private void add(Segment segment, int position, Event<?> event) {
+        segment.insert(position, event);
+        retainedEvents++;
+        retainedBytes += bytesOf(event);
+    }
+
+    private int segmentSize() {
+        return (int) Math.min(SEGMENT_SIZE, Math.max(MIN_SEGMENT_SIZE, retention.maxCount() / SEGMENTS_PER_MAX_COUNT));
+    }
+
+    private static long bytesOf(Event<?> event) {
+        return event.getPayload() == null ? 0 : event.getPayload().getSize();
+    }
+
+    /**
+     * @return the index of the last segment whose first event is before the timestamp, -1 if there is none
+     */
+    private int lastSegmentStartingBefore(Instant timestamp) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (segments.get(middle).firstTimestamp().isBefore(timestamp)) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * @return the index of the last segment whose first event is not after the timestamp, -1 if there is none
+     */
+    private int lastSegmentStartingAtOrBefore(Instant timestamp) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (!segments.get(middle).firstTimestamp().isAfter(timestamp)) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * The events appended by the threads of one stripe that are not in the segments yet
+     */
+    private static final class Stripe {
+        private final ConcurrentLinkedQueue<Event<?>> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    /**
+     * Events in timestamp order, with the size of their payloads
+     */
+    private static final class Segment {
+
+        private final Event<?>[] events;
+        private int size;
+        private long bytes;
+
+        Segment(int capacity) {
+            events = new Event<?>[capacity];
+        }
+
+        boolean isFull() {
+            return size == events.length;
+        }
+
+        Instant firstTimestamp() {
+            return events[0].getTimestamp();
+        }
+
+        Instant lastTimestamp() {
+            return events[size - 1].getTimestamp();
+        }
+
+        /**
+         * @return the position of the first event that is not before the timestamp
+         */
+        int lowerBound(Instant timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (events[middle].getTimestamp().isBefore(timestamp)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the position of the first event that is after the timestamp
+         */
+        int upperBound(Instant timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (events[middle].getTimestamp().isAfter(timestamp)) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        void insert(int position, Event<?> event) {
+            System.arraycopy(events, position, events, position + 1, size - position);
+            events[position] = event;
+            size++;
+            bytes += bytesOf(event);
+        }
+
+        /**
+         * Moves the second half of the events to a new segment
+         *
+         * @return the new segment
+         */
+        Segment split() {
+            Segment right = new Segment(events.length);
+            int half = size / 2;
+            right.size = size - half;
+            System.arraycopy(events, half, right.events, 0, right.size);
+            for (int i = 0; i < right.size; i++) {
+                right.bytes += bytesOf(right.events[i]);
+            }
+            bytes -= right.bytes;
+            Arrays.fill(events, half, size, null);
+            size = half;
+            return right;
+        }
+    }
+}
@@ -7,10 +7,13 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class DeferredEventSubscriber<T extends Event<?>> implements Subscriber<T>, Iterable<T> {
 
-    private final List<T> events = new ArrayList<>();
+    // the bus notifies the subscriber on the publishing threads, which can be many at once
+    private final Queue<T> events = new ConcurrentLinkedQueue<>();
 
     /**
      * Store an event for processing at a later time.
@@ -0,0 +1,78 @@
+package bg.sofia.uni.fmi.mjt.eventbus;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+import bg.sofia.uni.fmi.mjt.eventbus.exception.MissingSubscriptionException;
+import bg.sofia.uni.fmi.mjt.eventbus.subscribers.Subscriber;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EventBusImplTest {
+
+    @Test
+    void testPublishNotifiesTheSubscribersThatWereThereWhenItStarted() {
+        EventBusImpl bus = new EventBusImpl();
+        List<String> notified = new ArrayList<>();
+        Subscriber<TestEvent> late = event -> notified.add("late");
+        Subscriber<TestEvent> second = event -> notified.add("second");
+        Subscriber<TestEvent> first = new Subscriber<>() {
+            private boolean changed;
+
+            @Override
+            public void onEvent(TestEvent event) {
+                notified.add("first");
+                if (changed) {
+                    return;
+                }
+                changed = true;
+                try {
+                    bus.unsubscribe(TestEvent.class, second);
+                } catch (MissingSubscriptionException e) {
+                    throw new IllegalStateException(e);
+                }
+                bus.subscribe(TestEvent.class, late);
+            }
+        };
+        bus.subscribe(TestEvent.class, first);
+        bus.subscribe(TestEvent.class, second);
+
+        bus.publish(event());
+        assertEquals(List.of("first", "second"), notified,
+                "The subscriptions changed during a publish should not change whom it notifies");
+
+        notified.clear();
+        bus.publish(event());
+        assertEquals(List.of("first", "late"), notified, "The next publish should see the changed subscriptions");
+    }
+
+    @Test
+    void testSubscribersForEventAreASnapshot() throws MissingSubscriptionException {
+        EventBusImpl bus = new EventBusImpl();
+        Subscriber<TestEvent> first = event -> { };
+        Subscriber<TestEvent> second = event -> { };
+        bus.subscribe(TestEvent.class, first);
+        bus.subscribe(TestEvent.class, first);
+
+        Collection<Subscriber<?>> before = bus.getSubscribersForEvent(TestEvent.class);
+        bus.subscribe(TestEvent.class, second);
+        bus.unsubscribe(TestEvent.class, first);
+
+        assertEquals(List.of(first), List.copyOf(before), "A subscriber should be kept once and later changes "
+                + "should not change the returned collection");
+        assertEquals(List.of(second), List.copyOf(bus.getSubscribersForEvent(TestEvent.class)),
+                "The subscribers should be replaced");
+        assertThrows(MissingSubscriptionException.class, () -> bus.unsubscribe(TestEvent.class, first),
+                "A removed subscriber should not be unsubscribed twice");
+    }
+
+    private static TestEvent event() {
+        return new TestEvent(Instant.now(), 0, "test", new TestPayload("payload"));
+    }
+}
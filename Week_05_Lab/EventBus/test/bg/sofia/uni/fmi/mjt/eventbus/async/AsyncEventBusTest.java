@@ -0,0 +1,133 @@
+package bg.sofia.uni.fmi.mjt.eventbus.async;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+import bg.sofia.uni.fmi.mjt.eventbus.exception.SubscriberOverloadedException;
+import bg.sofia.uni.fmi.mjt.eventbus.subscribers.Subscriber;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsyncEventBusTest {
+
+    @Test
+    void testDropOldestKeepsTheNewestEvents() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<TestEvent> notified = new ArrayList<>();
+        List<TestEvent> events = List.of(event(), event(), event(), event());
+
+        try (AsyncEventBus bus = new AsyncEventBus(2, BackpressurePolicy.DROP_OLDEST, tasks::add)) {
+            bus.subscribe(TestEvent.class, notified::add);
+            events.forEach(bus::publish);
+
+            tasks.forEach(Runnable::run);
+            assertEquals(events.subList(2, 4), notified, "The newest events should be delivered");
+            assertEquals(2, bus.getSubscriberStatistics().iterator().next().dropped(),
+                    "The oldest events should be counted as dropped");
+        }
+    }
+
+    @Test
+    void testDropNewestKeepsTheWaitingEvents() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<TestEvent> notified = new ArrayList<>();
+        List<TestEvent> events = List.of(event(), event(), event(), event());
+
+        try (AsyncEventBus bus = new AsyncEventBus(2, BackpressurePolicy.DROP_NEWEST, tasks::add)) {
+            bus.subscribe(TestEvent.class, notified::add);
+            events.forEach(bus::publish);
+
+            tasks.forEach(Runnable::run);
+            assertEquals(events.subList(0, 2), notified, "The waiting events should be delivered");
+            assertEquals(2, bus.getSubscriberStatistics().iterator().next().dropped(),
+                    "The newest events should be counted as dropped");
+        }
+    }
+
+    @Test
+    void testFailingSubscriberDoesNotStopTheNextEvents() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<TestEvent> notified = new ArrayList<>();
+        TestEvent failing = event();
+        TestEvent next = event();
+
+        try (AsyncEventBus bus = new AsyncEventBus(4, BackpressurePolicy.BLOCK, tasks::add)) {
+            bus.subscribe(TestEvent.class, event -> {
+                if (event == failing) {
+                    throw new IllegalStateException("The subscriber failed");
+                }
+                notified.add(event);
+            });
+            bus.publish(failing);
+            bus.publish(next);
+
+            tasks.forEach(Runnable::run);
+            assertEquals(List.of(next), notified, "The event after the failure should be delivered");
+            SubscriberStatistics statistics = bus.getSubscriberStatistics().iterator().next();
+            assertEquals(1, statistics.failed(), "The failure should be counted");
+            assertEquals(1, statistics.delivered(), "The delivery should be counted");
+        }
+    }
+
+    @Test
+    void testFullQueuesDoNotKeepTheEventFromTheOtherSubscribers() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<String> notified = new ArrayList<>();
+        Subscriber<TestEvent> first = event -> notified.add("first");
+        Subscriber<TestEvent> second = event -> notified.add("second");
+        Subscriber<TestEvent> third = event -> notified.add("third");
+
+        try (AsyncEventBus bus = new AsyncEventBus(1, BackpressurePolicy.FAIL_FAST, tasks::add)) {
+            bus.subscribe(TestEvent.class, first);
+            bus.subscribe(TestEvent.class, second);
+            bus.publish(event());
+            bus.subscribe(TestEvent.class, third);
+
+            SubscriberOverloadedException exception = assertThrows(SubscriberOverloadedException.class,
+                    () -> bus.publish(event()), "The full queues should be reported");
+            assertEquals(2, exception.getSuppressed().length, "Both full queues should be in the exception");
+
+            tasks.forEach(Runnable::run);
+            assertEquals(List.of("first", "second", "third"), notified,
+                    "The subscriber after the full queues should get the event");
+            assertEquals(2, bus.getSubscriberStatistics().stream().mapToLong(SubscriberStatistics::rejected).sum(),
+                    "The rejected events should be counted");
+        }
+    }
+
+    @Test
+    void testRejectedTaskIsStartedAgainByTheNextEvent() {
+        List<Runnable> tasks = new ArrayList<>();
+        boolean[] rejecting = {true};
+        List<TestEvent> notified = new ArrayList<>();
+
+        try (AsyncEventBus bus = new AsyncEventBus(4, BackpressurePolicy.FAIL_FAST, task -> {
+            if (rejecting[0]) {
+                throw new RejectedExecutionException("The executor is shut down");
+            }
+            tasks.add(task);
+        })) {
+            bus.subscribe(TestEvent.class, notified::add);
+            TestEvent rejected = event();
+            assertThrows(RejectedExecutionException.class, () -> bus.publish(rejected),
+                    "The rejection of the executor should reach the publisher");
+
+            rejecting[0] = false;
+            TestEvent accepted = event();
+            bus.publish(accepted);
+            tasks.forEach(Runnable::run);
+            assertEquals(List.of(rejected, accepted), notified,
+                    "The next event should start a task for the event left in the queue");
+        }
+    }
+
+    private static TestEvent event() {
+        return new TestEvent(Instant.now(), 0, "test", new TestPayload("payload"));
+    }
+}
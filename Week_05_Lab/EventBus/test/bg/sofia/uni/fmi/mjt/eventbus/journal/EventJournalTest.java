@@ -0,0 +1,151 @@
+package bg.sofia.uni.fmi.mjt.eventbus.journal;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventJournalTest {
+
+    private static final long SEED = 42;
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testBetweenMatchesASortedListForLateEvents() throws IOException {
+        Random random = new Random(SEED);
+        List<Event<?>> reference = new ArrayList<>();
+        try (EventJournal journal = open()) {
+            for (int i = 0; i < 3000; i++) {
+                // most events are a little late, a few are late by many blocks
+                int lateness = random.nextInt(100) == 0 ? 500 + random.nextInt(500) : random.nextInt(5);
+                TestEvent event = event(Math.max(0, i - lateness), i);
+                journal.append(event);
+                reference.add(event);
+            }
+            assertQueries(reference, journal, random);
+        }
+
+        try (EventJournal reopened = open()) {
+            assertQueries(reference, reopened, random);
+        }
+    }
+
+    @Test
+    void testTornRecordIsTheEndOfTheJournalWhenItIsOpenedAgain() throws IOException {
+        List<Event<?>> reference = new ArrayList<>();
+        try (EventJournal journal = open()) {
+            for (int i = 0; i < 100; i++) {
+                TestEvent event = event(i, i);
+                journal.append(event);
+                reference.add(event);
+            }
+        }
+        // a crash after the header and the body of a long record, before its length
+        tear(lastSegment(), 0, "a long payload that was cut by a crash".repeat(4));
+
+        try (EventJournal reopened = open()) {
+            assertEquals(describe(reference), describe(reopened.between(TestEvent.class, Instant.MIN, Instant.MAX)),
+                    "The torn record should not be read");
+            TestEvent shorter = event(100, 100);
+            reopened.append(shorter);
+            reference.add(shorter);
+        }
+        // a crash that left a length running past the end of the file
+        tear(lastSegment(), SEGMENT_SIZE, "cut");
+
+        try (EventJournal reopened = open()) {
+            assertEquals(describe(reference), describe(reopened.between(TestEvent.class, Instant.MIN, Instant.MAX)),
+                    "The bytes of the torn records should not be read as records");
+            assertEquals(reference.size(), reopened.statistics(TestEvent.class).retainedEvents(),
+                    "Only the whole records should be counted");
+        }
+    }
+
+    private EventJournal open() throws IOException {
+        return new EventJournal(directory, SEGMENT_SIZE, List.of(new TestEventCodec()));
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve(TestEvent.class.getName()))) {
+            return files.max(Comparator.naturalOrder()).orElseThrow();
+        }
+    }
+
+    /**
+     * Writes a record after the last whole one of the segment, with the given length
+     */
+    private static void tear(Path segment, int length, String payload) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int end = 0;
+            while (buffer.getInt(end) != 0) {
+                end += buffer.getInt(end);
+            }
+
+            TestEvent event = event(0, 0);
+            TestEventCodec codec = new TestEventCodec();
+            TestEvent torn = new TestEvent(event.getTimestamp(), 0, "torn", new TestPayload(payload));
+            buffer.putLong(end + Integer.BYTES, torn.getTimestamp().getEpochSecond());
+            codec.encode(torn, buffer.slice(end + JournalSegment.HEADER_SIZE, codec.encodedSize(torn)));
+            buffer.putInt(end, length);
+        }
+    }
+
+    private static void assertQueries(List<Event<?>> reference, EventJournal journal, Random random) {
+        assertBetween(reference, journal, Instant.MIN, Instant.MAX);
+        assertBetween(reference, journal, second(0), second(1));
+        assertBetween(reference, journal, second(2999), Instant.MAX);
+        assertBetween(reference, journal, second(1500), second(1500));
+        for (int query = 0; query < 200; query++) {
+            assertBetween(reference, journal, second(random.nextInt(3100) - 50), second(random.nextInt(3100) - 50));
+        }
+    }
+
+    private static void assertBetween(List<Event<?>> reference, EventJournal journal, Instant from, Instant to) {
+        // a stable sort keeps the events with equal timestamps in the order in which they were journaled
+        List<Event<?>> expected = reference.stream()
+                .sorted(Comparator.comparing(Event::getTimestamp))
+                .filter(event -> !event.getTimestamp().isBefore(from) && event.getTimestamp().isBefore(to))
+                .toList();
+        assertEquals(describe(expected), describe(journal.between(TestEvent.class, from, to)),
+                "The events from " + from + " to " + to + " should match");
+    }
+
+    /**
+     * The journal decodes new events, so they are compared by their fields
+     */
+    private static List<String> describe(List<Event<?>> events) {
+        return events.stream()
+                .map(event -> event.getTimestamp() + " " + event.getPriority() + " " + event.getSource() + " "
+                        + ((TestPayload) event.getPayload()).getPayload())
+                .toList();
+    }
+
+    private static TestEvent event(int second, int number) {
+        return new TestEvent(second(second), number, "test", new TestPayload("event " + number));
+    }
+
+    private static Instant second(int second) {
+        return START.plusSeconds(second);
+    }
+}
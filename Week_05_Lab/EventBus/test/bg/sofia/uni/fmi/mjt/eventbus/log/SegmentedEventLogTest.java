@@ -0,0 +1,153 @@
+package bg.sofia.uni.fmi.mjt.eventbus.log;
+
+import bg.sofia.uni.fmi.mjt.eventbus.events.Event;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestEvent;
+import bg.sofia.uni.fmi.mjt.eventbus.events.TestPayload;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedEventLogTest {
+
+    private static final long SEED = 42;
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void testBetweenMatchesASortedListForEventsOutOfOrder() {
+        Random random = new Random(SEED);
+        SegmentedEventLog log = new SegmentedEventLog();
+        List<Event<?>> reference = new ArrayList<>();
+
+        // few distinct timestamps, so many events are equal, and enough events to split the segments
+        for (int i = 0; i < 5000; i++) {
+            TestEvent event = event(random.nextInt(600), i);
+            log.append(event);
+            reference.add(event);
+
+            if (random.nextInt(200) == 0) {
+                assertBetween(reference, log, second(random.nextInt(700) - 50), second(random.nextInt(700) - 50));
+            }
+        }
+
+        assertBetween(reference, log, second(-1), second(601));
+        assertBetween(reference, log, second(0), second(600));
+        assertBetween(reference, log, second(0), second(0));
+        assertBetween(reference, log, second(300), second(301));
+        assertBetween(reference, log, second(599), second(600));
+        assertBetween(reference, log, second(601), second(700));
+        for (int query = 0; query < 100; query++) {
+            assertBetween(reference, log, second(random.nextInt(700) - 50), second(random.nextInt(700) - 50));
+        }
+        assertEquals(reference.size(), log.statistics().retainedEvents(), "Every event should be kept");
+    }
+
+    @Test
+    void testCountRetentionKeepsTheNewestEvents() {
+        SegmentedEventLog log = new SegmentedEventLog(RetentionPolicy.ofMaxCount(100), Clock.systemUTC());
+        List<Event<?>> reference = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            TestEvent event = event(i, i);
+            log.append(event);
+            reference.add(event);
+        }
+
+        EventLogStatistics statistics = log.statistics();
+        assertTrue(statistics.retainedEvents() >= 100, "At least the limit of events should be kept");
+        assertTrue(statistics.retainedEvents() < 100 + 16, "At most a segment more than the limit should be kept");
+        assertEquals(1000, statistics.retainedEvents() + statistics.evictedEvents(),
+                "Every event should be kept or evicted");
+        assertEquals(reference.subList(1000 - (int) statistics.retainedEvents(), 1000),
+                log.between(second(0), second(1000)), "The newest events should be kept");
+    }
+
+    @Test
+    void testAgeRetentionEvictsTheEventsOlderThanTheClock() {
+        MutableClock clock = new MutableClock(second(1000));
+        SegmentedEventLog log =
+                new SegmentedEventLog(RetentionPolicy.ofMaxAge(Duration.ofSeconds(100)).withMaxCount(1000), clock);
+        for (int i = 0; i < 1000; i++) {
+            log.append(event(i, i));
+        }
+
+        List<Event<?>> kept = log.between(second(0), second(1000));
+        assertTrue(kept.size() >= 100 && kept.size() < 100 + 125,
+                "The events of the last 100 seconds and the rest of their segment should be kept");
+        assertEquals(second(1000 - kept.size()), kept.getFirst().getTimestamp(),
+                "The oldest events should be evicted");
+
+        clock.now = second(2000);
+        EventLogStatistics statistics = log.statistics();
+        assertEquals(0, statistics.retainedEvents(), "Every event should expire when the clock moves on");
+        assertEquals(1000, statistics.evictedEvents(), "Every event should be counted as evicted");
+    }
+
+    @Test
+    void testByteRetentionKeepsTheNewestPayloads() {
+        SegmentedEventLog log =
+                new SegmentedEventLog(RetentionPolicy.ofMaxBytes(1000).withMaxCount(160), Clock.systemUTC());
+        for (int i = 0; i < 1000; i++) {
+            // 10 bytes of payload each
+            log.append(new TestEvent(second(i), 0, "test", new TestPayload(String.format("%010d", i))));
+        }
+
+        EventLogStatistics statistics = log.statistics();
+        assertTrue(statistics.retainedBytes() >= 1000, "At least the limit of bytes should be kept");
+        assertTrue(statistics.retainedBytes() < 1000 + 200, "At most a segment more than the limit should be kept");
+        assertEquals(statistics.retainedBytes(), statistics.retainedEvents() * 10,
+                "The bytes should be the sum of the payloads");
+        assertEquals(second(1000 - (int) statistics.retainedEvents()),
+                log.between(second(0), second(1000)).getFirst().getTimestamp(), "The oldest events should be evicted");
+    }
+
+    private static void assertBetween(List<Event<?>> reference, SegmentedEventLog log, Instant from, Instant to) {
+        // a stable sort keeps the events with equal timestamps in the order in which they were appended
+        List<Event<?>> expected = reference.stream()
+                .sorted(Comparator.comparing(Event::getTimestamp))
+                .filter(event -> !event.getTimestamp().isBefore(from) && event.getTimestamp().isBefore(to))
+                .toList();
+        assertEquals(expected, log.between(from, to), "The events from " + from + " to " + to + " should match");
+    }
+
+    private static TestEvent event(int second, int number) {
+        return new TestEvent(second(second), 0, "test", new TestPayload("event " + number));
+    }
+
+    private static Instant second(int second) {
+        return START.plusSeconds(second);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}